@@ -20,9 +20,10 @@ import com.google.api.ads.adwords.lib.utils.AdHocReportDownloadHelper;
 import com.google.api.ads.adwords.lib.utils.BatchJobHelperInterface;
 import com.google.api.ads.adwords.lib.utils.logging.AdWordsLoggingModule;
 import com.google.api.ads.common.lib.AdsModule;
+import com.google.api.ads.common.lib.utils.HttpTransportProvider;
 import com.google.api.ads.common.lib.utils.XmlFieldExtractor;
 import com.google.api.client.http.HttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.inject.Singleton;
 
 /** Guice module for AdWords bindings. */
 public class AdWordsModule extends AdsModule {
@@ -34,7 +35,7 @@ public class AdWordsModule extends AdsModule {
     super.configure();
     configureLogging(AdWordsServiceClient.class.getName());
     install(new AdWordsConfigurationModule());
-    bind(HttpTransport.class).to(NetHttpTransport.class);
+    bind(HttpTransport.class).toProvider(HttpTransportProvider.class).in(Singleton.class);
     bind(XmlFieldExtractor.class);
   }
 
@@ -15,9 +15,11 @@
 package com.google.api.ads.adwords.lib;
 
 import com.google.api.ads.adwords.lib.factory.AdWordsServicesInterface;
+import com.google.api.ads.common.lib.soap.SoapCallListener;
 import com.google.api.ads.common.lib.useragent.ExtensionUserAgentProvider;
 import com.google.common.base.Preconditions;
 import com.google.inject.AbstractModule;
+import com.google.inject.multibindings.OptionalBinder;
 
 /**
  * Module to allow extensions or apps to plug in additional behavior by passing an instance of this
@@ -26,14 +28,32 @@ import com.google.inject.AbstractModule;
 public class AdWordsPluginModule extends AbstractModule {
 
   private final ExtensionUserAgentProvider extensionUserAgentProvider;
+  private final SoapCallListener soapCallListener;
 
   public AdWordsPluginModule(ExtensionUserAgentProvider extensionUserAgentProvider) {
+    this(extensionUserAgentProvider, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param extensionUserAgentProvider the provider of the extension's user agent
+   * @param soapCallListener the listener notified of the metrics of each SOAP call, or
+   *     {@code null} to keep the default listener
+   */
+  public AdWordsPluginModule(ExtensionUserAgentProvider extensionUserAgentProvider,
+      SoapCallListener soapCallListener) {
     this.extensionUserAgentProvider = Preconditions.checkNotNull(extensionUserAgentProvider,
         "Null extension user agent provider");
+    this.soapCallListener = soapCallListener;
   }
 
   @Override
   protected void configure() {
     bind(ExtensionUserAgentProvider.class).toInstance(extensionUserAgentProvider);
+    if (soapCallListener != null) {
+      OptionalBinder.newOptionalBinder(binder(), SoapCallListener.class)
+          .setBinding().toInstance(soapCallListener);
+    }
   }
 }
@@ -16,7 +16,9 @@ package com.google.api.ads.adwords.lib.client;
 
 import com.google.api.ads.common.lib.client.AdsServiceClient;
 import com.google.api.ads.common.lib.client.HeaderHandler;
+import com.google.api.ads.common.lib.soap.SoapCallListener;
 import com.google.api.ads.common.lib.soap.SoapClientHandlerInterface;
+import com.google.api.ads.common.lib.soap.SoapServiceClient;
 import com.google.api.ads.common.lib.utils.logging.AdsServiceLoggers;
 import com.google.inject.assistedinject.Assisted;
 
@@ -39,6 +41,32 @@ public class AdWordsServiceClient extends AdsServiceClient<AdWordsSession,
    * @param adWordsHeaderHandler the AdWords header handler
    * @param adsServiceLoggers the ads service loggers
    */
+  public AdWordsServiceClient(
+      Object soapClient,
+      AdWordsServiceDescriptor adWordsServiceDescriptor,
+      AdWordsSession adWordsSession,
+      @SuppressWarnings("rawtypes") /* Guice binding for SoapClientHandlerInterface does not include
+                                     * the type argument T because it is bound in the SOAP
+                                     * toolkit-agnostic configuration module. Therefore, must use
+                                     * the raw type here. */
+      SoapClientHandlerInterface soapClientHandler,
+      HeaderHandler<AdWordsSession, AdWordsServiceDescriptor> adWordsHeaderHandler,
+      AdsServiceLoggers adsServiceLoggers) {
+    this(soapClient, adWordsServiceDescriptor, adWordsSession, soapClientHandler,
+        adWordsHeaderHandler, adsServiceLoggers, SoapCallListener.NO_OP);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param soapClient the SOAP client
+   * @param adWordsServiceDescriptor the AdWords service descriptor
+   * @param adWordsSession the AdWords session
+   * @param soapClientHandler the SOAP client handler
+   * @param adWordsHeaderHandler the AdWords header handler
+   * @param adsServiceLoggers the ads service loggers
+   * @param soapCallListener the listener notified of the metrics of each call
+   */
   @SuppressWarnings("unchecked") /* See comments on soapClientHandler argument. */
   @Inject
   public AdWordsServiceClient(
@@ -51,9 +79,18 @@ public class AdWordsServiceClient extends AdsServiceClient<AdWordsSession,
                                      * the raw type here. */
       SoapClientHandlerInterface soapClientHandler,
       HeaderHandler<AdWordsSession, AdWordsServiceDescriptor> adWordsHeaderHandler,
-      AdsServiceLoggers adsServiceLoggers) {
+      AdsServiceLoggers adsServiceLoggers,
+      SoapCallListener soapCallListener) {
     super(soapClient, adWordsSession, adWordsServiceDescriptor, soapClientHandler,
-        adWordsHeaderHandler, adsServiceLoggers);
+        adWordsHeaderHandler, adsServiceLoggers, soapCallListener);
+  }
+
+  /**
+   * @see SoapServiceClient#getCustomerId()
+   */
+  @Override
+  protected String getCustomerId() {
+    return getAdsSession().getClientCustomerId();
   }
 
 }
@@ -65,6 +65,54 @@ public class AdWordsLibConfiguration extends AdsLibConfiguration {
         KEY_PREFIX + "." + SOAP_REQUEST_TIMEOUT_POSTFIX, DEFAULT_SOAP_REQUEST_TIMEOUT);
   }
 
+  @Override
+  public int getSoapClientPoolSize() {
+    return config.getInt(
+        KEY_PREFIX + "." + SOAP_CLIENT_POOL_SIZE_POSTFIX, DEFAULT_SOAP_CLIENT_POOL_SIZE);
+  }
+
+  @Override
+  public HttpTransportType getHttpTransportType() {
+    String httpTransport = config.getString(KEY_PREFIX + "." + HTTP_TRANSPORT_POSTFIX, null);
+    return httpTransport == null
+        ? DEFAULT_HTTP_TRANSPORT : HttpTransportType.fromString(httpTransport);
+  }
+
+  @Override
+  public int getHttpMaxConnections() {
+    return config.getInt(
+        KEY_PREFIX + "." + HTTP_MAX_CONNECTIONS_POSTFIX, DEFAULT_HTTP_MAX_CONNECTIONS);
+  }
+
+  @Override
+  public int getHttpMaxConnectionsPerRoute() {
+    return config.getInt(KEY_PREFIX + "." + HTTP_MAX_CONNECTIONS_PER_ROUTE_POSTFIX,
+        DEFAULT_HTTP_MAX_CONNECTIONS_PER_ROUTE);
+  }
+
+  @Override
+  public long getHttpIdleConnectionTimeout() {
+    return config.getLong(KEY_PREFIX + "." + HTTP_IDLE_CONNECTION_TIMEOUT_POSTFIX,
+        DEFAULT_HTTP_IDLE_CONNECTION_TIMEOUT);
+  }
+
+  @Override
+  public boolean isAsyncSoapXmlLoggingEnabled() {
+    return config.getBoolean(KEY_PREFIX + "." + ASYNC_SOAP_XML_LOGGING_POSTFIX, false);
+  }
+
+  @Override
+  public int getSoapXmlLogQueueSize() {
+    return config.getInt(
+        KEY_PREFIX + "." + SOAP_XML_LOG_QUEUE_SIZE_POSTFIX, DEFAULT_SOAP_XML_LOG_QUEUE_SIZE);
+  }
+
+  @Override
+  public int getSoapXmlLogSuccessSampleRate() {
+    return config.getInt(KEY_PREFIX + "." + SOAP_XML_LOG_SUCCESS_SAMPLE_RATE_POSTFIX,
+        DEFAULT_SOAP_XML_LOG_SUCCESS_SAMPLE_RATE);
+  }
+
   @Override
   public boolean isIncludeAdsUtilitiesInUserAgent() {
     Boolean isInclude = config.getBoolean(
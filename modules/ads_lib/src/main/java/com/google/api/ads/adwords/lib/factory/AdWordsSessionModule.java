@@ -1,11 +1,17 @@
 package com.google.api.ads.adwords.lib.factory;
 
 import com.google.api.ads.adwords.lib.client.AdWordsSession;
+import com.google.api.ads.adwords.lib.utils.ReportRequestFactoryHelper;
 import com.google.common.base.Preconditions;
 import com.google.inject.AbstractModule;
+import com.google.inject.Singleton;
 
 /**
  * Guice module that binds a given {@link AdWordsSession} to the {@link AdWordsSession} class.
+ *
+ * <p>The module is installed in a child injector for each session, so the
+ * {@link ReportRequestFactoryHelper} bound here as a singleton, and the request factories it
+ * caches, are shared by all the report downloaders of the session.
  */
 public class AdWordsSessionModule extends AbstractModule {
 
@@ -18,5 +24,6 @@ public class AdWordsSessionModule extends AbstractModule {
   @Override
   protected void configure() {
     bind(AdWordsSession.class).toInstance(session);
+    bind(ReportRequestFactoryHelper.class).in(Singleton.class);
   }
 }
@@ -43,7 +43,8 @@ public abstract class BaseAdWordsServices
       throw new IllegalArgumentException(
           utilityClass + " is not annotated with " + SessionUtility.class);
     }
-    Injector childInjector = injector.createChildInjector(new AdWordsSessionModule(session));
+    Injector childInjector =
+        injector.getInstance(DependencyBootstrapperImpl.class).getChildInjector(session);
     return childInjector.getInstance(utilityClass);
   }
 
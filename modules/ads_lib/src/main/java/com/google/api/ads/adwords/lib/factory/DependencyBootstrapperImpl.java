@@ -16,23 +16,59 @@ package com.google.api.ads.adwords.lib.factory;
 
 import com.google.api.ads.adwords.lib.client.AdWordsSession;
 import com.google.api.ads.adwords.lib.utils.SessionUtility;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.Singleton;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@link DependencyBootstrapper} that uses a parent injector to obtain dependencies, and only
  * supports getting an instance of a type if it is <em>not</em> annotated with {@link
  * SessionUtility}.
+ *
+ * <p>The child injector created for a session is reused for later calls with the same session,
+ * so constructing many utilities for one session does not create an injector for each.
  */
+@Singleton
 class DependencyBootstrapperImpl implements DependencyBootstrapper {
 
+  /** Maximum number of sessions whose child injector is kept. */
+  @VisibleForTesting
+  static final int MAX_CACHED_SESSIONS = 100;
+
+  /** Time after its last use after which a session's child injector is discarded. */
+  @VisibleForTesting
+  static final long CACHE_EXPIRY_MINUTES = 10;
+
   private final Injector injector;
 
+  /**
+   * Child injectors by session identity. Each injector refers to its session, so a weak key alone
+   * would never be collected. The cache is bounded instead, by size and by time since last use.
+   */
+  private final Cache<AdWordsSession, Injector> childInjectors;
+
   /** Constructor used by Guice. */
   @Inject
   DependencyBootstrapperImpl(Injector injector) {
+    this(injector, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  DependencyBootstrapperImpl(Injector injector, Ticker ticker) {
     this.injector = injector;
+    this.childInjectors = CacheBuilder.newBuilder()
+        .weakKeys()
+        .maximumSize(MAX_CACHED_SESSIONS)
+        .expireAfterAccess(CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+        .ticker(ticker)
+        .build();
   }
 
   @Override
@@ -47,7 +83,19 @@ class DependencyBootstrapperImpl implements DependencyBootstrapper {
               dependencyClass, SessionUtility.class);
       throw new IllegalArgumentException(message);
     }
-    Injector childInjector = injector.createChildInjector(new AdWordsSessionModule(session));
-    return childInjector.getInstance(dependencyClass);
+    return getChildInjector(session).getInstance(dependencyClass);
+  }
+
+  /**
+   * Gets the child injector for a session, creating it if it is not cached. Also used by
+   * {@link BaseAdWordsServices#getUtility}, so session utilities share the session's singletons.
+   */
+  Injector getChildInjector(AdWordsSession session) {
+    Injector childInjector = childInjectors.getIfPresent(session);
+    if (childInjector == null) {
+      childInjector = injector.createChildInjector(new AdWordsSessionModule(session));
+      childInjectors.put(session, childInjector);
+    }
+    return childInjector;
   }
 }
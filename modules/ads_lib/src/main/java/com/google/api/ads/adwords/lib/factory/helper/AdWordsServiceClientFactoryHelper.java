@@ -18,6 +18,7 @@ import com.google.api.ads.adwords.lib.client.AdWordsServiceClient;
 import com.google.api.ads.adwords.lib.client.AdWordsServiceDescriptor;
 import com.google.api.ads.adwords.lib.client.AdWordsSession;
 import com.google.api.ads.common.lib.conf.AdsLibConfiguration;
+import com.google.api.ads.common.lib.exception.ServiceException;
 import com.google.api.ads.common.lib.factory.FactoryModule.AdsServiceClientFactoryInterface;
 import com.google.api.ads.common.lib.factory.FactoryModule.AdsServiceDescriptorFactoryInterface;
 import com.google.api.ads.common.lib.factory.helper.AdsServiceClientFactoryHelper;
@@ -66,6 +67,21 @@ public class AdWordsServiceClientFactoryHelper extends
     this.adsLibConfiguration = adsLibConfiguration;
   }
 
+  /**
+   * Creates the service client and sizes its SOAP client pool according to
+   * {@link AdsLibConfiguration#getSoapClientPoolSize()}.
+   *
+   * @see AdsServiceClientFactoryHelper#createAdsServiceClient
+   */
+  @Override
+  public AdWordsServiceClient createAdsServiceClient(
+      AdWordsServiceDescriptor adWordsServiceDescriptor, AdWordsSession adWordsSession) throws ServiceException {
+    AdWordsServiceClient adWordsServiceClient =
+        super.createAdsServiceClient(adWordsServiceDescriptor, adWordsSession);
+    adWordsServiceClient.setSoapClientPoolSize(adsLibConfiguration.getSoapClientPoolSize());
+    return adWordsServiceClient;
+  }
+
   /**
    * @see AdsServiceClientFactoryHelper#determineVersion(Class)
    */
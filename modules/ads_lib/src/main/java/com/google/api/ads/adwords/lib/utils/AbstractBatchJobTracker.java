@@ -0,0 +1,387 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.api.ads.common.lib.utils.AdsUtility;
+import com.google.api.ads.common.lib.utils.AdsUtilityRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks batch jobs of one account until they finish, completing a future for each job. All jobs
+ * due for a poll are polled with a single request, so the number of requests does not grow with
+ * the number of jobs.
+ *
+ * <p>Each job is first polled after the minimum delay. After that, its delay doubles each time
+ * its estimated percent executed has not increased since the previous poll, up to the maximum
+ * delay. If it has increased, the job is next polled when it is expected to finish at its current
+ * rate, but no later than twice the previous delay. A poll also includes the jobs due within half
+ * of their delay, so jobs with long delays join the polls of other jobs.
+ *
+ * <p>If a poll fails, the delay of its jobs doubles, and after {@value #MAX_FAILED_POLLS}
+ * consecutive failed polls of a job its future fails. Polls run on a single background thread,
+ * which also runs the listeners added to the futures with a direct executor.
+ *
+ * <p>Subclasses make the request for a specific API version. Instances are thread safe.
+ *
+ * @param <BatchJobT> the type of batch job
+ */
+public abstract class AbstractBatchJobTracker<BatchJobT> implements Closeable {
+  private static final Logger logger = LoggerFactory.getLogger(AbstractBatchJobTracker.class);
+
+  /** Default delay before the first poll of a job. */
+  public static final long DEFAULT_MIN_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  /** Default maximum delay between polls of a job. */
+  public static final long DEFAULT_MAX_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  /** Number of consecutive failed polls of a job after which its future fails. */
+  public static final int MAX_FAILED_POLLS = 5;
+
+  private final long minDelayNanos;
+  private final long maxDelayNanos;
+  private final Ticker ticker;
+  private final boolean isSchedulerOwned;
+  private final AtomicLong pollCount = new AtomicLong();
+
+  /** Tracked jobs by ID, in the order they were tracked. */
+  private final Map<Long, TrackedJob> trackedJobs = new LinkedHashMap<Long, TrackedJob>();
+  private ScheduledExecutorService scheduler;
+  private ScheduledFuture<?> nextPoll;
+  private long nextPollNanos;
+  /** Incremented each time a poll is scheduled, to tell if a running poll is {@link #nextPoll}. */
+  private long nextPollGeneration;
+  private boolean isClosed;
+
+  /**
+   * @param minDelay the delay before the first poll of a job, and the minimum delay between polls
+   * @param maxDelay the maximum delay between polls of a job
+   * @param unit the unit of the delays
+   */
+  protected AbstractBatchJobTracker(long minDelay, long maxDelay, TimeUnit unit) {
+    this(minDelay, maxDelay, unit, null, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  AbstractBatchJobTracker(long minDelay, long maxDelay, TimeUnit unit,
+      @Nullable ScheduledExecutorService scheduler, Ticker ticker) {
+    Preconditions.checkArgument(minDelay > 0, "Min delay %s is <= 0", minDelay);
+    Preconditions.checkArgument(
+        maxDelay >= minDelay, "Max delay %s is < min delay %s", maxDelay, minDelay);
+    this.minDelayNanos = unit.toNanos(minDelay);
+    this.maxDelayNanos = unit.toNanos(maxDelay);
+    this.scheduler = scheduler;
+    this.isSchedulerOwned = scheduler == null;
+    this.ticker = Preconditions.checkNotNull(ticker, "Null ticker");
+  }
+
+  /**
+   * Starts tracking a batch job.
+   *
+   * @param batchJobId the ID of the job
+   * @return a future that completes with the job once it has finished, or fails if its status
+   *     could not be retrieved. Cancelling the future stops tracking the job. Tracking a job that
+   *     is already tracked returns the same future.
+   * @throws IllegalStateException if the tracker is closed
+   */
+  public ListenableFuture<BatchJobT> track(long batchJobId) {
+    synchronized (this) {
+      Preconditions.checkState(!isClosed, "Tracker is closed");
+      TrackedJob job = trackedJobs.get(batchJobId);
+      if (job == null || job.future.isDone()) {
+        job = new TrackedJob(batchJobId, ticker.read());
+        trackedJobs.put(batchJobId, job);
+        schedulePoll();
+      }
+      return job.future;
+    }
+  }
+
+  /**
+   * Returns the number of jobs being tracked.
+   */
+  public synchronized int getTrackedJobCount() {
+    int count = 0;
+    for (TrackedJob job : trackedJobs.values()) {
+      if (!job.future.isDone()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of requests made to poll jobs.
+   */
+  public long getPollCount() {
+    return pollCount.get();
+  }
+
+  /**
+   * Stops polling and cancels the futures of the jobs that have not finished.
+   */
+  @Override
+  public void close() {
+    List<TrackedJob> jobs;
+    synchronized (this) {
+      if (isClosed) {
+        return;
+      }
+      isClosed = true;
+      if (nextPoll != null) {
+        nextPoll.cancel(false);
+      }
+      if (isSchedulerOwned && scheduler != null) {
+        scheduler.shutdown();
+      }
+      jobs = new ArrayList<TrackedJob>(trackedJobs.values());
+      trackedJobs.clear();
+    }
+    for (TrackedJob job : jobs) {
+      job.future.cancel(false);
+    }
+  }
+
+  /**
+   * Returns the jobs with the specified IDs. Jobs that are not found may be omitted.
+   *
+   * @throws Exception if the request failed
+   */
+  protected abstract List<BatchJobT> getBatchJobs(List<Long> batchJobIds) throws Exception;
+
+  /**
+   * Returns the ID of a job returned by {@link #getBatchJobs(List)}.
+   */
+  protected abstract long getId(BatchJobT batchJob);
+
+  /**
+   * Returns if the job will not change anymore, e.g., because it is done or canceled.
+   */
+  protected abstract boolean isFinished(BatchJobT batchJob);
+
+  /**
+   * Returns the estimated percent of the job's operations executed, or {@code null} if unknown.
+   */
+  @Nullable
+  protected abstract Integer getEstimatedPercentExecuted(BatchJobT batchJob);
+
+  /**
+   * Polls the jobs that are due with a single request, completes the futures of the jobs that
+   * have finished, and schedules the next poll.
+   *
+   * @param generation the generation of the scheduled poll. A poll that was replaced by a later
+   *     one but could not be cancelled leaves the later one scheduled.
+   */
+  private void poll(long generation) {
+    Map<Long, TrackedJob> dueJobs = new LinkedHashMap<Long, TrackedJob>();
+    synchronized (this) {
+      if (generation == nextPollGeneration) {
+        nextPoll = null;
+      }
+      if (isClosed) {
+        return;
+      }
+      long now = ticker.read();
+      for (Iterator<TrackedJob> i = trackedJobs.values().iterator(); i.hasNext(); ) {
+        TrackedJob job = i.next();
+        if (job.future.isDone()) {
+          i.remove();
+        } else if (job.nextPollNanos - now <= job.delayNanos / 2) {
+          dueJobs.put(job.id, job);
+        }
+      }
+    }
+
+    if (!dueJobs.isEmpty()) {
+      List<BatchJobT> batchJobs = null;
+      Exception failure = null;
+      try {
+        pollCount.incrementAndGet();
+        AdsUtilityRegistry.getInstance().addUtility(AdsUtility.BATCH_JOB_TRACKER);
+        batchJobs = getBatchJobs(new ArrayList<Long>(dueJobs.keySet()));
+      } catch (Exception e) {
+        logger.warn("Failed to poll {} batch jobs.", dueJobs.size(), e);
+        failure = e;
+      }
+      for (TrackedJob job : updateJobs(dueJobs, batchJobs, failure)) {
+        job.complete();
+      }
+    }
+
+    synchronized (this) {
+      schedulePoll();
+    }
+  }
+
+  /**
+   * Updates the polled jobs with the result of a poll, and returns the jobs to complete. Their
+   * futures are completed outside of the lock, since completing them runs their listeners.
+   */
+  private synchronized List<TrackedJob> updateJobs(Map<Long, TrackedJob> polledJobs,
+      @Nullable List<BatchJobT> batchJobs, @Nullable Exception failure) {
+    List<TrackedJob> completedJobs = new ArrayList<TrackedJob>();
+    long now = ticker.read();
+    Map<Long, BatchJobT> batchJobsById = new HashMap<Long, BatchJobT>();
+    if (batchJobs != null) {
+      for (BatchJobT batchJob : batchJobs) {
+        batchJobsById.put(getId(batchJob), batchJob);
+      }
+    }
+    for (TrackedJob job : polledJobs.values()) {
+      BatchJobT batchJob = batchJobsById.get(job.id);
+      if (failure != null) {
+        if (job.onFailedPoll(now)) {
+          job.failure = new BatchJobException(
+              String.format("Failed to poll batch job %d %d times", job.id, MAX_FAILED_POLLS),
+              failure);
+        }
+      } else if (batchJob == null) {
+        job.failure = new BatchJobException("Batch job was not found: " + job.id);
+      } else if (isFinished(batchJob)) {
+        job.finishedBatchJob = batchJob;
+      } else {
+        job.onPoll(getEstimatedPercentExecuted(batchJob), now);
+      }
+      if (job.failure != null || job.finishedBatchJob != null) {
+        trackedJobs.remove(job.id);
+        completedJobs.add(job);
+      }
+    }
+    return completedJobs;
+  }
+
+  /**
+   * Schedules a poll for when the next job is due, unless one is already scheduled by then.
+   * Must be called while holding the lock.
+   */
+  private void schedulePoll() {
+    if (isClosed || trackedJobs.isEmpty()) {
+      return;
+    }
+    long now = ticker.read();
+    long delayNanos = Long.MAX_VALUE;
+    for (TrackedJob job : trackedJobs.values()) {
+      delayNanos = Math.min(delayNanos, Math.max(0L, job.nextPollNanos - now));
+    }
+    if (nextPoll != null && nextPollNanos - (now + delayNanos) <= 0) {
+      return;
+    }
+    if (nextPoll != null) {
+      // If the scheduled poll is already running, it skips the jobs that are not due.
+      nextPoll.cancel(false);
+    }
+    final long generation = ++nextPollGeneration;
+    nextPoll = getScheduler().schedule(new Runnable() {
+      @Override
+      public void run() {
+        poll(generation);
+      }
+    }, delayNanos, TimeUnit.NANOSECONDS);
+    nextPollNanos = now + delayNanos;
+  }
+
+  private ScheduledExecutorService getScheduler() {
+    if (scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("ads-batch-job-tracker-%d")
+              .build());
+    }
+    return scheduler;
+  }
+
+  /**
+   * Polling state of a tracked job. Guarded by the tracker's lock.
+   */
+  private class TrackedJob {
+    private final long id;
+    private final SettableFuture<BatchJobT> future = SettableFuture.create();
+    private long delayNanos;
+    private long nextPollNanos;
+    private long lastPollNanos;
+    @Nullable private Integer lastPercentExecuted;
+    private int failedPollCount;
+    @Nullable private BatchJobT finishedBatchJob;
+    @Nullable private BatchJobException failure;
+
+    TrackedJob(long id, long now) {
+      this.id = id;
+      this.delayNanos = minDelayNanos;
+      this.nextPollNanos = now + minDelayNanos;
+      this.lastPollNanos = now;
+    }
+
+    /**
+     * Schedules the next poll of a job that has not finished, based on its progress.
+     */
+    void onPoll(@Nullable Integer percentExecuted, long now) {
+      failedPollCount = 0;
+      long nextDelayNanos = Math.min(2 * delayNanos, maxDelayNanos);
+      if (percentExecuted != null && percentExecuted >= 100) {
+        // All operations are executed, so the job finishes once its results are written.
+        nextDelayNanos = minDelayNanos;
+      } else if (percentExecuted != null && lastPercentExecuted != null
+          && percentExecuted > lastPercentExecuted) {
+        long remainingNanos = (now - lastPollNanos) * (100 - percentExecuted)
+            / (percentExecuted - lastPercentExecuted);
+        nextDelayNanos = Math.max(minDelayNanos, Math.min(nextDelayNanos, remainingNanos));
+      }
+      delayNanos = nextDelayNanos;
+      nextPollNanos = now + nextDelayNanos;
+      lastPollNanos = now;
+      lastPercentExecuted = percentExecuted;
+    }
+
+    /**
+     * Backs off after a failed poll, and returns if the job has failed too many polls.
+     */
+    boolean onFailedPoll(long now) {
+      delayNanos = Math.min(2 * delayNanos, maxDelayNanos);
+      nextPollNanos = now + delayNanos;
+      return ++failedPollCount >= MAX_FAILED_POLLS;
+    }
+
+    /**
+     * Completes the future with the finished job or the failure.
+     */
+    void complete() {
+      if (failure != null) {
+        future.setException(failure);
+      } else {
+        future.set(finishedBatchJob);
+      }
+    }
+  }
+}
@@ -17,6 +17,7 @@ package com.google.api.ads.adwords.lib.utils;
 import com.google.api.ads.adwords.lib.utils.DetailedReportDownloadResponseException.Builder;
 import com.google.api.ads.common.lib.utils.AdsUtilityInvocationHandler;
 import com.google.api.ads.common.lib.utils.AdsUtilityRegistry;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.reflect.Reflection;
 import com.google.inject.Inject;
 import java.lang.reflect.InvocationHandler;
@@ -29,6 +30,7 @@ import java.lang.reflect.InvocationHandler;
 public class AdHocReportDownloadHelper implements AdHocReportDownloadHelperInterface {
 
   private final AdHocReportDownloadHelperInterface impl;
+  private final AdHocReportDownloadHelperImpl helperImpl;
 
   /** Constructor used by Guice. */
   @Inject
@@ -37,6 +39,7 @@ public class AdHocReportDownloadHelper implements AdHocReportDownloadHelperInter
     InvocationHandler invocationHandler =
         new AdsUtilityInvocationHandler(helperImpl, adsUtilityRegistry);
     this.impl = Reflection.newProxy(AdHocReportDownloadHelperInterface.class, invocationHandler);
+    this.helperImpl = helperImpl;
   }
   
   @Override
@@ -68,4 +71,25 @@ public class AdHocReportDownloadHelper implements AdHocReportDownloadHelperInter
   public void setReportDownloadTimeout(int reportDownloadTimeout) {
     impl.setReportDownloadTimeout(reportDownloadTimeout);
   }
+
+  /**
+   * Returns the cache that successful report downloads are served from, or {@code null} if
+   * reports are always downloaded.
+   */
+  public ReportDownloadCache getReportDownloadCache() {
+    return helperImpl.getReportDownloadCache();
+  }
+
+  /**
+   * Sets the cache that successful report downloads are served from, or {@code null} to always
+   * download reports.
+   */
+  public void setReportDownloadCache(ReportDownloadCache reportDownloadCache) {
+    helperImpl.setReportDownloadCache(reportDownloadCache);
+  }
+
+  @VisibleForTesting
+  ReportRequestFactoryHelper getReportRequestFactoryHelper() {
+    return helperImpl.getReportRequestFactoryHelper();
+  }
 }
@@ -23,6 +23,7 @@ import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestFactory;
 import com.google.api.client.http.HttpResponse;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.inject.Inject;
 import java.io.ByteArrayInputStream;
@@ -31,15 +32,27 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.nio.charset.Charset;
 import java.util.Map;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Actual implementation of download functionality.
  */
 class AdHocReportDownloadHelperImpl implements AdHocReportDownloadHelperInterface {
+  private static final Logger logger =
+      LoggerFactory.getLogger(AdHocReportDownloadHelperImpl.class);
+
   private final AdWordsSession session;
   private final ReportRequestFactoryHelper reportRequestFactoryHelper;
   private final ReportBodyProviderFactory reportBodyProviderFactory;
   private final XmlFieldExtractor xmlFieldExtractor;
+  private volatile ReportDownloadCache reportDownloadCache;
+  /**
+   * The timeout of this helper's requests. Kept here rather than on the request factory helper,
+   * which is shared by all the downloaders of a session.
+   */
+  private volatile int reportDownloadTimeout;
 
   /** Constructor used by Guice. */
   @Inject
@@ -51,6 +64,7 @@ class AdHocReportDownloadHelperImpl implements AdHocReportDownloadHelperInterfac
     this.reportRequestFactoryHelper = reportRequestFactoryHelper;
     this.reportBodyProviderFactory = reportBodyProviderFactory;
     this.xmlFieldExtractor = xmlFieldExtractor;
+    this.reportDownloadTimeout = reportRequestFactoryHelper.getReportDownloadTimeout();
   }
 
   @Override
@@ -63,15 +77,67 @@ class AdHocReportDownloadHelperImpl implements AdHocReportDownloadHelperInterfac
   @Override
   public RawReportDownloadResponse downloadReport(ReportRequest reportRequest)
       throws ReportException {
+    ReportDownloadCache cache = reportDownloadCache;
+    if (cache == null) {
+      return download(reportRequest, null, null);
+    }
+    String key = ReportDownloadCache.getKey(session, reportRequest);
+    RawReportDownloadResponse cachedResponse = cache.get(key);
+    if (cachedResponse != null) {
+      return cachedResponse;
+    }
+    RawReportDownloadResponse response = download(reportRequest, null, null);
+    if (response.getHttpStatus() != HttpURLConnection.HTTP_OK) {
+      return response;
+    }
+    try {
+      return cache.put(key, response);
+    } catch (IOException e) {
+      // The cache consumed and closed the response, so download the report again uncached.
+      logger.warn("Problem writing report to the cache, downloading it again uncached.", e);
+      return download(reportRequest, null, null);
+    }
+  }
+
+  /**
+   * Downloads a report for a client customer ID, which may differ from the session's, using a
+   * request factory shared with other downloads.
+   *
+   * @param reportRequest the report to download
+   * @param clientCustomerId the client customer ID to download the report for
+   * @param sharedRequestFactory a request factory from
+   *     {@link ReportRequestFactoryHelper#createSharedHttpRequestFactory()}
+   */
+  RawReportDownloadResponse downloadReport(ReportRequest reportRequest, String clientCustomerId,
+      HttpRequestFactory sharedRequestFactory) throws ReportException {
+    return download(reportRequest,
+        Preconditions.checkNotNull(sharedRequestFactory, "Null request factory"),
+        Preconditions.checkNotNull(clientCustomerId, "Null client customer ID"));
+  }
+
+  /**
+   * Downloads a report. If {@code sharedRequestFactory} is {@code null}, the request is built by
+   * a new request factory for the session.
+   */
+  private RawReportDownloadResponse download(ReportRequest reportRequest,
+      @Nullable HttpRequestFactory sharedRequestFactory, @Nullable String clientCustomerId)
+      throws ReportException {
     try {
       String apiVersion = reportRequest.getApiVersion();
       String downloadUrl = generateReportUrl(apiVersion);
-      HttpRequestFactory requestFactory =
-          reportRequestFactoryHelper.getHttpRequestFactory(downloadUrl, apiVersion);
+      HttpRequestFactory requestFactory = sharedRequestFactory != null
+          ? sharedRequestFactory
+          : reportRequestFactoryHelper.getHttpRequestFactory(downloadUrl, apiVersion);
       ReportBodyProvider reportBodyProvider =
           reportBodyProviderFactory.getReportBodyProvider(reportRequest);
       HttpRequest httpRequest = requestFactory
           .buildPostRequest(new GenericUrl(downloadUrl), reportBodyProvider.getHttpContent());
+      httpRequest.setConnectTimeout(reportDownloadTimeout);
+      httpRequest.setReadTimeout(reportDownloadTimeout);
+      if (sharedRequestFactory != null) {
+        httpRequest.setHeaders(
+            reportRequestFactoryHelper.createHeaders(downloadUrl, apiVersion, clientCustomerId));
+      }
       HttpResponse response = httpRequest.execute();
       
       Charset charSet = REPORT_CHARSET;
@@ -101,7 +167,7 @@ class AdHocReportDownloadHelperImpl implements AdHocReportDownloadHelperInterfac
     Preconditions.checkNotNull(rawResponse, "Null response");
     Preconditions.checkNotNull(exceptionBuilder, "Null exception builder");
     if (rawResponse.getHttpStatus() == HttpURLConnection.HTTP_OK) {
-      return new ReportDownloadResponse(rawResponse);
+      return new ReportDownloadResponse(rawResponse, session.getReportingConfiguration());
     }
     String responseText;
     if (rawResponse.getInputStream() == null) {
@@ -137,11 +203,24 @@ class AdHocReportDownloadHelperImpl implements AdHocReportDownloadHelperInterfac
 
   @Override
   public int getReportDownloadTimeout() {
-    return reportRequestFactoryHelper.getReportDownloadTimeout();
+    return reportDownloadTimeout;
   }
 
   @Override
   public  void setReportDownloadTimeout(int reportDownloadTimeout) {
-    reportRequestFactoryHelper.setReportDownloadTimeout(reportDownloadTimeout);
+    this.reportDownloadTimeout = reportDownloadTimeout;
+  }
+
+  @VisibleForTesting
+  ReportRequestFactoryHelper getReportRequestFactoryHelper() {
+    return reportRequestFactoryHelper;
+  }
+
+  ReportDownloadCache getReportDownloadCache() {
+    return reportDownloadCache;
+  }
+
+  void setReportDownloadCache(@Nullable ReportDownloadCache reportDownloadCache) {
+    this.reportDownloadCache = reportDownloadCache;
   }
-}
\ No newline at end of file
+}
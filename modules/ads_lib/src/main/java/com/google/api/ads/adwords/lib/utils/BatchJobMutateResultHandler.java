@@ -0,0 +1,39 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import java.io.IOException;
+
+/**
+ * Receives the mutate results of a batch job pushed by {@link
+ * StreamingBatchJobHelperInterface#downloadBatchJobMutateResults(String,
+ * BatchJobMutateResultHandler)}.
+ *
+ * <p>Results are pushed one at a time on the downloading thread, and the next result is not
+ * parsed until {@link #handleResult(Object)} returns, so a slow handler slows the download instead
+ * of results piling up in memory.
+ *
+ * @param <ResultT> the mutate result type for the API version and SOAP toolkit.
+ */
+public interface BatchJobMutateResultHandler<ResultT> {
+
+  /**
+   * Handles a mutate result of the batch job.
+   *
+   * @return {@code true} to continue with the next result, or {@code false} to stop downloading
+   * @throws IOException if the result could not be handled, which stops the download
+   */
+  boolean handleResult(ResultT result) throws IOException;
+}
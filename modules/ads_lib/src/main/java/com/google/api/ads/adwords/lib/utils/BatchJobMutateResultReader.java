@@ -0,0 +1,270 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Reads the mutate results of a batch job download with a streaming parser, one result element
+ * at a time, so memory use does not depend on the number of results.
+ *
+ * <p>A download is a {@code mutateResponse} element with an {@code rval} element for each
+ * result. After {@link #nextResult()} moves to a result, SOAP toolkits read it with either {@link
+ * #unmarshalResult(Unmarshaller, Class)} or {@link #copyResult(OutputStream)}.
+ *
+ * <p>Instances are not thread safe.
+ */
+public final class BatchJobMutateResultReader implements Closeable {
+
+  /** Factories are thread safe once configured, so a single one of each is shared. */
+  private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+  private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+  private final InputStream inputStream;
+  private final XMLStreamReader reader;
+  /** Namespaces declared on the root element, by prefix. */
+  private final Map<String, String> rootNamespaces = new LinkedHashMap<String, String>();
+  /** Whether the reader is on the start of a result that has not been read yet. */
+  private boolean isOnResult;
+  private boolean isFinished;
+
+  private BatchJobMutateResultReader(InputStream inputStream, XMLStreamReader reader) {
+    this.inputStream = inputStream;
+    this.reader = reader;
+  }
+
+  /**
+   * Starts reading a batch job download, up to its root element.
+   *
+   * @param inputStream the download, which is closed when the reader is closed
+   * @throws IOException if the start of the download could not be read or parsed
+   */
+  public static BatchJobMutateResultReader open(InputStream inputStream) throws IOException {
+    Preconditions.checkNotNull(inputStream, "Null input stream");
+    BatchJobMutateResultReader resultReader;
+    try {
+      resultReader = new BatchJobMutateResultReader(
+          inputStream, INPUT_FACTORY.createXMLStreamReader(inputStream));
+    } catch (XMLStreamException e) {
+      inputStream.close();
+      throw new IOException("Could not parse batch job mutate results", e);
+    }
+    try {
+      resultReader.readRoot();
+    } catch (IOException | RuntimeException e) {
+      resultReader.close();
+      throw e;
+    }
+    return resultReader;
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return inputFactory;
+  }
+
+  private void readRoot() throws IOException {
+    try {
+      reader.nextTag();
+      for (int i = 0; i < reader.getNamespaceCount(); i++) {
+        rootNamespaces.put(
+            Strings.nullToEmpty(reader.getNamespacePrefix(i)), reader.getNamespaceURI(i));
+      }
+      reader.next();
+    } catch (XMLStreamException e) {
+      throw new IOException("Could not parse batch job mutate results", e);
+    }
+  }
+
+  /**
+   * Moves to the next result, skipping the current one if it has not been read.
+   *
+   * @return {@code true} if the reader is on a result, or {@code false} if all results have been
+   *     read
+   * @throws IOException if the download could not be read or parsed
+   */
+  public boolean nextResult() throws IOException {
+    try {
+      if (isOnResult) {
+        skipElement();
+      }
+      while (!isFinished) {
+        switch (reader.getEventType()) {
+          case XMLStreamConstants.START_ELEMENT:
+            isOnResult = true;
+            return true;
+          case XMLStreamConstants.END_ELEMENT:
+          case XMLStreamConstants.END_DOCUMENT:
+            isFinished = true;
+            break;
+          default:
+            reader.next();
+        }
+      }
+      return false;
+    } catch (XMLStreamException e) {
+      throw new IOException("Could not parse batch job mutate results", e);
+    }
+  }
+
+  /**
+   * Moves past the end of the current result element.
+   */
+  private void skipElement() throws XMLStreamException {
+    int depth = 0;
+    do {
+      int eventType = reader.next();
+      if (eventType == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    } while (depth >= 0);
+    reader.next();
+    isOnResult = false;
+  }
+
+  /**
+   * Unmarshals the current result with JAXB.
+   *
+   * @param unmarshaller an unmarshaller for a context that includes {@code resultClass}
+   * @param resultClass the type of the result
+   * @throws IOException if the result could not be read or unmarshalled
+   */
+  public <T> T unmarshalResult(Unmarshaller unmarshaller, Class<T> resultClass)
+      throws IOException {
+    checkOnResult();
+    try {
+      // The unmarshaller leaves the reader on the event after the end of the result.
+      T result = unmarshaller.unmarshal(reader, resultClass).getValue();
+      isOnResult = false;
+      return result;
+    } catch (JAXBException e) {
+      throw new IOException("Could not unmarshal batch job mutate result", e);
+    }
+  }
+
+  /**
+   * Writes the current result element as a standalone UTF-8 XML fragment without a declaration.
+   * The namespaces declared on the root element are declared on the fragment's element, so its
+   * names and {@code xsi:type} values resolve as they did in the download.
+   *
+   * @throws IOException if the result could not be read or written
+   */
+  public void copyResult(OutputStream outputStream) throws IOException {
+    checkOnResult();
+    try {
+      XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(outputStream, "UTF-8");
+      int depth = 0;
+      do {
+        switch (reader.getEventType()) {
+          case XMLStreamConstants.START_ELEMENT:
+            copyStartElement(writer, depth == 0);
+            depth++;
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            writer.writeEndElement();
+            depth--;
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.SPACE:
+            writer.writeCharacters(
+                reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            break;
+          case XMLStreamConstants.CDATA:
+            writer.writeCData(reader.getText());
+            break;
+          default:
+            // Comments and processing instructions are not part of the result.
+        }
+        reader.next();
+      } while (depth > 0);
+      writer.flush();
+      writer.close();
+      isOnResult = false;
+    } catch (XMLStreamException e) {
+      throw new IOException("Could not copy batch job mutate result", e);
+    }
+  }
+
+  private void copyStartElement(XMLStreamWriter writer, boolean isResult)
+      throws XMLStreamException {
+    writer.writeStartElement(Strings.nullToEmpty(reader.getPrefix()), reader.getLocalName(),
+        Strings.nullToEmpty(reader.getNamespaceURI()));
+    Map<String, String> namespaces = new LinkedHashMap<String, String>();
+    if (isResult) {
+      namespaces.putAll(rootNamespaces);
+    }
+    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+      namespaces.put(Strings.nullToEmpty(reader.getNamespacePrefix(i)),
+          Strings.nullToEmpty(reader.getNamespaceURI(i)));
+    }
+    for (Map.Entry<String, String> namespace : namespaces.entrySet()) {
+      if (namespace.getKey().isEmpty()) {
+        writer.writeDefaultNamespace(namespace.getValue());
+      } else {
+        writer.writeNamespace(namespace.getKey(), namespace.getValue());
+      }
+    }
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      String namespaceUri = reader.getAttributeNamespace(i);
+      if (Strings.isNullOrEmpty(namespaceUri)) {
+        writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+      } else {
+        writer.writeAttribute(Strings.nullToEmpty(reader.getAttributePrefix(i)), namespaceUri,
+            reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+      }
+    }
+  }
+
+  private void checkOnResult() {
+    Preconditions.checkState(isOnResult, "Not on a result, call nextResult() first");
+  }
+
+  /**
+   * Closes the download.
+   */
+  @Override
+  public void close() throws IOException {
+    isFinished = true;
+    isOnResult = false;
+    try {
+      reader.close();
+    } catch (XMLStreamException e) {
+      throw new IOException("Could not close batch job mutate results", e);
+    } finally {
+      inputStream.close();
+    }
+  }
+}
@@ -0,0 +1,138 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
+
+import java.io.Serializable;
+import java.net.URI;
+
+/**
+ * Progress of a streamed batch job upload, saved to a {@link BatchJobUploadCheckpointStore} so
+ * the upload can resume after the uploading process stops.
+ *
+ * <p>Uploaded content does not end on a request boundary, so a checkpoint records both the
+ * length of the content committed by the resumable upload and the last request boundary before
+ * it: the number of leading requests whose contents were completely uploaded, and the length of
+ * their contents. A resumed upload skips those requests and serializes the rest again.
+ */
+public final class BatchJobUploadCheckpoint implements Serializable {
+  private final URI batchJobUploadUrl;
+  private final URI resumableUploadUri;
+  private final long totalContentLength;
+  private final long uploadedRequestCount;
+  private final long uploadedRequestsLength;
+
+  /**
+   * @param batchJobUploadUrl the {@code BatchJob.uploadUrl} of the job
+   * @param resumableUploadUri the URI of the initiated resumable upload
+   * @param totalContentLength total length (in bytes) of the content uploaded for the job
+   * @param uploadedRequestCount the number of leading requests whose contents were completely
+   * uploaded
+   * @param uploadedRequestsLength total length (in bytes) of the contents of those requests
+   */
+  public BatchJobUploadCheckpoint(URI batchJobUploadUrl, URI resumableUploadUri,
+      long totalContentLength, long uploadedRequestCount, long uploadedRequestsLength) {
+    this.batchJobUploadUrl = Preconditions.checkNotNull(batchJobUploadUrl, "Null upload URL");
+    this.resumableUploadUri =
+        Preconditions.checkNotNull(resumableUploadUri, "Null resumable upload URI");
+    Preconditions.checkArgument(
+        uploadedRequestCount >= 0L, "Uploaded request count %s is < 0", uploadedRequestCount);
+    Preconditions.checkArgument(
+        uploadedRequestsLength >= 0L && uploadedRequestsLength <= totalContentLength,
+        "Uploaded requests length %s is not between 0 and the total content length %s",
+        uploadedRequestsLength, totalContentLength);
+    this.totalContentLength = totalContentLength;
+    this.uploadedRequestCount = uploadedRequestCount;
+    this.uploadedRequestsLength = uploadedRequestsLength;
+  }
+
+  /**
+   * Returns the {@code BatchJob.uploadUrl} of the job.
+   */
+  public URI getBatchJobUploadUrl() {
+    return batchJobUploadUrl;
+  }
+
+  /**
+   * Returns the URI of the initiated resumable upload.
+   */
+  public URI getResumableUploadUri() {
+    return resumableUploadUri;
+  }
+
+  /**
+   * Returns total length (in bytes) of the content uploaded for the job.
+   */
+  public long getTotalContentLength() {
+    return totalContentLength;
+  }
+
+  /**
+   * Returns the number of leading requests whose contents were completely uploaded.
+   */
+  public long getUploadedRequestCount() {
+    return uploadedRequestCount;
+  }
+
+  /**
+   * Returns total length (in bytes) of the contents of the completely uploaded requests.
+   */
+  public long getUploadedRequestsLength() {
+    return uploadedRequestsLength;
+  }
+
+  /**
+   * Returns the upload status of the job at this checkpoint.
+   */
+  public BatchJobUploadStatus getBatchJobUploadStatus() {
+    return new BatchJobUploadStatus(totalContentLength, resumableUploadUri);
+  }
+
+  @Override
+  public String toString() {
+    return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+        .append("batchJobUploadUrl", batchJobUploadUrl)
+        .append("resumableUploadUri", resumableUploadUri)
+        .append("totalContentLength", totalContentLength)
+        .append("uploadedRequestCount", uploadedRequestCount)
+        .append("uploadedRequestsLength", uploadedRequestsLength)
+        .toString();
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(batchJobUploadUrl, resumableUploadUri, totalContentLength,
+        uploadedRequestCount, uploadedRequestsLength);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof BatchJobUploadCheckpoint)) {
+      return false;
+    }
+    BatchJobUploadCheckpoint other = (BatchJobUploadCheckpoint) obj;
+    return Objects.equal(batchJobUploadUrl, other.batchJobUploadUrl)
+        && Objects.equal(resumableUploadUri, other.resumableUploadUri)
+        && totalContentLength == other.totalContentLength
+        && uploadedRequestCount == other.uploadedRequestCount
+        && uploadedRequestsLength == other.uploadedRequestsLength;
+  }
+}
@@ -0,0 +1,46 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.adwords.lib.utils;
+
+import java.io.IOException;
+
+import javax.annotation.Nullable;
+
+/**
+ * Durable storage for the {@link BatchJobUploadCheckpoint} of a single streamed batch job upload.
+ * {@link FileBatchJobUploadCheckpointStore} stores the checkpoint in a local file.
+ *
+ * <p>A checkpoint must be stored durably before {@link #save(BatchJobUploadCheckpoint)} returns,
+ * since the uploader continues uploading as soon as it does.
+ */
+public interface BatchJobUploadCheckpointStore {
+
+  /**
+   * Returns the saved checkpoint, or {@code null} if there is none.
+   */
+  @Nullable
+  BatchJobUploadCheckpoint load() throws IOException;
+
+  /**
+   * Replaces the saved checkpoint with {@code checkpoint}.
+   */
+  void save(BatchJobUploadCheckpoint checkpoint) throws IOException;
+
+  /**
+   * Deletes the saved checkpoint, if any. Called once the upload has completed.
+   */
+  void delete() throws IOException;
+}
@@ -16,7 +16,6 @@ package com.google.api.ads.adwords.lib.utils;
 
 import com.google.api.ads.adwords.lib.client.AdWordsSession;
 import com.google.api.ads.adwords.lib.utils.logging.BatchJobLogger;
-import com.google.api.ads.common.lib.utils.Streams;
 import com.google.api.client.http.ByteArrayContent;
 import com.google.api.client.http.EmptyContent;
 import com.google.api.client.http.GenericUrl;
@@ -30,12 +29,26 @@ import com.google.api.client.http.HttpTransport;
 import com.google.api.client.util.Charsets;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 
 
 /**
@@ -52,6 +65,8 @@ public class BatchJobUploader {
    */
   private static final Charset REQUEST_CHARSET = Charsets.UTF_8;
 
+  private static final String CONTENT_TYPE = "application/xml";
+
   /**
    * For incremental uploads, each request's contents must have a length in bytes
    * divisible by this size.
@@ -59,6 +74,21 @@ public class BatchJobUploader {
   @VisibleForTesting
   static final int REQUIRED_CONTENT_LENGTH_INCREMENT = 262144;
 
+  /**
+   * Size of each request of a streamed upload. Must be a multiple of
+   * {@link #REQUIRED_CONTENT_LENGTH_INCREMENT}.
+   */
+  @VisibleForTesting
+  static final int STREAMING_CHUNK_SIZE = 4 * REQUIRED_CONTENT_LENGTH_INCREMENT;
+
+  /** Padding byte, which is whitespace after the last element of the upload. */
+  private static final byte PADDING = ' ';
+
+  private static final byte[] MUTATE = "mutate".getBytes(REQUEST_CHARSET);
+
+  /** Pattern of the {@code Range} header of an incomplete resumable upload. */
+  private static final Pattern COMMITTED_RANGE_PATTERN = Pattern.compile("bytes=0-(\\d+)");
+
   @Inject
   BatchJobUploader(
       AdWordsSession session, HttpTransport httpTransport, BatchJobLogger batchJobLogger) {
@@ -69,7 +99,7 @@ public class BatchJobUploader {
 
   private HttpHeaders createHttpHeaders() {
     HttpHeaders headers = new HttpHeaders();
-    headers.setContentType("application/xml");
+    headers.setContentType(CONTENT_TYPE);
     headers.setUserAgent(session.getUserAgent());
     return headers;
   }
@@ -84,34 +114,269 @@ public class BatchJobUploader {
   public BatchJobUploadResponse uploadIncrementalBatchJobOperations(
       final BatchJobMutateRequestInterface request, final boolean isLastRequest,
       BatchJobUploadStatus batchJobUploadStatus) throws BatchJobException {
+    BatchJobUploadStatus effectiveStatus = getEffectiveStatus(batchJobUploadStatus);
+    boolean isFirstRequest = effectiveStatus.getTotalContentLength() == 0;
+
+    // The process below follows the Google Cloud Storage guidelines for resumable
+    // uploads of unknown size:
+    // https://cloud.google.com/storage/docs/concepts-techniques#unknownresumables
+    byte[] serializedRequest = serializeRequest(
+        request.createBatchJobUploadBodyProvider(), request, isFirstRequest, isLastRequest);
+    ByteBuffer trimmedRequest =
+        trimStartEndElements(serializedRequest, isFirstRequest, isLastRequest);
+    ByteArrayContent content;
+    if (isFirstRequest && isLastRequest) {
+      // All operations for the job are being uploaded in a single request, so padding is not
+      // necessary.
+      content = new ByteArrayContent(CONTENT_TYPE, serializedRequest);
+    } else {
+      // The request is part of a set of incremental uploads, so pad to the required content
+      // length in a single copy of the trimmed request.
+      byte[] paddedRequest = new byte[padLength(trimmedRequest.remaining())];
+      trimmedRequest.duplicate().get(paddedRequest, 0, trimmedRequest.remaining());
+      Arrays.fill(paddedRequest, trimmedRequest.remaining(), paddedRequest.length, PADDING);
+      content = new ByteArrayContent(CONTENT_TYPE, paddedRequest);
+    }
+    return putContent(content, isLastRequest, effectiveStatus, getContentsToLog(trimmedRequest));
+  }
+
+  /**
+   * Uploads a batch job's operations from a sequence of requests and returns the response to the
+   * last upload request. Requests are serialized in parallel on a pool of worker threads while
+   * earlier contents upload, and their serialized contents are copied in order into a chunk buffer
+   * of {@link #STREAMING_CHUNK_SIZE} bytes. Each chunk is uploaded as soon as it fills, so the
+   * memory used does not depend on the number of operations.
+   *
+   * <p>After this method returns successfully, the job will transition to the {@code ACTIVE}
+   * state.
+   *
+   * @param requests the requests to upload, which must not be empty. Requests are serialized
+   * concurrently, so their body provider must be thread safe.
+   * @param batchJobUploadStatus the current upload status of the job. If this is the first upload,
+   * set the {@link BatchJobUploadStatus#getResumableUploadUri()} to the {@code
+   * BatchJob#getUploadUrl()}.
+   */
+  public BatchJobUploadResponse streamBatchJobOperations(
+      Iterator<? extends BatchJobMutateRequestInterface> requests,
+      BatchJobUploadStatus batchJobUploadStatus) throws BatchJobException {
+    return streamBatchJobOperations(requests, batchJobUploadStatus, STREAMING_CHUNK_SIZE,
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  @VisibleForTesting
+  BatchJobUploadResponse streamBatchJobOperations(
+      Iterator<? extends BatchJobMutateRequestInterface> requests,
+      BatchJobUploadStatus batchJobUploadStatus, int chunkSize, int serializationThreads)
+      throws BatchJobException {
+    checkStreamingArguments(requests, chunkSize, serializationThreads);
+    ChunkedUpload upload =
+        new ChunkedUpload(getEffectiveStatus(batchJobUploadStatus), new byte[chunkSize]);
+    return streamRequests(requests, upload, upload.status.getTotalContentLength() == 0,
+        serializationThreads);
+  }
+
+  /**
+   * Uploads a batch job's operations like {@link #streamBatchJobOperations(Iterator,
+   * BatchJobUploadStatus)}, saving a {@link BatchJobUploadCheckpoint} to {@code checkpointStore}
+   * after each uploaded chunk so that the upload survives the uploading process stopping.
+   *
+   * <p>If the store has a checkpoint, the upload resumes from it instead of starting over: the
+   * resumable upload is queried for the length of the content it has committed, the requests
+   * completely uploaded before the checkpoint are skipped without being serialized, and the
+   * remaining requests are serialized and uploaded from the committed length. The checkpoint is
+   * deleted once the upload completes. If the upload had already completed, the returned
+   * response's status has the content length of the checkpoint.
+   *
+   * @param requests all requests of the job, which must not be empty. When resuming, these must
+   * be the same requests, in the same order, as those of the interrupted upload.
+   * @param batchJobUploadUrl the {@code BatchJob#getUploadUrl()}
+   * @param checkpointStore the store of the job's checkpoint
+   * @throws BatchJobException if a request failed, or the checkpoint could not be loaded or saved
+   */
+  public BatchJobUploadResponse streamBatchJobOperations(
+      Iterator<? extends BatchJobMutateRequestInterface> requests, URI batchJobUploadUrl,
+      BatchJobUploadCheckpointStore checkpointStore) throws BatchJobException {
+    return streamBatchJobOperations(requests, batchJobUploadUrl, checkpointStore,
+        STREAMING_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+  }
+
+  @VisibleForTesting
+  BatchJobUploadResponse streamBatchJobOperations(
+      Iterator<? extends BatchJobMutateRequestInterface> requests, URI batchJobUploadUrl,
+      BatchJobUploadCheckpointStore checkpointStore, int chunkSize, int serializationThreads)
+      throws BatchJobException {
+    checkStreamingArguments(requests, chunkSize, serializationThreads);
+    Preconditions.checkNotNull(batchJobUploadUrl, "Null batch job upload URL");
+    Preconditions.checkNotNull(checkpointStore, "Null checkpoint store");
+
+    BatchJobUploadCheckpoint checkpoint = loadCheckpoint(checkpointStore);
+    BatchJobUploadStatus status;
+    if (checkpoint == null) {
+      checkpoint = new BatchJobUploadCheckpoint(
+          batchJobUploadUrl, initiateResumableUpload(batchJobUploadUrl), 0, 0, 0);
+      saveCheckpoint(checkpointStore, checkpoint);
+      status = checkpoint.getBatchJobUploadStatus();
+    } else {
+      if (!batchJobUploadUrl.equals(checkpoint.getBatchJobUploadUrl())) {
+        throw new BatchJobException(String.format(
+            "Checkpoint is for the upload URL %s instead of %s",
+            checkpoint.getBatchJobUploadUrl(), batchJobUploadUrl));
+      }
+      BatchJobUploadResponse progress = queryUploadProgress(checkpoint);
+      if (progress.getHttpStatus() != 308) {
+        deleteCheckpoint(checkpointStore);
+        return progress;
+      }
+      status = progress.getBatchJobUploadStatus();
+      if (status.getTotalContentLength() < checkpoint.getTotalContentLength()) {
+        throw new BatchJobException(String.format(
+            "Resumable upload committed %d bytes, fewer than the %d bytes of the checkpoint",
+            status.getTotalContentLength(), checkpoint.getTotalContentLength()));
+      }
+      for (long i = 0; i < checkpoint.getUploadedRequestCount(); i++) {
+        Preconditions.checkArgument(requests.hasNext(),
+            "Fewer requests than the %s requests uploaded before the checkpoint",
+            checkpoint.getUploadedRequestCount());
+        requests.next();
+      }
+      Preconditions.checkArgument(requests.hasNext(),
+          "No requests after the %s requests uploaded before the checkpoint",
+          checkpoint.getUploadedRequestCount());
+    }
+    ChunkedUpload upload = new ChunkedUpload(status, new byte[chunkSize], checkpointStore,
+        checkpoint);
+    return streamRequests(requests, upload, checkpoint.getUploadedRequestCount() == 0,
+        serializationThreads);
+  }
+
+  private static void checkStreamingArguments(
+      Iterator<? extends BatchJobMutateRequestInterface> requests, int chunkSize,
+      int serializationThreads) {
+    Preconditions.checkNotNull(requests, "Null requests");
+    Preconditions.checkArgument(requests.hasNext(), "No requests to upload");
+    Preconditions.checkArgument(chunkSize > 0 && chunkSize % REQUIRED_CONTENT_LENGTH_INCREMENT == 0,
+        "Chunk size %s is not a positive multiple of %s", chunkSize,
+        REQUIRED_CONTENT_LENGTH_INCREMENT);
+    Preconditions.checkArgument(serializationThreads > 0,
+        "Serialization threads %s is <= 0", serializationThreads);
+  }
+
+  /**
+   * Serializes {@code requests} on a pool of worker threads and writes them in order to {@code
+   * upload}, then finishes the upload.
+   *
+   * @param isFirstRequest if the first of {@code requests} is the first request of the job
+   */
+  private BatchJobUploadResponse streamRequests(
+      Iterator<? extends BatchJobMutateRequestInterface> requests, ChunkedUpload upload,
+      boolean isFirstRequest, int serializationThreads) throws BatchJobException {
+    // Every request is serialized as a complete mutate element, so keep the start element of the
+    // first request and the end element of the last request only. All requests are of the same
+    // type, so the body provider of the first request serializes all of them.
+    BatchJobUploadBodyProvider bodyProvider = null;
+    // Serialized requests, in upload order. Bounding the number of requests serialized ahead of
+    // the upload bounds the memory used while keeping every worker busy.
+    Deque<Future<ByteBuffer>> pendingRequests = new ArrayDeque<>();
+    int maxPendingRequests = 2 * serializationThreads;
+    byte[] endElement = null;
+    ExecutorService executor = Executors.newFixedThreadPool(
+        serializationThreads,
+        new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("ads-batch-job-serializer-%d")
+            .build());
+    try {
+      while (requests.hasNext() || !pendingRequests.isEmpty()) {
+        while (requests.hasNext() && pendingRequests.size() < maxPendingRequests) {
+          BatchJobMutateRequestInterface request = requests.next();
+          if (bodyProvider == null) {
+            bodyProvider = request.createBatchJobUploadBodyProvider();
+          }
+          pendingRequests.add(executor.submit(
+              new SerializeRequestTask(bodyProvider, request, isFirstRequest)));
+          isFirstRequest = false;
+        }
+        ByteBuffer trimmedRequest = getSerializedRequest(pendingRequests.remove());
+        upload.startRequest();
+        upload.write(trimmedRequest);
+        if (!requests.hasNext() && pendingRequests.isEmpty()) {
+          byte[] serializedRequest = trimmedRequest.array();
+          endElement = Arrays.copyOfRange(
+              serializedRequest, trimmedRequest.limit(), serializedRequest.length);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    upload.write(ByteBuffer.wrap(endElement));
+    return upload.finish();
+  }
+
+  /**
+   * Waits for a request to be serialized.
+   */
+  private static ByteBuffer getSerializedRequest(Future<ByteBuffer> serializedRequest)
+      throws BatchJobException {
+    try {
+      return serializedRequest.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BatchJobException("Interrupted while serializing the request content", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof BatchJobException) {
+        throw (BatchJobException) e.getCause();
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new BatchJobException("Failed to serialize the request content", e.getCause());
+    }
+  }
+
+  /**
+   * Returns the status to upload with, initiating the resumable upload if this is the first
+   * upload for the job.
+   */
+  private BatchJobUploadStatus getEffectiveStatus(BatchJobUploadStatus batchJobUploadStatus)
+      throws BatchJobException {
     Preconditions.checkNotNull(batchJobUploadStatus, "Null batch job upload status");
     Preconditions.checkNotNull(
         batchJobUploadStatus.getResumableUploadUri(), "No resumable session URI");
-
-    // This reference is final because it is referenced below within an anonymous class.
-    final BatchJobUploadStatus effectiveStatus;
     if (batchJobUploadStatus.getTotalContentLength() == 0) {
       // If this is the first upload, then issue a request to get the resumable session URI from
       // Google Cloud Storage.
       URI uploadUri = initiateResumableUpload(batchJobUploadStatus.getResumableUploadUri());
-      effectiveStatus = new BatchJobUploadStatus(0, uploadUri);
-    } else {
-      effectiveStatus = batchJobUploadStatus;
+      return new BatchJobUploadStatus(0, uploadUri);
     }
-    
-    // The process below follows the Google Cloud Storage guidelines for resumable
-    // uploads of unknown size:
-    // https://cloud.google.com/storage/docs/concepts-techniques#unknownresumables
-    ByteArrayContent content = request.createBatchJobUploadBodyProvider().getHttpContent(
-        request, effectiveStatus.getTotalContentLength() == 0, isLastRequest);
+    return batchJobUploadStatus;
+  }
+
+  /**
+   * Serializes the request with a {@link BatchJobUploadBodyProvider}.
+   */
+  private byte[] serializeRequest(BatchJobUploadBodyProvider bodyProvider,
+      BatchJobMutateRequestInterface request, boolean isFirstRequest, boolean isLastRequest)
+      throws BatchJobException {
+    ByteArrayContent content =
+        bodyProvider.getHttpContent(request, isFirstRequest, isLastRequest);
     try {
-      content = postProcessContent(
-          content, effectiveStatus.getTotalContentLength() == 0L, isLastRequest);
+      return ByteStreams.toByteArray(content.getInputStream());
     } catch (IOException e) {
       throw new BatchJobException("Failed to post-process the request content", e);
     }
-    
-    String requestXml = null;
+  }
+
+  /**
+   * Uploads content to the resumable upload URI of {@code effectiveStatus}.
+   *
+   * @param content the content, already padded if required
+   * @param isLastRequest if the content is the last content for the job
+   * @param effectiveStatus the status of the job <em>before</em> this upload
+   * @param requestXml the request contents to log
+   */
+  private BatchJobUploadResponse putContent(ByteArrayContent content,
+      final boolean isLastRequest, final BatchJobUploadStatus effectiveStatus, String requestXml)
+      throws BatchJobException {
     Throwable exception = null;
     BatchJobUploadResponse batchJobUploadResponse = null;
     final long contentLength = content.getLength();
@@ -137,13 +402,10 @@ public class BatchJobUploader {
           requestFactory.buildPutRequest(
               new GenericUrl(effectiveStatus.getResumableUploadUri()), content);
 
-      requestXml = Streams.readAll(content.getInputStream(), REQUEST_CHARSET);
-      content.getInputStream().reset();
-
       HttpResponse response = httpRequest.execute();
       batchJobUploadResponse = new BatchJobUploadResponse(
           response,
-          effectiveStatus.getTotalContentLength() + httpRequest.getContent().getLength(),
+          effectiveStatus.getTotalContentLength() + contentLength,
           effectiveStatus.getResumableUploadUri());
       return batchJobUploadResponse;
     } catch (HttpResponseException e) {
@@ -202,32 +464,96 @@ public class BatchJobUploader {
   }
 
   /**
-   * Post-processes the request content to conform to the requirements of Google Cloud Storage.
-   * 
-   * @param content the content produced by the {@link BatchJobUploadBodyProvider}.
-   * @param isFirstRequest if this is the first request for the batch job.
-   * @param isLastRequest if this is the last request for the batch job.
+   * Queries the resumable upload of {@code checkpoint} for its progress. If the upload is
+   * incomplete, returns a response with status 308 and the length of the committed content.
+   * Otherwise, returns the response of the completed upload.
    */
-  private ByteArrayContent postProcessContent(
-      ByteArrayContent content, boolean isFirstRequest, boolean isLastRequest) throws IOException {
-    if (isFirstRequest && isLastRequest) {
-      return content;
+  private BatchJobUploadResponse queryUploadProgress(BatchJobUploadCheckpoint checkpoint)
+      throws BatchJobException {
+    // This follows the Google Cloud Storage guidelines for checking the status of resumable
+    // uploads: https://cloud.google.com/storage/docs/resumable-uploads-xml
+    URI resumableUploadUri = checkpoint.getResumableUploadUri();
+    HttpRequestFactory requestFactory =
+        httpTransport.createRequestFactory(new HttpRequestInitializer() {
+          @Override
+          public void initialize(HttpRequest request) throws IOException {
+            HttpHeaders headers = createHttpHeaders();
+            headers.setContentLength(0L);
+            headers.setContentRange("bytes */*");
+            request.setHeaders(headers);
+            request.setLoggingEnabled(true);
+          }
+        });
+
+    try {
+      HttpRequest httpRequest =
+          requestFactory.buildPutRequest(new GenericUrl(resumableUploadUri), new EmptyContent());
+      HttpResponse response = httpRequest.execute();
+      return new BatchJobUploadResponse(
+          response, checkpoint.getTotalContentLength(), resumableUploadUri);
+    } catch (HttpResponseException e) {
+      if (e.getStatusCode() == 308) {
+        return new BatchJobUploadResponse(new ByteArrayInputStream(new byte[0]),
+            e.getStatusCode(), e.getStatusMessage(), getCommittedLength(e.getHeaders().getRange()),
+            resumableUploadUri);
+      }
+      throw new BatchJobException("Failed response status from batch upload status query.", e);
+    } catch (IOException e) {
+      throw new BatchJobException("Failed to query the status of the upload", e);
     }
+  }
 
-    String serializedRequest = Streams.readAll(content.getInputStream(), REQUEST_CHARSET);
+  /**
+   * Returns the length of the committed content from the {@code Range} header of an incomplete
+   * resumable upload, e.g., {@code bytes=0-99}, which is missing if no content is committed.
+   */
+  @VisibleForTesting
+  static long getCommittedLength(@Nullable String range) throws BatchJobException {
+    if (range == null) {
+      return 0;
+    }
+    Matcher matcher = COMMITTED_RANGE_PATTERN.matcher(range.trim());
+    if (!matcher.matches()) {
+      throw new BatchJobException("Invalid range of committed upload content: " + range);
+    }
+    return Long.parseLong(matcher.group(1)) + 1;
+  }
+
+  @Nullable
+  private static BatchJobUploadCheckpoint loadCheckpoint(
+      BatchJobUploadCheckpointStore checkpointStore) throws BatchJobException {
+    try {
+      return checkpointStore.load();
+    } catch (IOException e) {
+      throw new BatchJobException("Failed to load the batch job upload checkpoint", e);
+    }
+  }
 
-    serializedRequest = trimStartEndElements(serializedRequest, isFirstRequest, isLastRequest);
+  private static void saveCheckpoint(BatchJobUploadCheckpointStore checkpointStore,
+      BatchJobUploadCheckpoint checkpoint) throws BatchJobException {
+    try {
+      checkpointStore.save(checkpoint);
+    } catch (IOException e) {
+      throw new BatchJobException("Failed to save the batch job upload checkpoint", e);
+    }
+  }
 
-    // The request is part of a set of incremental uploads, so pad to the required content
-    // length. This is not necessary if all operations for the job are being uploaded in a
-    // single request.
-    int numBytes = serializedRequest.getBytes(REQUEST_CHARSET).length;
-    int remainder = numBytes % REQUIRED_CONTENT_LENGTH_INCREMENT;
-    if (remainder > 0) {
-      int pad = REQUIRED_CONTENT_LENGTH_INCREMENT - remainder;
-      serializedRequest = Strings.padEnd(serializedRequest, numBytes + pad, ' ');
+  private static void deleteCheckpoint(BatchJobUploadCheckpointStore checkpointStore)
+      throws BatchJobException {
+    try {
+      checkpointStore.delete();
+    } catch (IOException e) {
+      throw new BatchJobException("Failed to delete the batch job upload checkpoint", e);
     }
-    return new ByteArrayContent(content.getType(), serializedRequest.getBytes(REQUEST_CHARSET));
+  }
+
+  /**
+   * Returns the length of content of {@code length} bytes after padding to the required content
+   * length.
+   */
+  private static int padLength(int length) {
+    int remainder = length % REQUIRED_CONTENT_LENGTH_INCREMENT;
+    return remainder == 0 ? length : length + REQUIRED_CONTENT_LENGTH_INCREMENT - remainder;
   }
 
   /**
@@ -240,26 +566,93 @@ public class BatchJobUploader {
   @VisibleForTesting
   String trimStartEndElements(
       String serializedRequest, boolean isFirstRequest, boolean isLastRequest) {
+    ByteBuffer trimmedRequest = trimStartEndElements(
+        serializedRequest.getBytes(REQUEST_CHARSET), isFirstRequest, isLastRequest);
+    return new String(trimmedRequest.array(), trimmedRequest.position(),
+        trimmedRequest.remaining(), REQUEST_CHARSET);
+  }
+
+  /**
+   * Returns a buffer over the part of {@code serializedRequest} without the start or end {@code
+   * mutate} element, depending on whether the request is the first and/or last request. The
+   * request is not copied. Searching the encoded bytes is safe since {@link #REQUEST_CHARSET} never
+   * encodes other characters with the bytes of {@code <} or {@code >}.
+   */
+  private ByteBuffer trimStartEndElements(
+      byte[] serializedRequest, boolean isFirstRequest, boolean isLastRequest) {
     int beginIndex = 0;
-    int endIndex = serializedRequest.length();
+    int endIndex = serializedRequest.length;
     if (!isFirstRequest) {
-      // Move the beginIndex (inclusive) to the character after the first opening tag, which
+      // Move the beginIndex (inclusive) to the byte after the first opening tag, which
       // should be a "<mutate>" tag, possibly with namespace declarations.
-      beginIndex = serializedRequest.indexOf('>') + 1;
-      Preconditions.checkArgument(
-          serializedRequest.substring(0, beginIndex - 1).contains("mutate"),
-          "Did not find an opening <mutate> element at the beginning of serialized request: %s",
-          serializedRequest);
+      beginIndex = indexOf(serializedRequest, (byte) '>') + 1;
+      if (!containsMutate(serializedRequest, 0, beginIndex - 1)) {
+        throw new IllegalArgumentException(String.format(
+            "Did not find an opening <mutate> element at the beginning of serialized request: %s",
+            new String(serializedRequest, REQUEST_CHARSET)));
+      }
     }
     if (!isLastRequest) {
       // Move the endIndex (exclusive) to the beginning of the first closing tag, which
       // should be a "</mutate>" tag.
-      endIndex = serializedRequest.lastIndexOf('<');
-      Preconditions.checkArgument(serializedRequest.substring(endIndex).contains("mutate"),
-          "Did not find a closing </mutate> element at the end of serialized request: %s",
-          serializedRequest);
+      endIndex = lastIndexOf(serializedRequest, (byte) '<');
+      if (endIndex < beginIndex
+          || !containsMutate(serializedRequest, endIndex, serializedRequest.length)) {
+        throw new IllegalArgumentException(String.format(
+            "Did not find a closing </mutate> element at the end of serialized request: %s",
+            new String(serializedRequest, REQUEST_CHARSET)));
+      }
+    }
+    return ByteBuffer.wrap(serializedRequest, beginIndex, endIndex - beginIndex);
+  }
+
+  private static int indexOf(byte[] bytes, byte value) {
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes[i] == value) {
+        return i;
+      }
     }
-    return serializedRequest.substring(beginIndex, endIndex);
+    return -1;
+  }
+
+  private static int lastIndexOf(byte[] bytes, byte value) {
+    for (int i = bytes.length - 1; i >= 0; i--) {
+      if (bytes[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns if the bytes from {@code fromIndex} (inclusive) to {@code toIndex} (exclusive)
+   * contain {@code mutate}.
+   */
+  private static boolean containsMutate(byte[] bytes, int fromIndex, int toIndex) {
+    byte[] mutate = MUTATE;
+    for (int i = Math.max(fromIndex, 0); i <= toIndex - mutate.length; i++) {
+      int j = 0;
+      while (j < mutate.length && bytes[i + j] == mutate[j]) {
+        j++;
+      }
+      if (j == mutate.length) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the contents to pass to the {@link BatchJobLogger}, or {@code null} if it will not log
+   * them.
+   */
+  private String getContentsToLog(ByteBuffer contents) {
+    if (!batchJobLogger.isUploadContentsLoggingEnabled()) {
+      return null;
+    }
+    return new String(
+        contents.array(), contents.arrayOffset() + contents.position(), contents.remaining(),
+        REQUEST_CHARSET);
   }
   
   /**
@@ -300,4 +693,137 @@ public class BatchJobUploader {
     }
     return String.format("bytes %d-%d/%s", contentLowerBound, contentUpperBound, totalBytesString);
   }
+
+  /**
+   * Serializes a request of a streamed upload and trims its {@code mutate} elements. Requests of a
+   * streamed upload are never the last request, since the end element is uploaded on its own.
+   */
+  private class SerializeRequestTask implements Callable<ByteBuffer> {
+    private final BatchJobUploadBodyProvider bodyProvider;
+    private final BatchJobMutateRequestInterface request;
+    private final boolean isFirstRequest;
+
+    SerializeRequestTask(BatchJobUploadBodyProvider bodyProvider,
+        BatchJobMutateRequestInterface request, boolean isFirstRequest) {
+      this.bodyProvider = bodyProvider;
+      this.request = request;
+      this.isFirstRequest = isFirstRequest;
+    }
+
+    @Override
+    public ByteBuffer call() throws BatchJobException {
+      byte[] serializedRequest = serializeRequest(bodyProvider, request, isFirstRequest, false);
+      return trimStartEndElements(serializedRequest, isFirstRequest, false);
+    }
+  }
+
+  /**
+   * Buffers the contents of a streamed upload and uploads them one chunk at a time, saving a
+   * checkpoint after each chunk if it has a checkpoint store.
+   */
+  private class ChunkedUpload {
+    private final byte[] chunk;
+    @Nullable private final BatchJobUploadCheckpointStore checkpointStore;
+    @Nullable private final URI batchJobUploadUrl;
+    private int position;
+    private BatchJobUploadStatus status;
+    /** Offset in the job's contents of the next byte written. */
+    private long offset;
+    /** Number of bytes written that a resumed upload already committed. */
+    private long bytesToSkip;
+    private long startedRequestCount;
+    /** The last request boundary, which a chunk uploaded from now on always ends after. */
+    private long uploadedRequestCount;
+    private long uploadedRequestsLength;
+
+    ChunkedUpload(BatchJobUploadStatus status, byte[] chunk) {
+      this.status = status;
+      this.chunk = chunk;
+      this.checkpointStore = null;
+      this.batchJobUploadUrl = null;
+      this.offset = status.getTotalContentLength();
+    }
+
+    /**
+     * Creates an upload that continues from {@code checkpoint}. The requests written to it must
+     * start with the first request not uploaded before the checkpoint.
+     *
+     * @param status the status of the resumable upload, which may have committed more content
+     * than the checkpoint
+     */
+    ChunkedUpload(BatchJobUploadStatus status, byte[] chunk,
+        BatchJobUploadCheckpointStore checkpointStore, BatchJobUploadCheckpoint checkpoint) {
+      this.status = status;
+      this.chunk = chunk;
+      this.checkpointStore = checkpointStore;
+      this.batchJobUploadUrl = checkpoint.getBatchJobUploadUrl();
+      this.offset = checkpoint.getUploadedRequestsLength();
+      this.bytesToSkip = status.getTotalContentLength() - offset;
+      this.startedRequestCount = checkpoint.getUploadedRequestCount();
+      this.uploadedRequestCount = startedRequestCount;
+      this.uploadedRequestsLength = offset;
+    }
+
+    /**
+     * Marks the start of the next request's contents. Every request before it has been
+     * completely written, so any chunk uploaded while writing it contains all of their contents.
+     */
+    void startRequest() {
+      uploadedRequestCount = startedRequestCount++;
+      uploadedRequestsLength = offset;
+    }
+
+    /**
+     * Copies the remaining bytes of {@code contents} into the chunk buffer, uploading the buffer
+     * each time it is full and more bytes follow.
+     */
+    void write(ByteBuffer contents) throws BatchJobException {
+      if (bytesToSkip > 0) {
+        int skippedLength = (int) Math.min(contents.remaining(), bytesToSkip);
+        contents.position(contents.position() + skippedLength);
+        bytesToSkip -= skippedLength;
+        offset += skippedLength;
+      }
+      while (contents.hasRemaining()) {
+        // Only upload a full chunk once more contents arrive, since the last chunk must be
+        // uploaded as the last request.
+        if (position == chunk.length) {
+          upload(position, false);
+        }
+        int length = Math.min(contents.remaining(), chunk.length - position);
+        contents.get(chunk, position, length);
+        position += length;
+        offset += length;
+      }
+    }
+
+    /**
+     * Pads the buffered contents in place and uploads them as the last request.
+     */
+    BatchJobUploadResponse finish() throws BatchJobException {
+      int paddedLength = padLength(position);
+      Arrays.fill(chunk, position, paddedLength, PADDING);
+      return upload(paddedLength, true);
+    }
+
+    private BatchJobUploadResponse upload(int length, boolean isLastRequest)
+        throws BatchJobException {
+      ByteBuffer contents = ByteBuffer.wrap(chunk, 0, length);
+      BatchJobUploadResponse response = putContent(
+          new ByteArrayContent(CONTENT_TYPE, chunk, 0, length), isLastRequest, status,
+          getContentsToLog(contents));
+      status = response.getBatchJobUploadStatus();
+      position = 0;
+      if (checkpointStore != null) {
+        if (isLastRequest) {
+          deleteCheckpoint(checkpointStore);
+        } else {
+          saveCheckpoint(checkpointStore, new BatchJobUploadCheckpoint(batchJobUploadUrl,
+              status.getResumableUploadUri(), status.getTotalContentLength(),
+              uploadedRequestCount, uploadedRequestsLength));
+        }
+      }
+      return response;
+    }
+  }
 }
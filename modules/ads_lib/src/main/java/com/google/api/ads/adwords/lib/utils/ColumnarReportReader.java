@@ -0,0 +1,258 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Reads files written by {@link ColumnarReportWriter}. Each call reads a single column chunk of a
+ * row group from the file, so only the columns asked for are read.
+ *
+ * <p>Instances are thread safe.
+ */
+public final class ColumnarReportReader implements Closeable {
+
+  /** Length of the trailer: the footer offset and the magic. */
+  private static final int TRAILER_LENGTH = 8 + ColumnarReportWriter.MAGIC.length;
+
+  private final FileChannel channel;
+  private final ImmutableList<String> columnNames;
+  private final ImmutableList<ReportColumnType> columnTypes;
+  /** Row count of each row group. */
+  private final int[] rowCounts;
+  /** Offset and length of each column chunk, by row group. */
+  private final long[][] chunks;
+
+  private ColumnarReportReader(FileChannel channel) throws IOException {
+    this.channel = channel;
+    long size = channel.size();
+    int headerLength = ColumnarReportWriter.MAGIC.length + 1;
+    if (size < headerLength + TRAILER_LENGTH) {
+      throw new IOException("File is too short to be a columnar report");
+    }
+    ByteBuffer header = read(0, headerLength);
+    checkMagic(header);
+    int version = header.get();
+    if (version != ColumnarReportWriter.VERSION) {
+      throw new IOException("Unsupported columnar report version: " + version);
+    }
+    ByteBuffer trailer = read(size - TRAILER_LENGTH, TRAILER_LENGTH);
+    long footerOffset = trailer.getLong();
+    checkMagic(trailer);
+    if (footerOffset < headerLength || footerOffset > size - TRAILER_LENGTH) {
+      throw new IOException("Invalid footer offset: " + footerOffset);
+    }
+
+    ByteBuffer footer = read(footerOffset, (int) (size - TRAILER_LENGTH - footerOffset));
+    DataInputStream footerInput = new DataInputStream(new ByteArrayInputStream(
+        footer.array(), footer.arrayOffset(), footer.remaining()));
+    int columnCount = footerInput.readInt();
+    ImmutableList.Builder<String> names = ImmutableList.builder();
+    ImmutableList.Builder<ReportColumnType> types = ImmutableList.builder();
+    ReportColumnType[] allTypes = ReportColumnType.values();
+    for (int i = 0; i < columnCount; i++) {
+      names.add(footerInput.readUTF());
+      int type = footerInput.readByte();
+      if (type < 0 || type >= allTypes.length) {
+        throw new IOException("Unknown column type: " + type);
+      }
+      types.add(allTypes[type]);
+    }
+    this.columnNames = names.build();
+    this.columnTypes = types.build();
+    int rowGroupCount = footerInput.readInt();
+    this.rowCounts = new int[rowGroupCount];
+    this.chunks = new long[rowGroupCount][];
+    for (int i = 0; i < rowGroupCount; i++) {
+      rowCounts[i] = footerInput.readInt();
+      chunks[i] = new long[2 * columnCount];
+      for (int j = 0; j < chunks[i].length; j++) {
+        chunks[i][j] = footerInput.readLong();
+      }
+    }
+  }
+
+  /**
+   * Opens a columnar report file.
+   *
+   * @throws IOException if the file could not be read or is not a columnar report
+   */
+  public static ColumnarReportReader open(File file) throws IOException {
+    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      return new ColumnarReportReader(channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private static void checkMagic(ByteBuffer buffer) throws IOException {
+    byte[] magic = new byte[ColumnarReportWriter.MAGIC.length];
+    buffer.get(magic);
+    if (!Arrays.equals(magic, ColumnarReportWriter.MAGIC)) {
+      throw new IOException("Not a columnar report");
+    }
+  }
+
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  public List<ReportColumnType> getColumnTypes() {
+    return columnTypes;
+  }
+
+  /**
+   * Gets the index of a column.
+   *
+   * @throws IllegalArgumentException if there is no column with that name
+   */
+  public int getColumnIndex(String columnName) {
+    int index = columnNames.indexOf(columnName);
+    Preconditions.checkArgument(index >= 0, "Unknown column: %s", columnName);
+    return index;
+  }
+
+  public int getRowGroupCount() {
+    return rowCounts.length;
+  }
+
+  /**
+   * Gets the number of rows in a row group.
+   */
+  public int getRowCount(int rowGroup) {
+    Preconditions.checkElementIndex(rowGroup, rowCounts.length, "Row group");
+    return rowCounts[rowGroup];
+  }
+
+  /**
+   * Reads which rows of a row group are null in a column.
+   */
+  public BitSet readNulls(int rowGroup, int column) throws IOException {
+    ByteBuffer chunk = readChunk(rowGroup, column);
+    byte[] bitmap = new byte[nullBitmapLength(rowGroup)];
+    chunk.get(bitmap);
+    return BitSet.valueOf(bitmap);
+  }
+
+  /**
+   * Reads the values of a {@link ReportColumnType#LONG} column in a row group. Null values are
+   * {@code 0}.
+   */
+  public long[] readLongs(int rowGroup, int column) throws IOException {
+    ByteBuffer chunk = readValues(rowGroup, column, ReportColumnType.LONG);
+    long[] values = new long[rowCounts[rowGroup]];
+    chunk.asLongBuffer().get(values);
+    return values;
+  }
+
+  /**
+   * Reads the values of an {@link ReportColumnType#INT} column in a row group. Null values are
+   * {@code 0}.
+   */
+  public int[] readInts(int rowGroup, int column) throws IOException {
+    ByteBuffer chunk = readValues(rowGroup, column, ReportColumnType.INT);
+    int[] values = new int[rowCounts[rowGroup]];
+    chunk.asIntBuffer().get(values);
+    return values;
+  }
+
+  /**
+   * Reads the values of a {@link ReportColumnType#DOUBLE} column in a row group. Null values are
+   * {@code 0}.
+   */
+  public double[] readDoubles(int rowGroup, int column) throws IOException {
+    ByteBuffer chunk = readValues(rowGroup, column, ReportColumnType.DOUBLE);
+    double[] values = new double[rowCounts[rowGroup]];
+    chunk.asDoubleBuffer().get(values);
+    return values;
+  }
+
+  /**
+   * Reads the values of a {@link ReportColumnType#STRING} column in a row group. Null values are
+   * {@code null}, and equal values are the same instance.
+   */
+  public String[] readStrings(int rowGroup, int column) throws IOException {
+    ByteBuffer chunk = readValues(rowGroup, column, ReportColumnType.STRING);
+    String[] dictionary = new String[chunk.getInt()];
+    for (int i = 0; i < dictionary.length; i++) {
+      byte[] bytes = new byte[chunk.getInt()];
+      chunk.get(bytes);
+      dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+    }
+    String[] values = new String[rowCounts[rowGroup]];
+    for (int i = 0; i < values.length; i++) {
+      int index = chunk.getInt();
+      values[i] = index < 0 ? null : dictionary[index];
+    }
+    return values;
+  }
+
+  /**
+   * Reads a column chunk and skips its null bitmap.
+   */
+  private ByteBuffer readValues(int rowGroup, int column, ReportColumnType expectedType)
+      throws IOException {
+    Preconditions.checkElementIndex(column, columnTypes.size(), "Column");
+    Preconditions.checkArgument(columnTypes.get(column) == expectedType,
+        "Column %s is of type %s, not %s", columnNames.get(column), columnTypes.get(column),
+        expectedType);
+    ByteBuffer chunk = readChunk(rowGroup, column);
+    chunk.position(chunk.position() + nullBitmapLength(rowGroup));
+    return chunk.slice();
+  }
+
+  private ByteBuffer readChunk(int rowGroup, int column) throws IOException {
+    Preconditions.checkElementIndex(rowGroup, rowCounts.length, "Row group");
+    Preconditions.checkElementIndex(column, columnTypes.size(), "Column");
+    return read(chunks[rowGroup][2 * column], (int) chunks[rowGroup][2 * column + 1]);
+  }
+
+  private int nullBitmapLength(int rowGroup) {
+    return (rowCounts[rowGroup] + 7) / 8;
+  }
+
+  private ByteBuffer read(long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Columnar report is truncated");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
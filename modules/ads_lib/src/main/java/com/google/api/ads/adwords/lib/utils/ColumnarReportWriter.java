@@ -0,0 +1,330 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.CountingOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes report rows in a compact columnar binary format, which {@link ColumnarReportReader}
+ * reads one column at a time without parsing text.
+ *
+ * <p>Rows are buffered and written in row groups, so memory use depends on the row group size
+ * and not on the size of the report. Each row group stores each column as a separate chunk: a
+ * null bitmap followed by the values as big-endian primitives, or, for {@link
+ * ReportColumnType#STRING} columns, a dictionary of the distinct values followed by an index into
+ * it per row. A footer at the end of the file gives the schema and the offset of every chunk.
+ *
+ * <p>Numeric values of {@code --}, which reports use for missing values, are written as nulls.
+ * Values such as {@code < 10%} and {@code > 90%}, which reports use for impression shares
+ * outside the range they report exactly, are written as their bound, {@code 10} and {@code 90}.
+ *
+ * <p>The footer is written by {@link #close()}. If the report cannot be written completely, call
+ * {@link #abort()} instead, so the output is not mistaken for a complete report.
+ *
+ * <p>Instances are not thread safe.
+ */
+public final class ColumnarReportWriter implements Closeable {
+
+  /** Marks the start and end of the format. */
+  static final byte[] MAGIC = {'A', 'W', 'C', 'R'};
+  static final int VERSION = 1;
+
+  /** Default number of rows in a row group. */
+  public static final int DEFAULT_ROW_GROUP_SIZE = 65536;
+
+  private static final String NULL_VALUE = "--";
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final CountingOutputStream countingStream;
+  private final DataOutputStream output;
+  private final ImmutableList<String> columnNames;
+  private final ImmutableList<ReportColumnType> columnTypes;
+  private final int rowGroupSize;
+
+  /** Values of the current row group by column, as long[], int[], double[] or String[]. */
+  private final Object[] columnValues;
+  private final BitSet[] columnNulls;
+  private int rowGroupRowCount;
+  private long rowCount;
+  /** Row count and chunk offsets and lengths of each written row group. */
+  private final List<long[]> rowGroups = new ArrayList<long[]>();
+  private boolean isClosed;
+
+  /**
+   * Constructs a writer and writes the file header.
+   *
+   * @param outputStream the stream to write to, which is closed when the writer is closed
+   * @param columnNames the names of the columns
+   * @param columnTypes the types of the columns, in the same order
+   * @param rowGroupSize the number of rows in each row group
+   * @throws IOException if the header could not be written
+   */
+  public ColumnarReportWriter(OutputStream outputStream, List<String> columnNames,
+      List<ReportColumnType> columnTypes, int rowGroupSize) throws IOException {
+    Preconditions.checkArgument(columnNames.size() == columnTypes.size(),
+        "Got %s column names but %s column types", columnNames.size(), columnTypes.size());
+    Preconditions.checkArgument(rowGroupSize > 0, "Row group size must be positive: %s",
+        rowGroupSize);
+    this.countingStream =
+        new CountingOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+    this.output = new DataOutputStream(countingStream);
+    this.columnNames = ImmutableList.copyOf(columnNames);
+    this.columnTypes = ImmutableList.copyOf(columnTypes);
+    this.rowGroupSize = rowGroupSize;
+    this.columnValues = new Object[columnTypes.size()];
+    this.columnNulls = new BitSet[columnTypes.size()];
+    for (int i = 0; i < columnValues.length; i++) {
+      columnValues[i] = newValues(this.columnTypes.get(i), rowGroupSize);
+      columnNulls[i] = new BitSet(rowGroupSize);
+    }
+    output.write(MAGIC);
+    output.writeByte(VERSION);
+  }
+
+  private static Object newValues(ReportColumnType type, int size) {
+    switch (type) {
+      case LONG:
+        return new long[size];
+      case INT:
+        return new int[size];
+      case DOUBLE:
+        return new double[size];
+      case STRING:
+        return new String[size];
+      default:
+        throw new IllegalArgumentException("Unknown column type: " + type);
+    }
+  }
+
+  /**
+   * Adds a row, writing the current row group if it is full.
+   *
+   * @throws IllegalArgumentException if the row has the wrong number of values, or a numeric
+   *     value cannot be parsed
+   * @throws IOException if a row group could not be written
+   */
+  public void writeRow(ReportRow row) throws IOException {
+    writeRow(row.getValues());
+  }
+
+  /**
+   * Adds a row of values, writing the current row group if it is full.
+   *
+   * @throws IllegalArgumentException if the row has the wrong number of values, or a numeric
+   *     value cannot be parsed
+   * @throws IOException if a row group could not be written
+   */
+  public void writeRow(List<String> values) throws IOException {
+    Preconditions.checkState(!isClosed, "Writer is closed");
+    Preconditions.checkArgument(values.size() == columnTypes.size(),
+        "Expected %s values but got %s", columnTypes.size(), values.size());
+    int rowIndex = rowGroupRowCount;
+    for (int i = 0; i < values.size(); i++) {
+      String value = values.get(i);
+      ReportColumnType type = columnTypes.get(i);
+      if (value == null || (type != ReportColumnType.STRING && isNullValue(value))) {
+        columnNulls[i].set(rowIndex);
+        continue;
+      }
+      try {
+        switch (type) {
+          case LONG:
+            ((long[]) columnValues[i])[rowIndex] = Long.parseLong(value.trim());
+            break;
+          case INT:
+            ((int[]) columnValues[i])[rowIndex] = Integer.parseInt(value.trim());
+            break;
+          case DOUBLE:
+            ((double[]) columnValues[i])[rowIndex] = parseDouble(value);
+            break;
+          default:
+            ((String[]) columnValues[i])[rowIndex] = value;
+        }
+      } catch (NumberFormatException e) {
+        for (BitSet nulls : columnNulls) {
+          nulls.clear(rowIndex);
+        }
+        throw new IllegalArgumentException(String.format(
+            "Invalid %s value for column %s in row %d: %s",
+            type, columnNames.get(i), rowCount + 1, value), e);
+      }
+    }
+    rowGroupRowCount++;
+    rowCount++;
+    if (rowGroupRowCount == rowGroupSize) {
+      writeRowGroup();
+    }
+  }
+
+  private static boolean isNullValue(String value) {
+    return NULL_VALUE.equals(value.trim());
+  }
+
+  private static double parseDouble(String value) {
+    String trimmed = value.trim();
+    if (trimmed.endsWith("%")) {
+      trimmed = trimmed.substring(0, trimmed.length() - 1);
+    }
+    if (trimmed.startsWith("<") || trimmed.startsWith(">")) {
+      trimmed = trimmed.substring(1);
+    }
+    return Double.parseDouble(trimmed);
+  }
+
+  /**
+   * Gets the number of rows added so far.
+   */
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  private void writeRowGroup() throws IOException {
+    long[] rowGroup = new long[1 + 2 * columnTypes.size()];
+    rowGroup[0] = rowGroupRowCount;
+    for (int i = 0; i < columnTypes.size(); i++) {
+      long offset = countingStream.getCount();
+      writeColumnChunk(i);
+      output.flush();
+      rowGroup[1 + 2 * i] = offset;
+      rowGroup[2 + 2 * i] = countingStream.getCount() - offset;
+      columnNulls[i].clear();
+    }
+    rowGroups.add(rowGroup);
+    rowGroupRowCount = 0;
+  }
+
+  private void writeColumnChunk(int column) throws IOException {
+    int count = rowGroupRowCount;
+    byte[] nullBitmap = Arrays.copyOf(columnNulls[column].toByteArray(), (count + 7) / 8);
+    output.write(nullBitmap);
+    switch (columnTypes.get(column)) {
+      case LONG:
+        long[] longs = (long[]) columnValues[column];
+        for (int i = 0; i < count; i++) {
+          output.writeLong(longs[i]);
+          longs[i] = 0;
+        }
+        break;
+      case INT:
+        int[] ints = (int[]) columnValues[column];
+        for (int i = 0; i < count; i++) {
+          output.writeInt(ints[i]);
+          ints[i] = 0;
+        }
+        break;
+      case DOUBLE:
+        double[] doubles = (double[]) columnValues[column];
+        for (int i = 0; i < count; i++) {
+          output.writeDouble(doubles[i]);
+          doubles[i] = 0;
+        }
+        break;
+      default:
+        writeStringChunk((String[]) columnValues[column], count);
+    }
+  }
+
+  private void writeStringChunk(String[] strings, int count) throws IOException {
+    Map<String, Integer> dictionary = new HashMap<String, Integer>();
+    List<String> entries = new ArrayList<String>();
+    int[] indexes = new int[count];
+    for (int i = 0; i < count; i++) {
+      if (strings[i] == null) {
+        indexes[i] = -1;
+        continue;
+      }
+      Integer index = dictionary.get(strings[i]);
+      if (index == null) {
+        index = entries.size();
+        dictionary.put(strings[i], index);
+        entries.add(strings[i]);
+      }
+      indexes[i] = index;
+      strings[i] = null;
+    }
+    output.writeInt(entries.size());
+    for (String entry : entries) {
+      byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+    for (int index : indexes) {
+      output.writeInt(index);
+    }
+  }
+
+  /**
+   * Closes the output stream without writing the last row group or the footer, so the output is
+   * not a readable columnar report. Does nothing if the writer is already closed.
+   *
+   * @throws IOException if the output stream could not be closed
+   */
+  public void abort() throws IOException {
+    if (isClosed) {
+      return;
+    }
+    isClosed = true;
+    output.close();
+  }
+
+  /**
+   * Writes the last row group and the footer, and closes the output stream.
+   */
+  @Override
+  public void close() throws IOException {
+    if (isClosed) {
+      return;
+    }
+    isClosed = true;
+    try {
+      if (rowGroupRowCount > 0) {
+        writeRowGroup();
+      }
+      long footerOffset = countingStream.getCount();
+      output.writeInt(columnNames.size());
+      for (int i = 0; i < columnNames.size(); i++) {
+        output.writeUTF(columnNames.get(i));
+        output.writeByte(columnTypes.get(i).ordinal());
+      }
+      output.writeInt(rowGroups.size());
+      for (long[] rowGroup : rowGroups) {
+        output.writeInt((int) rowGroup[0]);
+        for (int i = 1; i < rowGroup.length; i++) {
+          output.writeLong(rowGroup[i]);
+        }
+      }
+      output.writeLong(footerOffset);
+      output.write(MAGIC);
+      output.flush();
+    } finally {
+      output.close();
+    }
+  }
+}
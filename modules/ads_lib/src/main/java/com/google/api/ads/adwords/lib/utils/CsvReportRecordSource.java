@@ -0,0 +1,140 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the records of a delimited report, such as CSV or TSV, one line at a time.
+ *
+ * <p>If quoting is enabled, a field starting with a double quote may contain delimiters, line
+ * breaks and doubled double quotes, as in RFC 4180. Lines may end with {@code \n} or
+ * {@code \r\n}, a leading byte order mark is ignored, and empty lines are skipped.
+ */
+class CsvReportRecordSource implements ReportRecordSource {
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final char BYTE_ORDER_MARK = '\uFEFF';
+  private static final char QUOTE = '"';
+
+  private final Reader reader;
+  private final char delimiter;
+  private final boolean isQuotingEnabled;
+
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int position;
+  private int limit;
+  private boolean isStart = true;
+  private boolean isEnd;
+
+  private final StringBuilder field = new StringBuilder();
+  private final List<String> fields = new ArrayList<String>();
+
+  CsvReportRecordSource(Reader reader, char delimiter, boolean isQuotingEnabled) {
+    this.reader = reader;
+    this.delimiter = delimiter;
+    this.isQuotingEnabled = isQuotingEnabled;
+  }
+
+  @Override
+  public String[] next() throws IOException {
+    if (isStart) {
+      isStart = false;
+      if (fill() && buffer[position] == BYTE_ORDER_MARK) {
+        position++;
+      }
+    }
+    while (fill()) {
+      if (buffer[position] == '\n' || buffer[position] == '\r') {
+        // Skips empty lines.
+        position++;
+        continue;
+      }
+      return readRecord();
+    }
+    return null;
+  }
+
+  /**
+   * Reads a record starting at the current position, which is not at the end of a line.
+   */
+  private String[] readRecord() throws IOException {
+    fields.clear();
+    field.setLength(0);
+    boolean isQuoted = false;
+    while (fill()) {
+      char c = buffer[position++];
+      if (isQuoted) {
+        if (c != QUOTE) {
+          field.append(c);
+        } else if (fill() && buffer[position] == QUOTE) {
+          field.append(QUOTE);
+          position++;
+        } else {
+          isQuoted = false;
+        }
+      } else if (c == delimiter) {
+        endField();
+      } else if (c == '\n') {
+        break;
+      } else if (c == '\r') {
+        if (fill() && buffer[position] == '\n') {
+          position++;
+        }
+        break;
+      } else if (c == QUOTE && isQuotingEnabled && field.length() == 0) {
+        isQuoted = true;
+      } else {
+        field.append(c);
+      }
+    }
+    endField();
+    return fields.toArray(new String[fields.size()]);
+  }
+
+  private void endField() {
+    fields.add(field.toString());
+    field.setLength(0);
+  }
+
+  /**
+   * Ensures the buffer has at least one unread character.
+   *
+   * @return {@code false} at the end of the report
+   */
+  private boolean fill() throws IOException {
+    while (position >= limit) {
+      if (isEnd) {
+        return false;
+      }
+      int count = reader.read(buffer);
+      if (count < 0) {
+        isEnd = true;
+        return false;
+      }
+      position = 0;
+      limit = count;
+    }
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
@@ -0,0 +1,124 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.common.base.Preconditions;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import javax.annotation.Nullable;
+
+/**
+ * Stores a {@link BatchJobUploadCheckpoint} in a local properties file. Each checkpoint is
+ * written to a temporary file and synced to disk before it replaces the previous one, so the
+ * file always holds a complete checkpoint even if the process stops while saving.
+ */
+public class FileBatchJobUploadCheckpointStore implements BatchJobUploadCheckpointStore {
+  private static final String BATCH_JOB_UPLOAD_URL = "batchJobUploadUrl";
+  private static final String RESUMABLE_UPLOAD_URI = "resumableUploadUri";
+  private static final String TOTAL_CONTENT_LENGTH = "totalContentLength";
+  private static final String UPLOADED_REQUEST_COUNT = "uploadedRequestCount";
+  private static final String UPLOADED_REQUESTS_LENGTH = "uploadedRequestsLength";
+
+  private final Path file;
+
+  /**
+   * @param file the file to store the checkpoint in. Its directory must exist.
+   */
+  public FileBatchJobUploadCheckpointStore(File file) {
+    this.file = Preconditions.checkNotNull(file, "Null file").getAbsoluteFile().toPath();
+  }
+
+  @Nullable
+  @Override
+  public BatchJobUploadCheckpoint load() throws IOException {
+    Properties properties = new Properties();
+    try (InputStream inputStream = Files.newInputStream(file);
+        Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+    try {
+      return new BatchJobUploadCheckpoint(
+          URI.create(getProperty(properties, BATCH_JOB_UPLOAD_URL)),
+          URI.create(getProperty(properties, RESUMABLE_UPLOAD_URI)),
+          Long.parseLong(getProperty(properties, TOTAL_CONTENT_LENGTH)),
+          Long.parseLong(getProperty(properties, UPLOADED_REQUEST_COUNT)),
+          Long.parseLong(getProperty(properties, UPLOADED_REQUESTS_LENGTH)));
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Invalid batch job upload checkpoint in " + file, e);
+    }
+  }
+
+  private String getProperty(Properties properties, String key) throws IOException {
+    String value = properties.getProperty(key);
+    if (value == null) {
+      throw new IOException(
+          String.format("Batch job upload checkpoint in %s has no %s", file, key));
+    }
+    return value;
+  }
+
+  @Override
+  public void save(BatchJobUploadCheckpoint checkpoint) throws IOException {
+    Preconditions.checkNotNull(checkpoint, "Null checkpoint");
+    Properties properties = new Properties();
+    properties.setProperty(BATCH_JOB_UPLOAD_URL, checkpoint.getBatchJobUploadUrl().toString());
+    properties.setProperty(RESUMABLE_UPLOAD_URI, checkpoint.getResumableUploadUri().toString());
+    properties.setProperty(
+        TOTAL_CONTENT_LENGTH, String.valueOf(checkpoint.getTotalContentLength()));
+    properties.setProperty(
+        UPLOADED_REQUEST_COUNT, String.valueOf(checkpoint.getUploadedRequestCount()));
+    properties.setProperty(
+        UPLOADED_REQUESTS_LENGTH, String.valueOf(checkpoint.getUploadedRequestsLength()));
+
+    Path tempFile =
+        Files.createTempFile(file.getParent(), file.getFileName().toString() + ".", ".tmp");
+    try {
+      try (FileOutputStream outputStream = new FileOutputStream(tempFile.toFile());
+          Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)) {
+        properties.store(writer, "Batch job upload checkpoint");
+        writer.flush();
+        outputStream.getFD().sync();
+      }
+      ReportFileSaver.move(tempFile, file);
+      tempFile = null;
+    } finally {
+      if (tempFile != null) {
+        Files.deleteIfExists(tempFile);
+      }
+    }
+  }
+
+  @Override
+  public void delete() throws IOException {
+    Files.deleteIfExists(file);
+  }
+}
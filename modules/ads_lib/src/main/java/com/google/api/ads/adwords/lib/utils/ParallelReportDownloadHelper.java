@@ -0,0 +1,430 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.api.ads.adwords.lib.utils.DetailedReportDownloadResponseException.Builder;
+import com.google.api.ads.common.lib.utils.AdsUtility;
+import com.google.api.ads.common.lib.utils.AdsUtilityRegistry;
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.util.BackOff;
+import com.google.api.client.util.ExponentialBackOff;
+import com.google.api.client.util.Sleeper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.CountingInputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads the same report for many client customer IDs in parallel, writing each report to a
+ * {@link ReportSink}.
+ *
+ * <p>All downloads share the session's credentials, developer token and reporting configuration,
+ * and a single HTTP request factory, so no per-account session or downloader is created. Failed
+ * downloads are retried with exponential backoff if the failure is transient: a transport
+ * problem, a server error, or a rate or internal error reported by the API.
+ *
+ * <p>Settings must not be changed while {@link #downloadReports} is running.
+ */
+public class ParallelReportDownloadHelper {
+
+  /** Default maximum number of reports downloaded at the same time. */
+  public static final int DEFAULT_CONCURRENCY = 10;
+
+  /** Default maximum number of download attempts for each client customer ID. */
+  public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+  /** Default wait before the first retry. Later waits double up to the maximum backoff. */
+  public static final int DEFAULT_INITIAL_BACKOFF_MILLIS = 1000;
+
+  /** Default maximum wait between retries. */
+  public static final int DEFAULT_MAX_BACKOFF_MILLIS = 30000;
+
+  /** Prefixes of the API error types that are retried. */
+  private static final String[] RETRYABLE_ERROR_TYPE_PREFIXES =
+      {"RateExceededError", "InternalApiError"};
+
+  private final AdHocReportDownloadHelperImpl helperImpl;
+  private final ReportRequestFactoryHelper reportRequestFactoryHelper;
+  private final AdsUtilityRegistry adsUtilityRegistry;
+  private final Sleeper sleeper;
+
+  private int concurrency = DEFAULT_CONCURRENCY;
+  private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+  private int initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+  private int maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+
+  /** Constructor used by Guice. */
+  @Inject
+  ParallelReportDownloadHelper(AdHocReportDownloadHelperImpl helperImpl,
+      ReportRequestFactoryHelper reportRequestFactoryHelper,
+      AdsUtilityRegistry adsUtilityRegistry) {
+    this(helperImpl, reportRequestFactoryHelper, adsUtilityRegistry, Sleeper.DEFAULT);
+  }
+
+  @VisibleForTesting
+  ParallelReportDownloadHelper(AdHocReportDownloadHelperImpl helperImpl,
+      ReportRequestFactoryHelper reportRequestFactoryHelper,
+      AdsUtilityRegistry adsUtilityRegistry, Sleeper sleeper) {
+    this.helperImpl = helperImpl;
+    this.reportRequestFactoryHelper = reportRequestFactoryHelper;
+    this.adsUtilityRegistry = adsUtilityRegistry;
+    this.sleeper = sleeper;
+  }
+
+  /**
+   * Downloads a report for each client customer ID and writes the successful ones to
+   * {@code sink}. A failure for one client customer ID does not stop the others; it is recorded in
+   * the returned result.
+   *
+   * @param reportRequest the report to download
+   * @param clientCustomerIds the client customer IDs to download the report for. Duplicates are
+   *     downloaded once.
+   * @param sink the destination of the reports
+   * @param exceptionBuilder builds the exceptions of failed downloads
+   * @return the outcome of the downloads
+   * @throws InterruptedException if interrupted while waiting for the downloads, which are
+   *     cancelled
+   */
+  public Result downloadReports(final ReportRequest reportRequest,
+      Collection<String> clientCustomerIds, final ReportSink sink,
+      final Builder exceptionBuilder) throws InterruptedException {
+    Preconditions.checkNotNull(reportRequest, "Null report request");
+    Preconditions.checkNotNull(sink, "Null sink");
+    Preconditions.checkNotNull(exceptionBuilder, "Null exception builder");
+    ImmutableSet<String> uniqueClientCustomerIds = ImmutableSet.copyOf(clientCustomerIds);
+    adsUtilityRegistry.addUtility(AdsUtility.REPORT_DOWNLOADER);
+
+    final HttpRequestFactory requestFactory =
+        reportRequestFactoryHelper.createSharedHttpRequestFactory();
+    final Progress progress = new Progress();
+    long startNanos = System.nanoTime();
+    if (!uniqueClientCustomerIds.isEmpty()) {
+      ExecutorService executor = Executors.newFixedThreadPool(
+          Math.min(concurrency, uniqueClientCustomerIds.size()),
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("ads-report-download-%d")
+              .build());
+      try {
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (final String clientCustomerId : uniqueClientCustomerIds) {
+          futures.add(executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws InterruptedException {
+              downloadWithRetries(reportRequest, clientCustomerId, requestFactory, sink,
+                  exceptionBuilder, progress);
+              return null;
+            }
+          }));
+        }
+        for (Future<Void> future : futures) {
+          try {
+            future.get();
+          } catch (ExecutionException e) {
+            throw new IllegalStateException("Unexpected report download failure", e.getCause());
+          }
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+    return new Result(progress, System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Downloads a report for one client customer ID, retrying transient failures, and records the
+   * outcome in {@code progress}.
+   */
+  private void downloadWithRetries(ReportRequest reportRequest, String clientCustomerId,
+      HttpRequestFactory requestFactory, ReportSink sink, Builder exceptionBuilder,
+      Progress progress) throws InterruptedException {
+    BackOff backOff = new ExponentialBackOff.Builder()
+        .setInitialIntervalMillis(initialBackoffMillis)
+        .setMaxIntervalMillis(maxBackoffMillis)
+        .setMultiplier(2)
+        .setMaxElapsedTimeMillis(Integer.MAX_VALUE)
+        .build();
+    for (int attempt = 1; ; attempt++) {
+      CountingInputStream inputStream = null;
+      ReportDownloadResponse response;
+      try {
+        RawReportDownloadResponse rawResponse =
+            helperImpl.downloadReport(reportRequest, clientCustomerId, requestFactory);
+        if (rawResponse.getInputStream() != null) {
+          inputStream = new CountingInputStream(rawResponse.getInputStream());
+          rawResponse = new RawReportDownloadResponse(rawResponse.getHttpStatus(), inputStream,
+              rawResponse.getCharset(), rawResponse.getDownloadFormat());
+        }
+        response = helperImpl.handleResponse(rawResponse, exceptionBuilder);
+      } catch (RuntimeException e) {
+        close(inputStream, progress);
+        progress.failures.put(clientCustomerId, e);
+        return;
+      } catch (ReportException | ReportDownloadResponseException e) {
+        close(inputStream, progress);
+        long backOffMillis = getBackOffMillis(backOff);
+        if (attempt >= maxAttempts || !isRetryable(e) || backOffMillis == BackOff.STOP) {
+          progress.failures.put(clientCustomerId, e);
+          return;
+        }
+        progress.retryCount.incrementAndGet();
+        sleeper.sleep(backOffMillis);
+        continue;
+      }
+      try {
+        sink.write(clientCustomerId, response);
+        progress.successCount.incrementAndGet();
+      } catch (IOException | RuntimeException e) {
+        progress.failures.put(clientCustomerId, e);
+      } finally {
+        close(inputStream, progress);
+      }
+      return;
+    }
+  }
+
+  /**
+   * Closes a response stream, which releases its connection, and adds the bytes read from it to
+   * {@code progress}.
+   */
+  private static void close(CountingInputStream inputStream, Progress progress) {
+    if (inputStream == null) {
+      return;
+    }
+    try {
+      inputStream.close();
+    } catch (IOException e) {
+      // The report has been written or has failed already.
+    }
+    progress.totalBytes.addAndGet(inputStream.getCount());
+  }
+
+  /**
+   * Returns {@code true} if the download failed with a problem that may go away on retry.
+   */
+  @VisibleForTesting
+  static boolean isRetryable(Exception e) {
+    if (e instanceof ReportException) {
+      // Only transport problems are transient; an invalid URL or an authorization failure is not.
+      return e.getCause() instanceof IOException
+          && !(e.getCause() instanceof MalformedURLException);
+    }
+    ReportDownloadResponseException responseException = (ReportDownloadResponseException) e;
+    if (responseException.getHttpStatus() >= 500) {
+      return true;
+    }
+    if (e instanceof DetailedReportDownloadResponseException) {
+      String type = ((DetailedReportDownloadResponseException) e).getType();
+      if (type != null) {
+        for (String prefix : RETRYABLE_ERROR_TYPE_PREFIXES) {
+          if (type.startsWith(prefix)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private static long getBackOffMillis(BackOff backOff) {
+    try {
+      return backOff.nextBackOffMillis();
+    } catch (IOException e) {
+      return BackOff.STOP;
+    }
+  }
+
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  /**
+   * Sets the maximum number of reports downloaded at the same time.
+   */
+  public void setConcurrency(int concurrency) {
+    Preconditions.checkArgument(concurrency > 0, "Concurrency must be positive: %s", concurrency);
+    this.concurrency = concurrency;
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /**
+   * Sets the maximum number of download attempts for each client customer ID, including the
+   * first one. {@code 1} disables retries.
+   */
+  public void setMaxAttempts(int maxAttempts) {
+    Preconditions.checkArgument(maxAttempts > 0, "Max attempts must be positive: %s",
+        maxAttempts);
+    this.maxAttempts = maxAttempts;
+  }
+
+  public int getInitialBackoffMillis() {
+    return initialBackoffMillis;
+  }
+
+  /**
+   * Sets the wait before the first retry of a client customer ID. The wait doubles on each later
+   * retry, with some randomization, up to {@link #getMaxBackoffMillis()}.
+   */
+  public void setInitialBackoffMillis(int initialBackoffMillis) {
+    Preconditions.checkArgument(initialBackoffMillis > 0,
+        "Initial backoff must be positive: %s", initialBackoffMillis);
+    this.initialBackoffMillis = initialBackoffMillis;
+  }
+
+  public int getMaxBackoffMillis() {
+    return maxBackoffMillis;
+  }
+
+  /**
+   * Sets the maximum wait between two attempts for a client customer ID.
+   */
+  public void setMaxBackoffMillis(int maxBackoffMillis) {
+    Preconditions.checkArgument(maxBackoffMillis > 0, "Max backoff must be positive: %s",
+        maxBackoffMillis);
+    this.maxBackoffMillis = maxBackoffMillis;
+  }
+
+  public int getReportDownloadTimeout() {
+    return helperImpl.getReportDownloadTimeout();
+  }
+
+  /**
+   * Sets the connect and read timeout of each report download request.
+   */
+  public void setReportDownloadTimeout(int reportDownloadTimeout) {
+    helperImpl.setReportDownloadTimeout(reportDownloadTimeout);
+  }
+
+  /**
+   * Counters shared by the downloads of one {@link #downloadReports} call.
+   */
+  private static final class Progress {
+    private final AtomicInteger successCount = new AtomicInteger();
+    private final AtomicInteger retryCount = new AtomicInteger();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final ConcurrentMap<String, Exception> failures =
+        new ConcurrentHashMap<String, Exception>();
+  }
+
+  /**
+   * Outcome of a {@link #downloadReports} call.
+   */
+  public static final class Result {
+
+    private final int successCount;
+    private final int retryCount;
+    private final long totalBytes;
+    private final Map<String, Exception> failures;
+    private final long elapsedNanos;
+
+    private Result(Progress progress, long elapsedNanos) {
+      this.successCount = progress.successCount.get();
+      this.retryCount = progress.retryCount.get();
+      this.totalBytes = progress.totalBytes.get();
+      this.failures = ImmutableMap.copyOf(progress.failures);
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the number of reports written to the sink.
+     */
+    public int getSuccessCount() {
+      return successCount;
+    }
+
+    /**
+     * Gets the number of client customer IDs whose report could not be downloaded or written.
+     */
+    public int getFailureCount() {
+      return failures.size();
+    }
+
+    /**
+     * Gets the exception of each failed client customer ID: a {@link ReportException},
+     * {@link ReportDownloadResponseException} or {@link RuntimeException} from the last download
+     * attempt, or the exception thrown by the sink.
+     */
+    public Map<String, Exception> getFailures() {
+      return failures;
+    }
+
+    /**
+     * Gets the number of download attempts that were retries.
+     */
+    public int getRetryCount() {
+      return retryCount;
+    }
+
+    /**
+     * Gets the number of response body bytes read, including error responses. Gzipped reports are
+     * counted before inflation.
+     */
+    public long getTotalBytes() {
+      return totalBytes;
+    }
+
+    public long getElapsedMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * Gets the number of reports written to the sink per second.
+     */
+    public double getReportsPerSecond() {
+      return perSecond(successCount);
+    }
+
+    /**
+     * Gets the number of response body bytes read per second.
+     */
+    public double getBytesPerSecond() {
+      return perSecond(totalBytes);
+    }
+
+    private double perSecond(long count) {
+      return elapsedNanos == 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Result{successes=%d, failures=%d, retries=%d, totalBytes=%d, "
+          + "elapsedMillis=%d}", successCount, getFailureCount(), retryCount, totalBytes,
+          getElapsedMillis());
+    }
+  }
+}
@@ -0,0 +1,55 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+/**
+ * Type of a column of a report exported by {@link ColumnarReportWriter}.
+ */
+public enum ReportColumnType {
+  /** 64-bit integers, such as IDs and money amounts in micros. */
+  LONG,
+  /** 32-bit integers. */
+  INT,
+  /** Double precision numbers. A trailing percent sign is dropped, so {@code 12.5%} is 12.5. */
+  DOUBLE,
+  /** Strings and enum values, dictionary encoded in each row group. */
+  STRING;
+
+  /**
+   * Returns the column type for a report field type, as returned in the {@code fieldType} of
+   * {@code ReportDefinitionService.getReportFields}, such as {@code Long}, {@code Money} or
+   * {@code CampaignStatus}. Unknown types and enums map to {@link #STRING}.
+   */
+  public static ReportColumnType forFieldType(String fieldType) {
+    if (fieldType == null) {
+      return STRING;
+    }
+    switch (fieldType) {
+      case "Long":
+      case "long":
+      case "Money":
+      case "Bid":
+        return LONG;
+      case "Integer":
+      case "int":
+        return INT;
+      case "Double":
+      case "double":
+        return DOUBLE;
+      default:
+        return STRING;
+    }
+  }
+}
@@ -0,0 +1,475 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.api.ads.adwords.lib.client.AdWordsSession;
+import com.google.api.ads.adwords.lib.client.reporting.ReportingConfiguration;
+import com.google.api.ads.adwords.lib.utils.ReportRequest.RequestType;
+import com.google.api.client.auth.oauth2.ClientParametersAuthentication;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.base.Ticker;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nullable;
+
+/**
+ * Disk cache of successful report downloads, for callers that repeatedly download the same
+ * report within a short time. Set it on a report downloader with {@code
+ * setReportDownloadCache}; a single cache can be shared by downloaders of any session and
+ * version.
+ *
+ * <p>Reports are keyed by a SHA-256 hash of the endpoint, the caller's developer token and OAuth2
+ * identity, the client customer ID, API version, report definition or AWQL query, download format
+ * and reporting configuration. A caller therefore never gets a report cached for another
+ * developer token, OAuth2 client, user or service account. Whitespace outside
+ * quoted literals in AWQL queries is normalized, so queries that only differ in layout share an
+ * entry. Reports are gzip compressed on disk unless they were downloaded in a gzipped format.
+ *
+ * <p>Entries expire a fixed time after they were downloaded. Once the total size of the cached
+ * files exceeds the maximum size, the least recently used entries are removed; the report added
+ * last is always kept, even if it alone exceeds the maximum size. Entries already in the
+ * directory when the cache is constructed, from an earlier cache on the same directory, are
+ * reused.
+ *
+ * <p>Instances are thread safe, but the directory should not be shared by caches in different
+ * processes at the same time.
+ */
+public final class ReportDownloadCache {
+
+  private static final String FILE_SUFFIX = ".report";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+  private static final Pattern FILE_NAME_PATTERN = Pattern.compile("[0-9a-f]{64}\\.report");
+  private static final Pattern TEMP_FILE_NAME_PATTERN =
+      Pattern.compile("[0-9a-f]{64}\\.report\\..*\\.tmp");
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Reads the wall clock, since entries outlive the process that created them. */
+  private static final Ticker WALL_CLOCK = new Ticker() {
+    @Override
+    public long read() {
+      return TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    }
+  };
+
+  private final Path directory;
+  private final long maxSizeBytes;
+  private final long timeToLiveNanos;
+  private final Ticker ticker;
+
+  /** Entries in least recently used order. Guarded by {@code this}. */
+  private final LinkedHashMap<String, Entry> entries =
+      new LinkedHashMap<String, Entry>(16, 0.75f, true);
+  /** Total size of the entries' files. Guarded by {@code this}. */
+  private long sizeBytes;
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+  private final AtomicLong expirationCount = new AtomicLong();
+
+  /**
+   * Constructs a cache, reusing any entries an earlier cache left in the directory.
+   *
+   * @param directory the directory to keep the cached reports in, which is created if needed
+   * @param maxSizeBytes the maximum total size of the cached files
+   * @param timeToLive how long a report is served from the cache after it was downloaded
+   * @param unit the unit of {@code timeToLive}
+   * @throws IOException if the directory could not be created or read
+   */
+  public ReportDownloadCache(File directory, long maxSizeBytes, long timeToLive, TimeUnit unit)
+      throws IOException {
+    this(directory, maxSizeBytes, unit.toNanos(timeToLive), WALL_CLOCK);
+  }
+
+  /**
+   * @param ticker the wall clock, in nanoseconds since the epoch
+   */
+  @VisibleForTesting
+  ReportDownloadCache(File directory, long maxSizeBytes, long timeToLiveNanos, Ticker ticker)
+      throws IOException {
+    Preconditions.checkNotNull(directory, "Null directory");
+    Preconditions.checkArgument(maxSizeBytes > 0, "Maximum size must be positive: %s",
+        maxSizeBytes);
+    Preconditions.checkArgument(timeToLiveNanos > 0, "Time to live must be positive: %s",
+        timeToLiveNanos);
+    this.directory = Files.createDirectories(directory.getAbsoluteFile().toPath());
+    this.maxSizeBytes = maxSizeBytes;
+    this.timeToLiveNanos = timeToLiveNanos;
+    this.ticker = Preconditions.checkNotNull(ticker, "Null ticker");
+    loadEntries();
+  }
+
+  /**
+   * Adds the unexpired reports in the directory to the index, oldest first, and deletes the
+   * rest along with temporary files left by failed writes.
+   */
+  private synchronized void loadEntries() throws IOException {
+    List<Entry> loaded = new ArrayList<Entry>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        String fileName = file.getFileName().toString();
+        if (FILE_NAME_PATTERN.matcher(fileName).matches()) {
+          Entry entry = new Entry(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()),
+              file, Files.size(file), TimeUnit.MILLISECONDS.toNanos(
+                  Files.getLastModifiedTime(file).toMillis()));
+          if (isExpired(entry)) {
+            delete(file);
+          } else {
+            loaded.add(entry);
+          }
+        } else if (TEMP_FILE_NAME_PATTERN.matcher(fileName).matches()) {
+          delete(file);
+        }
+      }
+    }
+    Collections.sort(loaded, new Comparator<Entry>() {
+      @Override
+      public int compare(Entry entry1, Entry entry2) {
+        return Long.compare(entry1.createdNanos, entry2.createdNanos);
+      }
+    });
+    for (Entry entry : loaded) {
+      entries.put(entry.key, entry);
+      sizeBytes += entry.sizeBytes;
+    }
+    evict(null);
+  }
+
+  /**
+   * Gets the cache key of a report request made with a session.
+   *
+   * @param session the session the report is downloaded with
+   * @param reportRequest the report request
+   */
+  static String getKey(AdWordsSession session, ReportRequest reportRequest) {
+    String requestString = reportRequest.getReportRequestString();
+    if (reportRequest.getRequestType() == RequestType.AWQL) {
+      requestString = normalizeQuery(requestString);
+    } else {
+      requestString = CharMatcher.whitespace().trimFrom(requestString);
+    }
+    ReportingConfiguration reportingConfiguration = session.getReportingConfiguration();
+    Hasher hasher = Hashing.sha256().newHasher();
+    putField(hasher, session.getEndpoint());
+    putField(hasher, session.getDeveloperToken());
+    putCredentialFields(hasher, session.getOAuth2Credential());
+    putField(hasher, session.getClientCustomerId());
+    putField(hasher, reportRequest.getApiVersion());
+    putField(hasher, String.valueOf(reportRequest.getRequestType()));
+    putField(hasher, requestString);
+    putField(hasher, String.valueOf(reportRequest.getDownloadFormat()));
+    putField(hasher,
+        reportingConfiguration == null ? null : reportingConfiguration.toString());
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Adds the identity of the caller behind a credential to a hash: the OAuth2 client ID, and the
+   * service account and user or the refresh token. A credential that cannot be refreshed is
+   * identified by its access token.
+   */
+  private static void putCredentialFields(Hasher hasher, @Nullable Credential credential) {
+    if (credential == null) {
+      putField(hasher, null);
+      return;
+    }
+    putField(hasher, credential.getClientAuthentication() instanceof ClientParametersAuthentication
+        ? ((ClientParametersAuthentication) credential.getClientAuthentication()).getClientId()
+        : null);
+    if (credential instanceof GoogleCredential
+        && ((GoogleCredential) credential).getServiceAccountId() != null) {
+      GoogleCredential serviceAccountCredential = (GoogleCredential) credential;
+      putField(hasher, "serviceAccount");
+      putField(hasher, serviceAccountCredential.getServiceAccountId());
+      putField(hasher, serviceAccountCredential.getServiceAccountUser());
+    } else if (credential.getRefreshToken() != null) {
+      putField(hasher, "refreshToken");
+      putField(hasher, credential.getRefreshToken());
+    } else {
+      putField(hasher, "accessToken");
+      putField(hasher, credential.getAccessToken());
+    }
+  }
+
+  /**
+   * Adds a length-prefixed field to a hash, so that the boundaries between fields are part of the
+   * key.
+   */
+  private static void putField(Hasher hasher, @Nullable String value) {
+    String field = Strings.nullToEmpty(value);
+    hasher.putInt(field.length()).putString(field, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Trims an AWQL query and collapses whitespace outside of quoted literals to single spaces.
+   */
+  @VisibleForTesting
+  static String normalizeQuery(String query) {
+    StringBuilder normalized = new StringBuilder(query.length());
+    char quote = 0;
+    boolean isPendingSpace = false;
+    for (int i = 0; i < query.length(); i++) {
+      char c = query.charAt(i);
+      if (quote == 0 && CharMatcher.whitespace().matches(c)) {
+        isPendingSpace = normalized.length() > 0;
+        continue;
+      }
+      if (isPendingSpace) {
+        normalized.append(' ');
+        isPendingSpace = false;
+      }
+      normalized.append(c);
+      if (quote == 0 && (c == '\'' || c == '"')) {
+        quote = c;
+      } else if (c == quote) {
+        quote = 0;
+      }
+    }
+    return normalized.toString();
+  }
+
+  /**
+   * Gets a cached report. A report that has expired, or whose file can no longer be read, is
+   * removed and counts as a miss.
+   *
+   * @return the report, or {@code null} if it is not cached
+   */
+  @Nullable
+  synchronized RawReportDownloadResponse get(String key) {
+    Entry entry = entries.get(key);
+    if (entry != null && isExpired(entry)) {
+      remove(entry);
+      expirationCount.incrementAndGet();
+      entry = null;
+    }
+    if (entry != null) {
+      try {
+        RawReportDownloadResponse response = open(entry);
+        hitCount.incrementAndGet();
+        return response;
+      } catch (IOException e) {
+        remove(entry);
+      }
+    }
+    missCount.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Caches a successful report, reading its contents and closing its stream.
+   *
+   * @return the report, read back from the cache
+   * @throws IOException if the report could not be read or written to the cache
+   */
+  RawReportDownloadResponse put(String key, RawReportDownloadResponse response)
+      throws IOException {
+    Preconditions.checkArgument(response.getHttpStatus() == HttpURLConnection.HTTP_OK,
+        "Only successful reports can be cached: %s", response.getHttpStatus());
+    Path file = directory.resolve(key + FILE_SUFFIX);
+    Path tempFile = null;
+    try (InputStream inputStream = response.getInputStream()) {
+      tempFile = Files.createTempFile(directory, key + FILE_SUFFIX + ".", TEMP_FILE_SUFFIX);
+      boolean isCompressed = !response.getDownloadFormat().startsWith("GZIPPED");
+      try (OutputStream fileStream =
+          new BufferedOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE)) {
+        DataOutputStream headerStream = new DataOutputStream(fileStream);
+        headerStream.writeUTF(response.getCharset().name());
+        headerStream.writeUTF(response.getDownloadFormat());
+        headerStream.writeBoolean(isCompressed);
+        headerStream.flush();
+        if (isCompressed) {
+          GZIPOutputStream gzipStream = new GZIPOutputStream(fileStream, BUFFER_SIZE);
+          ByteStreams.copy(inputStream, gzipStream);
+          gzipStream.finish();
+        } else {
+          ByteStreams.copy(inputStream, fileStream);
+        }
+      }
+      synchronized (this) {
+        ReportFileSaver.move(tempFile, file);
+        tempFile = null;
+        Entry entry = new Entry(key, file, Files.size(file), ticker.read());
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+          sizeBytes -= previous.sizeBytes;
+        }
+        sizeBytes += entry.sizeBytes;
+        RawReportDownloadResponse cachedResponse = open(entry);
+        evict(key);
+        return cachedResponse;
+      }
+    } finally {
+      if (tempFile != null) {
+        Files.deleteIfExists(tempFile);
+      }
+    }
+  }
+
+  private RawReportDownloadResponse open(Entry entry) throws IOException {
+    InputStream inputStream =
+        new BufferedInputStream(Files.newInputStream(entry.file), BUFFER_SIZE);
+    try {
+      DataInputStream headerStream = new DataInputStream(inputStream);
+      Charset charset = Charset.forName(headerStream.readUTF());
+      String downloadFormat = headerStream.readUTF();
+      if (headerStream.readBoolean()) {
+        inputStream = new GZIPInputStream(inputStream, BUFFER_SIZE);
+      }
+      return new RawReportDownloadResponse(HttpURLConnection.HTTP_OK, inputStream, charset,
+          downloadFormat);
+    } catch (IOException | RuntimeException e) {
+      inputStream.close();
+      throw e;
+    }
+  }
+
+  private boolean isExpired(Entry entry) {
+    return ticker.read() - entry.createdNanos >= timeToLiveNanos;
+  }
+
+  /**
+   * Removes least recently used entries, except {@code keptKey}, until the cache fits its
+   * maximum size.
+   */
+  private void evict(@Nullable String keptKey) {
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (sizeBytes > maxSizeBytes && iterator.hasNext()) {
+      Entry entry = iterator.next();
+      if (entry.key.equals(keptKey)) {
+        continue;
+      }
+      iterator.remove();
+      sizeBytes -= entry.sizeBytes;
+      delete(entry.file);
+      evictionCount.incrementAndGet();
+    }
+  }
+
+  private void remove(Entry entry) {
+    if (entries.remove(entry.key) != null) {
+      sizeBytes -= entry.sizeBytes;
+    }
+    delete(entry.file);
+  }
+
+  /**
+   * Deletes a file. A file that cannot be deleted is only left behind, since it is no longer
+   * indexed and is replaced if its report is cached again.
+   */
+  private static void delete(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      // Ignored, see above.
+    }
+  }
+
+  /**
+   * Removes all entries and deletes their files.
+   */
+  public synchronized void clear() {
+    for (Entry entry : new ArrayList<Entry>(entries.values())) {
+      remove(entry);
+    }
+  }
+
+  /** Returns the number of reports served from the cache. */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /** Returns the number of reports that were not in the cache, including expired ones. */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /**
+   * Returns the ratio of hits to requests, or {@code 1.0} if there have been no requests, like
+   * {@link com.google.common.cache.CacheStats#hitRate()}.
+   */
+  public double getHitRate() {
+    long hits = hitCount.get();
+    long requests = hits + missCount.get();
+    return requests == 0 ? 1.0 : (double) hits / requests;
+  }
+
+  /** Returns the number of entries removed to keep the cache within its maximum size. */
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  /** Returns the number of entries removed because they expired. */
+  public long getExpirationCount() {
+    return expirationCount.get();
+  }
+
+  /** Returns the number of cached reports, including expired ones not removed yet. */
+  public synchronized int getEntryCount() {
+    return entries.size();
+  }
+
+  /** Returns the total size of the cached files. */
+  public synchronized long getSizeBytes() {
+    return sizeBytes;
+  }
+
+  /** A cached report file. */
+  private static final class Entry {
+    private final String key;
+    private final Path file;
+    private final long sizeBytes;
+    private final long createdNanos;
+
+    Entry(String key, Path file, long sizeBytes, long createdNanos) {
+      this.key = key;
+      this.file = file;
+      this.sizeBytes = sizeBytes;
+      this.createdNanos = createdNanos;
+    }
+  }
+}
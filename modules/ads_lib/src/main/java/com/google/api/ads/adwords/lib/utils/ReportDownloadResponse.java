@@ -14,15 +14,18 @@
 
 package com.google.api.ads.adwords.lib.utils;
 
+import com.google.api.ads.adwords.lib.client.reporting.ReportingConfiguration;
 import com.google.api.ads.common.lib.utils.Streams;
 import com.google.common.base.Preconditions;
 
-import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import javax.annotation.Nullable;
@@ -35,6 +38,7 @@ public class ReportDownloadResponse {
   private static final String HTTP_SUCCESS_MESSAGE = "SUCCESS";
 
   private final RawReportDownloadResponse rawResponse;
+  private final ReportingConfiguration reportingConfiguration;
 
   /**
    * Constructs a new instance from a successful raw response.
@@ -43,10 +47,20 @@ public class ReportDownloadResponse {
    * @throws IllegalArgumentException if {@code rawResponse} does not have a successful HTTP status.
    */
   public ReportDownloadResponse(RawReportDownloadResponse rawResponse) {
+    this(rawResponse, null);
+  }
+
+  /**
+   * Constructs a new instance from a successful raw response downloaded with a reporting
+   * configuration, which tells {@link #rows()} which header and summary lines to skip.
+   */
+  ReportDownloadResponse(RawReportDownloadResponse rawResponse,
+      @Nullable ReportingConfiguration reportingConfiguration) {
     this.rawResponse = Preconditions.checkNotNull(rawResponse, "Null raw response");
     Preconditions.checkArgument(rawResponse.getHttpStatus() == HttpURLConnection.HTTP_OK,
         "Expected a successful raw response but raw response status is: %s",
         rawResponse.getHttpStatus());
+    this.reportingConfiguration = reportingConfiguration;
   }
 
   public int getHttpStatus() {
@@ -81,9 +95,111 @@ public class ReportDownloadResponse {
    * @param outputFile the output file to write to
    * @throws FileNotFoundException if unable to write to {@code outputFile}
    * @throws IOException if unable to read the response contents
+   * @see #saveToFile(File, boolean, ReportSaveProgressListener)
    */
   public void saveToFile(String outputFile) throws FileNotFoundException, IOException {
-    Streams.copy(getInputStream(), new BufferedOutputStream(new FileOutputStream(outputFile)));
+    saveToFile(new File(outputFile), false, null);
+  }
+
+  /**
+   * Writes the contents of the response to the specified File through a file channel, and closes
+   * the response.
+   *
+   * <p>The contents are written to a temporary file in the same directory, which then replaces
+   * {@code outputFile} with an atomic rename if the file system supports it. If the download
+   * fails, {@code outputFile} is left as it was and the temporary file is deleted, so a partial
+   * report is never mistaken for a complete one.
+   *
+   * @param outputFile the output file to create or replace
+   * @param inflate whether to inflate the response if it is in one of the gzip formats
+   * @param listener notified of the progress after each chunk is written, or {@code null}
+   * @return the number of bytes written to {@code outputFile}
+   * @throws IOException if unable to read the response contents or write the file
+   */
+  public long saveToFile(File outputFile, boolean inflate,
+      @Nullable ReportSaveProgressListener listener) throws IOException {
+    Preconditions.checkNotNull(outputFile, "Null output file");
+    InputStream inputStream = getInputStream();
+    if (inflate && isGzipped()) {
+      try {
+        inputStream = new GZIPInputStream(inputStream, ReportFileSaver.CHUNK_SIZE);
+      } catch (IOException e) {
+        inputStream.close();
+        throw e;
+      }
+    }
+    return ReportFileSaver.save(inputStream, outputFile, listener);
+  }
+
+  /**
+   * Returns a reader of the rows of the report, which reads the response incrementally instead of
+   * loading it into memory. Inflates the response if it is in one of the gzip formats. Close the
+   * reader to close the response.
+   *
+   * <p>Report header, column header and summary lines are skipped according to the session's
+   * {@link ReportingConfiguration}, or all of them are expected if this response was constructed
+   * directly from a raw response.
+   *
+   * @throws IllegalArgumentException if the response is not in the CSV, CSVFOREXCEL, TSV or XML
+   *     format, or a gzipped variant
+   * @throws IOException if unable to read the start of the response contents
+   */
+  public ReportRowReader rows() throws IOException {
+    return ReportRowReader.open(getInputStream(), rawResponse.getDownloadFormat(),
+        rawResponse.getCharset(), reportingConfiguration);
+  }
+
+  /**
+   * Converts the rows of the report to the columnar format of {@link ColumnarReportWriter},
+   * reading and writing them incrementally, and closes the response and {@code outputStream}. The
+   * summary row is not written.
+   *
+   * <p>Column names are taken from the column header, or are {@code column1}, {@code column2}
+   * and so on if the report was downloaded without one.
+   *
+   * @param outputStream the stream to write the columnar report to
+   * @param columnTypes the type of each column of the report, for example mapped with {@link
+   *     ReportColumnType#forFieldType(String)} from the report definition's field types
+   * @return the number of rows written
+   * @throws IllegalArgumentException if the number of column types does not match the report, or
+   *     a value does not match its column type
+   * @throws IOException if unable to read the response contents or write the columnar report.
+   *     The output of a failed conversion has no footer, so it cannot be opened with {@link
+   *     ColumnarReportReader}.
+   * @see #rows()
+   */
+  public long saveAsColumnar(OutputStream outputStream, List<ReportColumnType> columnTypes)
+      throws IOException {
+    Preconditions.checkNotNull(outputStream, "Null output stream");
+    Preconditions.checkNotNull(columnTypes, "Null column types");
+    try (ReportRowReader reader = rows()) {
+      List<String> columnNames = reader.getColumnNames();
+      if (columnNames.isEmpty()) {
+        columnNames = new ArrayList<String>();
+        for (int i = 1; i <= columnTypes.size(); i++) {
+          columnNames.add("column" + i);
+        }
+      }
+      ColumnarReportWriter writer = new ColumnarReportWriter(outputStream, columnNames,
+          columnTypes, ColumnarReportWriter.DEFAULT_ROW_GROUP_SIZE);
+      try {
+        for (ReportRow row = reader.nextRow(); row != null; row = reader.nextRow()) {
+          writer.writeRow(row);
+        }
+        writer.close();
+        return writer.getRowCount();
+      } catch (IOException | RuntimeException e) {
+        // Without the footer, the partial output cannot be read as a complete report.
+        try {
+          writer.abort();
+        } catch (IOException abortException) {
+          e.addSuppressed(abortException);
+        }
+        throw e;
+      }
+    } finally {
+      outputStream.close();
+    }
   }
   
   private boolean isGzipped() {
@@ -0,0 +1,174 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Saves a report stream to a file through a file channel.
+ *
+ * <p>The report is written to a temporary file in the same directory, which is moved over the
+ * output file once the whole report has been written and synced. A failed save leaves neither a
+ * partial output file nor the temporary file behind. The saved file keeps the permissions of the
+ * file it replaces, or gets the default permissions of new files.
+ */
+final class ReportFileSaver {
+
+  /**
+   * Size of the direct buffer each chunk is read into. The buffer is filled before it is written,
+   * so the file sees a few large writes rather than one per network read.
+   */
+  @VisibleForTesting
+  static final int CHUNK_SIZE = 256 * 1024;
+
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  /** Direct buffers are costly to allocate and free, so each thread reuses one. */
+  private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<ByteBuffer>() {
+    @Override
+    protected ByteBuffer initialValue() {
+      return ByteBuffer.allocateDirect(CHUNK_SIZE);
+    }
+  };
+
+  private ReportFileSaver() {}
+
+  /**
+   * Saves a report to a file, closing the report stream.
+   *
+   * @param inputStream the report
+   * @param outputFile the file to create or replace
+   * @param listener notified after each chunk is written, or {@code null}
+   * @return the number of bytes written
+   * @throws IOException if the report could not be read or written
+   */
+  static long save(InputStream inputStream, File outputFile,
+      @Nullable ReportSaveProgressListener listener) throws IOException {
+    Path outputPath = outputFile.getAbsoluteFile().toPath();
+    Path tempPath = null;
+    try (ReadableByteChannel source = Channels.newChannel(inputStream)) {
+      tempPath = createTempFile(outputPath);
+      copyPermissions(outputPath, tempPath);
+      long bytesWritten;
+      try (FileChannel target = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+        bytesWritten = copy(source, target, listener);
+        target.force(false);
+      }
+      move(tempPath, outputPath);
+      tempPath = null;
+      return bytesWritten;
+    } finally {
+      if (tempPath != null) {
+        Files.deleteIfExists(tempPath);
+      }
+    }
+  }
+
+  /**
+   * Creates an empty temporary file next to the output file. Unlike {@link Files#createTempFile},
+   * which makes the file accessible to its owner only, the file gets the default permissions of new
+   * files, as if the output file was written directly.
+   */
+  private static Path createTempFile(Path outputPath) throws IOException {
+    while (true) {
+      Path tempPath = outputPath.resolveSibling(outputPath.getFileName() + "."
+          + Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE)
+          + TEMP_FILE_SUFFIX);
+      try {
+        return Files.createFile(tempPath);
+      } catch (FileAlreadyExistsException e) {
+        // Try another name.
+      }
+    }
+  }
+
+  /**
+   * Gives the temporary file the permissions of the output file it replaces, if there is one and
+   * the file system has POSIX permissions.
+   */
+  private static void copyPermissions(Path outputPath, Path tempPath) throws IOException {
+    if (!Files.getFileStore(tempPath).supportsFileAttributeView(PosixFileAttributeView.class)) {
+      return;
+    }
+    try {
+      Files.setPosixFilePermissions(tempPath, Files.getPosixFilePermissions(outputPath));
+    } catch (NoSuchFileException e) {
+      // There is no output file yet, so the default permissions apply.
+    }
+  }
+
+  private static long copy(ReadableByteChannel source, FileChannel target,
+      @Nullable ReportSaveProgressListener listener) throws IOException {
+    ByteBuffer buffer = BUFFERS.get();
+    buffer.clear();
+    long startNanos = System.nanoTime();
+    long bytesWritten = 0;
+    boolean isEnd = false;
+    while (!isEnd) {
+      while (buffer.hasRemaining()) {
+        if (source.read(buffer) < 0) {
+          isEnd = true;
+          break;
+        }
+      }
+      buffer.flip();
+      if (!buffer.hasRemaining()) {
+        break;
+      }
+      while (buffer.hasRemaining()) {
+        bytesWritten += target.write(buffer);
+      }
+      buffer.clear();
+      if (listener != null) {
+        long elapsedNanos = Math.max(1L, System.nanoTime() - startNanos);
+        listener.onProgress(bytesWritten,
+            bytesWritten * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+      }
+    }
+    return bytesWritten;
+  }
+
+  /**
+   * Moves the temporary file over the output file, atomically if the file system supports it.
+   */
+  static void move(Path tempPath, Path outputPath) throws IOException {
+    try {
+      Files.move(tempPath, outputPath, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(tempPath, outputPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
@@ -0,0 +1,33 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import javax.annotation.Nullable;
+
+/**
+ * Source of the records of a report, such as the lines of a CSV report, for a
+ * {@link ReportRowReader}.
+ */
+interface ReportRecordSource extends Closeable {
+
+  /**
+   * Reads the values of the next record, or returns {@code null} at the end of the report.
+   */
+  @Nullable
+  String[] next() throws IOException;
+}
@@ -26,8 +26,13 @@ import com.google.api.client.http.HttpRequestFactory;
 import com.google.api.client.http.HttpRequestInitializer;
 import com.google.api.client.http.HttpTransport;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.base.Strings;
 import com.google.inject.Inject;
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
 
 /**
  * Helper class that generates a configured HttpURLConnection for report downloads.
@@ -43,6 +48,9 @@ public class ReportRequestFactoryHelper {
   private final HttpTransport httpTransport;
   private int reportDownloadTimeout;
   private final ReportResponseInterceptor responseInterceptor;
+  /** Request factories by API version. */
+  private final ConcurrentMap<String, CachedRequestFactory> requestFactories =
+      new ConcurrentHashMap<String, CachedRequestFactory>();
 
   /**
    * Constructor used by Guice.
@@ -71,41 +79,97 @@ public class ReportRequestFactoryHelper {
    * Gets the report HTTP URL connection given report URL and proper information needed to
    * authenticate the request.
    *
+   * <p>The headers and request factory are reused for later reports of the same version, and are
+   * only rebuilt if the session's client customer ID or reporting configuration, or the
+   * authorization header, has changed since. The authorization header is still fetched for every
+   * call, so an expiring OAuth2 token is refreshed and replaces the cached headers.
+   *
    * @param reportUrl the URL of the report response or download
    * @return the report HTTP URL connection
    * @throws AuthenticationException If OAuth authorization fails.
    */
   @VisibleForTesting
-  HttpRequestFactory getHttpRequestFactory(final String reportUrl, String version)
+  HttpRequestFactory getHttpRequestFactory(String reportUrl, String version)
+      throws AuthenticationException {
+    return getCachedRequestFactory(reportUrl, version).requestFactory;
+  }
+
+  private CachedRequestFactory getCachedRequestFactory(String reportUrl, String version)
       throws AuthenticationException {
-    final HttpHeaders httpHeaders = createHeaders(reportUrl, version);
+    String authorizationHeader =
+        authorizationHeaderProvider.getAuthorizationHeader(session, reportUrl);
+    String clientCustomerId = session.getClientCustomerId();
+    ReportingConfiguration reportingConfiguration = session.getReportingConfiguration();
+    String key = Strings.nullToEmpty(version);
+    CachedRequestFactory cached = requestFactories.get(key);
+    if (cached == null
+        || !cached.matches(reportUrl, clientCustomerId, reportingConfiguration,
+            authorizationHeader)) {
+      final HttpHeaders httpHeaders = buildHeaders(authorizationHeader, version,
+          clientCustomerId, reportingConfiguration);
+      HttpRequestFactory requestFactory =
+          httpTransport.createRequestFactory(new HttpRequestInitializer() {
+            @Override
+            public void initialize(HttpRequest request) throws IOException {
+              // Requests modify their headers while executing, so each gets its own copy.
+              request.setHeaders(httpHeaders.clone());
+              initializeRequest(request);
+            }
+          });
+      cached = new CachedRequestFactory(reportUrl, clientCustomerId, reportingConfiguration,
+          authorizationHeader, httpHeaders, requestFactory);
+      requestFactories.put(key, cached);
+    }
+    return cached;
+  }
+
+  /**
+   * Gets a request factory that can be shared by report requests for different client customer
+   * IDs. Requests built by the factory have no headers, so the caller must set the headers from
+   * {@link #createHeaders(String, String, String)} on each request.
+   */
+  HttpRequestFactory createSharedHttpRequestFactory() {
     return httpTransport.createRequestFactory(new HttpRequestInitializer() {
       @Override
       public void initialize(HttpRequest request) throws IOException {
-        request.setHeaders(httpHeaders);
-        request.setConnectTimeout(reportDownloadTimeout);
-        request.setReadTimeout(reportDownloadTimeout);
-        request.setThrowExceptionOnExecuteError(false);
-        request.setLoggingEnabled(true);
-        request.setResponseInterceptor(responseInterceptor);
+        initializeRequest(request);
       }
     });
   }
 
+  /**
+   * Sets the attributes of a report request that do not depend on the session.
+   */
+  private void initializeRequest(HttpRequest request) {
+    request.setConnectTimeout(reportDownloadTimeout);
+    request.setReadTimeout(reportDownloadTimeout);
+    request.setThrowExceptionOnExecuteError(false);
+    request.setLoggingEnabled(true);
+    request.setResponseInterceptor(responseInterceptor);
+  }
+
   /**
    * Creates the http headers object for this request, populated from data in
-   * the session.
+   * the session. Returns a copy of the cached headers for the version.
+   *
+   * @param clientCustomerId the client customer ID to download the report for, which may differ
+   *     from the session's
    * @throws AuthenticationException If OAuth authorization fails.
    */
-  private HttpHeaders createHeaders(String reportUrl, String version)
+  HttpHeaders createHeaders(String reportUrl, String version, String clientCustomerId)
       throws AuthenticationException {
+    HttpHeaders httpHeaders = getCachedRequestFactory(reportUrl, version).headers.clone();
+    httpHeaders.set("clientCustomerId", clientCustomerId);
+    return httpHeaders;
+  }
+
+  private HttpHeaders buildHeaders(String authorizationHeader, String version,
+      String clientCustomerId, @Nullable ReportingConfiguration reportingConfiguration) {
     HttpHeaders httpHeaders = new HttpHeaders();
-    httpHeaders.setAuthorization(
-        authorizationHeaderProvider.getAuthorizationHeader(session, reportUrl));
+    httpHeaders.setAuthorization(authorizationHeader);
     httpHeaders.setUserAgent(userAgentCombiner.getUserAgent(session.getUserAgent()));
     httpHeaders.set("developerToken", session.getDeveloperToken());
-    httpHeaders.set("clientCustomerId", session.getClientCustomerId());
-    ReportingConfiguration reportingConfiguration = session.getReportingConfiguration();
+    httpHeaders.set("clientCustomerId", clientCustomerId);
     if (reportingConfiguration != null) {
       reportingConfiguration.validate(version);
       if (reportingConfiguration.isSkipReportHeader() != null) {
@@ -135,16 +199,51 @@ public class ReportRequestFactoryHelper {
   }
 
   /**
-   * Returns the reportDownloadTimeout in milliseconds
+   * Returns the reportDownloadTimeout in milliseconds. This is the default timeout of the report
+   * downloaders of the session, which each keep their own copy.
    */
   public int getReportDownloadTimeout() {
     return reportDownloadTimeout;
   }
 
   /**
-   * Sets the reportDownloadTimeout (milliseconds).
+   * Sets the reportDownloadTimeout (milliseconds). Only affects requests from this helper's own
+   * request factories, and downloaders created afterwards.
    */
   public void setReportDownloadTimeout(int reportDownloadTimeout) {
     this.reportDownloadTimeout = reportDownloadTimeout;
   }
+
+  /** Headers and request factory built for a report URL and the state of the session. */
+  private static final class CachedRequestFactory {
+    private final String reportUrl;
+    private final String clientCustomerId;
+    private final ReportingConfiguration reportingConfiguration;
+    private final String authorizationHeader;
+    private final HttpHeaders headers;
+    private final HttpRequestFactory requestFactory;
+
+    CachedRequestFactory(String reportUrl, String clientCustomerId,
+        @Nullable ReportingConfiguration reportingConfiguration, String authorizationHeader,
+        HttpHeaders headers, HttpRequestFactory requestFactory) {
+      this.reportUrl = reportUrl;
+      this.clientCustomerId = clientCustomerId;
+      this.reportingConfiguration = reportingConfiguration;
+      this.authorizationHeader = authorizationHeader;
+      this.headers = headers;
+      this.requestFactory = requestFactory;
+    }
+
+    /**
+     * Returns whether this was built for the same URL and session state. Reporting configurations
+     * are immutable, so they are compared by identity.
+     */
+    boolean matches(String reportUrl, String clientCustomerId,
+        @Nullable ReportingConfiguration reportingConfiguration, String authorizationHeader) {
+      return Objects.equal(this.reportUrl, reportUrl)
+          && Objects.equal(this.clientCustomerId, clientCustomerId)
+          && this.reportingConfiguration == reportingConfiguration
+          && Objects.equal(this.authorizationHeader, authorizationHeader);
+    }
+  }
 }
@@ -0,0 +1,90 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A row of a report read by a {@link ReportRowReader}, with the column names of the report.
+ */
+public final class ReportRow {
+
+  private final ImmutableList<String> columnNames;
+  private final ImmutableMap<String, Integer> columnIndexes;
+  private final String[] values;
+
+  ReportRow(ImmutableList<String> columnNames, ImmutableMap<String, Integer> columnIndexes,
+      String[] values) {
+    this.columnNames = columnNames;
+    this.columnIndexes = columnIndexes;
+    this.values = values;
+  }
+
+  /**
+   * Gets the names of the columns of the report, or an empty list if the report was downloaded
+   * without a column header.
+   *
+   * @see ReportRowReader#getColumnNames()
+   */
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  /**
+   * Gets the number of values in the row.
+   */
+  public int size() {
+    return values.length;
+  }
+
+  /**
+   * Gets the value at a position in the row.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is not less than {@link #size()}
+   */
+  public String get(int index) {
+    Preconditions.checkElementIndex(index, values.length);
+    return values[index];
+  }
+
+  /**
+   * Gets the value of a column.
+   *
+   * @param columnName a name from {@link #getColumnNames()}
+   * @throws IllegalArgumentException if the report has no column with that name
+   */
+  public String get(String columnName) {
+    Integer index = columnIndexes.get(columnName);
+    Preconditions.checkArgument(index != null, "Unknown column: %s", columnName);
+    return index < values.length ? values[index] : null;
+  }
+
+  /**
+   * Gets the values of the row in column order.
+   */
+  public List<String> getValues() {
+    return ImmutableList.copyOf(values);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(values);
+  }
+}
@@ -0,0 +1,35 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows of a report pushed by {@link ReportRowReader#forEachRow(ReportRowHandler)}.
+ *
+ * <p>Rows are pushed one at a time on the reading thread, and the next row is not read until
+ * {@link #handleRow(ReportRow)} returns, so a slow handler slows the download instead of rows
+ * piling up in memory.
+ */
+public interface ReportRowHandler {
+
+  /**
+   * Handles a row of the report.
+   *
+   * @return {@code true} to continue with the next row, or {@code false} to stop reading
+   * @throws IOException if the row could not be handled, which stops reading
+   */
+  boolean handleRow(ReportRow row) throws IOException;
+}
@@ -0,0 +1,232 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.api.ads.adwords.lib.client.reporting.ReportingConfiguration;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.annotation.Nullable;
+
+/**
+ * Reads the rows of a report one at a time from the response stream, so reports of any size are
+ * read in constant memory. Supports the CSV, CSVFOREXCEL, TSV and XML download formats and their
+ * gzipped variants.
+ *
+ * <p>The report header, column header and summary lines are skipped according to the
+ * {@link ReportingConfiguration} the report was downloaded with. The column header gives the
+ * column names of the rows, and the summary row is available from {@link #getSummaryRow()} once
+ * all rows have been read.
+ *
+ * <p>Rows can be pulled with {@link #nextRow()} or pushed to a {@link ReportRowHandler} with
+ * {@link #forEachRow(ReportRowHandler)}.
+ *
+ * <p>Instances are not thread safe.
+ */
+public final class ReportRowReader implements Closeable {
+
+  private static final String GZIPPED_PREFIX = "GZIPPED_";
+
+  /** Charset of the CSVFOREXCEL format, UTF-16 with a byte order mark. */
+  private static final Charset CSV_FOR_EXCEL_CHARSET = Charset.forName("UTF-16");
+
+  private final ReportRecordSource source;
+  private final ImmutableList<String> columnNames;
+  private final ImmutableMap<String, Integer> columnIndexes;
+  private final boolean hasSummary;
+
+  /** The record after the current one, read ahead to tell the summary from the last row. */
+  private String[] nextRecord;
+  private ReportRow summaryRow;
+  private boolean finished;
+
+  private ReportRowReader(ReportRecordSource source, List<String> columnNames,
+      boolean hasSummary) throws IOException {
+    this.source = source;
+    this.columnNames = ImmutableList.copyOf(columnNames);
+    Map<String, Integer> indexes = new HashMap<String, Integer>();
+    for (int i = this.columnNames.size() - 1; i >= 0; i--) {
+      indexes.put(this.columnNames.get(i), i);
+    }
+    this.columnIndexes = ImmutableMap.copyOf(indexes);
+    this.hasSummary = hasSummary;
+    this.nextRecord = source.next();
+  }
+
+  /**
+   * Opens a reader on a report stream.
+   *
+   * @param inputStream the report, which is closed when the reader is closed
+   * @param downloadFormat the name of the download format of the report, such as {@code CSV}
+   * @param charset the charset of text formats other than CSVFOREXCEL
+   * @param reportingConfiguration the reporting configuration the report was downloaded with, or
+   *     {@code null} for the defaults, which include all header and summary lines
+   * @throws IllegalArgumentException if the download format is not supported
+   * @throws IOException if the start of the report could not be read
+   */
+  static ReportRowReader open(InputStream inputStream, String downloadFormat, Charset charset,
+      @Nullable ReportingConfiguration reportingConfiguration) throws IOException {
+    Preconditions.checkNotNull(inputStream, "Null input stream");
+    Preconditions.checkNotNull(downloadFormat, "Null download format");
+    boolean isGzipped = downloadFormat.startsWith(GZIPPED_PREFIX);
+    String format = isGzipped ? downloadFormat.substring(GZIPPED_PREFIX.length()) : downloadFormat;
+    ReportRecordSource source = null;
+    try {
+      InputStream reportStream = isGzipped ? new GZIPInputStream(inputStream) : inputStream;
+      ReportRowReader reader;
+      if ("XML".equals(format)) {
+        XmlReportRecordSource xmlSource = new XmlReportRecordSource(reportStream);
+        source = xmlSource;
+        reader = new ReportRowReader(xmlSource, xmlSource.getColumnNames(), false);
+      } else {
+        CsvReportRecordSource csvSource;
+        if ("CSV".equals(format)) {
+          csvSource = new CsvReportRecordSource(
+              new InputStreamReader(reportStream, charset), ',', true);
+        } else if ("TSV".equals(format)) {
+          csvSource = new CsvReportRecordSource(
+              new InputStreamReader(reportStream, charset), '\t', false);
+        } else if ("CSVFOREXCEL".equals(format)) {
+          csvSource = new CsvReportRecordSource(
+              new InputStreamReader(reportStream, CSV_FOR_EXCEL_CHARSET), '\t', true);
+        } else {
+          throw new IllegalArgumentException("Unsupported download format: " + downloadFormat);
+        }
+        source = csvSource;
+        reader = openDelimited(csvSource, reportingConfiguration);
+      }
+      return reader;
+    } catch (IOException | RuntimeException e) {
+      if (source != null) {
+        source.close();
+      } else {
+        inputStream.close();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Skips the report header and reads the column header of a CSV-like report.
+   */
+  private static ReportRowReader openDelimited(CsvReportRecordSource source,
+      @Nullable ReportingConfiguration reportingConfiguration) throws IOException {
+    boolean skipReportHeader = false;
+    boolean skipColumnHeader = false;
+    boolean skipReportSummary = false;
+    if (reportingConfiguration != null) {
+      skipReportHeader = Boolean.TRUE.equals(reportingConfiguration.isSkipReportHeader());
+      skipColumnHeader = Boolean.TRUE.equals(reportingConfiguration.isSkipColumnHeader());
+      skipReportSummary = Boolean.TRUE.equals(reportingConfiguration.isSkipReportSummary());
+    }
+    if (!skipReportHeader) {
+      source.next();
+    }
+    List<String> columnNames = ImmutableList.of();
+    if (!skipColumnHeader) {
+      String[] columnHeader = source.next();
+      if (columnHeader != null) {
+        columnNames = ImmutableList.copyOf(columnHeader);
+      }
+    }
+    return new ReportRowReader(source, columnNames, !skipReportSummary);
+  }
+
+  /**
+   * Gets the names of the columns as they appear in the column header, or an empty list if the
+   * report was downloaded without one. XML reports without a column header use the attribute
+   * names of their first row.
+   */
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  /**
+   * Reads the next row of the report.
+   *
+   * @return the row, or {@code null} if all rows have been read
+   * @throws IOException if the report could not be read
+   */
+  @Nullable
+  public ReportRow nextRow() throws IOException {
+    if (finished) {
+      return null;
+    }
+    String[] record = nextRecord;
+    if (record == null) {
+      finished = true;
+      return null;
+    }
+    nextRecord = source.next();
+    if (nextRecord == null && hasSummary) {
+      summaryRow = createRow(record);
+      finished = true;
+      return null;
+    }
+    return createRow(record);
+  }
+
+  /**
+   * Pushes the remaining rows of the report to a handler, until all rows have been read or the
+   * handler returns {@code false}. The reader is not closed.
+   *
+   * @return the number of rows passed to the handler
+   * @throws IOException if the report could not be read, or the handler failed
+   */
+  public long forEachRow(ReportRowHandler handler) throws IOException {
+    Preconditions.checkNotNull(handler, "Null handler");
+    long rowCount = 0;
+    for (ReportRow row = nextRow(); row != null; row = nextRow()) {
+      rowCount++;
+      if (!handler.handleRow(row)) {
+        break;
+      }
+    }
+    return rowCount;
+  }
+
+  /**
+   * Gets the summary row of the report once all rows have been read, or {@code null} if the
+   * rows have not all been read yet or the report has no summary.
+   */
+  @Nullable
+  public ReportRow getSummaryRow() {
+    return summaryRow;
+  }
+
+  private ReportRow createRow(String[] values) {
+    return new ReportRow(columnNames, columnIndexes, values);
+  }
+
+  /**
+   * Closes the report stream, which releases the HTTP connection.
+   */
+  @Override
+  public void close() throws IOException {
+    finished = true;
+    source.close();
+  }
+}
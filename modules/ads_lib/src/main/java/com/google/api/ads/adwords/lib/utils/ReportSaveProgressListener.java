@@ -0,0 +1,37 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import java.io.IOException;
+
+/**
+ * Receives the progress of {@link ReportDownloadResponse#saveToFile(java.io.File, boolean,
+ * ReportSaveProgressListener)}.
+ *
+ * <p>The listener is called on the saving thread after each chunk is written, and the next chunk
+ * is not read until it returns. Blocking in the listener, for example on a shared Guava
+ * {@code RateLimiter} acquiring {@code bytesWritten} deltas, caps the throughput of the save.
+ */
+public interface ReportSaveProgressListener {
+
+  /**
+   * Called after a chunk of the report has been written.
+   *
+   * @param bytesWritten the total number of bytes written to the file so far
+   * @param bytesPerSecond the average number of bytes written per second since the save started
+   * @throws IOException to abort the save, in which case the file is not created or replaced
+   */
+  void onProgress(long bytesWritten, double bytesPerSecond) throws IOException;
+}
@@ -0,0 +1,38 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import java.io.IOException;
+
+/**
+ * Destination of the reports downloaded by a {@link ParallelReportDownloadHelper}. See
+ * {@link ReportSinks} for sinks that write to files or a stream.
+ *
+ * <p>Reports for different client customer IDs are written concurrently, from the download
+ * threads, so implementations must be thread safe.
+ */
+public interface ReportSink {
+
+  /**
+   * Writes a successfully downloaded report. The response's input stream is closed after this
+   * method returns.
+   *
+   * @param clientCustomerId the client customer ID the report was downloaded for
+   * @param response the report
+   * @throws IOException if the report could not be read or written. The download for the client
+   *     customer ID fails and is not retried.
+   */
+  void write(String clientCustomerId, ReportDownloadResponse response) throws IOException;
+}
@@ -0,0 +1,70 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Factory methods for common {@link ReportSink}s.
+ */
+public final class ReportSinks {
+
+  private ReportSinks() {}
+
+  /**
+   * Returns a sink that saves each report to its own file in {@code directory}, named after the
+   * client customer ID followed by {@code fileSuffix}, such as {@code 123-456-7890.csv}. Existing
+   * files are replaced once their new report has been written in full.
+   *
+   * @param directory the directory to save reports in, which must exist
+   * @param fileSuffix the suffix of the file names, such as {@code ".csv.gz"}
+   */
+  public static ReportSink toDirectory(final File directory, final String fileSuffix) {
+    Preconditions.checkArgument(directory.isDirectory(), "Not a directory: %s", directory);
+    Preconditions.checkNotNull(fileSuffix, "Null file suffix");
+    return new ReportSink() {
+      @Override
+      public void write(String clientCustomerId, ReportDownloadResponse response)
+          throws IOException {
+        response.saveToFile(new File(directory, clientCustomerId + fileSuffix), false, null);
+      }
+    };
+  }
+
+  /**
+   * Returns a sink that writes the reports one after the other to {@code outputStream}. Reports
+   * are written whole, so a download holds the stream until its report has been read from the
+   * server, and other downloads wait to write theirs. The stream is not closed.
+   *
+   * @param outputStream the stream to write the reports to
+   */
+  public static ReportSink toStream(final OutputStream outputStream) {
+    Preconditions.checkNotNull(outputStream, "Null output stream");
+    return new ReportSink() {
+      @Override
+      public void write(String clientCustomerId, ReportDownloadResponse response)
+          throws IOException {
+        synchronized (outputStream) {
+          ByteStreams.copy(response.getInputStream(), outputStream);
+        }
+      }
+    };
+  }
+}
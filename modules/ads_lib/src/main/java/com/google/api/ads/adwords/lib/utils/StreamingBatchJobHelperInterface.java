@@ -0,0 +1,83 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.api.ads.common.lib.utils.AdsUtility;
+import com.google.api.ads.common.lib.utils.UsesAdsUtilities;
+import java.util.Iterator;
+
+/**
+ * Utility for uploading the operations and processing the results of a {@code BatchJob} without
+ * holding all of them in memory. The library's {@code BatchJobHelper} classes implement this
+ * interface in addition to {@link BatchJobHelperInterface}.
+ *
+ * @param <OperationT> the operation type for the API version and SOAP toolkit.
+ * @param <ResultT> the mutate result type for the API version and SOAP toolkit.
+ */
+public interface StreamingBatchJobHelperInterface<OperationT, ResultT> {
+
+  /**
+   * Uploads the operations to the batch job as they are read from {@code operations}, without
+   * holding all of them in memory. The operations are serialized in small groups into a
+   * fixed-size buffer, and each full buffer is uploaded as one incremental request. After this
+   * method returns successfully, the job will transition to the {@code ACTIVE} state.
+   *
+   * <p>Use this method instead of {@link
+   * BatchJobHelperInterface#uploadBatchJobOperations(Iterable, String)} for jobs with a large
+   * number of operations.
+   *
+   * @param operations the operations to upload to the batch job, which must not be empty
+   * @param uploadUrl the {@code BatchJob#getUploadUrl()}
+   * @return the response from the last upload request if all requests succeeded
+   * @throws BatchJobException if a request failed
+   */
+  @UsesAdsUtilities({AdsUtility.BATCH_JOB_HELPER})
+  BatchJobUploadResponse streamBatchJobOperations(
+      Iterator<? extends OperationT> operations, String uploadUrl) throws BatchJobException;
+
+  /**
+   * Uploads the operations to the batch job like {@link #streamBatchJobOperations(Iterator,
+   * String)}, saving the progress of the upload to {@code checkpointStore} after each upload
+   * request. If the store has a checkpoint of an interrupted upload of the job, the upload
+   * resumes from the content already committed instead of starting over. The checkpoint is
+   * deleted once the upload completes.
+   *
+   * @param operations all operations of the batch job, which must not be empty. When resuming,
+   * these must be the same operations, in the same order, as those of the interrupted upload.
+   * @param uploadUrl the {@code BatchJob#getUploadUrl()}
+   * @param checkpointStore the store of the upload's checkpoint, such as a {@link
+   * FileBatchJobUploadCheckpointStore}
+   * @return the response from the last upload request if all requests succeeded
+   * @throws BatchJobException if a request failed, or the checkpoint could not be loaded or saved
+   */
+  @UsesAdsUtilities({AdsUtility.BATCH_JOB_HELPER})
+  BatchJobUploadResponse streamBatchJobOperations(Iterator<? extends OperationT> operations,
+      String uploadUrl, BatchJobUploadCheckpointStore checkpointStore) throws BatchJobException;
+
+  /**
+   * Downloads the results from the attempted operations for a completed batch job and passes
+   * each one to {@code handler} as soon as it is parsed. Unlike {@link
+   * BatchJobHelperInterface#downloadBatchJobMutateResponse(String)}, results are not collected in
+   * memory, so use this method for jobs with a large number of operations.
+   *
+   * @param downloadUrl the {@code BatchJob.getDownloadUrl()}
+   * @param handler the handler of each result. The download stops if it returns {@code false}.
+   * @return the number of results passed to {@code handler}
+   * @throws BatchJobException if the download failed or {@code handler} threw an exception
+   */
+  @UsesAdsUtilities({AdsUtility.BATCH_JOB_HELPER})
+  long downloadBatchJobMutateResults(String downloadUrl,
+      BatchJobMutateResultHandler<? super ResultT> handler) throws BatchJobException;
+}
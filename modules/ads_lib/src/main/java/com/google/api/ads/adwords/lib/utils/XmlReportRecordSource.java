@@ -0,0 +1,124 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the {@code row} elements of an XML report with a streaming parser.
+ *
+ * <p>Column names are the {@code display} attributes of the {@code column} elements. Row values
+ * are the attributes named by the {@code name} attributes of the columns, or, if the report has no
+ * column header, the attributes of the first row in document order.
+ */
+class XmlReportRecordSource implements ReportRecordSource {
+
+  private static final String COLUMN_ELEMENT = "column";
+  private static final String ROW_ELEMENT = "row";
+
+  /** Factories are thread safe once configured, so a single one is shared. */
+  private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+  private final InputStream inputStream;
+  private final XMLStreamReader reader;
+  private final List<String> columnNames = new ArrayList<String>();
+  private final List<String> attributeNames = new ArrayList<String>();
+  /** Whether the reader is on the start of a row that has not been returned yet. */
+  private boolean isOnRow;
+
+  /**
+   * Reads the report up to its first row, collecting the columns.
+   */
+  XmlReportRecordSource(InputStream inputStream) throws IOException {
+    this.inputStream = inputStream;
+    try {
+      this.reader = INPUT_FACTORY.createXMLStreamReader(inputStream);
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+          if (ROW_ELEMENT.equals(reader.getLocalName())) {
+            isOnRow = true;
+            break;
+          } else if (COLUMN_ELEMENT.equals(reader.getLocalName())) {
+            String name = reader.getAttributeValue(null, "name");
+            String display = reader.getAttributeValue(null, "display");
+            attributeNames.add(name);
+            columnNames.add(display != null ? display : name);
+          }
+        }
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException("Could not parse XML report", e);
+    }
+    if (isOnRow && attributeNames.isEmpty()) {
+      for (int i = 0; i < reader.getAttributeCount(); i++) {
+        attributeNames.add(reader.getAttributeLocalName(i));
+      }
+      columnNames.addAll(attributeNames);
+    }
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return inputFactory;
+  }
+
+  List<String> getColumnNames() {
+    return ImmutableList.copyOf(columnNames);
+  }
+
+  @Override
+  public String[] next() throws IOException {
+    try {
+      while (!isOnRow) {
+        if (!reader.hasNext()) {
+          return null;
+        }
+        isOnRow = reader.next() == XMLStreamConstants.START_ELEMENT
+            && ROW_ELEMENT.equals(reader.getLocalName());
+      }
+      isOnRow = false;
+      String[] values = new String[attributeNames.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = reader.getAttributeValue(null, attributeNames.get(i));
+      }
+      return values;
+    } catch (XMLStreamException e) {
+      throw new IOException("Could not parse XML report", e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      reader.close();
+    } catch (XMLStreamException e) {
+      throw new IOException("Could not close XML report", e);
+    } finally {
+      inputStream.close();
+    }
+  }
+}
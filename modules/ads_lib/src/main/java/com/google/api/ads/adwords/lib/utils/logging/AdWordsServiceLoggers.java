@@ -16,6 +16,7 @@ package com.google.api.ads.adwords.lib.utils.logging;
 
 import com.google.api.ads.common.lib.utils.logging.AdsServiceLoggers;
 import com.google.api.ads.common.lib.utils.logging.PrettyPrinterInterface;
+import com.google.api.ads.common.lib.utils.logging.SoapXmlLogDispatcher;
 import com.google.inject.name.Named;
 
 import org.slf4j.Logger;
@@ -30,7 +31,6 @@ public class AdWordsServiceLoggers extends AdsServiceLoggers {
   private final ReportServiceLogger reportServiceLogger;
   private final BatchJobLogger batchJobLogger;
   
-  @Inject
   public AdWordsServiceLoggers(PrettyPrinterInterface prettyPrinter,
       @Named("soapXmlLogger") Logger soapXmlLogger,
       @Named("requestInfoLogger") Logger requestInfoLogger,
@@ -41,6 +41,18 @@ public class AdWordsServiceLoggers extends AdsServiceLoggers {
     this.batchJobLogger = batchJobLogger;
   }
 
+  @Inject
+  public AdWordsServiceLoggers(PrettyPrinterInterface prettyPrinter,
+      @Named("soapXmlLogger") Logger soapXmlLogger,
+      @Named("requestInfoLogger") Logger requestInfoLogger,
+      SoapXmlLogDispatcher soapXmlLogDispatcher,
+      ReportServiceLogger reportServiceLogger,
+      BatchJobLogger batchJobLogger) {
+    super(prettyPrinter, soapXmlLogger, requestInfoLogger, soapXmlLogDispatcher);
+    this.reportServiceLogger = reportServiceLogger;
+    this.batchJobLogger = batchJobLogger;
+  }
+
   /**
    * Return the logger for report service interactions.
    */
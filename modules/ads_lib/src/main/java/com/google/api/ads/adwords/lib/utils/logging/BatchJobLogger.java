@@ -82,6 +82,14 @@ public class BatchJobLogger {
     }
   }
 
+  /**
+   * Returns if {@link #logUpload} logs the contents of uploads, so callers can skip building the
+   * contents when they would not be logged.
+   */
+  public boolean isUploadContentsLoggingEnabled() {
+    return batchJobLogger.isDebugEnabled();
+  }
+
   /**
    * Logs a batch job results download.
    *
@@ -105,4 +113,26 @@ public class BatchJobLogger {
           FAILURE_STATUS, downloadUrl, throwable);
     }
   }
+
+  /**
+   * Logs a batch job results download whose results were streamed instead of collected in a
+   * response.
+   *
+   * @param downloadUrl the download URL for the batch job.
+   * @param resultCount the number of results handled before the download finished or failed.
+   * @param throwable the throwable that occurred during download, or {@code null} if the download
+   * succeeded.
+   */
+  public void logDownload(String downloadUrl, long resultCount, @Nullable Throwable throwable) {
+    if (throwable == null) {
+      batchJobLogger.info(
+          "{} download of {} mutate results from batch job download URL {}", SUCCESS_STATUS,
+          resultCount, downloadUrl);
+    } else {
+      batchJobLogger.warn(
+          "{} to download mutate results from batch job download URL {} after {} results. "
+              + "Exception: {}",
+          FAILURE_STATUS, downloadUrl, resultCount, throwable);
+    }
+  }
 }
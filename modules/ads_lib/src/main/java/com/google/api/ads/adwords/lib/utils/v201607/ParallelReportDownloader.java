@@ -0,0 +1,108 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils.v201607;
+
+import com.google.api.ads.adwords.lib.client.AdWordsSession;
+import com.google.api.ads.adwords.lib.jaxb.v201607.DownloadFormat;
+import com.google.api.ads.adwords.lib.jaxb.v201607.ReportDefinition;
+import com.google.api.ads.adwords.lib.utils.AdWordsInternals;
+import com.google.api.ads.adwords.lib.utils.ParallelReportDownloadHelper;
+import com.google.api.ads.adwords.lib.utils.ReportSink;
+import com.google.inject.Inject;
+import java.util.Collection;
+
+/**
+ * Reports are fetched for many accounts at once like in the following code:
+ *
+ * <pre>
+ *<code>new ParallelReportDownloader(adWordsSession).downloadReports(
+ *    reportDefinition, clientCustomerIds, ReportSinks.toDirectory(directory, ".csv"));
+ *</code>
+ *</pre>
+ *
+ * The {@code adWordsSession} is used to authenticate the requests, and its client customer ID is
+ * replaced by each of the {@code clientCustomerIds}.
+ *
+ * <p>
+ * Settings must not be changed while reports are downloading.
+ * </p>
+ */
+public class ParallelReportDownloader implements ParallelReportDownloaderInterface {
+
+  private final ParallelReportDownloadHelper parallelReportDownloadHelper;
+
+  /**
+   * Constructs a {@link ParallelReportDownloader}.
+   *
+   * @param session AdWordsSession to use to make report download requests.
+   */
+  public ParallelReportDownloader(AdWordsSession session) {
+    this(AdWordsInternals.getBootstrapper()
+        .getInstanceOf(session, ParallelReportDownloadHelper.class));
+  }
+
+  /** Constructor used by Guice. */
+  @Inject
+  ParallelReportDownloader(ParallelReportDownloadHelper parallelReportDownloadHelper) {
+    this.parallelReportDownloadHelper = parallelReportDownloadHelper;
+  }
+
+  @Override
+  public ParallelReportDownloadHelper.Result downloadReports(ReportDefinition reportDefinition,
+      Collection<String> clientCustomerIds, ReportSink sink) throws InterruptedException {
+    return parallelReportDownloadHelper.downloadReports(
+        new XmlReportDefinitionRequest(reportDefinition), clientCustomerIds, sink,
+        new DetailedReportDownloadResponseException.Builder());
+  }
+
+  @Override
+  public ParallelReportDownloadHelper.Result downloadReports(String reportQuery,
+      DownloadFormat format, Collection<String> clientCustomerIds, ReportSink sink)
+      throws InterruptedException {
+    return parallelReportDownloadHelper.downloadReports(
+        new AwqlReportRequest(reportQuery, format), clientCustomerIds, sink,
+        new DetailedReportDownloadResponseException.Builder());
+  }
+
+  @Override
+  public int getConcurrency() {
+    return parallelReportDownloadHelper.getConcurrency();
+  }
+
+  @Override
+  public void setConcurrency(int concurrency) {
+    parallelReportDownloadHelper.setConcurrency(concurrency);
+  }
+
+  @Override
+  public int getMaxAttempts() {
+    return parallelReportDownloadHelper.getMaxAttempts();
+  }
+
+  @Override
+  public void setMaxAttempts(int maxAttempts) {
+    parallelReportDownloadHelper.setMaxAttempts(maxAttempts);
+  }
+
+  @Override
+  public int getReportDownloadTimeout() {
+    return parallelReportDownloadHelper.getReportDownloadTimeout();
+  }
+
+  @Override
+  public void setReportDownloadTimeout(int reportDownloadTimeout) {
+    parallelReportDownloadHelper.setReportDownloadTimeout(reportDownloadTimeout);
+  }
+}
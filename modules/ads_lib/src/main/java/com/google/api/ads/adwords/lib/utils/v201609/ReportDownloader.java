@@ -19,6 +19,7 @@ import com.google.api.ads.adwords.lib.jaxb.v201609.DownloadFormat;
 import com.google.api.ads.adwords.lib.jaxb.v201609.ReportDefinition;
 import com.google.api.ads.adwords.lib.utils.AdHocReportDownloadHelper;
 import com.google.api.ads.adwords.lib.utils.AdWordsInternals;
+import com.google.api.ads.adwords.lib.utils.ReportDownloadCache;
 import com.google.api.ads.adwords.lib.utils.ReportDownloadResponse;
 import com.google.api.ads.adwords.lib.utils.ReportDownloadResponseException;
 import com.google.api.ads.adwords.lib.utils.ReportException;
@@ -84,4 +85,21 @@ public class ReportDownloader implements ReportDownloaderInterface {
   public void setReportDownloadTimeout(int reportDownloadTimeout) {
     adHocReportDownloadHelper.setReportDownloadTimeout(reportDownloadTimeout);
   }
+
+  /**
+   * Returns the cache that successful report downloads are served from, or {@code null} if
+   * reports are always downloaded.
+   */
+  public ReportDownloadCache getReportDownloadCache() {
+    return adHocReportDownloadHelper.getReportDownloadCache();
+  }
+
+  /**
+   * Sets the cache that successful report downloads are served from, or {@code null} to always
+   * download reports. A cache may be shared by downloaders of different sessions, since reports
+   * are cached per developer token and OAuth2 identity.
+   */
+  public void setReportDownloadCache(ReportDownloadCache reportDownloadCache) {
+    adHocReportDownloadHelper.setReportDownloadCache(reportDownloadCache);
+  }
 }
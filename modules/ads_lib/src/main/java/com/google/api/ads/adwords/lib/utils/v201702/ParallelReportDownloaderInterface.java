@@ -0,0 +1,85 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils.v201702;
+
+import com.google.api.ads.adwords.lib.jaxb.v201702.DownloadFormat;
+import com.google.api.ads.adwords.lib.jaxb.v201702.ReportDefinition;
+import com.google.api.ads.adwords.lib.utils.ParallelReportDownloadHelper;
+import com.google.api.ads.adwords.lib.utils.ReportSink;
+import com.google.api.ads.adwords.lib.utils.SessionUtility;
+import com.google.inject.ImplementedBy;
+import java.util.Collection;
+
+/**
+ * Utility for downloading the same AdWords API report for many client customer IDs in parallel.
+ */
+@ImplementedBy(ParallelReportDownloader.class)
+@SessionUtility
+public interface ParallelReportDownloaderInterface {
+  /**
+   * Downloads a report for each client customer ID and writes the successful ones to a sink.
+   *
+   * @param reportDefinition to download a report for.
+   * @param clientCustomerIds to download the report for.
+   * @param sink to write the reports to.
+   * @return the number of successful and failed downloads, and the exception of each failure.
+   * @throws InterruptedException If interrupted while waiting for the downloads.
+   */
+  public ParallelReportDownloadHelper.Result downloadReports(ReportDefinition reportDefinition,
+      Collection<String> clientCustomerIds, ReportSink sink) throws InterruptedException;
+
+  /**
+   * Downloads a report query (AWQL) for each client customer ID and writes the successful ones to
+   * a sink.
+   *
+   * @param reportQuery to download a report for.
+   * @param format Format to download the report as.
+   * @param clientCustomerIds to download the report for.
+   * @param sink to write the reports to.
+   * @return the number of successful and failed downloads, and the exception of each failure.
+   * @throws InterruptedException If interrupted while waiting for the downloads.
+   */
+  public ParallelReportDownloadHelper.Result downloadReports(String reportQuery,
+      DownloadFormat format, Collection<String> clientCustomerIds, ReportSink sink)
+      throws InterruptedException;
+
+  /** Returns the maximum number of reports downloaded at the same time. */
+  public int getConcurrency();
+
+  /**
+   * Sets the maximum number of reports downloaded at the same time. Defaults to
+   * {@link ParallelReportDownloadHelper#DEFAULT_CONCURRENCY}.
+   */
+  public void setConcurrency(int concurrency);
+
+  /** Returns the maximum number of download attempts for each client customer ID. */
+  public int getMaxAttempts();
+
+  /**
+   * Sets the maximum number of download attempts for each client customer ID. Defaults to
+   * {@link ParallelReportDownloadHelper#DEFAULT_MAX_ATTEMPTS}.
+   */
+  public void setMaxAttempts(int maxAttempts);
+
+  /** Returns the reportDownloadTimeout in milliseconds. */
+  public int getReportDownloadTimeout();
+
+  /**
+   * Sets the timeout for both CONNECT and READ of each download to the specified value.
+   *
+   * @param reportDownloadTimeout the reportDownloadTimeout to set in milliseconds
+   */
+  public void setReportDownloadTimeout(int reportDownloadTimeout);
+}
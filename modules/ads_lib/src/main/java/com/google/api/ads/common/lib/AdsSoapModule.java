@@ -22,8 +22,10 @@ import com.google.api.ads.common.lib.factory.FactoryModule;
 import com.google.api.ads.common.lib.factory.FactoryModule.AdsServiceClientFactoryInterface;
 import com.google.api.ads.common.lib.factory.FactoryModule.AdsServiceDescriptorFactoryInterface;
 import com.google.api.ads.common.lib.factory.helper.AdsServiceClientFactoryHelper;
+import com.google.api.ads.common.lib.soap.SoapCallListener;
 import com.google.inject.AbstractModule;
 import com.google.inject.TypeLiteral;
+import com.google.inject.multibindings.OptionalBinder;
 
 /**
  * Guice module for common bindings.
@@ -38,8 +40,16 @@ public class AdsSoapModule <C extends AdsServiceClient<S, D>,
 
   public AdsSoapModule() {}
 
+  /**
+   * Binds the {@link SoapCallListener} to {@link SoapCallListener#NO_OP} by
+   * default. Other modules can replace it with
+   * {@link OptionalBinder#setBinding()}.
+   */
   @Override
-  protected void configure() {}
+  protected void configure() {
+    OptionalBinder.newOptionalBinder(binder(), SoapCallListener.class)
+        .setDefault().toInstance(SoapCallListener.NO_OP);
+  }
 
   /**
    * Configures the factories.
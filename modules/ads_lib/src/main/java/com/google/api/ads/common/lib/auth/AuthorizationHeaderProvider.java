@@ -34,23 +34,23 @@ public class AuthorizationHeaderProvider {
   @VisibleForTesting
   private final OAuth2AuthorizationHeaderProvider oAuth2AuthorizationHeaderProvider;
   private final AdsLibConfiguration adsLibConfiguration;
-  private final OAuth2Helper oAuth2Helper;
+  private final OAuth2TokenManager oAuth2TokenManager;
 
   /**
    * Constructor.
    *
    * @param oAuth2AuthorizationHeaderProvider the OAuth2 header provider
    * @param adsLibConfiguration the library configuration
-   * @param oAuth2Helper the OAuth2 helper
+   * @param oAuth2TokenManager the OAuth2 token manager
    */
   @Inject
   public AuthorizationHeaderProvider(
       OAuth2AuthorizationHeaderProvider oAuth2AuthorizationHeaderProvider,
       AdsLibConfiguration adsLibConfiguration,
-      OAuth2Helper oAuth2Helper) {
+      OAuth2TokenManager oAuth2TokenManager) {
     this.oAuth2AuthorizationHeaderProvider = oAuth2AuthorizationHeaderProvider;
     this.adsLibConfiguration = adsLibConfiguration;
-    this.oAuth2Helper = oAuth2Helper;
+    this.oAuth2TokenManager = oAuth2TokenManager;
   }
 
   /**
@@ -86,7 +86,7 @@ public class AuthorizationHeaderProvider {
   private String getOAuth2Header(OAuth2Compatible oAuth2Compatible) throws OAuthException {
     if (adsLibConfiguration.isAutoRefreshOAuth2TokenEnabled()) {
       try {
-        oAuth2Helper.refreshCredential(oAuth2Compatible.getOAuth2Credential());
+        oAuth2TokenManager.refreshCredential(oAuth2Compatible.getOAuth2Credential());
       } catch (IOException e) {
         throw new OAuthException("OAuth2 token could not be refreshed.", e);
       }
@@ -15,7 +15,7 @@
 package com.google.api.ads.common.lib.auth;
 
 import com.google.api.client.auth.oauth2.Credential;
-import com.google.common.annotations.VisibleForTesting;
+import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
 import com.google.inject.name.Named;
 
 import org.slf4j.Logger;
@@ -72,9 +72,29 @@ public class OAuth2Helper {
   /**
    * Returns {@code true} if the credential can and should be refreshed.
    */
-  @VisibleForTesting
   boolean isCredentialRefreshable(Credential credential) {
+    return isCredentialRefreshable(credential, refreshWindowSeconds);
+  }
+
+  /**
+   * Returns {@code true} if the credential has no access token or expires within
+   * {@code windowSeconds}.
+   */
+  boolean isCredentialRefreshable(Credential credential, long windowSeconds) {
     return credential.getAccessToken() == null || credential.getExpiresInSeconds() != null
-        && credential.getExpiresInSeconds() <= refreshWindowSeconds;
+        && credential.getExpiresInSeconds() <= windowSeconds;
+  }
+
+  /**
+   * Returns {@code true} if the credential has an expiry and can get a new access token before
+   * it expires, either with a refresh token or, for service accounts, with a signed assertion.
+   */
+  boolean isCredentialRefreshableBeforeExpiry(Credential credential) {
+    if (credential.getExpiresInSeconds() == null) {
+      return false;
+    }
+    return credential.getRefreshToken() != null
+        || credential instanceof GoogleCredential
+            && ((GoogleCredential) credential).getServiceAccountId() != null;
   }
 }
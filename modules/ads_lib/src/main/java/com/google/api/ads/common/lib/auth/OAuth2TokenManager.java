@@ -0,0 +1,338 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.auth;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+/**
+ * Keeps OAuth2 credentials fresh for the threads making requests with them.
+ *
+ * <p>Refreshes are single-flight: if several threads find the same credential inside the refresh
+ * window, only one of them calls the token endpoint and the others wait for its result.
+ *
+ * <p>Each credential that is used also gets a background refresh, scheduled for when its
+ * remaining lifetime reaches twice the refresh window. In steady state the token is therefore
+ * renewed before any request sees it inside the refresh window, and requests do not wait on the
+ * token endpoint. Only a weak reference to the credential is kept, and the next background
+ * refresh is scheduled the next time the credential is used, so abandoned credentials are not
+ * refreshed indefinitely.
+ *
+ * <p>Refresh latency and the number of times a request had to wait for a refresh are available
+ * from {@link #getRefreshStats()}.
+ */
+@Singleton
+public class OAuth2TokenManager {
+
+  private final OAuth2Helper oAuth2Helper;
+  private final Long refreshWindowSeconds;
+  private final Logger libLogger;
+  private final Ticker ticker;
+
+  /** Refreshes in flight, keyed by credential identity. */
+  private final ConcurrentMap<Credential, ListenableFuture<Void>> refreshes =
+      CacheBuilder.newBuilder().weakKeys().<Credential, ListenableFuture<Void>>build().asMap();
+
+  /** Credentials with a background refresh scheduled, keyed by credential identity. */
+  private final ConcurrentMap<Credential, Boolean> scheduledRefreshes =
+      CacheBuilder.newBuilder().weakKeys().<Credential, Boolean>build().asMap();
+
+  private ScheduledExecutorService scheduler;
+
+  private final AtomicLong refreshCount = new AtomicLong();
+  private final AtomicLong refreshFailureCount = new AtomicLong();
+  private final AtomicLong totalRefreshTimeNanos = new AtomicLong();
+  private final AtomicLong backgroundRefreshCount = new AtomicLong();
+  private final AtomicLong stallCount = new AtomicLong();
+  private final AtomicLong totalStallTimeNanos = new AtomicLong();
+
+  /**
+   * Constructor.
+   *
+   * @param oAuth2Helper the OAuth2 helper used to decide when to refresh and to refresh
+   * @param libLogger the lib logger
+   * @param refreshWindowSeconds the refresh window in seconds
+   */
+  @Inject
+  public OAuth2TokenManager(OAuth2Helper oAuth2Helper, @Named("libLogger") Logger libLogger,
+      @Named("oAuth2RefreshWindow") Long refreshWindowSeconds) {
+    this(oAuth2Helper, libLogger, refreshWindowSeconds, null, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  OAuth2TokenManager(OAuth2Helper oAuth2Helper, Logger libLogger, Long refreshWindowSeconds,
+      ScheduledExecutorService scheduler, Ticker ticker) {
+    this.oAuth2Helper = oAuth2Helper;
+    this.libLogger = libLogger;
+    this.refreshWindowSeconds = refreshWindowSeconds;
+    this.scheduler = scheduler;
+    this.ticker = ticker;
+  }
+
+  /**
+   * Makes sure the credential is usable for a request. If the credential is inside the refresh
+   * window, the calling thread refreshes it or waits for the refresh already in flight.
+   * Otherwise, the call returns immediately and a background refresh is scheduled if there is
+   * none yet.
+   *
+   * @param credential the credential to refresh
+   * @return the credential
+   * @throws IOException if the credential had to be refreshed and the refresh failed
+   */
+  public Credential refreshCredential(Credential credential) throws IOException {
+    if (oAuth2Helper.isCredentialRefreshable(credential)) {
+      long start = ticker.read();
+      try {
+        awaitRefresh(refresh(credential, refreshWindowSeconds));
+      } finally {
+        stallCount.incrementAndGet();
+        totalStallTimeNanos.addAndGet(ticker.read() - start);
+      }
+    }
+    scheduleRefresh(credential);
+    return credential;
+  }
+
+  /**
+   * Gets a snapshot of the refresh statistics.
+   */
+  public RefreshStats getRefreshStats() {
+    return new RefreshStats(refreshCount.get(), refreshFailureCount.get(),
+        totalRefreshTimeNanos.get(), backgroundRefreshCount.get(), stallCount.get(),
+        totalStallTimeNanos.get());
+  }
+
+  /**
+   * Starts a refresh of the credential, or joins the refresh already in flight for it. If the
+   * credential no longer expires within {@code windowSeconds} once this call owns the refresh,
+   * another refresh has just completed and the token endpoint is not called again.
+   *
+   * @param windowSeconds the remaining lifetime below which the credential needs a refresh
+   * @return a future that completes when the refresh is done
+   */
+  @VisibleForTesting
+  ListenableFuture<Void> refresh(Credential credential, long windowSeconds) {
+    SettableFuture<Void> future = SettableFuture.create();
+    ListenableFuture<Void> inFlight = refreshes.putIfAbsent(credential, future);
+    if (inFlight != null) {
+      return inFlight;
+    }
+    if (!oAuth2Helper.isCredentialRefreshable(credential, windowSeconds)) {
+      refreshes.remove(credential, future);
+      future.set(null);
+      return future;
+    }
+    long start = ticker.read();
+    try {
+      if (!oAuth2Helper.callRefreshToken(credential)) {
+        refreshFailureCount.incrementAndGet();
+        libLogger.warn("OAuth2 token could not be refreshed. "
+            + "Add a refreshListener to the Credential to capture this failure.");
+      }
+      future.set(null);
+    } catch (IOException | RuntimeException e) {
+      refreshFailureCount.incrementAndGet();
+      future.setException(e);
+    } finally {
+      refreshCount.incrementAndGet();
+      totalRefreshTimeNanos.addAndGet(ticker.read() - start);
+      refreshes.remove(credential, future);
+    }
+    return future;
+  }
+
+  /**
+   * Waits for a refresh to complete.
+   *
+   * @throws IOException if the refresh failed or the thread was interrupted
+   */
+  private static void awaitRefresh(ListenableFuture<Void> refresh) throws IOException {
+    try {
+      refresh.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      InterruptedIOException interruptedException =
+          new InterruptedIOException("Interrupted while waiting for the OAuth2 token refresh.");
+      interruptedException.initCause(e);
+      throw interruptedException;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IOException("OAuth2 token could not be refreshed.", e.getCause());
+    }
+  }
+
+  /**
+   * Schedules a background refresh of the credential if it can be refreshed before it expires
+   * and none is scheduled yet.
+   */
+  private void scheduleRefresh(Credential credential) {
+    Long expiresInSeconds = credential.getExpiresInSeconds();
+    if (expiresInSeconds == null || !oAuth2Helper.isCredentialRefreshableBeforeExpiry(credential)
+        || scheduledRefreshes.putIfAbsent(credential, Boolean.TRUE) != null) {
+      return;
+    }
+    long delaySeconds = Math.max(0L, expiresInSeconds - 2 * refreshWindowSeconds);
+    getScheduler().schedule(
+        new BackgroundRefresh(new WeakReference<Credential>(credential)),
+        delaySeconds, TimeUnit.SECONDS);
+  }
+
+  private synchronized ScheduledExecutorService getScheduler() {
+    if (scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("ads-oauth2-refresh-%d")
+              .build());
+    }
+    return scheduler;
+  }
+
+  /**
+   * Refreshes a credential in the background, unless it has been garbage collected.
+   */
+  private class BackgroundRefresh implements Runnable {
+
+    private final WeakReference<Credential> credentialReference;
+
+    private BackgroundRefresh(WeakReference<Credential> credentialReference) {
+      this.credentialReference = credentialReference;
+    }
+
+    @Override
+    public void run() {
+      Credential credential = credentialReference.get();
+      if (credential == null) {
+        return;
+      }
+      try {
+        backgroundRefreshCount.incrementAndGet();
+        awaitRefresh(refresh(credential, 2 * refreshWindowSeconds));
+      } catch (IOException | RuntimeException e) {
+        // The next request inside the refresh window will retry and report the failure.
+        libLogger.warn("Background OAuth2 token refresh failed.", e);
+      } finally {
+        scheduledRefreshes.remove(credential);
+      }
+    }
+  }
+
+  /**
+   * Statistics about OAuth2 token refreshes.
+   */
+  public static final class RefreshStats {
+
+    private final long refreshCount;
+    private final long refreshFailureCount;
+    private final long totalRefreshTimeNanos;
+    private final long backgroundRefreshCount;
+    private final long stallCount;
+    private final long totalStallTimeNanos;
+
+    @VisibleForTesting
+    RefreshStats(long refreshCount, long refreshFailureCount, long totalRefreshTimeNanos,
+        long backgroundRefreshCount, long stallCount, long totalStallTimeNanos) {
+      this.refreshCount = refreshCount;
+      this.refreshFailureCount = refreshFailureCount;
+      this.totalRefreshTimeNanos = totalRefreshTimeNanos;
+      this.backgroundRefreshCount = backgroundRefreshCount;
+      this.stallCount = stallCount;
+      this.totalStallTimeNanos = totalStallTimeNanos;
+    }
+
+    /**
+     * Gets the number of calls made to the token endpoint.
+     */
+    public long getRefreshCount() {
+      return refreshCount;
+    }
+
+    /**
+     * Gets the number of refreshes that threw an exception or did not return a new token.
+     */
+    public long getRefreshFailureCount() {
+      return refreshFailureCount;
+    }
+
+    /**
+     * Gets the total time spent calling the token endpoint, in nanoseconds.
+     */
+    public long getTotalRefreshTimeNanos() {
+      return totalRefreshTimeNanos;
+    }
+
+    /**
+     * Gets the average time spent calling the token endpoint, in nanoseconds.
+     */
+    public double getAverageRefreshTimeNanos() {
+      return refreshCount == 0 ? 0.0 : (double) totalRefreshTimeNanos / refreshCount;
+    }
+
+    /**
+     * Gets the number of refreshes started in the background.
+     */
+    public long getBackgroundRefreshCount() {
+      return backgroundRefreshCount;
+    }
+
+    /**
+     * Gets the number of times a request had to wait for a refresh.
+     */
+    public long getStallCount() {
+      return stallCount;
+    }
+
+    /**
+     * Gets the total time requests spent waiting for refreshes, in nanoseconds.
+     */
+    public long getTotalStallTimeNanos() {
+      return totalStallTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("RefreshStats{refreshCount=%d, refreshFailureCount=%d, "
+          + "averageRefreshTimeNanos=%.0f, backgroundRefreshCount=%d, stallCount=%d, "
+          + "totalStallTimeNanos=%d}", refreshCount, refreshFailureCount,
+          getAverageRefreshTimeNanos(), backgroundRefreshCount, stallCount, totalStallTimeNanos);
+    }
+  }
+}
@@ -16,6 +16,7 @@ package com.google.api.ads.common.lib.client;
 
 import com.google.api.ads.common.lib.exception.AuthenticationException;
 import com.google.api.ads.common.lib.exception.ServiceException;
+import com.google.api.ads.common.lib.soap.SoapCallListener;
 import com.google.api.ads.common.lib.soap.SoapCallReturn;
 import com.google.api.ads.common.lib.soap.SoapClientHandlerInterface;
 import com.google.api.ads.common.lib.soap.SoapServiceClient;
@@ -30,6 +31,7 @@ import com.google.api.ads.common.lib.utils.logging.AdsServiceLoggers;
  * <li>Setting headers (along with their overrides).</li>
  * <li>Acting as an invocation wrapper for RPCs.</li>
  * <li>Setting the endpoint address.</li>
+ * <li>Creating additional SOAP clients for concurrent calls.</li>
  * </ul>
  *
  * @param <S> the type of {@link AdsSession}
@@ -56,7 +58,25 @@ public abstract class AdsServiceClient<S extends AdsSession,
   public AdsServiceClient(Object soapClient, S adsSession, D adsServiceDescriptor,
       SoapClientHandlerInterface<Object> soapClientHandler, HeaderHandler<S, D> headerHandler,
       AdsServiceLoggers adsServiceLoggers) {
-    super(soapClientHandler, soapClient);
+    this(soapClient, adsSession, adsServiceDescriptor, soapClientHandler, headerHandler,
+        adsServiceLoggers, SoapCallListener.NO_OP);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param soapClient the SOAP client
+   * @param adsSession the session
+   * @param adsServiceDescriptor the service descriptor
+   * @param soapClientHandler the SOAP client handler
+   * @param headerHandler the header handler
+   * @param adsServiceLoggers the loggers
+   * @param soapCallListener the listener notified of the metrics of each call
+   */
+  public AdsServiceClient(Object soapClient, S adsSession, D adsServiceDescriptor,
+      SoapClientHandlerInterface<Object> soapClientHandler, HeaderHandler<S, D> headerHandler,
+      AdsServiceLoggers adsServiceLoggers, SoapCallListener soapCallListener) {
+    super(soapClientHandler, soapClient, soapCallListener);
     this.adsSession = adsSession;
     this.adsServiceDescriptor = adsServiceDescriptor;
     this.adsServiceLoggers = adsServiceLoggers;
@@ -100,11 +120,22 @@ public abstract class AdsServiceClient<S extends AdsSession,
   }
 
   /**
-   * @see #setHeaders()
+   * @see #setHeaders(Object)
+   */
+  @Override
+  protected void setHeaders(Object soapClient) throws ServiceException, AuthenticationException {
+    getSoapClientHandler().clearHeaders(soapClient);
+    headerHandler.setHeaders(soapClient, adsSession, adsServiceDescriptor);
+  }
+
+  /**
+   * Creates an additional SOAP client for the service described by this
+   * client's {@link AdsServiceDescriptor}.
+   *
+   * @see SoapServiceClient#createSoapClient()
    */
   @Override
-  protected void setHeaders() throws ServiceException, AuthenticationException {
-    getSoapClientHandler().clearHeaders(getSoapClient());
-    headerHandler.setHeaders(getSoapClient(), adsSession, adsServiceDescriptor);
+  protected Object createSoapClient() {
+    return getSoapClientHandler().createSoapClient(adsServiceDescriptor);
   }
 }
@@ -16,6 +16,8 @@ package com.google.api.ads.common.lib.conf;
 
 import org.apache.commons.configuration.Configuration;
 
+import java.util.Locale;
+
 /**
  * Configuration of lib properties.
  */
@@ -33,8 +35,44 @@ public abstract class AdsLibConfiguration extends BaseConfiguration {
   public static final String SOAP_REQUEST_TIMEOUT_POSTFIX = "soapRequestTimeout";
   public static final String INCLUDE_UTILITIES_IN_USER_AGENT_POSTFIX =
       "includeUtilitiesInUserAgent";
+  public static final String SOAP_CLIENT_POOL_SIZE_POSTFIX = "soapClientPoolSize";
+  public static final String HTTP_TRANSPORT_POSTFIX = "httpTransport";
+  public static final String HTTP_MAX_CONNECTIONS_POSTFIX = "httpMaxConnections";
+  public static final String HTTP_MAX_CONNECTIONS_PER_ROUTE_POSTFIX =
+      "httpMaxConnectionsPerRoute";
+  public static final String HTTP_IDLE_CONNECTION_TIMEOUT_POSTFIX = "httpIdleConnectionTimeout";
+  public static final String ASYNC_SOAP_XML_LOGGING_POSTFIX = "asyncSoapXmlLogging";
+  public static final String SOAP_XML_LOG_QUEUE_SIZE_POSTFIX = "soapXmlLogQueueSize";
+  public static final String SOAP_XML_LOG_SUCCESS_SAMPLE_RATE_POSTFIX =
+      "soapXmlLogSuccessSampleRate";
   
   public static final int DEFAULT_SOAP_REQUEST_TIMEOUT = 20 * 60 * 1000;
+  public static final int DEFAULT_SOAP_CLIENT_POOL_SIZE = 1;
+  public static final HttpTransportType DEFAULT_HTTP_TRANSPORT = HttpTransportType.NET;
+  public static final int DEFAULT_HTTP_MAX_CONNECTIONS = 200;
+  public static final int DEFAULT_HTTP_MAX_CONNECTIONS_PER_ROUTE = 20;
+  public static final long DEFAULT_HTTP_IDLE_CONNECTION_TIMEOUT = 60 * 1000L;
+  public static final int DEFAULT_SOAP_XML_LOG_QUEUE_SIZE = 1000;
+  public static final int DEFAULT_SOAP_XML_LOG_SUCCESS_SAMPLE_RATE = 1;
+
+  /**
+   * The HTTP transports that can be used for SOAP calls, report downloads and batch job uploads.
+   */
+  public static enum HttpTransportType {
+    /** Transport backed by {@link java.net.HttpURLConnection}. */
+    NET,
+    /** Transport backed by a pooled Apache HTTP client with configurable connection limits. */
+    POOLED;
+
+    /**
+     * Parses a transport type, ignoring case.
+     *
+     * @throws IllegalArgumentException if the value is not a valid transport type
+     */
+    public static HttpTransportType fromString(String value) {
+      return valueOf(value.trim().toUpperCase(Locale.US));
+    }
+  }
 
   /**
    * Constructor.
@@ -81,6 +119,71 @@ public abstract class AdsLibConfiguration extends BaseConfiguration {
     return DEFAULT_SOAP_REQUEST_TIMEOUT;
   }
   
+  /**
+   * Gets the maximum number of SOAP clients backing each service client, which
+   * is also the maximum number of concurrent calls through that service client.
+   * Default is {@code 1}, so calls through one service client are serialized.
+   */
+  public int getSoapClientPoolSize() {
+    return DEFAULT_SOAP_CLIENT_POOL_SIZE;
+  }
+
+  /**
+   * Gets the HTTP transport shared by SOAP calls, report downloads and batch job uploads. Default
+   * is {@link HttpTransportType#NET}.
+   */
+  public HttpTransportType getHttpTransportType() {
+    return DEFAULT_HTTP_TRANSPORT;
+  }
+
+  /**
+   * Gets the maximum number of open connections across all hosts when using the
+   * {@link HttpTransportType#POOLED} transport.
+   */
+  public int getHttpMaxConnections() {
+    return DEFAULT_HTTP_MAX_CONNECTIONS;
+  }
+
+  /**
+   * Gets the maximum number of open connections to a single host when using the
+   * {@link HttpTransportType#POOLED} transport.
+   */
+  public int getHttpMaxConnectionsPerRoute() {
+    return DEFAULT_HTTP_MAX_CONNECTIONS_PER_ROUTE;
+  }
+
+  /**
+   * Gets the time in milliseconds after which an idle pooled connection is closed when using the
+   * {@link HttpTransportType#POOLED} transport.
+   */
+  public long getHttpIdleConnectionTimeout() {
+    return DEFAULT_HTTP_IDLE_CONNECTION_TIMEOUT;
+  }
+
+  /**
+   * Returns if SOAP XML should be logged on a background thread instead of the thread that made
+   * the call. Default is {@code false}.
+   */
+  public boolean isAsyncSoapXmlLoggingEnabled() {
+    return false;
+  }
+
+  /**
+   * Gets the maximum number of calls waiting to be logged when SOAP XML is logged
+   * asynchronously. Calls are not logged while the queue is full.
+   */
+  public int getSoapXmlLogQueueSize() {
+    return DEFAULT_SOAP_XML_LOG_QUEUE_SIZE;
+  }
+
+  /**
+   * Gets {@code N} such that the SOAP XML of one in every {@code N} successful calls is logged.
+   * Failed calls are always logged. Default is {@code 1}, so every call is logged.
+   */
+  public int getSoapXmlLogSuccessSampleRate() {
+    return DEFAULT_SOAP_XML_LOG_SUCCESS_SAMPLE_RATE;
+  }
+
   /**
    * Returns if usage of ads utilities should be included in the user agent.
    */
@@ -66,7 +66,7 @@ public class AdsServiceClientFactory<C extends AdsServiceClient<S, D>,
    * @return a client for the specified ads service
    * @throws ServiceException if the service client could not be created
    */
-  public synchronized <T> T getServiceClient(S adsSession, Class<T> interfaceClass)
+  public <T> T getServiceClient(S adsSession, Class<T> interfaceClass)
       throws ServiceException {
     adsServiceFactoryHelper.checkServiceClientPreconditions(adsSession, interfaceClass);
     String version = adsServiceFactoryHelper.determineVersion(interfaceClass);
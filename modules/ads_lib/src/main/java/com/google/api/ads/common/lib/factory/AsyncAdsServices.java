@@ -0,0 +1,88 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.common.lib.factory;
+
+import com.google.api.ads.common.lib.client.AdsSession;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Creates {@link AsyncService asynchronous clients} from the service clients of an
+ * {@link AdsServicesInterface}, such as {@code AdWordsServices} or {@code DfpServices}. All
+ * clients created by an instance run their calls on its executor, which bounds the number of
+ * calls in flight.
+ *
+ * <p>Usage example:
+ *
+ * <pre><code>
+ * AsyncAdsServices&lt;AdWordsSession&gt; asyncServices =
+ *     new AsyncAdsServices&lt;AdWordsSession&gt;(
+ *         AdWordsServices.getInstance(), AsyncService.newExecutorService(64, 10000));
+ * AsyncService&lt;CampaignServiceInterface&gt; campaignService =
+ *     asyncServices.get(session, CampaignServiceInterface.class);
+ * </code></pre>
+ *
+ * <p>Implementation is thread-safe.
+ *
+ * @param <S> the type of {@link AdsSession}
+ */
+public class AsyncAdsServices<S extends AdsSession> {
+
+  private final AdsServicesInterface<S> services;
+  private final ListeningExecutorService executorService;
+
+  /**
+   * Constructs an instance that runs calls on the
+   * {@link AsyncService#getDefaultExecutorService() default executor}.
+   *
+   * @param services the factory of the synchronous service clients
+   */
+  public AsyncAdsServices(AdsServicesInterface<S> services) {
+    this(services, AsyncService.getDefaultExecutorService());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param services the factory of the synchronous service clients
+   * @param executorService the executor to run calls on
+   */
+  public AsyncAdsServices(AdsServicesInterface<S> services,
+      ListeningExecutorService executorService) {
+    this.services = Preconditions.checkNotNull(services, "Null services");
+    this.executorService = Preconditions.checkNotNull(executorService, "Null executor service");
+  }
+
+  /**
+   * Gets an asynchronous client for the service represented by the interface with a reference to
+   * the session.
+   *
+   * @param <T> the service type
+   * @param session your current session
+   * @param interfaceClass the service interface class representing a SOAP service
+   * @return the asynchronous client for the service
+   */
+  public <T> AsyncService<T> get(S session, Class<T> interfaceClass) {
+    return new AsyncService<T>(services.get(session, interfaceClass), executorService);
+  }
+
+  /**
+   * Gets the executor that calls run on.
+   */
+  public ListeningExecutorService getExecutorService() {
+    return executorService;
+  }
+}
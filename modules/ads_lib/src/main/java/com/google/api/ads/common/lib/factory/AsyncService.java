@@ -0,0 +1,238 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.common.lib.factory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.AbstractInvocationHandler;
+import com.google.common.reflect.Reflection;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous view of a service client. Each call is run on an executor and its result is
+ * returned as a {@link ListenableFuture}, so the caller's thread is not blocked on the network.
+ *
+ * <p>Usage example, with an interface declaring the service methods to call asynchronously:
+ *
+ * <pre><code>
+ * interface AsyncCampaignService {
+ *   ListenableFuture&lt;CampaignPage&gt; get(Selector selector);
+ * }
+ *
+ * AsyncService&lt;CampaignServiceInterface&gt; asyncService =
+ *     new AsyncAdsServices&lt;AdWordsSession&gt;(AdWordsServices.getInstance(), executorService)
+ *         .get(session, CampaignServiceInterface.class);
+ * AsyncCampaignService campaignService = asyncService.newProxy(AsyncCampaignService.class);
+ * ListenableFuture&lt;CampaignPage&gt; page = campaignService.get(selector);
+ * </code></pre>
+ *
+ * <p>The SOAP toolkits only make blocking calls, so each call in flight occupies a thread of the
+ * executor until its response arrives. The number of calls in flight is therefore bounded by the
+ * executor's threads, and the calls waiting for a thread by its queue. Size the executor for the
+ * concurrency the application needs, for example with {@link #newExecutorService(int, int)}.
+ * Calls submitted when the executor is saturated fail with a {@link RejectedExecutionException}.
+ *
+ * <p>Calls submitted through a single instance share one service client, so at most
+ * {@link com.google.api.ads.common.lib.soap.SoapServiceClient#getSoapClientPoolSize()} of them
+ * reach the network at the same time. Use one instance per session to fan out across accounts.
+ *
+ * @param <T> the service type
+ */
+public class AsyncService<T> {
+
+  /** Number of threads in the executor used when none is specified. */
+  public static final int DEFAULT_THREAD_COUNT = 16;
+
+  /** Number of calls that wait for a thread in the executor used when none is specified. */
+  public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+  private final T service;
+  private final ListeningExecutorService executorService;
+
+  /**
+   * Constructor.
+   *
+   * @param service the service client that will make the calls
+   * @param executorService the executor to run the calls on
+   */
+  public AsyncService(T service, ListeningExecutorService executorService) {
+    this.service = Preconditions.checkNotNull(service, "Null service");
+    this.executorService = Preconditions.checkNotNull(executorService, "Null executor service");
+  }
+
+  /**
+   * Submits a call against the service.
+   *
+   * @param <R> the result type
+   * @param serviceCall the call to make
+   * @return a future holding the result of the call, or the exception it threw
+   * @throws RejectedExecutionException if the executor cannot accept the call
+   */
+  public <R> ListenableFuture<R> call(final ServiceCall<? super T, R> serviceCall) {
+    Preconditions.checkNotNull(serviceCall, "Null service call");
+    return executorService.submit(new Callable<R>() {
+      @Override
+      public R call() throws Exception {
+        return serviceCall.call(service);
+      }
+    });
+  }
+
+  /**
+   * Creates an implementation of {@code asyncInterfaceClass} whose methods call the service
+   * method with the same name and parameter types and return its result as a future. Every
+   * method of the interface must return a {@link ListenableFuture}, and the future of a
+   * {@code void} service method holds {@code null}.
+   *
+   * @param <A> the asynchronous interface type
+   * @param asyncInterfaceClass the interface declaring the service methods to call
+   * @return the implementation of the interface
+   * @throws IllegalArgumentException if a method of the interface does not return a
+   *     {@code ListenableFuture} or does not match a method of the service
+   */
+  public <A> A newProxy(Class<A> asyncInterfaceClass) {
+    Preconditions.checkArgument(asyncInterfaceClass.isInterface(), "%s is not an interface",
+        asyncInterfaceClass.getName());
+    ImmutableMap.Builder<Method, Method> serviceMethods = ImmutableMap.builder();
+    for (Method asyncMethod : asyncInterfaceClass.getMethods()) {
+      Preconditions.checkArgument(asyncMethod.getReturnType() == ListenableFuture.class,
+          "%s does not return a ListenableFuture", asyncMethod);
+      try {
+        serviceMethods.put(asyncMethod,
+            service.getClass().getMethod(asyncMethod.getName(), asyncMethod.getParameterTypes()));
+      } catch (NoSuchMethodException e) {
+        throw new IllegalArgumentException("The service has no method matching " + asyncMethod, e);
+      }
+    }
+    return Reflection.newProxy(asyncInterfaceClass,
+        new AsyncInvocationHandler(serviceMethods.build()));
+  }
+
+  /**
+   * Gets the synchronous service client backing this instance.
+   */
+  public T getService() {
+    return service;
+  }
+
+  /**
+   * Gets the executor shared by instances created without an explicit executor. It has
+   * {@value #DEFAULT_THREAD_COUNT} daemon threads and queues up to
+   * {@value #DEFAULT_QUEUE_CAPACITY} calls, and does not need to be shut down.
+   */
+  public static ListeningExecutorService getDefaultExecutorService() {
+    return DefaultExecutorServiceHolder.INSTANCE;
+  }
+
+  /**
+   * Creates a bounded executor of daemon threads for asynchronous calls. Calls submitted while
+   * all threads are busy and the queue is full are rejected, so the caller can slow down instead
+   * of queueing calls without limit.
+   *
+   * @param threadCount the maximum number of calls in flight
+   * @param queueCapacity the maximum number of calls waiting for a thread
+   * @return the executor, which the caller should shut down when it is no longer needed
+   */
+  public static ListeningExecutorService newExecutorService(int threadCount, int queueCapacity) {
+    Preconditions.checkArgument(threadCount > 0, "Thread count must be positive");
+    Preconditions.checkArgument(queueCapacity > 0, "Queue capacity must be positive");
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+        60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity),
+        new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("ads-async-service-%d")
+            .build());
+    // Idle threads exit, so an unused executor holds no threads.
+    executor.allowCoreThreadTimeOut(true);
+    return MoreExecutors.listeningDecorator(executor);
+  }
+
+  /**
+   * A single call against a service.
+   *
+   * @param <T> the service type
+   * @param <R> the result type
+   */
+  public interface ServiceCall<T, R> {
+
+    /**
+     * Makes the call.
+     *
+     * @param service the service client to call
+     * @return the result of the call
+     * @throws Exception if the call fails
+     */
+    R call(T service) throws Exception;
+  }
+
+  /**
+   * Submits each call of an asynchronous interface method to the matching service method.
+   */
+  private class AsyncInvocationHandler extends AbstractInvocationHandler {
+
+    private final ImmutableMap<Method, Method> serviceMethods;
+
+    private AsyncInvocationHandler(ImmutableMap<Method, Method> serviceMethods) {
+      this.serviceMethods = serviceMethods;
+    }
+
+    @Override
+    protected Object handleInvocation(Object proxy, Method method, final Object[] args) {
+      final Method serviceMethod = serviceMethods.get(method);
+      return executorService.submit(new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          try {
+            return serviceMethod.invoke(service, args);
+          } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause == null) {
+              throw e;
+            }
+            Throwables.propagateIfPossible(cause, Exception.class);
+            throw new UndeclaredThrowableException(cause);
+          }
+        }
+      });
+    }
+
+    @Override
+    public String toString() {
+      return "AsyncService proxy for " + service;
+    }
+  }
+
+  /**
+   * Lazily creates the default executor the first time it is used.
+   */
+  private static final class DefaultExecutorServiceHolder {
+    private static final ListeningExecutorService INSTANCE =
+        newExecutorService(DEFAULT_THREAD_COUNT, DEFAULT_QUEUE_CAPACITY);
+  }
+}
@@ -0,0 +1,372 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.soap;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * {@link SoapCallListener} that keeps latency histograms, payload and operation totals, and error
+ * counts in memory, grouped by service, method and customer ID.
+ *
+ * <p>Histograms are log-linear, like an HDR histogram: each recorded value is counted in a bucket
+ * at most 1/16 of its size wide, so percentiles are within 6.25% of the true value. Values are
+ * recorded in microseconds, up to about 19 hours.
+ *
+ * <p>Each group takes a few tens of kilobytes, so with many customers, periodically read and
+ * {@link #reset()} the listener.
+ */
+@ThreadSafe
+public class HistogramSoapCallListener implements SoapCallListener {
+
+  private final ConcurrentMap<List<String>, CallStats> stats =
+      new ConcurrentHashMap<List<String>, CallStats>();
+
+  @Override
+  public boolean isEnabled() {
+    return true;
+  }
+
+  @Override
+  public void onSoapCallComplete(SoapCallMetrics metrics) {
+    List<String> key =
+        Arrays.asList(metrics.getServiceName(), metrics.getMethodName(), metrics.getCustomerId());
+    CallStats callStats = stats.get(key);
+    if (callStats == null) {
+      callStats = new CallStats(
+          metrics.getServiceName(), metrics.getMethodName(), metrics.getCustomerId());
+      CallStats existingCallStats = stats.putIfAbsent(key, callStats);
+      if (existingCallStats != null) {
+        callStats = existingCallStats;
+      }
+    }
+    callStats.record(metrics);
+  }
+
+  /**
+   * Gets the statistics of every group of calls recorded since the listener was created or last
+   * reset.
+   */
+  public List<CallStats> getStats() {
+    return ImmutableList.copyOf(stats.values());
+  }
+
+  /**
+   * Gets the statistics of calls to a method for a customer, or {@code null} if there were none.
+   */
+  public CallStats getStats(String serviceName, String methodName, String customerId) {
+    return stats.get(Arrays.asList(serviceName, methodName, customerId));
+  }
+
+  /**
+   * Discards all recorded statistics.
+   */
+  public void reset() {
+    stats.clear();
+  }
+
+  /**
+   * Statistics of the calls to a method for a customer.
+   */
+  @ThreadSafe
+  public static final class CallStats {
+
+    private final String serviceName;
+    private final String methodName;
+    private final String customerId;
+
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong operationCount = new AtomicLong();
+    private final AtomicLong requestBytes = new AtomicLong();
+    private final AtomicLong responseBytes = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> errorCounts =
+        new ConcurrentHashMap<String, AtomicLong>();
+
+    private final LatencyHistogram headerSetupLatency = new LatencyHistogram();
+    private final LatencyHistogram serializationLatency = new LatencyHistogram();
+    private final LatencyHistogram networkLatency = new LatencyHistogram();
+    private final LatencyHistogram deserializationLatency = new LatencyHistogram();
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
+
+    CallStats(String serviceName, String methodName, String customerId) {
+      this.serviceName = serviceName;
+      this.methodName = methodName;
+      this.customerId = customerId;
+    }
+
+    void record(SoapCallMetrics metrics) {
+      callCount.incrementAndGet();
+      operationCount.addAndGet(metrics.getOperationCount());
+      requestBytes.addAndGet(metrics.getRequestBytes());
+      responseBytes.addAndGet(metrics.getResponseBytes());
+      headerSetupLatency.recordNanos(metrics.getHeaderSetupNanos());
+      serializationLatency.recordNanos(metrics.getSerializationNanos());
+      networkLatency.recordNanos(metrics.getNetworkNanos());
+      deserializationLatency.recordNanos(metrics.getDeserializationNanos());
+      totalLatency.recordNanos(metrics.getTotalNanos());
+      if (metrics.getException() != null) {
+        String errorType = metrics.getException().getClass().getName();
+        AtomicLong errorCount = errorCounts.get(errorType);
+        if (errorCount == null) {
+          AtomicLong newErrorCount = new AtomicLong();
+          errorCount = errorCounts.putIfAbsent(errorType, newErrorCount);
+          if (errorCount == null) {
+            errorCount = newErrorCount;
+          }
+        }
+        errorCount.incrementAndGet();
+      }
+    }
+
+    /**
+     * Gets the name of the service, or {@code null} for calls that failed before being sent.
+     */
+    public String getServiceName() {
+      return serviceName;
+    }
+
+    /**
+     * Gets the name of the method, or {@code null} for calls that failed before being sent.
+     */
+    public String getMethodName() {
+      return methodName;
+    }
+
+    /**
+     * Gets the customer ID, or {@code null} for calls made without one.
+     */
+    public String getCustomerId() {
+      return customerId;
+    }
+
+    /**
+     * Gets the number of calls.
+     */
+    public long getCallCount() {
+      return callCount.get();
+    }
+
+    /**
+     * Gets the total number of operations sent.
+     *
+     * @see SoapCallMetrics#getOperationCount()
+     */
+    public long getOperationCount() {
+      return operationCount.get();
+    }
+
+    /**
+     * Gets the total number of request body bytes, before compression.
+     */
+    public long getRequestBytes() {
+      return requestBytes.get();
+    }
+
+    /**
+     * Gets the total number of response body bytes, after decompression.
+     */
+    public long getResponseBytes() {
+      return responseBytes.get();
+    }
+
+    /**
+     * Gets the number of failed calls, keyed by the class name of the exception.
+     */
+    public Map<String, Long> getErrorCounts() {
+      ImmutableMap.Builder<String, Long> builder = ImmutableMap.builder();
+      for (Map.Entry<String, AtomicLong> entry : errorCounts.entrySet()) {
+        builder.put(entry.getKey(), entry.getValue().get());
+      }
+      return builder.build();
+    }
+
+    /**
+     * @see SoapCallMetrics#getHeaderSetupNanos()
+     */
+    public LatencyHistogram getHeaderSetupLatency() {
+      return headerSetupLatency;
+    }
+
+    /**
+     * @see SoapCallMetrics#getSerializationNanos()
+     */
+    public LatencyHistogram getSerializationLatency() {
+      return serializationLatency;
+    }
+
+    /**
+     * @see SoapCallMetrics#getNetworkNanos()
+     */
+    public LatencyHistogram getNetworkLatency() {
+      return networkLatency;
+    }
+
+    /**
+     * @see SoapCallMetrics#getDeserializationNanos()
+     */
+    public LatencyHistogram getDeserializationLatency() {
+      return deserializationLatency;
+    }
+
+    /**
+     * @see SoapCallMetrics#getTotalNanos()
+     */
+    public LatencyHistogram getTotalLatency() {
+      return totalLatency;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("CallStats{service=%s, method=%s, customerId=%s, calls=%d, "
+          + "operations=%d, requestBytes=%d, responseBytes=%d, errors=%s, totalLatency=%s}",
+          serviceName, methodName, customerId, getCallCount(), getOperationCount(),
+          getRequestBytes(), getResponseBytes(), getErrorCounts(), totalLatency);
+    }
+  }
+
+  /**
+   * Lock-free log-linear histogram of latencies in microseconds.
+   *
+   * <p>Values below 16 are counted exactly. Above that, each power of two is split into 16
+   * equally wide buckets.
+   */
+  @ThreadSafe
+  public static final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /** Values are capped just below 2^36 microseconds, about 19 hours. */
+    private static final int MAX_VALUE_BITS = 36;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    private final AtomicLongArray counts =
+        new AtomicLongArray(bucketIndex(MAX_VALUE) + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram() {}
+
+    void recordNanos(long nanos) {
+      record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    void record(long micros) {
+      long value = Math.min(Math.max(micros, 0L), MAX_VALUE);
+      counts.incrementAndGet(bucketIndex(value));
+      count.incrementAndGet();
+      sum.addAndGet(value);
+      long currentMax = max.get();
+      while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+        currentMax = max.get();
+      }
+    }
+
+    /**
+     * Gets the number of recorded values.
+     */
+    public long getCount() {
+      return count.get();
+    }
+
+    /**
+     * Gets the largest recorded value in microseconds, or {@code 0} if there are none.
+     */
+    public long getMaxMicros() {
+      return max.get();
+    }
+
+    /**
+     * Gets the mean of the recorded values in microseconds, or {@code 0} if there are none.
+     */
+    public double getMeanMicros() {
+      long currentCount = count.get();
+      return currentCount == 0 ? 0 : (double) sum.get() / currentCount;
+    }
+
+    /**
+     * Gets the value in microseconds that the given percentage of recorded values are less than
+     * or equal to, rounded up to the top of its bucket and capped at {@link #getMaxMicros()}.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the value at the percentile, or {@code 0} if there are no recorded values
+     */
+    public long getValueAtPercentile(double percentile) {
+      Preconditions.checkArgument(percentile >= 0 && percentile <= 100,
+          "Percentile must be between 0 and 100 but was: %s", percentile);
+      long totalCount = 0;
+      for (int i = 0; i < counts.length(); i++) {
+        totalCount += counts.get(i);
+      }
+      if (totalCount == 0) {
+        return 0;
+      }
+      long targetCount = Math.max(1L, (long) Math.ceil(percentile / 100 * totalCount));
+      long cumulativeCount = 0;
+      for (int i = 0; i < counts.length(); i++) {
+        cumulativeCount += counts.get(i);
+        if (cumulativeCount >= targetCount) {
+          return Math.min(highestValueInBucket(i), max.get());
+        }
+      }
+      return max.get();
+    }
+
+    /**
+     * Returns the index of the bucket holding a value between 0 and {@link #MAX_VALUE}.
+     */
+    static int bucketIndex(long value) {
+      if (value < SUB_BUCKET_COUNT) {
+        return (int) value;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      int shift = exponent - SUB_BUCKET_BITS;
+      int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+      return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Returns the largest value counted in the bucket with the given index.
+     */
+    static long highestValueInBucket(int index) {
+      int group = index / SUB_BUCKET_COUNT;
+      int subBucket = index % SUB_BUCKET_COUNT;
+      if (group == 0) {
+        return subBucket;
+      }
+      int shift = group - 1;
+      return ((long) (SUB_BUCKET_COUNT + subBucket) << shift) + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("LatencyHistogram{count=%d, p50=%dus, p90=%dus, p99=%dus, max=%dus}",
+          getCount(), getValueAtPercentile(50), getValueAtPercentile(90),
+          getValueAtPercentile(99), getMaxMicros());
+    }
+  }
+}
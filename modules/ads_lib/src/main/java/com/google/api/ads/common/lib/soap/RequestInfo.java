@@ -14,12 +14,15 @@
 
 package com.google.api.ads.common.lib.soap;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
 /**
  * Contains information about the request that was made.
  */
 public class RequestInfo {
 
-  private String soapRequestXml;
+  private Supplier<String> soapRequestXml = Suppliers.ofInstance(null);
   private String serviceName;
   private String methodName;
   private String url;
@@ -33,7 +36,7 @@ public class RequestInfo {
    * Gets the SOAP request XML.
    */
   public String getSoapRequestXml() {
-    return soapRequestXml;
+    return soapRequestXml.get();
   }
 
   /**
@@ -103,7 +106,20 @@ public class RequestInfo {
      */
     // TODO(jdilallo): Look into copying string to dereference message context.
     public Builder withSoapRequestXml(String soapRequestXml) {
-      requestInfo.soapRequestXml = soapRequestXml;
+      requestInfo.soapRequestXml = Suppliers.ofInstance(soapRequestXml);
+      return this;
+    }
+
+    /**
+     * Adds a supplier of the SOAP request XML to the RequestInfo under construction.
+     * The supplier is called at most once, the first time the XML is requested, so the XML is
+     * never built for calls whose request is not inspected.
+     *
+     * @param soapRequestXmlSupplier supplies the SOAP request XML to add to the RequestInfo
+     * @return this builder
+     */
+    public Builder withSoapRequestXmlSupplier(Supplier<String> soapRequestXmlSupplier) {
+      requestInfo.soapRequestXml = Suppliers.memoize(soapRequestXmlSupplier);
       return this;
     }
 
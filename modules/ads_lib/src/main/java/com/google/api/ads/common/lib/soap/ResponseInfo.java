@@ -14,12 +14,15 @@
 
 package com.google.api.ads.common.lib.soap;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
 /**
  * Contains information about the response from the request that was made.
  */
 public class ResponseInfo {
 
-  private String soapResponseXml;
+  private Supplier<String> soapResponseXml = Suppliers.ofInstance(null);
   private String requestId;
 
   /**
@@ -31,7 +34,7 @@ public class ResponseInfo {
    * Gets the SOAP response XML.
    */
   public String getSoapResponseXml() {
-    return soapResponseXml;
+    return soapResponseXml.get();
   }
 
   /**
@@ -63,7 +66,20 @@ public class ResponseInfo {
      * @return this builder
      */
     public Builder withSoapResponseXml(String soapResponseXml) {
-      responseInfo.soapResponseXml = soapResponseXml;
+      responseInfo.soapResponseXml = Suppliers.ofInstance(soapResponseXml);
+      return this;
+    }
+
+    /**
+     * Adds a supplier of the SOAP response XML to the ResponseInfo under construction.
+     * The supplier is called at most once, the first time the XML is requested, so the XML is
+     * never built for calls whose response is not inspected.
+     *
+     * @param soapResponseXmlSupplier supplies the SOAP response XML to add to the ResponseInfo
+     * @return this builder
+     */
+    public Builder withSoapResponseXmlSupplier(Supplier<String> soapResponseXmlSupplier) {
+      responseInfo.soapResponseXml = Suppliers.memoize(soapResponseXmlSupplier);
       return this;
     }
 
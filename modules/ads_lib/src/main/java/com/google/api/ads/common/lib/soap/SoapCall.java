@@ -29,6 +29,7 @@ public class SoapCall<T> {
   private Method soapClientMethod;
   private T soapClient;
   private Object[] soapArgs;
+  private SoapCallMetrics metrics;
 
   /**
    * Constructor.
@@ -65,6 +66,18 @@ public class SoapCall<T> {
     return soapArgs;
   }
 
+  /**
+   * Returns the metrics that the SOAP client handler should report transport checkpoints to, or
+   * {@code null} if metrics are not being recorded for this call.
+   */
+  public SoapCallMetrics getMetrics() {
+    return metrics;
+  }
+
+  void setMetrics(SoapCallMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   /**
    * @see java.lang.Object#equals(java.lang.Object)
    */
@@ -86,6 +99,6 @@ public class SoapCall<T> {
    */
   @Override
   public int hashCode() {
-    return HashCodeBuilder.reflectionHashCode(this);
+    return HashCodeBuilder.reflectionHashCode(this, new String[] {"metrics"});
   }
 }
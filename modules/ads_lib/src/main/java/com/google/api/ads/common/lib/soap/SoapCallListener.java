@@ -0,0 +1,63 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.soap;
+
+/**
+ * Receives the {@link SoapCallMetrics} of every SOAP call made through a
+ * {@link SoapServiceClient}.
+ *
+ * <p>The listener is bound in {@link com.google.api.ads.common.lib.AdsSoapModule} with a no-op
+ * default, {@link #NO_OP}. To replace it, set the binding from another module, for example:
+ *
+ * <pre>
+ * OptionalBinder.newOptionalBinder(binder(), SoapCallListener.class)
+ *     .setBinding().toInstance(new HistogramSoapCallListener());
+ * </pre>
+ *
+ * <p>{@link com.google.api.ads.adwords.lib.AdWordsPluginModule} and
+ * {@link com.google.api.ads.dfp.lib.DfpPluginModule} set this binding for a listener passed to
+ * their constructors.
+ *
+ * <p>Implementations are called on the thread that made the call, after the call completes, so
+ * they must be thread safe and should return quickly.
+ */
+public interface SoapCallListener {
+
+  /**
+   * Listener that is never notified. SOAP calls do not record any metrics while it is bound.
+   */
+  SoapCallListener NO_OP = new SoapCallListener() {
+    @Override
+    public boolean isEnabled() {
+      return false;
+    }
+
+    @Override
+    public void onSoapCallComplete(SoapCallMetrics metrics) {}
+  };
+
+  /**
+   * Returns whether SOAP calls should record metrics for this listener. If {@code false}, calls
+   * take no timings and {@link #onSoapCallComplete(SoapCallMetrics)} is never called.
+   */
+  boolean isEnabled();
+
+  /**
+   * Called after each SOAP call, whether or not it succeeded.
+   *
+   * @param metrics the metrics of the call
+   */
+  void onSoapCallComplete(SoapCallMetrics metrics);
+}
@@ -0,0 +1,213 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.soap;
+
+import javax.annotation.Nullable;
+
+/**
+ * Timings, payload sizes and outcome of a single SOAP call, passed to a {@link SoapCallListener}.
+ *
+ * <p>{@link SoapServiceClient} records the header setup and total times, and the time spent in
+ * the SOAP client handler. SOAP client handlers that support it also report transport
+ * checkpoints through the {@code record...} methods, which split the handler's time into
+ * serialization, network and deserialization. If the handler does not report them, those times
+ * and the payload sizes are {@code 0}.
+ *
+ * <p>The request is streamed to the connection as it is serialized, so
+ * {@link #getSerializationNanos()} includes the time spent sending the request body, and
+ * {@link #getNetworkNanos()} is the remaining time until the response headers were received.
+ *
+ * <p>An instance belongs to a single call and is not thread safe.
+ */
+public final class SoapCallMetrics {
+
+  private final String customerId;
+  private final int operationCount;
+  private String serviceName;
+  private String methodName;
+  private Throwable exception;
+
+  private long headerSetupNanos;
+  private long soapClientNanos;
+  private long totalNanos;
+  private long transportNanos;
+  private long serializationNanos;
+  private long requestBytes;
+  private long responseBytes;
+
+  /**
+   * Constructor.
+   *
+   * @param customerId the ID of the account the call is made for, or {@code null}
+   * @param operationCount the number of operations sent in the call
+   */
+  public SoapCallMetrics(@Nullable String customerId, int operationCount) {
+    this.customerId = customerId;
+    this.operationCount = operationCount;
+  }
+
+  /**
+   * Records the time spent serializing the request body and writing it to the connection.
+   *
+   * @param nanos the elapsed time
+   * @param requestBytes the number of bytes in the request body, before compression
+   */
+  public void recordSerialization(long nanos, long requestBytes) {
+    this.serializationNanos += nanos;
+    this.requestBytes += requestBytes;
+  }
+
+  /**
+   * Records the time the transport took to send the request and receive the response headers,
+   * including the time recorded by {@link #recordSerialization(long, long)}.
+   */
+  public void recordTransport(long nanos) {
+    transportNanos += nanos;
+  }
+
+  /**
+   * Adds to the number of bytes read from the response body, after decompression.
+   */
+  public void addResponseBytes(long bytes) {
+    responseBytes += bytes;
+  }
+
+  void recordHeaderSetup(long nanos) {
+    headerSetupNanos = nanos;
+  }
+
+  void recordSoapClientCall(long nanos) {
+    soapClientNanos = nanos;
+  }
+
+  void recordCompletion(long totalNanos, @Nullable SoapCallReturn soapCallReturn,
+      @Nullable Throwable exception) {
+    this.totalNanos = totalNanos;
+    if (soapCallReturn != null) {
+      serviceName = soapCallReturn.getRequestInfo().getServiceName();
+      methodName = soapCallReturn.getRequestInfo().getMethodName();
+      this.exception = soapCallReturn.getException();
+    }
+    if (exception != null) {
+      this.exception = exception;
+    }
+  }
+
+  /**
+   * Gets the name of the service called, or {@code null} if the call failed before it was sent.
+   */
+  public String getServiceName() {
+    return serviceName;
+  }
+
+  /**
+   * Gets the name of the method called, or {@code null} if the call failed before it was sent.
+   */
+  public String getMethodName() {
+    return methodName;
+  }
+
+  /**
+   * Gets the ID of the account the call was made for, such as the AdWords client customer ID or
+   * the DFP network code, or {@code null} if the session has none.
+   */
+  public String getCustomerId() {
+    return customerId;
+  }
+
+  /**
+   * Gets the total number of elements in the array and collection arguments of the call, such as
+   * the operations of a {@code mutate}.
+   */
+  public int getOperationCount() {
+    return operationCount;
+  }
+
+  /**
+   * Gets the exception the call failed with, or {@code null} if it succeeded.
+   */
+  public Throwable getException() {
+    return exception;
+  }
+
+  /**
+   * Gets the time spent setting the headers, including any OAuth2 token refresh.
+   */
+  public long getHeaderSetupNanos() {
+    return headerSetupNanos;
+  }
+
+  /**
+   * Gets the time spent serializing the request and writing it to the connection.
+   */
+  public long getSerializationNanos() {
+    return serializationNanos;
+  }
+
+  /**
+   * Gets the time between sending the request and receiving the response headers.
+   */
+  public long getNetworkNanos() {
+    return Math.max(0, transportNanos - serializationNanos);
+  }
+
+  /**
+   * Gets the time the SOAP client handler spent outside the transport, mostly reading and
+   * deserializing the response.
+   */
+  public long getDeserializationNanos() {
+    return transportNanos == 0 ? 0 : Math.max(0, soapClientNanos - transportNanos);
+  }
+
+  /**
+   * Gets the time spent in the SOAP client handler, which covers serialization, network and
+   * deserialization.
+   */
+  public long getSoapClientNanos() {
+    return soapClientNanos;
+  }
+
+  /**
+   * Gets the time of the whole call, from borrowing a SOAP client to receiving the result.
+   */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  /**
+   * Gets the number of bytes in the request body, before compression.
+   */
+  public long getRequestBytes() {
+    return requestBytes;
+  }
+
+  /**
+   * Gets the number of bytes read from the response body, after decompression.
+   */
+  public long getResponseBytes() {
+    return responseBytes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("SoapCallMetrics{service=%s, method=%s, customerId=%s, operations=%d, "
+        + "exception=%s, headerSetupNanos=%d, serializationNanos=%d, networkNanos=%d, "
+        + "deserializationNanos=%d, totalNanos=%d, requestBytes=%d, responseBytes=%d}",
+        serviceName, methodName, customerId, operationCount,
+        exception == null ? null : exception.getClass().getName(), headerSetupNanos,
+        getSerializationNanos(), getNetworkNanos(), getDeserializationNanos(), totalNanos,
+        requestBytes, responseBytes);
+  }
+}
@@ -14,10 +14,14 @@
 
 package com.google.api.ads.common.lib.soap;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Base class for SOAP client handlers. Calling {@link #invoke(SoapCall)} will
@@ -31,10 +35,26 @@ import java.util.List;
  */
 public abstract class SoapClientHandler<T> implements SoapClientHandlerInterface<T> {
 
+  /**
+   * Matching SOAP client methods for each SOAP client class, keyed by the
+   * method passed to {@link #getSoapClientMethod(Object, Method)}. The cached
+   * methods reference their class, so values are soft to let the classes be
+   * unloaded once memory runs low.
+   */
+  private final LoadingCache<Class<?>, ConcurrentMap<Method, Method>> soapClientMethods;
+
   /**
    * Default constructor.
    */
-  protected SoapClientHandler() {}
+  protected SoapClientHandler() {
+    this.soapClientMethods = CacheBuilder.newBuilder().weakKeys().softValues().build(
+        new CacheLoader<Class<?>, ConcurrentMap<Method, Method>>() {
+          @Override
+          public ConcurrentMap<Method, Method> load(Class<?> soapClientClass) {
+            return new ConcurrentHashMap<Method, Method>();
+          }
+        });
+  }
 
   /**
    * Processes the arguments such that they will be ready to be passed into the
@@ -52,25 +72,19 @@ public abstract class SoapClientHandler<T> implements SoapClientHandlerInterface
    * @return the arguments ready to be passed into the {@code soapClientMethod}.
    */
   protected Object[] processSoapArguments(Method soapClientMethod, Object[] args) {
-    List<Object> argsList = new ArrayList<Object>();
-    if (args != null) {
-      Collections.addAll(argsList, args);
-    } else {
+    if (args == null) {
       return null;
     }
-    int curretNumArgs = argsList.size();
-    while (curretNumArgs < soapClientMethod.getParameterTypes().length) {
-      argsList.add(null);
-      curretNumArgs++;
-    }
-    return argsList.toArray(new Object[0]);
+    int numParameters = soapClientMethod.getParameterTypes().length;
+    return args.length < numParameters ? Arrays.copyOf(args, numParameters) : args;
   }
 
   /**
    * Gets the method from the SOAP client that matches the supplied method.
    * <p>
    * In the default implementation, only the method name and return type
-   * will be matched.
+   * will be matched. Matches are cached per SOAP client class, so the methods of
+   * the SOAP client are only searched the first time a method is requested.
    * </p>
    *
    * @param soapClient the SOAP client within which to search for the method
@@ -83,7 +97,23 @@ public abstract class SoapClientHandler<T> implements SoapClientHandlerInterface
    */
   @Override
   public Method getSoapClientMethod(T soapClient, Method method) throws NoSuchMethodException {
-    for (Method soapClientMethod : soapClient.getClass().getMethods()) {
+    ConcurrentMap<Method, Method> methodsForClass =
+        soapClientMethods.getUnchecked(soapClient.getClass());
+    Method soapClientMethod = methodsForClass.get(method);
+    if (soapClientMethod == null) {
+      soapClientMethod = findSoapClientMethod(soapClient.getClass(), method);
+      methodsForClass.putIfAbsent(method, soapClientMethod);
+    }
+    return soapClientMethod;
+  }
+
+  /**
+   * Searches the public methods of {@code soapClientClass} for a method with the
+   * same name and return type as {@code method}.
+   */
+  private Method findSoapClientMethod(Class<?> soapClientClass, Method method)
+      throws NoSuchMethodException {
+    for (Method soapClientMethod : soapClientClass.getMethods()) {
       if (method.getName().equals(soapClientMethod.getName())
           && method.getReturnType().equals(soapClientMethod.getReturnType())) {
         return soapClientMethod;
@@ -16,9 +16,27 @@ package com.google.api.ads.common.lib.soap;
 
 import com.google.api.ads.common.lib.exception.AuthenticationException;
 import com.google.api.ads.common.lib.exception.ServiceException;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Lists;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Array;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
+
+import javax.annotation.Nullable;
 
 /**
  * The {@code SoapServiceClient} class pairs together the {@code soapClient} and
@@ -27,14 +45,54 @@ import java.lang.reflect.Method;
  * handled correctly in the SOAP layer. This class is not aware of what API it
  * uses and relies on the {@code soapClientHandler} to determine how the SOAP
  * framework should be used.
+ * <p>
+ * Calls are made on SOAP clients borrowed from a pool. By default the pool holds
+ * only the {@code soapClient} passed to the constructor, so calls made through
+ * the same instance are serialized. Calling {@link #setSoapClientPoolSize(int)}
+ * with a larger size allows up to that many concurrent calls, each on its own
+ * SOAP client created by {@link #createSoapClient()}. Extending classes that do
+ * not override that method keep a single SOAP client.
+ * </p>
+ * <p>
+ * If the {@link SoapCallListener} passed to the constructor is enabled, each
+ * call records {@link SoapCallMetrics} and passes them to the listener once
+ * the call completes.
+ * </p>
  *
  * @param <T> the type of SOAP client
  */
 public abstract class SoapServiceClient<T> implements InvocationHandler {
 
+  private static final Logger logger = LoggerFactory.getLogger(SoapServiceClient.class);
+
+  /**
+   * Methods of each service client class that calls to {@link #invoke} are
+   * dispatched to, keyed by the invoked method. The value is absent if the
+   * invoked method is intended for the SOAP client. The cached methods
+   * reference their class, so values are soft to let the classes be unloaded
+   * once memory runs low.
+   */
+  private static final LoadingCache<Class<?>, ConcurrentMap<Method, Optional<Method>>>
+      SERVICE_CLIENT_METHODS = CacheBuilder.newBuilder().weakKeys().softValues().build(
+          new CacheLoader<Class<?>, ConcurrentMap<Method, Optional<Method>>>() {
+            @Override
+            public ConcurrentMap<Method, Optional<Method>> load(Class<?> serviceClientClass) {
+              return new ConcurrentHashMap<Method, Optional<Method>>();
+            }
+          });
+
   private final SoapClientHandlerInterface<T> soapClientHandler;
   private final T soapClient;
 
+  /** All SOAP clients created for this service client, including {@code soapClient}. */
+  private final List<T> soapClients;
+  /** SOAP clients that are not currently in use by a call. */
+  private final BlockingDeque<T> idleSoapClients;
+  private volatile int soapClientPoolSize;
+  /** Whether {@link #createSoapClient()} is supported. Guarded by {@code soapClients}. */
+  private boolean canCreateSoapClients = true;
+  private final SoapCallListener soapCallListener;
+
   /**
    * Protected constructor.
    *
@@ -43,22 +101,42 @@ public abstract class SoapServiceClient<T> implements InvocationHandler {
    */
   protected SoapServiceClient(SoapClientHandlerInterface<T> soapClientHandler,
       T soapClient) {
+    this(soapClientHandler, soapClient, SoapCallListener.NO_OP);
+  }
+
+  /**
+   * Protected constructor.
+   *
+   * @param soapClientHandler the SOAP client handler
+   * @param soapClient the SOAP client
+   * @param soapCallListener the listener notified of the metrics of each call
+   */
+  protected SoapServiceClient(SoapClientHandlerInterface<T> soapClientHandler,
+      T soapClient, SoapCallListener soapCallListener) {
     this.soapClient = soapClient;
     this.soapClientHandler = soapClientHandler;
+    this.soapCallListener = Preconditions.checkNotNull(soapCallListener,
+        "Null SOAP call listener");
+    this.soapClients = Lists.newCopyOnWriteArrayList();
+    this.soapClients.add(soapClient);
+    this.idleSoapClients = new LinkedBlockingDeque<T>();
+    this.idleSoapClients.add(soapClient);
+    this.soapClientPoolSize = 1;
   }
 
   /**
    * Called from {@link #invoke(Object, Method, Object[])} if the method is
    * intended for the SOAP client. Extending classes should override this method
    * if they wish to wrap the call, such in cases of reauthentication or
-   * exception handling. The actual SOAP call is synchronized on the SOAP client
-   * so that only one request to the SOAP client can be made with without
-   * interruption, useful for logging and exception handling.
+   * exception handling. The SOAP client of the {@code soapCall} is used by only
+   * one call at a time, so the request and response information captured by the
+   * SOAP client handler belongs to this call, useful for logging and exception
+   * handling.
    *
    * @param soapCall the call to send to the SOAP client
    * @return the return value from the {@code soapCall}
    */
-  protected synchronized SoapCallReturn callSoapClient(SoapCall<T> soapCall) {
+  protected SoapCallReturn callSoapClient(SoapCall<T> soapCall) {
     return soapClientHandler.invokeSoapCall(soapCall);
   }
 
@@ -82,36 +160,225 @@ public abstract class SoapServiceClient<T> implements InvocationHandler {
   @Override
   public Object invoke(Object proxy, final Method method, final Object[] args)
       throws Throwable {
+    Optional<Method> serviceClientMethod = getServiceClientMethod(method);
+    if (serviceClientMethod.isPresent()) {
+      return serviceClientMethod.get().invoke(this, args);
+    }
+    if (!soapCallListener.isEnabled()) {
+      SoapCallReturn soapCallReturn = callPooledSoapClient(method, args, null);
+      logSoapCall(soapCallReturn);
+      return unwrapSoapCallReturn(soapCallReturn);
+    }
+    return invokeWithMetrics(method, args);
+  }
+
+  /**
+   * Same as the SOAP client part of {@link #invoke(Object, Method, Object[])},
+   * but records the {@link SoapCallMetrics} of the call and passes them to the
+   * {@link SoapCallListener}.
+   */
+  private Object invokeWithMetrics(Method method, Object[] args) throws Throwable {
+    SoapCallMetrics metrics = new SoapCallMetrics(getCustomerId(), countOperations(args));
+    long startNanos = System.nanoTime();
+    SoapCallReturn soapCallReturn;
     try {
-      return getClass().getMethod(method.getName(), method.getParameterTypes())
-          .invoke(this, args);
-    } catch (NoSuchMethodException e) {
-      // Ignore and let the SOAP client handler take over.
+      soapCallReturn = callPooledSoapClient(method, args, metrics);
+    } catch (Throwable t) {
+      notifySoapCallListener(metrics, startNanos, null, t);
+      throw t;
     }
-    setHeaders();
-    SoapCallReturn soapCallReturn = callSoapClient(
-        createSoapCall(soapClientHandler.getSoapClientMethod(soapClient, method), args));
+    notifySoapCallListener(metrics, startNanos, soapCallReturn, null);
     logSoapCall(soapCallReturn);
     return unwrapSoapCallReturn(soapCallReturn);
   }
 
+  /**
+   * Sets the headers and makes the call on a SOAP client borrowed from the
+   * pool. If {@code metrics} is not {@code null}, the call records its
+   * timings in them.
+   */
+  private SoapCallReturn callPooledSoapClient(Method method, Object[] args,
+      @Nullable SoapCallMetrics metrics) throws Exception {
+    T pooledSoapClient = borrowSoapClient();
+    try {
+      long headersStartNanos = metrics != null ? System.nanoTime() : 0L;
+      setHeaders(pooledSoapClient);
+      SoapCall<T> soapCall = createSoapCall(pooledSoapClient,
+          soapClientHandler.getSoapClientMethod(pooledSoapClient, method), args);
+      if (metrics == null) {
+        return callSoapClient(soapCall);
+      }
+      soapCall.setMetrics(metrics);
+      long callStartNanos = System.nanoTime();
+      metrics.recordHeaderSetup(callStartNanos - headersStartNanos);
+      SoapCallReturn soapCallReturn = callSoapClient(soapCall);
+      metrics.recordSoapClientCall(System.nanoTime() - callStartNanos);
+      return soapCallReturn;
+    } finally {
+      idleSoapClients.offerFirst(pooledSoapClient);
+    }
+  }
+
+  private void notifySoapCallListener(SoapCallMetrics metrics, long startNanos,
+      SoapCallReturn soapCallReturn, Throwable exception) {
+    metrics.recordCompletion(System.nanoTime() - startNanos, soapCallReturn, exception);
+    try {
+      soapCallListener.onSoapCallComplete(metrics);
+    } catch (RuntimeException e) {
+      // A failing listener must not fail the call.
+      logger.warn("SOAP call listener failed.", e);
+    }
+  }
+
+  /**
+   * Returns the total number of elements in the array and collection
+   * arguments.
+   */
+  private static int countOperations(Object[] args) {
+    int operationCount = 0;
+    if (args != null) {
+      for (Object arg : args) {
+        if (arg instanceof Collection) {
+          operationCount += ((Collection<?>) arg).size();
+        } else if (arg != null && arg.getClass().isArray()) {
+          operationCount += Array.getLength(arg);
+        }
+      }
+    }
+    return operationCount;
+  }
+
+  /**
+   * Returns the method of this service client's class with the same name and
+   * parameter types as {@code method}, or absent if there is no such method and
+   * the call should be handled by the SOAP client handler. The lookup is cached
+   * per service client class.
+   */
+  private Optional<Method> getServiceClientMethod(Method method) {
+    ConcurrentMap<Method, Optional<Method>> methodsForClass =
+        SERVICE_CLIENT_METHODS.getUnchecked(getClass());
+    Optional<Method> serviceClientMethod = methodsForClass.get(method);
+    if (serviceClientMethod == null) {
+      try {
+        serviceClientMethod =
+            Optional.of(getClass().getMethod(method.getName(), method.getParameterTypes()));
+      } catch (NoSuchMethodException e) {
+        // Let the SOAP client handler take over.
+        serviceClientMethod = Optional.absent();
+      }
+      methodsForClass.putIfAbsent(method, serviceClientMethod);
+    }
+    return serviceClientMethod;
+  }
+
   /**
    * Creates the {@link SoapCall} from the  {@code soapClientMethod} and its
    * {@code args}.
+   *
+   * @deprecated calls on the SOAP client passed to the constructor are still
+   *     created by this method, but calls on additional pooled SOAP clients are
+   *     not. Override {@link #createSoapCall(Object, Method, Object[])} instead.
    */
+  @Deprecated
   protected SoapCall<T> createSoapCall(Method soapClientMethod, Object[] args) {
     return new SoapCall<T>(soapClientMethod, soapClient, args);
   }
 
   /**
-   * Sets the endpoint address of the underlying SOAP client.
+   * Creates the {@link SoapCall} on the given {@code soapClient} from the
+   * {@code soapClientMethod} and its {@code args}. Calls on the SOAP client
+   * passed to the constructor are delegated to
+   * {@link #createSoapCall(Method, Object[])}, so extending classes that
+   * override it keep working.
+   */
+  @SuppressWarnings("deprecation")
+  protected SoapCall<T> createSoapCall(T soapClient, Method soapClientMethod, Object[] args) {
+    if (soapClient == this.soapClient) {
+      return createSoapCall(soapClientMethod, args);
+    }
+    return new SoapCall<T>(soapClientMethod, soapClient, args);
+  }
+
+  /**
+   * Takes an idle SOAP client from the pool, creating a new one if none are
+   * idle and the pool is not full, or else waiting for one to be returned.
+   *
+   * @throws ServiceException if interrupted while waiting for a SOAP client
+   */
+  private T borrowSoapClient() throws ServiceException {
+    T pooledSoapClient = idleSoapClients.pollFirst();
+    if (pooledSoapClient != null) {
+      return pooledSoapClient;
+    }
+    synchronized (soapClients) {
+      if (canCreateSoapClients && soapClients.size() < soapClientPoolSize) {
+        pooledSoapClient = createSoapClient();
+        if (pooledSoapClient == null) {
+          logger.warn("{} cannot create additional SOAP clients, so its calls are serialized.",
+              getClass().getName());
+          canCreateSoapClients = false;
+        } else {
+          soapClientHandler.setEndpointAddress(
+              pooledSoapClient, soapClientHandler.getEndpointAddress(soapClient));
+          soapClients.add(pooledSoapClient);
+          return pooledSoapClient;
+        }
+      }
+    }
+    try {
+      return idleSoapClients.takeFirst();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ServiceException("Interrupted while waiting for an idle SOAP client", e);
+    }
+  }
+
+  /**
+   * Creates an additional SOAP client for the pool. Extending classes that
+   * support a pool size greater than 1 must override this method. The endpoint
+   * address of the new SOAP client will be set by the caller.
+   *
+   * @return a new SOAP client of the same type as the one passed to the
+   *     constructor, or {@code null} if this service client cannot create
+   *     additional SOAP clients, in which case all calls share the SOAP client
+   *     passed to the constructor regardless of the pool size
+   */
+  @Nullable
+  protected T createSoapClient() {
+    return null;
+  }
+
+  /**
+   * Sets the maximum number of SOAP clients, and therefore concurrent calls,
+   * for this service client. Additional SOAP clients are created lazily, and
+   * the pool is never shrunk below the number of SOAP clients already created.
+   *
+   * @param soapClientPoolSize the maximum number of SOAP clients, at least 1
+   */
+  public void setSoapClientPoolSize(int soapClientPoolSize) {
+    Preconditions.checkArgument(soapClientPoolSize > 0,
+        "SOAP client pool size must be positive but was: %s", soapClientPoolSize);
+    this.soapClientPoolSize = soapClientPoolSize;
+  }
+
+  /**
+   * Returns the maximum number of SOAP clients for this service client.
+   */
+  public int getSoapClientPoolSize() {
+    return soapClientPoolSize;
+  }
+
+  /**
+   * Sets the endpoint address of the underlying SOAP clients.
    */
   public void setEndpointAddress(String endpointAddress) {
-    soapClientHandler.setEndpointAddress(soapClient, endpointAddress);
+    for (T pooledSoapClient : soapClients) {
+      soapClientHandler.setEndpointAddress(pooledSoapClient, endpointAddress);
+    }
   }
 
   /**
-   * Returns the underlying SOAP client.
+   * Returns the underlying SOAP client passed to the constructor.
    */
   public Object getSoapClient() {
     return soapClient;
@@ -124,6 +391,14 @@ public abstract class SoapServiceClient<T> implements InvocationHandler {
     return soapClientHandler;
   }
 
+  /**
+   * Returns the ID of the account that calls are made for, reported in
+   * {@link SoapCallMetrics#getCustomerId()}. Returns {@code null} by default.
+   */
+  protected String getCustomerId() {
+    return null;
+  }
+
   /**
    * Logs a SOAP call.
    *
@@ -132,13 +407,15 @@ public abstract class SoapServiceClient<T> implements InvocationHandler {
   protected abstract void logSoapCall(SoapCallReturn soapCallReturn);
 
   /**
-   * Sets the headers for the service client.
+   * Sets the headers on a SOAP client of the service client.
    *
+   * @param soapClient the SOAP client that the next call will be made on
    * @throws ServiceException if there was a problem setting the headers
    * @throws AuthenticationException if there was a problem authenticating while
    *     setting headers
    */
-  protected abstract void setHeaders() throws ServiceException, AuthenticationException;
+  protected abstract void setHeaders(T soapClient)
+      throws ServiceException, AuthenticationException;
 
   /**
    * Handles the exception.
@@ -28,7 +28,9 @@ public enum AdsUtility {
   /** AdWords shopping utility for managing shopping product partition trees */
   PRODUCT_PARTITION_TREE("ProductPartitionTree"),
   /** AdWords BatchJobService upload/download utility */
-  BATCH_JOB_HELPER("BatchJobHelper");
+  BATCH_JOB_HELPER("BatchJobHelper"),
+  /** AdWords BatchJobService status polling utility */
+  BATCH_JOB_TRACKER("BatchJobTracker");
   
   private final String userAgentIdentifier;
   
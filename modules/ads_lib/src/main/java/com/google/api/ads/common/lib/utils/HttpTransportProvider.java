@@ -0,0 +1,214 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.utils;
+
+import com.google.api.ads.common.lib.conf.AdsLibConfiguration;
+import com.google.api.ads.common.lib.utils.logging.SoapXmlLogDispatcher;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.ApacheHttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.conn.ProxySelectorRoutePlanner;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.ProxySelector;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+/**
+ * Provider for the {@link HttpTransport} shared by SOAP calls, report downloads and batch job
+ * uploads. The transport type and connection pool settings come from
+ * {@link AdsLibConfiguration}.
+ *
+ * <p>The {@link AdsLibConfiguration.HttpTransportType#POOLED} transport keeps connections alive
+ * between requests. Each host gets up to
+ * {@link AdsLibConfiguration#getHttpMaxConnectionsPerRoute()} connections. A background thread
+ * closes connections that have been idle for longer than
+ * {@link AdsLibConfiguration#getHttpIdleConnectionTimeout()}. Reusing pooled connections also
+ * reuses their TLS sessions, so repeated requests avoid a full handshake.
+ *
+ * <p>Call {@link #shutdown()} to close the pooled connections and stop the library's background
+ * threads, for example when a web application is undeployed. This also stops the thread of the
+ * {@link SoapXmlLogDispatcher}. The eviction thread also stops on its own once the transport is no
+ * longer referenced.
+ */
+@Singleton
+public class HttpTransportProvider implements Provider<HttpTransport> {
+
+  private static final Logger logger = LoggerFactory.getLogger(HttpTransportProvider.class);
+
+  private final AdsLibConfiguration adsLibConfiguration;
+  private final SoapXmlLogDispatcher soapXmlLogDispatcher;
+  private HttpTransport httpTransport;
+  private ThreadSafeClientConnManager connectionManager;
+  private ScheduledExecutorService evictionExecutor;
+
+  /**
+   * Constructor.
+   *
+   * @param adsLibConfiguration the lib configuration
+   * @param soapXmlLogDispatcher the SOAP XML log dispatcher to shut down with the transport
+   */
+  @Inject
+  public HttpTransportProvider(AdsLibConfiguration adsLibConfiguration,
+      SoapXmlLogDispatcher soapXmlLogDispatcher) {
+    this.adsLibConfiguration = adsLibConfiguration;
+    this.soapXmlLogDispatcher = soapXmlLogDispatcher;
+  }
+
+  @Override
+  public synchronized HttpTransport get() {
+    if (httpTransport == null) {
+      httpTransport = createHttpTransport();
+    }
+    return httpTransport;
+  }
+
+  /**
+   * Creates the transport of the configured type.
+   */
+  private HttpTransport createHttpTransport() {
+    if (adsLibConfiguration.getHttpTransportType()
+        == AdsLibConfiguration.HttpTransportType.POOLED) {
+      DefaultHttpClient httpClient = createPooledHttpClient();
+      connectionManager = (ThreadSafeClientConnManager) httpClient.getConnectionManager();
+      evictionExecutor = scheduleIdleConnectionEviction(connectionManager);
+      return new ApacheHttpTransport(httpClient);
+    }
+    return new NetHttpTransport();
+  }
+
+  /**
+   * Shuts down the transport, closing its pooled connections and stopping the thread that evicts
+   * idle connections. Also shuts down the {@link SoapXmlLogDispatcher}. A later call to
+   * {@link #get()} creates a new transport.
+   *
+   * @throws IOException if the transport could not be shut down
+   */
+  public synchronized void shutdown() throws IOException {
+    soapXmlLogDispatcher.shutdown();
+    if (evictionExecutor != null) {
+      evictionExecutor.shutdownNow();
+      evictionExecutor = null;
+    }
+    if (httpTransport != null) {
+      try {
+        httpTransport.shutdown();
+      } finally {
+        httpTransport = null;
+        connectionManager = null;
+      }
+    }
+  }
+
+  /**
+   * Returns whether the thread that evicts idle pooled connections is running.
+   */
+  @VisibleForTesting
+  synchronized boolean isIdleConnectionEvictionRunning() {
+    return evictionExecutor != null && !evictionExecutor.isShutdown();
+  }
+
+  /**
+   * Gets the number of connections currently held by the pooled transport, whether leased or
+   * idle. Returns {@code 0} if the pooled transport is not in use.
+   */
+  public synchronized int getPooledConnectionCount() {
+    return connectionManager == null ? 0 : connectionManager.getConnectionsInPool();
+  }
+
+  /**
+   * Creates an HTTP client backed by a thread-safe connection pool, sized according to the
+   * configuration.
+   */
+  @VisibleForTesting
+  DefaultHttpClient createPooledHttpClient() {
+    SchemeRegistry schemeRegistry = new SchemeRegistry();
+    schemeRegistry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+    schemeRegistry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+
+    HttpParams params = new BasicHttpParams();
+    ConnManagerParams.setMaxTotalConnections(params, adsLibConfiguration.getHttpMaxConnections());
+    ConnManagerParams.setMaxConnectionsPerRoute(
+        params, new ConnPerRouteBean(adsLibConfiguration.getHttpMaxConnectionsPerRoute()));
+    // Idle connections may have been closed by the server, so check them before reuse.
+    HttpConnectionParams.setStaleCheckingEnabled(params, true);
+
+    DefaultHttpClient httpClient =
+        new DefaultHttpClient(new ThreadSafeClientConnManager(params, schemeRegistry), params);
+    // Retry should be handled by the client, consistent with the other transports.
+    httpClient.setHttpRequestRetryHandler(new DefaultHttpRequestRetryHandler(0, false));
+    httpClient.setRoutePlanner(
+        new ProxySelectorRoutePlanner(schemeRegistry, ProxySelector.getDefault()));
+    return httpClient;
+  }
+
+  /**
+   * Schedules a daemon task that closes expired connections and connections that have been idle
+   * for longer than the configured timeout. The task only holds a weak reference to the
+   * connection manager, and shuts its executor down once the manager is garbage collected.
+   *
+   * @return the executor running the task
+   */
+  private ScheduledExecutorService scheduleIdleConnectionEviction(
+      ThreadSafeClientConnManager connectionManager) {
+    final long idleTimeoutMillis = adsLibConfiguration.getHttpIdleConnectionTimeout();
+    final WeakReference<ThreadSafeClientConnManager> connectionManagerReference =
+        new WeakReference<ThreadSafeClientConnManager>(connectionManager);
+    final ScheduledExecutorService evictionExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("ads-http-connection-eviction-%d")
+            .build());
+    long periodMillis = Math.max(idleTimeoutMillis / 2, 1000L);
+    evictionExecutor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        ThreadSafeClientConnManager connectionManager = connectionManagerReference.get();
+        if (connectionManager == null) {
+          evictionExecutor.shutdown();
+          return;
+        }
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+        logger.debug("Pooled HTTP connections after eviction: {}",
+            connectionManager.getConnectionsInPool());
+      }
+    }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    return evictionExecutor;
+  }
+}
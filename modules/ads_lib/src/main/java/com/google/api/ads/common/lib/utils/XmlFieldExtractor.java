@@ -17,6 +17,7 @@ package com.google.api.ads.common.lib.utils;
 import com.google.common.base.Supplier;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 
 import org.slf4j.Logger;
@@ -38,12 +39,28 @@ import javax.xml.xpath.XPathExpressionException;
 /**
  * Utility class to extract fields from XML.
  */
+@Singleton
 public class XmlFieldExtractor {
 
+  /** The maximum number of compiled expressions kept for each thread. */
+  private static final int MAX_CACHED_EXPRESSIONS = 100;
+
   private final Logger logger;
   private final Supplier<DocumentBuilder> documentBuilderSupplier;
   private final Supplier<XPath> xpathSupplier;
 
+  /**
+   * Compiled expressions by field, for each thread, since {@link XPathExpression} is not
+   * thread-safe.
+   */
+  private final ThreadLocal<Map<String, XPathExpression>> expressions =
+      new ThreadLocal<Map<String, XPathExpression>>() {
+        @Override
+        protected Map<String, XPathExpression> initialValue() {
+          return Maps.newHashMap();
+        }
+      };
+
   @Inject
   public XmlFieldExtractor(
       @Named("soapXmlLogger") Logger soapXmlLogger,
@@ -100,11 +117,27 @@ public class XmlFieldExtractor {
    */
   @Nullable
   private String extract(Document doc, String field) throws XPathExpressionException {
-    XPathExpression expr = xpathSupplier.get().compile("//" + field);
+    XPathExpression expr = getExpression(field);
     NodeList nl = (NodeList) expr.evaluate(doc, XPathConstants.NODESET);
     if (nl.getLength() > 0) {
       return nl.item(0).getTextContent();
     }
     return null;
   }
+
+  /**
+   * Gets the compiled wildcard xpath for the field, compiling it on first use by this thread.
+   */
+  private XPathExpression getExpression(String field) throws XPathExpressionException {
+    Map<String, XPathExpression> threadExpressions = expressions.get();
+    XPathExpression expr = threadExpressions.get(field);
+    if (expr == null) {
+      expr = xpathSupplier.get().compile("//" + field);
+      if (threadExpressions.size() >= MAX_CACHED_EXPRESSIONS) {
+        threadExpressions.clear();
+      }
+      threadExpressions.put(field, expr);
+    }
+    return expr;
+  }
 }
@@ -17,6 +17,7 @@ package com.google.api.ads.common.lib.utils.logging;
 import com.google.api.ads.common.lib.soap.RequestInfo;
 import com.google.api.ads.common.lib.soap.ResponseInfo;
 import com.google.api.ads.common.lib.soap.SoapCallReturn;
+import com.google.common.base.Supplier;
 import com.google.inject.name.Named;
 
 import org.slf4j.Logger;
@@ -37,6 +38,20 @@ public class AdsServiceLoggers {
 
   private final Logger soapXmlLogger;
   private final Logger requestInfoLogger;
+  private final SoapXmlLogDispatcher soapXmlLogDispatcher;
+
+  /**
+   * Constructor for loggers that log every SOAP call's XML on the calling thread.
+   *
+   * @param prettyPrinter an object capable of pretty printing XML messages
+   * @param soapXmlLogger the SOAP XML logger
+   * @param requestInfoLogger the request info logger
+   */
+  protected AdsServiceLoggers(PrettyPrinterInterface prettyPrinter,
+      @Named("soapXmlLogger") Logger soapXmlLogger,
+      @Named("requestInfoLogger") Logger requestInfoLogger) {
+    this(prettyPrinter, soapXmlLogger, requestInfoLogger, SoapXmlLogDispatcher.synchronous());
+  }
 
   /**
    * Constructor.
@@ -44,14 +59,17 @@ public class AdsServiceLoggers {
    * @param prettyPrinter an object capable of pretty printing XML messages
    * @param soapXmlLogger the SOAP XML logger
    * @param requestInfoLogger the request info logger
+   * @param soapXmlLogDispatcher decides which calls get their XML logged, and on which thread
    */
   @Inject
   protected AdsServiceLoggers(PrettyPrinterInterface prettyPrinter,
       @Named("soapXmlLogger") Logger soapXmlLogger,
-      @Named("requestInfoLogger") Logger requestInfoLogger) {
+      @Named("requestInfoLogger") Logger requestInfoLogger,
+      SoapXmlLogDispatcher soapXmlLogDispatcher) {
     this.prettyPrinter = prettyPrinter;
     this.soapXmlLogger = soapXmlLogger;
     this.requestInfoLogger = requestInfoLogger;
+    this.soapXmlLogDispatcher = soapXmlLogDispatcher;
   }
 
   /**
@@ -64,26 +82,49 @@ public class AdsServiceLoggers {
   }
 
   /**
-   * Logs the XML messages from a given SOAP interaction.
+   * Gets the statistics of SOAP XML logging, such as the number of calls waiting to be logged
+   * when logging asynchronously.
+   */
+  public SoapXmlLogDispatcher.Stats getSoapXmlLogStats() {
+    return soapXmlLogDispatcher.getStats();
+  }
+
+  /**
+   * Logs the XML messages from a given SOAP interaction. Depending on the configuration, the
+   * messages may be logged on another thread, or not at all for a sample of successful calls.
    *
    * @param soapCallReturn information on the SOAP call to be logged
    */
-  public void logSoapXml(SoapCallReturn soapCallReturn) {
-    RequestInfo request = soapCallReturn.getRequestInfo();
-    ResponseInfo response = soapCallReturn.getResponseInfo();
-    if (soapXmlLogger.isInfoEnabled() ||
-        (soapXmlLogger.isWarnEnabled() && soapCallReturn.getException() != null)) {
-      String prettyRequest = "SOAP Request:\n" +
-          prettyPrinter.prettyPrint(request.getSoapRequestXml());
-      String prettyResponse = "SOAP Response:\n" +
-          prettyPrinter.prettyPrint(response.getSoapResponseXml());
-      if (soapCallReturn.getException() == null) {
-        soapXmlLogger.info(prettyRequest);
-        soapXmlLogger.info(prettyResponse);
-      } else {
-        soapXmlLogger.warn(prettyRequest);
-        soapXmlLogger.warn(prettyResponse);
-      }
+  public void logSoapXml(final SoapCallReturn soapCallReturn) {
+    final boolean failed = soapCallReturn.getException() != null;
+    if (soapXmlLogger.isInfoEnabled() || (soapXmlLogger.isWarnEnabled() && failed)) {
+      soapXmlLogDispatcher.dispatch(new Supplier<Runnable>() {
+        @Override
+        public Runnable get() {
+          // Serialize the messages now, so a queued task only holds their XML and not the
+          // SOAP call's messages.
+          final String requestXml = soapCallReturn.getRequestInfo().getSoapRequestXml();
+          final String responseXml = soapCallReturn.getResponseInfo().getSoapResponseXml();
+          return new Runnable() {
+            @Override
+            public void run() {
+              writeSoapXml(requestXml, responseXml, failed);
+            }
+          };
+        }
+      }, failed);
+    }
+  }
+
+  private void writeSoapXml(String requestXml, String responseXml, boolean failed) {
+    String prettyRequest = "SOAP Request:\n" + prettyPrinter.prettyPrint(requestXml);
+    String prettyResponse = "SOAP Response:\n" + prettyPrinter.prettyPrint(responseXml);
+    if (!failed) {
+      soapXmlLogger.info(prettyRequest);
+      soapXmlLogger.info(prettyResponse);
+    } else {
+      soapXmlLogger.warn(prettyRequest);
+      soapXmlLogger.warn(prettyResponse);
     }
   }
 
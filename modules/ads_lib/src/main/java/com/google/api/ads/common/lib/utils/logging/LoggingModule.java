@@ -17,6 +17,7 @@ package com.google.api.ads.common.lib.utils.logging;
 import com.google.common.base.Supplier;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provider;
+import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
 import com.google.inject.name.Names;
 
@@ -77,50 +78,86 @@ public class LoggingModule extends AbstractModule {
  
   /**
    * Thread-safe supplier for {@link XPath} objects. This is necessary because
-   * {@link XPathFactory} is <em>not</em> thread-safe.
+   * {@link XPathFactory} is <em>not</em> thread-safe. Each thread reuses one {@link XPath}, which
+   * is reset before it is returned, so the factory lookup only happens once per thread.
    */
   @ThreadSafe
+  @Singleton
   private static final class XPathSupplier implements Supplier<XPath> {
+
+    private final ThreadLocal<XPath> xpaths = new ThreadLocal<XPath>() {
+      @Override
+      protected XPath initialValue() {
+        return XPathFactory.newInstance().newXPath();
+      }
+    };
+
     @Override
     public XPath get() {
-      return XPathFactory.newInstance().newXPath();
+      XPath xpath = xpaths.get();
+      xpath.reset();
+      return xpath;
     }
   }
   
   /**
    * Thread-safe supplier for {@link DocumentBuilder} objects. This is necessary because
-   * {@link DocumentBuilderFactory} is <em>not</em> thread-safe.
+   * {@link DocumentBuilderFactory} is <em>not</em> thread-safe. Each thread reuses one
+   * {@link DocumentBuilder}, which is reset before it is returned.
    */
   @ThreadSafe
+  @Singleton
   private static final class DocumentBuilderSupplier implements Supplier<DocumentBuilder> {
+
+    private final ThreadLocal<DocumentBuilder> documentBuilders =
+        new ThreadLocal<DocumentBuilder>();
+
     @Override
     public DocumentBuilder get() {
-      try {
-        return DocumentBuilderFactory.newInstance().newDocumentBuilder();
-      } catch (ParserConfigurationException e) {
-        AdsServiceLoggers.ADS_API_LIB_LOG.warn("Unable to initialize DocumentBuilder. Error: " + e);
-        return null;
+      DocumentBuilder documentBuilder = documentBuilders.get();
+      if (documentBuilder == null) {
+        try {
+          documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+          AdsServiceLoggers.ADS_API_LIB_LOG.warn(
+              "Unable to initialize DocumentBuilder. Error: " + e);
+          return null;
+        }
+        documentBuilders.set(documentBuilder);
+      } else {
+        documentBuilder.reset();
       }
+      return documentBuilder;
     }
   }
 
   /**
    * Thread-safe supplier for {@link Transformer} objects. This is necessary because
-   * {@link TransformerFactory} is <em>not</em> thread-safe.
+   * {@link TransformerFactory} is <em>not</em> thread-safe. Each thread reuses one
+   * {@link Transformer}, which is reset and configured again before it is returned.
    */
   @ThreadSafe
+  @Singleton
   private static final class TransformerSupplier implements Supplier<Transformer> {
+
+    private final ThreadLocal<Transformer> transformers = new ThreadLocal<Transformer>();
+
     @Override
     public Transformer get() {
-      Transformer transformer;
-      try {
-        transformer = TransformerFactory.newInstance().newTransformer();
-      } catch (TransformerConfigurationException e) {
-        AdsServiceLoggers.ADS_API_LIB_LOG.warn("Unable to initialize Transformer. Error: " + e);
-        return null;
-      } catch (TransformerFactoryConfigurationError e) {
-        AdsServiceLoggers.ADS_API_LIB_LOG.warn("Unable to initialize Transformer. Error: " + e);
-        return null;
+      Transformer transformer = transformers.get();
+      if (transformer == null) {
+        try {
+          transformer = TransformerFactory.newInstance().newTransformer();
+        } catch (TransformerConfigurationException e) {
+          AdsServiceLoggers.ADS_API_LIB_LOG.warn("Unable to initialize Transformer. Error: " + e);
+          return null;
+        } catch (TransformerFactoryConfigurationError e) {
+          AdsServiceLoggers.ADS_API_LIB_LOG.warn("Unable to initialize Transformer. Error: " + e);
+          return null;
+        }
+        transformers.set(transformer);
+      } else {
+        transformer.reset();
       }
       transformer.setOutputProperty(OutputKeys.INDENT, "yes");
       transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
@@ -15,8 +15,10 @@
 package com.google.api.ads.common.lib.utils.logging;
 
 import com.google.api.ads.common.lib.conf.AdsApiConfiguration;
+import com.google.common.base.Charsets;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.CharStreams;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 
@@ -26,13 +28,25 @@ import org.w3c.dom.Node;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.EmptyStackException;
+import java.util.List;
 
 import javax.annotation.Nullable;
 import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
@@ -46,11 +60,21 @@ import javax.xml.xpath.XPathExpressionException;
 
 /**
  * A utility class that pretty prints XML messages.
+ *
+ * <p>Messages are redacted and indented in a single streaming pass, without building a DOM,
+ * provided every sensitive XPath is a plain absolute path of element names, such as
+ * {@code /Envelope/Header/RequestHeader/developerToken}. Those paths are compiled once, when the
+ * printer is created. If any sensitive XPath uses other XPath features, every message is instead
+ * parsed into a DOM, redacted by evaluating the XPaths and formatted with a {@link Transformer}.
  */
 public final class PrettyPrinter implements PrettyPrinterInterface {
 
+  private static final Charset OUTPUT_CHARSET = Charsets.UTF_8;
+
   private final Logger libLogger;
   private final ImmutableList<String> sensitiveXPathStrings;
+  @Nullable private final XmlStreamFormatter streamFormatter;
+  private final XMLInputFactory inputFactory;
   private final Supplier<XPath> xpathSupplier;
   private final Supplier<Transformer> transformerSupplier;
   private final Supplier<DocumentBuilder> documentBuilderSupplier;
@@ -83,6 +107,28 @@ public final class PrettyPrinter implements PrettyPrinterInterface {
     this.xpathSupplier = xpathSupplier;
     this.transformerSupplier = transformerSupplier;
     this.documentBuilderSupplier = documentBuilderSupplier;
+    this.streamFormatter = createStreamFormatter(sensitiveXPathStrings, libLogger);
+    this.inputFactory = XmlStreamFormatter.createInputFactory();
+  }
+
+  /**
+   * Creates the streaming formatter for the sensitive XPaths, or returns null if any of them
+   * cannot be matched while streaming.
+   */
+  @Nullable
+  private static XmlStreamFormatter createStreamFormatter(
+      List<String> sensitiveXPathStrings, Logger libLogger) {
+    List<String[]> sensitivePaths = new ArrayList<String[]>();
+    for (String xpathString : sensitiveXPathStrings) {
+      String[] sensitivePath = XmlStreamFormatter.compilePath(xpathString);
+      if (sensitivePath == null) {
+        libLogger.info("Sensitive XPath {} is not a simple element path. SOAP XML will be "
+            + "redacted and formatted using a DOM.", xpathString);
+        return null;
+      }
+      sensitivePaths.add(sensitivePath);
+    }
+    return new XmlStreamFormatter(sensitivePaths);
   }
 
   /**
@@ -99,6 +145,19 @@ public final class PrettyPrinter implements PrettyPrinterInterface {
     if (xml == null) {
       return xml;
     }
+    if (streamFormatter != null) {
+      StringBuilder output = new StringBuilder(xml.length() + xml.length() / 4);
+      try {
+        prettyPrint(inputFactory.createXMLStreamReader(new StringReader(xml)), output, null);
+        return output.toString();
+      } catch (XMLStreamException e) {
+        libLogger.warn("Unable to pretty print XML: {}", e);
+        return xml;
+      } catch (IOException e) {
+        // Not thrown by StringBuilder.
+        throw new IllegalStateException(e);
+      }
+    }
     Source xmlSource = sanitizeXml(xml);
     if (xmlSource == null) {
       xmlSource = new StreamSource(new StringReader(xml));
@@ -107,6 +166,59 @@ public final class PrettyPrinter implements PrettyPrinterInterface {
     return formattedXml != null ? formattedXml : xml;
   }
 
+  /**
+   * Pretty prints the XML read from the input stream to the output, with sensitive strings
+   * removed. The output is written in UTF-8. Neither stream is closed.
+   *
+   * @param xml the XML message to be pretty printed
+   * @param output the stream to write the pretty-printed message to
+   * @throws IOException if the message could not be read, parsed or written. Part of the
+   *     message may have been written already.
+   */
+  public void prettyPrint(InputStream xml, OutputStream output) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(output, OUTPUT_CHARSET));
+    prettyPrint(xml, writer, OUTPUT_CHARSET.name());
+    writer.flush();
+  }
+
+  /**
+   * Pretty prints the XML read from the input stream to the output, with sensitive strings
+   * removed. The input stream is not closed.
+   *
+   * @param xml the XML message to be pretty printed
+   * @param output where to append the pretty-printed message
+   * @throws IOException if the message could not be read, parsed or written. Part of the
+   *     message may have been appended already.
+   */
+  public void prettyPrint(InputStream xml, Appendable output) throws IOException {
+    prettyPrint(xml, output, null);
+  }
+
+  private void prettyPrint(InputStream xml, Appendable output, @Nullable String outputEncoding)
+      throws IOException {
+    try {
+      if (streamFormatter != null) {
+        prettyPrint(inputFactory.createXMLStreamReader(xml), output, outputEncoding);
+      } else {
+        // The DOM path works on strings, and SOAP messages from the APIs are always UTF-8.
+        String xmlString = CharStreams.toString(new InputStreamReader(xml, Charsets.UTF_8));
+        output.append(prettyPrint(xmlString));
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException("Unable to pretty print XML", e);
+    }
+  }
+
+  private void prettyPrint(
+      XMLStreamReader reader, Appendable output, @Nullable String outputEncoding)
+      throws XMLStreamException, IOException {
+    try {
+      streamFormatter.format(reader, output, outputEncoding);
+    } finally {
+      reader.close();
+    }
+  }
+
   /**
    * Formats/pretty prints the XML source.
    *
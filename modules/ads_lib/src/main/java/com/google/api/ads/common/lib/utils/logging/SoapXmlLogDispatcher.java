@@ -0,0 +1,227 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.utils.logging;
+
+import com.google.api.ads.common.lib.conf.AdsLibConfiguration;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Singleton;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+/**
+ * Decides which SOAP calls get their XML logged, and on which thread.
+ *
+ * <p>Successful calls are sampled: only one in every
+ * {@link AdsLibConfiguration#getSoapXmlLogSuccessSampleRate()} is logged. Failed calls are
+ * always logged.
+ *
+ * <p>By default, logging runs on the thread that made the call. If
+ * {@link AdsLibConfiguration#isAsyncSoapXmlLoggingEnabled()} is set, logging tasks are instead
+ * added to a bounded queue that a single daemon thread drains, in order. The calling thread never
+ * waits: if the queue is full, the task is dropped and counted in {@link Stats#getDroppedCount()}.
+ * A queued task keeps whatever it references reachable until it runs, so tasks should capture the
+ * serialized XML rather than the SOAP messages it came from. The queue size then bounds the memory
+ * held by calls waiting to be logged.
+ *
+ * <p>Call {@link #shutdown()} to stop the logging thread, for example when a web application is
+ * undeployed. {@link com.google.api.ads.common.lib.utils.HttpTransportProvider#shutdown()} also
+ * calls it. Tasks still queued when the JVM exits are not logged.
+ */
+@Singleton
+public class SoapXmlLogDispatcher {
+
+  private final boolean async;
+  private final int queueSize;
+  private final int successSampleRate;
+  private final ThreadFactory threadFactory;
+  /** The single-thread executor logging queued tasks, created by the first queued task. */
+  private volatile ThreadPoolExecutor executor;
+
+  private final AtomicLong successCount = new AtomicLong();
+  private final AtomicLong sampledOutCount = new AtomicLong();
+  private final AtomicLong droppedCount = new AtomicLong();
+  private final AtomicLong failedTaskCount = new AtomicLong();
+
+  /**
+   * Constructor.
+   *
+   * @param adsLibConfiguration the lib configuration
+   */
+  @Inject
+  public SoapXmlLogDispatcher(AdsLibConfiguration adsLibConfiguration) {
+    this(adsLibConfiguration.isAsyncSoapXmlLoggingEnabled(),
+        adsLibConfiguration.getSoapXmlLogQueueSize(),
+        adsLibConfiguration.getSoapXmlLogSuccessSampleRate(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ads-soap-xml-log-%d").build());
+  }
+
+  @VisibleForTesting
+  SoapXmlLogDispatcher(boolean async, int queueSize, int successSampleRate,
+      ThreadFactory threadFactory) {
+    Preconditions.checkArgument(queueSize > 0, "SOAP XML log queue size must be positive");
+    Preconditions.checkArgument(
+        successSampleRate > 0, "SOAP XML log success sample rate must be positive");
+    this.async = async;
+    this.queueSize = queueSize;
+    this.successSampleRate = successSampleRate;
+    this.threadFactory = threadFactory;
+  }
+
+  /**
+   * Creates a dispatcher that logs every call on the calling thread.
+   */
+  static SoapXmlLogDispatcher synchronous() {
+    return new SoapXmlLogDispatcher(false, 1, 1, null);
+  }
+
+  /**
+   * Runs or queues the task that logs a call, unless the call is sampled out.
+   *
+   * @param logTaskSupplier creates the task that formats and logs the call. It is only called if
+   *     the call is logged, and always on the calling thread.
+   * @param failed whether the call failed
+   */
+  public void dispatch(Supplier<? extends Runnable> logTaskSupplier, boolean failed) {
+    if (!failed && successSampleRate > 1
+        && successCount.getAndIncrement() % successSampleRate != 0) {
+      sampledOutCount.incrementAndGet();
+      return;
+    }
+    final Runnable logTask = logTaskSupplier.get();
+    if (!async) {
+      logTask.run();
+      return;
+    }
+    ThreadPoolExecutor executor = this.executor;
+    if (executor == null) {
+      executor = startExecutor();
+    }
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          logTask.run();
+        } catch (RuntimeException e) {
+          failedTaskCount.incrementAndGet();
+          AdsServiceLoggers.ADS_API_LIB_LOG.warn("Unable to log SOAP XML.", e);
+        }
+      }
+    });
+  }
+
+  /**
+   * Gets a snapshot of the dispatcher's statistics.
+   */
+  public Stats getStats() {
+    ThreadPoolExecutor executor = this.executor;
+    return new Stats(executor == null ? 0 : executor.getQueue().size(), sampledOutCount.get(),
+        droppedCount.get(), failedTaskCount.get());
+  }
+
+  /**
+   * Stops the logging thread once the tasks already queued have been logged. Does not wait for
+   * them. A later call that is logged asynchronously starts a new thread.
+   */
+  public synchronized void shutdown() {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  /**
+   * Creates the executor if it does not exist yet. Its thread is started right away so that every
+   * task goes through the bounded queue. If the thread dies, the executor replaces it.
+   */
+  private synchronized ThreadPoolExecutor startExecutor() {
+    if (executor == null) {
+      ThreadPoolExecutor newExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<Runnable>(queueSize), threadFactory,
+          new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable logTask, ThreadPoolExecutor executor) {
+              droppedCount.incrementAndGet();
+            }
+          });
+      newExecutor.prestartCoreThread();
+      executor = newExecutor;
+    }
+    return executor;
+  }
+
+  /**
+   * Statistics about SOAP XML logging.
+   */
+  public static final class Stats {
+
+    private final int queueDepth;
+    private final long sampledOutCount;
+    private final long droppedCount;
+    private final long failedTaskCount;
+
+    @VisibleForTesting
+    Stats(int queueDepth, long sampledOutCount, long droppedCount, long failedTaskCount) {
+      this.queueDepth = queueDepth;
+      this.sampledOutCount = sampledOutCount;
+      this.droppedCount = droppedCount;
+      this.failedTaskCount = failedTaskCount;
+    }
+
+    /**
+     * Gets the number of calls waiting to be logged. Always {@code 0} when logging synchronously.
+     */
+    public int getQueueDepth() {
+      return queueDepth;
+    }
+
+    /**
+     * Gets the number of successful calls not logged because of sampling.
+     */
+    public long getSampledOutCount() {
+      return sampledOutCount;
+    }
+
+    /**
+     * Gets the number of calls not logged because the queue was full or logging was shut down
+     * while they were dispatched.
+     */
+    public long getDroppedCount() {
+      return droppedCount;
+    }
+
+    /**
+     * Gets the number of calls whose logging failed with an exception on the logging thread.
+     */
+    public long getFailedTaskCount() {
+      return failedTaskCount;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Stats{queueDepth=%d, sampledOutCount=%d, droppedCount=%d, "
+          + "failedTaskCount=%d}", queueDepth, sampledOutCount, droppedCount, failedTaskCount);
+    }
+  }
+}
@@ -0,0 +1,339 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.utils.logging;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Indents XML and redacts sensitive elements in a single pass over an {@link XMLStreamReader},
+ * writing the result to an {@link Appendable} without building a document in memory.
+ *
+ * <p>Sensitive elements are given as absolute XPath location paths made of element names and
+ * {@code *} wildcards, such as {@code /Envelope/Header/RequestHeader/developerToken}. Steps match
+ * the local name of the element, regardless of its namespace. The content of every matching
+ * element is replaced with {@value #REDACTED}. Use {@link #compilePath(String)} to check whether
+ * an XPath can be matched this way.
+ */
+@ThreadSafe
+final class XmlStreamFormatter {
+
+  static final String REDACTED = "REDACTED";
+
+  private static final String WILDCARD = "*";
+  private static final int INDENT_AMOUNT = 4;
+  private static final String NEW_LINE = "\n";
+  private static final Pattern SIMPLE_PATH =
+      Pattern.compile("(/(\\*|[A-Za-z_][A-Za-z0-9_.\\-]*))+");
+
+  private final ImmutableList<String[]> sensitivePaths;
+
+  /**
+   * Constructor.
+   *
+   * @param sensitivePaths the sensitive paths, as returned by {@link #compilePath(String)}
+   */
+  XmlStreamFormatter(List<String[]> sensitivePaths) {
+    this.sensitivePaths = ImmutableList.copyOf(sensitivePaths);
+  }
+
+  /**
+   * Compiles an XPath into the element names along its path.
+   *
+   * @return the element names, or {@code null} if the XPath uses anything other than absolute
+   *     child steps by element name or {@code *}
+   */
+  @Nullable
+  static String[] compilePath(String xpath) {
+    String trimmed = xpath.trim();
+    if (!SIMPLE_PATH.matcher(trimmed).matches()) {
+      return null;
+    }
+    return Iterables.toArray(Splitter.on('/').omitEmptyStrings().split(trimmed), String.class);
+  }
+
+  /**
+   * Creates a factory for readers suitable for {@link #format}. DTDs and external entities are
+   * not processed, since logged messages come from the network.
+   */
+  static XMLInputFactory createInputFactory() {
+    XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    return inputFactory;
+  }
+
+  /**
+   * Writes the document read by the reader to the output, indented, with sensitive elements
+   * redacted. The reader is not closed.
+   *
+   * @param reader the reader, positioned at the start of the document
+   * @param output where to write the formatted document
+   * @param encoding the encoding to declare in the XML declaration, or {@code null} to keep the
+   *     encoding declared by the document
+   * @throws XMLStreamException if the document is not well formed
+   * @throws IOException if writing to the output fails
+   */
+  void format(XMLStreamReader reader, Appendable output, @Nullable String encoding)
+      throws XMLStreamException, IOException {
+    new Writer(output).write(reader, encoding);
+  }
+
+  /**
+   * The state of a single {@link #format} call.
+   */
+  private final class Writer {
+
+    private final Appendable output;
+    private String[] path = new String[16];
+    private int depth;
+    private boolean startTagOpen;
+    private boolean hasChildElements;
+    private boolean wroteAnything;
+
+    private Writer(Appendable output) {
+      this.output = output;
+    }
+
+    private void write(XMLStreamReader reader, @Nullable String encoding)
+        throws XMLStreamException, IOException {
+      if (reader.getVersion() != null) {
+        output.append("<?xml version=\"").append(reader.getVersion()).append('"');
+        String declaredEncoding =
+            encoding != null ? encoding : reader.getCharacterEncodingScheme();
+        if (declaredEncoding != null) {
+          output.append(" encoding=\"").append(declaredEncoding).append('"');
+        }
+        if (reader.standaloneSet()) {
+          output.append(" standalone=\"").append(reader.isStandalone() ? "yes" : "no").append('"');
+        }
+        output.append("?>");
+        wroteAnything = true;
+      }
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            writeStartElement(reader);
+            if (isSensitive()) {
+              closeStartTag();
+              output.append(REDACTED);
+              skipContent(reader);
+              writeEndElement(reader);
+            }
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            writeEndElement(reader);
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.SPACE:
+          case XMLStreamConstants.CDATA:
+            if (!reader.isWhiteSpace()) {
+              closeStartTag();
+              int textStart = reader.getTextStart();
+              appendEscaped(CharBuffer.wrap(reader.getTextCharacters()), textStart,
+                  textStart + reader.getTextLength(), false);
+            }
+            break;
+          case XMLStreamConstants.COMMENT:
+            startLine();
+            output.append("<!--").append(reader.getText()).append("-->");
+            break;
+          case XMLStreamConstants.PROCESSING_INSTRUCTION:
+            startLine();
+            output.append("<?").append(reader.getPITarget());
+            if (reader.getPIData() != null && !reader.getPIData().isEmpty()) {
+              output.append(' ').append(reader.getPIData());
+            }
+            output.append("?>");
+            break;
+          case XMLStreamConstants.DTD:
+            startLine();
+            output.append(reader.getText());
+            break;
+          default:
+            break;
+        }
+      }
+    }
+
+    private void writeStartElement(XMLStreamReader reader) throws IOException {
+      startLine();
+      output.append('<');
+      appendName(reader.getPrefix(), reader.getLocalName());
+      for (int i = 0; i < reader.getNamespaceCount(); i++) {
+        output.append(" xmlns");
+        String prefix = reader.getNamespacePrefix(i);
+        if (prefix != null && !prefix.isEmpty()) {
+          output.append(':').append(prefix);
+        }
+        output.append("=\"");
+        String namespaceUri = reader.getNamespaceURI(i);
+        appendEscaped(namespaceUri == null ? "" : namespaceUri);
+        output.append('"');
+      }
+      for (int i = 0; i < reader.getAttributeCount(); i++) {
+        output.append(' ');
+        appendName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+        output.append("=\"");
+        appendEscaped(reader.getAttributeValue(i));
+        output.append('"');
+      }
+      if (depth == path.length) {
+        path = Arrays.copyOf(path, depth * 2);
+      }
+      path[depth++] = reader.getLocalName();
+      startTagOpen = true;
+      hasChildElements = false;
+    }
+
+    private void writeEndElement(XMLStreamReader reader) throws IOException {
+      depth--;
+      if (startTagOpen) {
+        output.append("/>");
+        startTagOpen = false;
+      } else {
+        if (hasChildElements) {
+          newLine(depth);
+        }
+        output.append("</");
+        appendName(reader.getPrefix(), reader.getLocalName());
+        output.append('>');
+      }
+      // The parent of this element has child elements, so its end tag goes on a new line.
+      hasChildElements = true;
+    }
+
+    /**
+     * Skips everything up to the end of the current element, leaving the reader on its end tag.
+     */
+    private void skipContent(XMLStreamReader reader) throws XMLStreamException {
+      int nesting = 1;
+      while (nesting > 0) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          nesting++;
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          nesting--;
+        }
+      }
+    }
+
+    private boolean isSensitive() {
+      for (String[] sensitivePath : sensitivePaths) {
+        if (matches(sensitivePath)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean matches(String[] sensitivePath) {
+      if (sensitivePath.length != depth) {
+        return false;
+      }
+      for (int i = 0; i < depth; i++) {
+        if (!WILDCARD.equals(sensitivePath[i]) && !sensitivePath[i].equals(path[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Starts a new, indented line for a start tag, comment or processing instruction.
+     */
+    private void startLine() throws IOException {
+      closeStartTag();
+      if (wroteAnything) {
+        newLine(depth);
+      }
+      wroteAnything = true;
+    }
+
+    private void closeStartTag() throws IOException {
+      if (startTagOpen) {
+        output.append('>');
+        startTagOpen = false;
+      }
+    }
+
+    private void newLine(int indentLevel) throws IOException {
+      output.append(NEW_LINE);
+      for (int i = 0; i < indentLevel * INDENT_AMOUNT; i++) {
+        output.append(' ');
+      }
+    }
+
+    private void appendName(@Nullable String prefix, String localName) throws IOException {
+      if (prefix != null && !prefix.isEmpty()) {
+        output.append(prefix).append(':');
+      }
+      output.append(localName);
+    }
+
+    private void appendEscaped(String value) throws IOException {
+      appendEscaped(value, 0, value.length(), true);
+    }
+
+    /**
+     * Appends the characters between {@code start} and {@code end}, escaping markup. Runs of
+     * characters that need no escaping are appended in one call.
+     */
+    private void appendEscaped(CharSequence chars, int start, int end, boolean attribute)
+        throws IOException {
+      int runStart = start;
+      for (int i = start; i < end; i++) {
+        String replacement;
+        switch (chars.charAt(i)) {
+          case '&':
+            replacement = "&amp;";
+            break;
+          case '<':
+            replacement = "&lt;";
+            break;
+          case '>':
+            replacement = "&gt;";
+            break;
+          case '"':
+            replacement = attribute ? "&quot;" : null;
+            break;
+          default:
+            replacement = null;
+            break;
+        }
+        if (replacement != null) {
+          output.append(chars, runStart, i).append(replacement);
+          runStart = i + 1;
+        }
+      }
+      output.append(chars, runStart, end);
+    }
+  }
+}
@@ -15,10 +15,11 @@
 package com.google.api.ads.dfp.lib;
 
 import com.google.api.ads.common.lib.AdsModule;
+import com.google.api.ads.common.lib.utils.HttpTransportProvider;
 import com.google.api.ads.dfp.lib.client.DfpServiceClient;
 import com.google.api.ads.dfp.lib.conf.DfpConfigurationModule;
 import com.google.api.client.http.HttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.inject.Singleton;
 
 /**
  * Guice module for DFP bindings.
@@ -32,6 +33,6 @@ public class DfpModule extends AdsModule {
     super.configure();
     configureLogging(DfpServiceClient.class.getName());
     install(new DfpConfigurationModule());
-    bind(HttpTransport.class).to(NetHttpTransport.class);
+    bind(HttpTransport.class).toProvider(HttpTransportProvider.class).in(Singleton.class);
   }
 }
@@ -0,0 +1,46 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.dfp.lib;
+
+import com.google.api.ads.common.lib.soap.SoapCallListener;
+import com.google.common.base.Preconditions;
+import com.google.inject.AbstractModule;
+import com.google.inject.multibindings.OptionalBinder;
+
+/**
+ * Module to allow apps to plug in additional behavior by passing an instance of this class to the
+ * {@code withPluginModule} method of a DFP services factory.
+ */
+public class DfpPluginModule extends AbstractModule {
+
+  private final SoapCallListener soapCallListener;
+
+  /**
+   * Constructor.
+   *
+   * @param soapCallListener the listener notified of the metrics of each SOAP call
+   */
+  public DfpPluginModule(SoapCallListener soapCallListener) {
+    this.soapCallListener =
+        Preconditions.checkNotNull(soapCallListener, "Null SOAP call listener");
+  }
+
+  @Override
+  protected void configure() {
+    OptionalBinder.newOptionalBinder(binder(), SoapCallListener.class)
+        .setBinding().toInstance(soapCallListener);
+  }
+}
@@ -16,6 +16,7 @@ package com.google.api.ads.dfp.lib.client;
 
 import com.google.api.ads.common.lib.client.AdsServiceClient;
 import com.google.api.ads.common.lib.client.HeaderHandler;
+import com.google.api.ads.common.lib.soap.SoapCallListener;
 import com.google.api.ads.common.lib.soap.SoapClientHandlerInterface;
 import com.google.api.ads.common.lib.soap.SoapServiceClient;
 import com.google.api.ads.common.lib.utils.logging.AdsServiceLoggers;
@@ -40,6 +41,32 @@ public class DfpServiceClient extends AdsServiceClient<DfpSession,
    * @param dfpHeaderHandler the DFP header handler
    * @param adsServiceLoggers the ads service loggers
    */
+  public DfpServiceClient(
+      Object soapClient,
+      DfpServiceDescriptor dfpServiceDescriptor,
+      DfpSession dfpSession,
+      @SuppressWarnings("rawtypes") /* Guice binding for SoapClientHandlerInterface does not include
+                                     * the type argument T because it is bound in the SOAP
+                                     * toolkit-agnostic configuration module. Therefore, must use
+                                     * the raw type here. */
+      SoapClientHandlerInterface soapClientHandler,
+      HeaderHandler<DfpSession, DfpServiceDescriptor> dfpHeaderHandler,
+      AdsServiceLoggers adsServiceLoggers) {
+    this(soapClient, dfpServiceDescriptor, dfpSession, soapClientHandler,
+        dfpHeaderHandler, adsServiceLoggers, SoapCallListener.NO_OP);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param soapClient the SOAP client
+   * @param dfpServiceDescriptor the DFP service descriptor
+   * @param dfpSession the DFP session
+   * @param soapClientHandler the SOAP client handler
+   * @param dfpHeaderHandler the DFP header handler
+   * @param adsServiceLoggers the ads service loggers
+   * @param soapCallListener the listener notified of the metrics of each call
+   */
   @SuppressWarnings("unchecked") /* See comments on soapClientHandler argument. */
   @Inject
   public DfpServiceClient(
@@ -52,9 +79,18 @@ public class DfpServiceClient extends AdsServiceClient<DfpSession,
                                      * the raw type here. */
       SoapClientHandlerInterface soapClientHandler,
       HeaderHandler<DfpSession, DfpServiceDescriptor> dfpHeaderHandler,
-      AdsServiceLoggers adsServiceLoggers) {
+      AdsServiceLoggers adsServiceLoggers,
+      SoapCallListener soapCallListener) {
     super(soapClient, dfpSession, dfpServiceDescriptor, soapClientHandler,
-        dfpHeaderHandler, adsServiceLoggers);
+        dfpHeaderHandler, adsServiceLoggers, soapCallListener);
+  }
+
+  /**
+   * @see SoapServiceClient#getCustomerId()
+   */
+  @Override
+  protected String getCustomerId() {
+    return getAdsSession().getNetworkCode();
   }
 
   /**
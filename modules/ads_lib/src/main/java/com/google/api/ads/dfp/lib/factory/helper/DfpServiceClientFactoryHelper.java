@@ -15,6 +15,7 @@
 package com.google.api.ads.dfp.lib.factory.helper;
 
 import com.google.api.ads.common.lib.conf.AdsLibConfiguration;
+import com.google.api.ads.common.lib.exception.ServiceException;
 import com.google.api.ads.common.lib.factory.FactoryModule.AdsServiceClientFactoryInterface;
 import com.google.api.ads.common.lib.factory.FactoryModule.AdsServiceDescriptorFactoryInterface;
 import com.google.api.ads.common.lib.factory.helper.AdsServiceClientFactoryHelper;
@@ -66,6 +67,21 @@ public class DfpServiceClientFactoryHelper extends
     this.adsLibConfiguration = adsLibConfiguration;
   }
 
+  /**
+   * Creates the service client and sizes its SOAP client pool according to
+   * {@link AdsLibConfiguration#getSoapClientPoolSize()}.
+   *
+   * @see AdsServiceClientFactoryHelper#createAdsServiceClient
+   */
+  @Override
+  public DfpServiceClient createAdsServiceClient(
+      DfpServiceDescriptor dfpServiceDescriptor, DfpSession dfpSession) throws ServiceException {
+    DfpServiceClient dfpServiceClient =
+        super.createAdsServiceClient(dfpServiceDescriptor, dfpSession);
+    dfpServiceClient.setSoapClientPoolSize(adsLibConfiguration.getSoapClientPoolSize());
+    return dfpServiceClient;
+  }
+
   /**
    * @see AdsServiceClientFactoryHelper#determineVersion(Class)
    */
@@ -14,15 +14,19 @@
 
 package com.google.api.ads.adwords.lib.factory;
 
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 
 import com.google.api.ads.adwords.lib.client.AdWordsSession;
 import com.google.api.ads.adwords.lib.utils.SessionUtility;
+import com.google.api.ads.adwords.lib.utils.testing.GenericAdWordsServices;
 import com.google.api.client.http.HttpTransport;
 import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.inject.AbstractModule;
-import com.google.inject.Guice;
-import com.google.inject.Module;
+import com.google.common.base.Ticker;
+import com.google.inject.Injector;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Rule;
@@ -31,6 +35,7 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 /**
@@ -45,17 +50,14 @@ public class DependencyBootstrapperImplTest {
 
   @Mock private AdWordsSession session;
 
+  /** An injector with the bindings of the AdWords library, which session modules depend on. */
+  private Injector injector;
+
   @Before
   public void setUp() {
     MockitoAnnotations.initMocks(this);
-    Module testModule =
-        new AbstractModule() {
-          @Override
-          protected void configure() {
-            bind(HttpTransport.class).to(NetHttpTransport.class);
-          }
-        };
-    bootstrapper = new DependencyBootstrapperImpl(Guice.createInjector(testModule));
+    injector = ((BaseAdWordsServices) new GenericAdWordsServices()).injector;
+    bootstrapper = new DependencyBootstrapperImpl(injector);
   }
 
   /**
@@ -68,6 +70,45 @@ public class DependencyBootstrapperImplTest {
     assertThat(httpTransport, Matchers.instanceOf(NetHttpTransport.class));
   }
 
+  /**
+   * Tests that the child injector for a session is reused, and not shared with other sessions.
+   */
+  @Test
+  public void testGetInstanceOf_reusesChildInjector() {
+    Injector childInjector = bootstrapper.getInstanceOf(session, Injector.class);
+    assertSame("Child injector should be reused for the same session", childInjector,
+        bootstrapper.getInstanceOf(session, Injector.class));
+    assertSame("Child injector should bind the session", session,
+        childInjector.getInstance(AdWordsSession.class));
+
+    AdWordsSession otherSession = Mockito.mock(AdWordsSession.class);
+    assertNotSame("Child injector should not be shared between sessions", childInjector,
+        bootstrapper.getInstanceOf(otherSession, Injector.class));
+  }
+
+  /**
+   * Tests that the child injector of a session that has not been used for a while is discarded.
+   */
+  @Test
+  public void testGetInstanceOf_expiresChildInjector() {
+    final AtomicLong nanos = new AtomicLong();
+    bootstrapper = new DependencyBootstrapperImpl(injector, new Ticker() {
+      @Override
+      public long read() {
+        return nanos.get();
+      }
+    });
+    Injector childInjector = bootstrapper.getInstanceOf(session, Injector.class);
+
+    nanos.addAndGet(TimeUnit.MINUTES.toNanos(DependencyBootstrapperImpl.CACHE_EXPIRY_MINUTES - 1));
+    assertSame("Child injector should be reused before it expires", childInjector,
+        bootstrapper.getInstanceOf(session, Injector.class));
+
+    nanos.addAndGet(TimeUnit.MINUTES.toNanos(DependencyBootstrapperImpl.CACHE_EXPIRY_MINUTES));
+    assertNotSame("Child injector should be discarded after it expires", childInjector,
+        bootstrapper.getInstanceOf(session, Injector.class));
+  }
+
   /**
    * Tests that the bootstrapper fails to retrieve an instance of a type that is annotated with
    * {@link SessionUtility}.
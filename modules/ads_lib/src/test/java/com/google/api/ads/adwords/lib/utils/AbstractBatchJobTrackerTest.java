@@ -0,0 +1,358 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.adwords.lib.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Tests for {@link AbstractBatchJobTracker}.
+ */
+@RunWith(JUnit4.class)
+public class AbstractBatchJobTrackerTest {
+
+  private static final long MIN_DELAY_SECONDS = 10;
+  private static final long MAX_DELAY_SECONDS = 300;
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Mock
+  private ScheduledExecutorService scheduler;
+
+  @Mock
+  private ScheduledFuture<?> scheduledPoll;
+
+  private FakeTicker ticker;
+  private TestTracker tracker;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    Mockito.<ScheduledFuture<?>>when(
+            scheduler.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+        .thenReturn(scheduledPoll);
+    ticker = new FakeTicker();
+    tracker = new TestTracker(scheduler, ticker);
+  }
+
+  /**
+   * Tests that all due jobs are polled with a single request, and only finished jobs complete.
+   */
+  @Test
+  public void testPoll_singleRequest() throws Exception {
+    ListenableFuture<TestBatchJob> future1 = tracker.track(1L);
+    ListenableFuture<TestBatchJob> future2 = tracker.track(2L);
+    ListenableFuture<TestBatchJob> future3 = tracker.track(3L);
+    assertSame("tracking a job again should return the same future", future1, tracker.track(1L));
+    TestBatchJob finishedJob = tracker.setBatchJob(1L, true, 100);
+    tracker.setBatchJob(2L, false, 10);
+    tracker.setBatchJob(3L, false, null);
+    verify(scheduler).schedule(
+        any(Runnable.class), eq(TimeUnit.SECONDS.toNanos(MIN_DELAY_SECONDS)),
+        eq(TimeUnit.NANOSECONDS));
+
+    ticker.advance(MIN_DELAY_SECONDS, TimeUnit.SECONDS);
+    runLastScheduledPoll();
+
+    assertEquals("jobs should be polled with one request",
+        Arrays.asList(Arrays.asList(1L, 2L, 3L)), tracker.requests);
+    assertEquals("poll count is incorrect", 1, tracker.getPollCount());
+    assertSame("finished job should complete its future", finishedJob, future1.get());
+    assertFalse("unfinished job should not complete its future", future2.isDone());
+    assertFalse("unfinished job should not complete its future", future3.isDone());
+    assertEquals("tracked job count is incorrect", 2, tracker.getTrackedJobCount());
+  }
+
+  /**
+   * Tests that the delay of a job without progress doubles up to the maximum delay.
+   */
+  @Test
+  public void testPoll_backsOffWithoutProgress() {
+    tracker.track(1L);
+    tracker.setBatchJob(1L, false, 0);
+    long delaySeconds = MIN_DELAY_SECONDS;
+    for (long expectedDelaySeconds : new long[] {20, 40, 80, 160, 300, 300}) {
+      ticker.advance(delaySeconds, TimeUnit.SECONDS);
+      runLastScheduledPoll();
+      delaySeconds = getLastScheduledDelaySeconds();
+      assertEquals("delay is incorrect", expectedDelaySeconds, delaySeconds);
+    }
+    assertEquals("poll count is incorrect", 6, tracker.getPollCount());
+  }
+
+  /**
+   * Tests that a job making progress is next polled when it is expected to finish.
+   */
+  @Test
+  public void testPoll_progressShortensDelay() {
+    tracker.track(1L);
+    tracker.setBatchJob(1L, false, 10);
+    ticker.advance(MIN_DELAY_SECONDS, TimeUnit.SECONDS);
+    runLastScheduledPoll();
+    assertEquals("delay without a rate should double", 20, getLastScheduledDelaySeconds());
+
+    // 40% more in 20 seconds, so the remaining 50% should take 25 seconds, more than twice the
+    // previous delay.
+    tracker.setBatchJob(1L, false, 50);
+    ticker.advance(20, TimeUnit.SECONDS);
+    runLastScheduledPoll();
+    assertEquals("delay should be at most twice the previous delay", 25,
+        getLastScheduledDelaySeconds());
+
+    // 40% more in 25 seconds, so the remaining 10% should take 6.25 seconds, which is less than
+    // the minimum delay.
+    tracker.setBatchJob(1L, false, 90);
+    ticker.advance(25, TimeUnit.SECONDS);
+    runLastScheduledPoll();
+    assertEquals("delay should be at least the minimum delay", MIN_DELAY_SECONDS,
+        getLastScheduledDelaySeconds());
+  }
+
+  /**
+   * Tests that jobs due within half of their delay join the poll of another job.
+   */
+  @Test
+  public void testPoll_coalescesJobs() {
+    tracker.track(1L);
+    tracker.setBatchJob(1L, false, 0);
+    ticker.advance(MIN_DELAY_SECONDS, TimeUnit.SECONDS);
+    runLastScheduledPoll();
+    ticker.advance(8, TimeUnit.SECONDS);
+    tracker.track(2L);
+    tracker.setBatchJob(2L, false, 0);
+
+    // Job 1 is due in 12 seconds, within half of its 20 second delay.
+    ticker.advance(MIN_DELAY_SECONDS, TimeUnit.SECONDS);
+    runLastScheduledPoll();
+    assertEquals("jobs should be polled together", Arrays.asList(1L, 2L),
+        tracker.requests.get(1));
+    assertEquals("poll count is incorrect", 2, tracker.getPollCount());
+  }
+
+  @Test
+  public void testPoll_notDue() {
+    tracker.track(1L);
+    ticker.advance(MIN_DELAY_SECONDS / 2 - 1, TimeUnit.SECONDS);
+    runLastScheduledPoll();
+    assertEquals("job should not be polled before it is due", 0, tracker.getPollCount());
+  }
+
+  @Test
+  public void testPoll_jobNotFound() throws Exception {
+    ListenableFuture<TestBatchJob> future = tracker.track(1L);
+    ticker.advance(MIN_DELAY_SECONDS, TimeUnit.SECONDS);
+    runLastScheduledPoll();
+    thrown.expect(ExecutionException.class);
+    thrown.expectMessage("not found");
+    future.get();
+  }
+
+  /**
+   * Tests that a job's future fails only after several consecutive failed polls.
+   */
+  @Test
+  public void testPoll_failures() throws Exception {
+    ListenableFuture<TestBatchJob> future = tracker.track(1L);
+    tracker.failure = new IllegalStateException("mock failure");
+    for (int i = 0; i < AbstractBatchJobTracker.MAX_FAILED_POLLS; i++) {
+      assertFalse("job should not fail after " + i + " failed polls", future.isDone());
+      ticker.advance(MAX_DELAY_SECONDS, TimeUnit.SECONDS);
+      runLastScheduledPoll();
+    }
+    try {
+      future.get();
+      fail("job should fail");
+    } catch (ExecutionException e) {
+      assertTrue("cause is incorrect", e.getCause() instanceof BatchJobException);
+      assertSame("poll failure is incorrect", tracker.failure, e.getCause().getCause());
+    }
+    assertEquals("job should not be tracked", 0, tracker.getTrackedJobCount());
+  }
+
+  /**
+   * Tests that a poll that is replaced by an earlier one while it is running does not schedule
+   * another poll.
+   */
+  @Test
+  public void testPoll_replacedWhileRunning() {
+    tracker.track(1L);
+    tracker.setBatchJob(1L, false, 0);
+    ticker.advance(MIN_DELAY_SECONDS, TimeUnit.SECONDS);
+    runLastScheduledPoll();
+    Runnable replacedPoll = getLastScheduledPoll();
+
+    // Job 2 is due before the scheduled poll of job 1, which is replaced but already running.
+    ticker.advance(5, TimeUnit.SECONDS);
+    tracker.track(2L);
+    tracker.setBatchJob(2L, false, 0);
+    verify(scheduledPoll).cancel(false);
+    replacedPoll.run();
+    verify(scheduler, times(3)).schedule(
+        any(Runnable.class), anyLong(), eq(TimeUnit.NANOSECONDS));
+
+    ticker.advance(MIN_DELAY_SECONDS, TimeUnit.SECONDS);
+    runLastScheduledPoll();
+    assertEquals("jobs should be polled together", Arrays.asList(1L, 2L),
+        tracker.requests.get(1));
+    verify(scheduler, times(4)).schedule(
+        any(Runnable.class), anyLong(), eq(TimeUnit.NANOSECONDS));
+  }
+
+  @Test
+  public void testTrack_cancelled() {
+    tracker.track(1L).cancel(false);
+    ticker.advance(MIN_DELAY_SECONDS, TimeUnit.SECONDS);
+    runLastScheduledPoll();
+    assertEquals("cancelled job should not be polled", 0, tracker.getPollCount());
+  }
+
+  @Test
+  public void testClose() {
+    ListenableFuture<TestBatchJob> future = tracker.track(1L);
+    tracker.close();
+    assertTrue("future should be cancelled", future.isCancelled());
+    verify(scheduledPoll).cancel(false);
+    thrown.expect(IllegalStateException.class);
+    tracker.track(2L);
+  }
+
+  /**
+   * Runs the poll that was scheduled last, as the scheduler would.
+   */
+  private void runLastScheduledPoll() {
+    getLastScheduledPoll().run();
+  }
+
+  private Runnable getLastScheduledPoll() {
+    ArgumentCaptor<Runnable> poll = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler, atLeastOnce()).schedule(
+        poll.capture(), anyLong(), eq(TimeUnit.NANOSECONDS));
+    return poll.getValue();
+  }
+
+  private long getLastScheduledDelaySeconds() {
+    ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+    verify(scheduler, atLeastOnce()).schedule(
+        any(Runnable.class), delay.capture(), eq(TimeUnit.NANOSECONDS));
+    return TimeUnit.NANOSECONDS.toSeconds(delay.getValue());
+  }
+
+  /** Batch job with only the fields the tracker needs. */
+  private static final class TestBatchJob {
+    private final long id;
+    private final boolean isFinished;
+    private final Integer percentExecuted;
+
+    TestBatchJob(long id, boolean isFinished, Integer percentExecuted) {
+      this.id = id;
+      this.isFinished = isFinished;
+      this.percentExecuted = percentExecuted;
+    }
+  }
+
+  /** Tracker that returns jobs set by the test and records its requests. */
+  private static final class TestTracker extends AbstractBatchJobTracker<TestBatchJob> {
+    private final Map<Long, TestBatchJob> batchJobs = new HashMap<Long, TestBatchJob>();
+    private final List<List<Long>> requests = new ArrayList<List<Long>>();
+    private RuntimeException failure;
+
+    TestTracker(ScheduledExecutorService scheduler, Ticker ticker) {
+      super(MIN_DELAY_SECONDS, MAX_DELAY_SECONDS, TimeUnit.SECONDS, scheduler, ticker);
+    }
+
+    TestBatchJob setBatchJob(long id, boolean isFinished, Integer percentExecuted) {
+      TestBatchJob batchJob = new TestBatchJob(id, isFinished, percentExecuted);
+      batchJobs.put(id, batchJob);
+      return batchJob;
+    }
+
+    @Override
+    protected List<TestBatchJob> getBatchJobs(List<Long> batchJobIds) {
+      requests.add(batchJobIds);
+      if (failure != null) {
+        throw failure;
+      }
+      List<TestBatchJob> result = new ArrayList<TestBatchJob>();
+      for (Long id : batchJobIds) {
+        if (batchJobs.containsKey(id)) {
+          result.add(batchJobs.get(id));
+        }
+      }
+      return result;
+    }
+
+    @Override
+    protected long getId(TestBatchJob batchJob) {
+      return batchJob.id;
+    }
+
+    @Override
+    protected boolean isFinished(TestBatchJob batchJob) {
+      return batchJob.isFinished;
+    }
+
+    @Override
+    protected Integer getEstimatedPercentExecuted(TestBatchJob batchJob) {
+      return batchJob.percentExecuted;
+    }
+  }
+
+  /** Ticker that only advances when told to. */
+  private static final class FakeTicker extends Ticker {
+    private long nanos = TimeUnit.DAYS.toNanos(17000);
+
+    void advance(long duration, TimeUnit unit) {
+      nanos += unit.toNanos(duration);
+    }
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+  }
+}
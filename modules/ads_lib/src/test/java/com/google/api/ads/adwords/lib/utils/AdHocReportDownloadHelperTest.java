@@ -18,7 +18,10 @@ import static com.google.api.ads.adwords.lib.utils.AdHocReportDownloadHelperInte
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
 import com.google.api.ads.adwords.lib.client.AdWordsSession;
@@ -35,14 +38,18 @@ import com.google.common.collect.Lists;
 import com.google.common.io.ByteSource;
 import com.google.common.io.ByteStreams;
 import com.google.common.net.UrlEscapers;
+import com.google.inject.Inject;
+import java.io.File;
 import java.io.InputStream;
 import java.net.ConnectException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
@@ -66,6 +73,7 @@ public class AdHocReportDownloadHelperTest extends MockHttpIntegrationTest {
           + "</reportDownloadError>";
 
   private final boolean isTestRawDownload;
+  private AdWordsSession session;
   private AdHocReportDownloadHelper helper;
   private GoogleCredential credential;
   private Builder exceptionBuilder;
@@ -76,6 +84,9 @@ public class AdHocReportDownloadHelperTest extends MockHttpIntegrationTest {
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   /** Enum of download format that's not version-specific */
   enum TestDownloadFormat {
     CSV
@@ -106,7 +117,7 @@ public class AdHocReportDownloadHelperTest extends MockHttpIntegrationTest {
         .setJsonFactory(new JacksonFactory()).build();
     credential.setAccessToken("TEST_ACCESS_TOKEN");
 
-    AdWordsSession session = new AdWordsSession.Builder()
+    session = new AdWordsSession.Builder()
         .withUserAgent("TEST_APP")
         .withOAuth2Credential(credential)
         .withEndpoint(testHttpServer.getServerUrl())
@@ -159,6 +170,50 @@ public class AdHocReportDownloadHelperTest extends MockHttpIntegrationTest {
         AdWordsInternals.getInstance().getAdWordsLibConfiguration().getReportDownloadTimeout());
   }
 
+  /**
+   * Tests that the report downloaders of a session share one request factory helper, whether
+   * they come from the bootstrapper or from {@code getUtility}, but keep their own timeouts.
+   */
+  @Test
+  public void testRequestFactoryHelperSharedBySession() throws Exception {
+    GenericAdWordsServices adWordsServices = new GenericAdWordsServices();
+    AdHocReportDownloadHelper first =
+        adWordsServices.getBootstrapper().getInstanceOf(session, AdHocReportDownloadHelper.class);
+    AdHocReportDownloadHelper second =
+        adWordsServices.getBootstrapper().getInstanceOf(session, AdHocReportDownloadHelper.class);
+    assertNotSame(first, second);
+    assertSame("Downloaders of a session should share the request factory helper",
+        first.getReportRequestFactoryHelper(), second.getReportRequestFactoryHelper());
+    ReportDownloaderUtility utility =
+        adWordsServices.getUtility(session, ReportDownloaderUtility.class);
+    assertSame("Session utilities should share the request factory helper",
+        first.getReportRequestFactoryHelper(),
+        utility.helper.getReportRequestFactoryHelper());
+
+    AdWordsSession otherSession = session.newBuilder().build();
+    assertNotSame("Sessions should not share a request factory helper",
+        first.getReportRequestFactoryHelper(),
+        adWordsServices.getBootstrapper()
+            .getInstanceOf(otherSession, AdHocReportDownloadHelper.class)
+            .getReportRequestFactoryHelper());
+
+    int timeout = second.getReportDownloadTimeout();
+    first.setReportDownloadTimeout(timeout + 10);
+    assertEquals("Setting the timeout of one downloader should not affect another",
+        timeout, second.getReportDownloadTimeout());
+  }
+
+  /** Session utility that depends on a report download helper, like the report downloaders. */
+  @SessionUtility
+  static class ReportDownloaderUtility {
+    private final AdHocReportDownloadHelper helper;
+
+    @Inject
+    ReportDownloaderUtility(AdHocReportDownloadHelper helper) {
+      this.helper = helper;
+    }
+  }
+
   /**
    * Helper method that invokes the correct overload of
    * {@code AdHocReportDownloadHelper.downloadReport} based on this test's {@code isTestRawDownload}
@@ -370,6 +425,58 @@ public class AdHocReportDownloadHelperTest extends MockHttpIntegrationTest {
     assertThat("format parameter incorrect", lastRequestBody, containsString("__fmt=CSV"));
   }
   
+  /**
+   * Tests that a repeated download is served from the report download cache.
+   */
+  @Test
+  public void testDownloadReportWithCache() throws Exception {
+    when(reportRequest.getRequestType()).thenReturn(RequestType.AWQL);
+    when(reportRequest.getReportRequestString())
+        .thenReturn("SELECT CampaignId FROM CAMPAIGN_PERFORMANCE_REPORT DURING THIS_MONTH");
+    testHttpServer.setMockResponseBody("test");
+    ReportDownloadCache cache =
+        new ReportDownloadCache(temporaryFolder.getRoot(), 1024 * 1024, 1, TimeUnit.HOURS);
+    helper.setReportDownloadCache(cache);
+    int requestCount = testHttpServer.getAllRequestBodies().size();
+
+    for (int i = 0; i < 2; i++) {
+      InputStream inputStream = isTestRawDownload
+          ? helper.downloadReport(reportRequest).getInputStream()
+          : helper.downloadReport(reportRequest, exceptionBuilder).getInputStream();
+      assertEquals(
+          "Response contents incorrect", "test", Streams.readAll(inputStream, REPORT_CHARSET));
+    }
+
+    assertEquals("Cached report should not be downloaded again", requestCount + 1,
+        testHttpServer.getAllRequestBodies().size());
+    assertEquals("Hit count incorrect", 1, cache.getHitCount());
+  }
+
+  /**
+   * Tests that a report that cannot be written to the cache is still returned.
+   */
+  @Test
+  public void testDownloadReportWithCache_writeFails() throws Exception {
+    when(reportRequest.getRequestType()).thenReturn(RequestType.AWQL);
+    when(reportRequest.getReportRequestString())
+        .thenReturn("SELECT CampaignId FROM CAMPAIGN_PERFORMANCE_REPORT DURING THIS_MONTH");
+    testHttpServer.setMockResponseBodies(Lists.newArrayList("test", "test"));
+    File directory = temporaryFolder.newFolder();
+    ReportDownloadCache cache = new ReportDownloadCache(directory, 1024 * 1024, 1, TimeUnit.HOURS);
+    helper.setReportDownloadCache(cache);
+    assertTrue("cache directory should be deleted", directory.delete());
+    int requestCount = testHttpServer.getAllRequestBodies().size();
+
+    InputStream inputStream = isTestRawDownload
+        ? helper.downloadReport(reportRequest).getInputStream()
+        : helper.downloadReport(reportRequest, exceptionBuilder).getInputStream();
+    assertEquals(
+        "Response contents incorrect", "test", Streams.readAll(inputStream, REPORT_CHARSET));
+    assertEquals("Report should be downloaded again uncached", requestCount + 2,
+        testHttpServer.getAllRequestBodies().size());
+    assertEquals("Report should not be cached", 0, cache.getEntryCount());
+  }
+
   @Test
   public void testHandleSuccessfulResponse() throws Exception {
     String responseBody = "Successful,report,response";
@@ -0,0 +1,142 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link BatchJobMutateResultReader}.
+ */
+@RunWith(JUnit4.class)
+public class BatchJobMutateResultReaderTest {
+
+  private static final String NAMESPACE = "https://adwords.google.com/api/adwords/cm/v201705";
+  private static final String RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<mutateResponse xmlns=\"" + NAMESPACE + "\""
+      + " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">\n"
+      + "  <rval><result><Campaign><id>1</id></Campaign></result><index>0</index></rval>\n"
+      + "  <!-- comment -->\n"
+      + "  <rval><result xsi:type=\"X\"><Campaign><id>2</id></Campaign></result>"
+      + "<index>1</index></rval>\n"
+      + "  <rval><index>2</index></rval>\n"
+      + "</mutateResponse>";
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void testUnmarshalResult() throws IOException, JAXBException {
+    Unmarshaller unmarshaller = JAXBContext.newInstance(TestResult.class).createUnmarshaller();
+    try (BatchJobMutateResultReader reader = open(RESPONSE)) {
+      for (int i = 0; i < 3; i++) {
+        assertTrue("reader should be on a result", reader.nextResult());
+        assertEquals("index is incorrect", i,
+            reader.unmarshalResult(unmarshaller, TestResult.class).index);
+      }
+      assertFalse("reader should be past the last result", reader.nextResult());
+      assertFalse("reader should stay past the last result", reader.nextResult());
+    }
+  }
+
+  /**
+   * Tests that results that are not read are skipped.
+   */
+  @Test
+  public void testNextResult_skipsUnreadResults() throws IOException, JAXBException {
+    Unmarshaller unmarshaller = JAXBContext.newInstance(TestResult.class).createUnmarshaller();
+    try (BatchJobMutateResultReader reader = open(RESPONSE)) {
+      assertTrue("reader should be on a result", reader.nextResult());
+      assertTrue("reader should be on a result", reader.nextResult());
+      assertTrue("reader should be on a result", reader.nextResult());
+      assertEquals("index is incorrect", 2,
+          reader.unmarshalResult(unmarshaller, TestResult.class).index);
+      assertFalse("reader should be past the last result", reader.nextResult());
+    }
+  }
+
+  /**
+   * Tests that a copied result declares the root's namespaces so it can be parsed on its own.
+   */
+  @Test
+  public void testCopyResult() throws IOException {
+    try (BatchJobMutateResultReader reader = open(RESPONSE)) {
+      reader.nextResult();
+      reader.nextResult();
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      reader.copyResult(outputStream);
+      assertEquals("copied result is incorrect",
+          "<rval xmlns=\"" + NAMESPACE + "\""
+              + " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">"
+              + "<result xsi:type=\"X\"><Campaign><id>2</id></Campaign></result>"
+              + "<index>1</index></rval>",
+          new String(outputStream.toByteArray(), UTF_8));
+      assertTrue("reader should be on the next result", reader.nextResult());
+      assertFalse("reader should be past the last result", reader.nextResult());
+    }
+  }
+
+  @Test
+  public void testNextResult_emptyResponse() throws IOException {
+    try (BatchJobMutateResultReader reader =
+        open("<mutateResponse xmlns=\"" + NAMESPACE + "\"></mutateResponse>")) {
+      assertFalse("empty response should have no results", reader.nextResult());
+    }
+  }
+
+  @Test
+  public void testOpen_emptyFile() throws IOException {
+    thrown.expect(IOException.class);
+    open("");
+  }
+
+  @Test
+  public void testCopyResult_notOnResult() throws IOException {
+    try (BatchJobMutateResultReader reader = open(RESPONSE)) {
+      thrown.expect(IllegalStateException.class);
+      reader.copyResult(new ByteArrayOutputStream());
+    }
+  }
+
+  private static BatchJobMutateResultReader open(String response) throws IOException {
+    return BatchJobMutateResultReader.open(new ByteArrayInputStream(response.getBytes(UTF_8)));
+  }
+
+  /** Minimal JAXB type for a result. */
+  @XmlAccessorType(XmlAccessType.FIELD)
+  @XmlType(name = "MutateResult", namespace = NAMESPACE)
+  static class TestResult {
+    @XmlElement(namespace = NAMESPACE)
+    int index;
+  }
+}
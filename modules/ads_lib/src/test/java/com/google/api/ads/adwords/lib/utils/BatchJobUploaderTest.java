@@ -17,8 +17,12 @@ package com.google.api.ads.adwords.lib.utils;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.api.ads.adwords.lib.client.AdWordsSession;
@@ -32,18 +36,23 @@ import com.google.api.client.testing.http.MockHttpTransport;
 import com.google.api.client.testing.http.MockLowLevelHttpRequest;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Arrays;
 import java.util.List;
 import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 /**
  * Tests for {@link BatchJobUploader}.
@@ -58,6 +67,9 @@ public class BatchJobUploaderTest {
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @SuppressWarnings("rawtypes")
   private BatchJobUploader uploader;
   
@@ -260,6 +272,263 @@ public class BatchJobUploaderTest {
         actualStatus.getResumableUploadUri());
   }
   
+  /**
+   * Tests that a streamed upload keeps only the first start element and the last end element, and
+   * uploads full chunks followed by a padded last chunk.
+   */
+  @Test
+  public void testStreamBatchJobOperations() throws Exception {
+    BatchJobUploadStatus status =
+        new BatchJobUploadStatus(0, URI.create(mockHttpServer.getServerUrl()));
+    String startElement = "<mutate xmlns=\"https://adwords.google.com/api/adwords/cm/v209912\">";
+    List<String> operations = Lists.newArrayList(
+        Strings.repeat("a", 150000), Strings.repeat("b", 150000), Strings.repeat("c", 150000));
+    List<BatchJobMutateRequestInterface> requests = Lists.newArrayList();
+    for (int i = 0; i < operations.size(); i++) {
+      BatchJobMutateRequestInterface streamedRequest =
+          i == 0 ? request : mock(BatchJobMutateRequestInterface.class);
+      when(uploadBodyProvider.getHttpContent(streamedRequest, i == 0, false))
+          .thenReturn(new ByteArrayContent(
+              null, (startElement + operations.get(i) + "</mutate>").getBytes(UTF_8)));
+      requests.add(streamedRequest);
+    }
+    mockHttpServer.setMockResponses(Arrays.asList(new MockResponse("ignore"),
+        new MockResponse("", 308), new MockResponse("testUploadResponse")));
+
+    BatchJobUploadResponse response = uploader.streamBatchJobOperations(requests.iterator(),
+        status, BatchJobUploader.REQUIRED_CONTENT_LENGTH_INCREMENT, 3);
+
+    int increment = BatchJobUploader.REQUIRED_CONTENT_LENGTH_INCREMENT;
+    String expectedContents = Strings.padEnd(
+        startElement + operations.get(0) + operations.get(1) + operations.get(2) + "</mutate>",
+        2 * increment, ' ');
+    assertEquals("Should have made three requests", 3, mockHttpServer.getAllResponses().size());
+    String firstChunk = mockHttpServer.getAllResponses().get(1).getRequestBody();
+    String lastChunk = mockHttpServer.getAllResponses().get(2).getRequestBody();
+    assertEquals("Contents are incorrect", expectedContents, firstChunk + lastChunk);
+    assertEquals("First chunk content range is incorrect",
+        Arrays.asList("bytes 0-262143/*"),
+        mockHttpServer.getAllResponses().get(1).getRequestHeader("content-range"));
+    assertEquals("Last chunk content range is incorrect",
+        Arrays.asList("bytes 262144-524287/524288"),
+        mockHttpServer.getAllResponses().get(2).getRequestHeader("content-range"));
+    assertEquals("Last request should have succeeded", 200, response.getHttpStatus());
+    assertEquals("Status total content length is incorrect", 2 * increment,
+        response.getBatchJobUploadStatus().getTotalContentLength());
+  }
+
+  /**
+   * Tests that a chunk that is exactly full is not uploaded as the last request, since the end
+   * element still follows it.
+   */
+  @Test
+  public void testStreamBatchJobOperations_fullChunk() throws Exception {
+    BatchJobUploadStatus status =
+        new BatchJobUploadStatus(0, URI.create(mockHttpServer.getServerUrl()));
+    int increment = BatchJobUploader.REQUIRED_CONTENT_LENGTH_INCREMENT;
+    String operation = Strings.repeat("a", increment - "<mutate>".length());
+    when(uploadBodyProvider.getHttpContent(request, true, false))
+        .thenReturn(new ByteArrayContent(
+            null, ("<mutate>" + operation + "</mutate>").getBytes(UTF_8)));
+    mockHttpServer.setMockResponses(Arrays.asList(new MockResponse("ignore"),
+        new MockResponse("", 308), new MockResponse("testUploadResponse")));
+
+    uploader.streamBatchJobOperations(Arrays.asList(request).iterator(), status, increment, 1);
+
+    assertEquals("Should have made three requests", 3, mockHttpServer.getAllResponses().size());
+    assertEquals("First chunk is incorrect", "<mutate>" + operation,
+        mockHttpServer.getAllResponses().get(1).getRequestBody());
+    assertEquals("Last chunk is incorrect", Strings.padEnd("</mutate>", increment, ' '),
+        mockHttpServer.getAllResponses().get(2).getRequestBody());
+    assertEquals("Last chunk content range is incorrect",
+        Arrays.asList("bytes 262144-524287/524288"),
+        mockHttpServer.getAllResponses().get(2).getRequestHeader("content-range"));
+  }
+
+  /**
+   * Tests that requests serialized in parallel are uploaded in order, even if later requests
+   * finish serializing first.
+   */
+  @Test
+  public void testStreamBatchJobOperations_parallelSerializationKeepsOrder() throws Exception {
+    List<BatchJobMutateRequestInterface> requests = Lists.newArrayList();
+    StringBuilder expectedContents = new StringBuilder("<mutate>");
+    for (int i = 0; i < 40; i++) {
+      BatchJobMutateRequestInterface streamedRequest =
+          i == 0 ? request : mock(BatchJobMutateRequestInterface.class);
+      final byte[] serializedRequest = ("<mutate>" + i + ";</mutate>").getBytes(UTF_8);
+      final long delayMillis = (40 - i) % 4;
+      when(uploadBodyProvider.getHttpContent(streamedRequest, i == 0, false))
+          .thenAnswer(new Answer<ByteArrayContent>() {
+            @Override
+            public ByteArrayContent answer(InvocationOnMock invocation) throws Throwable {
+              Thread.sleep(delayMillis);
+              return new ByteArrayContent(null, serializedRequest);
+            }
+          });
+      requests.add(streamedRequest);
+      expectedContents.append(i).append(';');
+    }
+    expectedContents.append("</mutate>");
+    mockHttpServer.setMockResponses(
+        Arrays.asList(new MockResponse("ignore"), new MockResponse("testUploadResponse")));
+
+    uploader.streamBatchJobOperations(requests.iterator(),
+        new BatchJobUploadStatus(0, URI.create(mockHttpServer.getServerUrl())),
+        BatchJobUploader.REQUIRED_CONTENT_LENGTH_INCREMENT, 4);
+
+    assertEquals("Contents are incorrect",
+        Strings.padEnd(expectedContents.toString(),
+            BatchJobUploader.REQUIRED_CONTENT_LENGTH_INCREMENT, ' '),
+        mockHttpServer.getLastResponse().getRequestBody());
+  }
+
+  /**
+   * Tests that a failure to serialize a request stops the upload with the same exception.
+   */
+  @Test
+  public void testStreamBatchJobOperations_serializationFails() throws Exception {
+    BatchJobException serializationException = new BatchJobException("mock failure");
+    when(uploadBodyProvider.getHttpContent(request, true, false))
+        .thenThrow(serializationException);
+    mockHttpServer.setMockResponse(new MockResponse("ignore"));
+    thrown.expect(Matchers.sameInstance(serializationException));
+    uploader.streamBatchJobOperations(Arrays.asList(request).iterator(),
+        new BatchJobUploadStatus(0, URI.create(mockHttpServer.getServerUrl())));
+  }
+
+  @Test
+  public void testStreamBatchJobOperations_noRequests() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    uploader.streamBatchJobOperations(
+        Lists.<BatchJobMutateRequestInterface>newArrayList().iterator(),
+        new BatchJobUploadStatus(0, URI.create(mockHttpServer.getServerUrl())));
+  }
+
+  /**
+   * Tests that an upload interrupted after a chunk was committed, but before its checkpoint was
+   * saved, resumes from the committed content without serializing the requests uploaded before
+   * the checkpoint again.
+   */
+  @Test
+  public void testStreamBatchJobOperations_checkpointed_resumes() throws Exception {
+    int increment = BatchJobUploader.REQUIRED_CONTENT_LENGTH_INCREMENT;
+    StringBuilder expectedContents = new StringBuilder();
+    List<BatchJobMutateRequestInterface> requests =
+        createStreamedRequests(12, 100000, expectedContents);
+    FakeResumableUploadTransport transport = new FakeResumableUploadTransport();
+    transport.loseResponse(2);
+    BatchJobUploadCheckpointStore checkpointStore = createCheckpointStore();
+
+    try {
+      new BatchJobUploader(adWordsSession, transport, batchJobLogger).streamBatchJobOperations(
+          requests.iterator(), FakeResumableUploadTransport.UPLOAD_URL, checkpointStore,
+          increment, 2);
+      fail("Upload should have failed");
+    } catch (BatchJobException e) {
+      assertEquals("Content of the failed request should be committed", 3 * increment,
+          transport.getContent().length);
+    }
+    // The second chunk ends in the request at index 5, which starts after the start element and
+    // five operations.
+    assertEquals("Checkpoint is incorrect",
+        new BatchJobUploadCheckpoint(FakeResumableUploadTransport.UPLOAD_URL,
+            FakeResumableUploadTransport.SESSION_URL, 2 * increment, 5, 8 + 5 * 100000),
+        checkpointStore.load());
+
+    BatchJobUploadResponse response =
+        new BatchJobUploader(adWordsSession, transport, batchJobLogger).streamBatchJobOperations(
+            requests.iterator(), FakeResumableUploadTransport.UPLOAD_URL, checkpointStore,
+            increment, 2);
+
+    assertEquals("Last request should have succeeded", 200, response.getHttpStatus());
+    assertTrue("Upload should be complete", transport.isComplete());
+    assertEquals("Contents are incorrect",
+        Strings.padEnd(expectedContents.toString(), 5 * increment, ' '),
+        new String(transport.getContent(), UTF_8));
+    assertNull("Checkpoint should be deleted", checkpointStore.load());
+    for (int i = 0; i < 5; i++) {
+      verify(uploadBodyProvider, times(1)).getHttpContent(requests.get(i), i == 0, false);
+    }
+  }
+
+  /**
+   * Tests that resuming an upload that completed before its checkpoint was deleted returns the
+   * final response without uploading any content.
+   */
+  @Test
+  public void testStreamBatchJobOperations_checkpointed_alreadyComplete() throws Exception {
+    int increment = BatchJobUploader.REQUIRED_CONTENT_LENGTH_INCREMENT;
+    List<BatchJobMutateRequestInterface> requests =
+        createStreamedRequests(3, 100000, new StringBuilder());
+    FakeResumableUploadTransport transport = new FakeResumableUploadTransport();
+    uploader = new BatchJobUploader(adWordsSession, transport, batchJobLogger);
+    BatchJobUploadCheckpointStore checkpointStore = createCheckpointStore();
+    uploader.streamBatchJobOperations(requests.iterator(),
+        FakeResumableUploadTransport.UPLOAD_URL, checkpointStore, increment, 1);
+    assertNull("Checkpoint should be deleted", checkpointStore.load());
+    assertEquals("Should have made two content requests", 2, transport.getContentRequestCount());
+
+    checkpointStore.save(new BatchJobUploadCheckpoint(FakeResumableUploadTransport.UPLOAD_URL,
+        FakeResumableUploadTransport.SESSION_URL, increment, 2, 200008));
+    BatchJobUploadResponse response = uploader.streamBatchJobOperations(requests.iterator(),
+        FakeResumableUploadTransport.UPLOAD_URL, checkpointStore, increment, 1);
+
+    assertEquals("Completed upload should have succeeded", 200, response.getHttpStatus());
+    assertEquals("Should not have uploaded content", 2, transport.getContentRequestCount());
+    assertNull("Checkpoint should be deleted", checkpointStore.load());
+  }
+
+  @Test
+  public void testStreamBatchJobOperations_checkpointForOtherJob_fails() throws Exception {
+    BatchJobUploadCheckpointStore checkpointStore = createCheckpointStore();
+    checkpointStore.save(new BatchJobUploadCheckpoint(URI.create("https://example.com/other"),
+        FakeResumableUploadTransport.SESSION_URL, 0, 0, 0));
+    uploader = new BatchJobUploader(
+        adWordsSession, new FakeResumableUploadTransport(), batchJobLogger);
+    thrown.expect(BatchJobException.class);
+    thrown.expectMessage("https://example.com/other");
+    uploader.streamBatchJobOperations(Arrays.asList(request).iterator(),
+        FakeResumableUploadTransport.UPLOAD_URL, checkpointStore);
+  }
+
+  @Test
+  public void testGetCommittedLength() throws Exception {
+    assertEquals(0, BatchJobUploader.getCommittedLength(null));
+    assertEquals(262144, BatchJobUploader.getCommittedLength("bytes=0-262143"));
+    thrown.expect(BatchJobException.class);
+    BatchJobUploader.getCommittedLength("bytes=5-262143");
+  }
+
+  /**
+   * Returns requests that each serialize to a {@code mutate} element with one operation of {@code
+   * operationLength} characters, and appends the contents of their upload to {@code
+   * expectedContents}.
+   */
+  private List<BatchJobMutateRequestInterface> createStreamedRequests(int count,
+      int operationLength, StringBuilder expectedContents) throws BatchJobException {
+    List<BatchJobMutateRequestInterface> requests = Lists.newArrayList();
+    expectedContents.append("<mutate>");
+    for (int i = 0; i < count; i++) {
+      BatchJobMutateRequestInterface streamedRequest =
+          i == 0 ? request : mock(BatchJobMutateRequestInterface.class);
+      when(streamedRequest.createBatchJobUploadBodyProvider()).thenReturn(uploadBodyProvider);
+      String operation = Strings.repeat(String.valueOf((char) ('a' + i)), operationLength);
+      when(uploadBodyProvider.getHttpContent(streamedRequest, i == 0, false))
+          .thenReturn(new ByteArrayContent(
+              null, ("<mutate>" + operation + "</mutate>").getBytes(UTF_8)));
+      requests.add(streamedRequest);
+      expectedContents.append(operation);
+    }
+    expectedContents.append("</mutate>");
+    return requests;
+  }
+
+  private BatchJobUploadCheckpointStore createCheckpointStore() {
+    return new FileBatchJobUploadCheckpointStore(
+        new File(temporaryFolder.getRoot(), "checkpoint.properties"));
+  }
+
   @Test
   public void testConstructContentRangeHeaderValue_notLast_nonZeroLength_zeroPrevious() {
     BatchJobUploadStatus status = new BatchJobUploadStatus(0, null);
@@ -0,0 +1,234 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link ColumnarReportWriter} and {@link ColumnarReportReader}.
+ */
+@RunWith(JUnit4.class)
+public class ColumnarReportWriterTest {
+
+  private static final List<String> COLUMN_NAMES =
+      Arrays.asList("CampaignId", "Clicks", "Ctr", "CampaignStatus");
+  private static final List<ReportColumnType> COLUMN_TYPES = Arrays.asList(
+      ReportColumnType.LONG, ReportColumnType.INT, ReportColumnType.DOUBLE,
+      ReportColumnType.STRING);
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * Tests that rows split across row groups are read back by column.
+   */
+  @Test
+  public void testRoundTrip() throws IOException {
+    File file = temporaryFolder.newFile();
+    try (ColumnarReportWriter writer =
+        new ColumnarReportWriter(new FileOutputStream(file), COLUMN_NAMES, COLUMN_TYPES, 2)) {
+      writer.writeRow(Arrays.asList("123456789012", "10", "1.50%", "ENABLED"));
+      writer.writeRow(Arrays.asList("2", " -- ", "--", "PAUSED"));
+      writer.writeRow(Arrays.asList("3", "7", "0.25", "ENABLED"));
+      assertEquals("row count is incorrect", 3, writer.getRowCount());
+    }
+
+    try (ColumnarReportReader reader = ColumnarReportReader.open(file)) {
+      assertEquals("column names are incorrect", COLUMN_NAMES, reader.getColumnNames());
+      assertEquals("column types are incorrect", COLUMN_TYPES, reader.getColumnTypes());
+      assertEquals("row group count is incorrect", 2, reader.getRowGroupCount());
+      assertEquals("row count of first group is incorrect", 2, reader.getRowCount(0));
+      assertEquals("row count of last group is incorrect", 1, reader.getRowCount(1));
+
+      assertArrayEquals("long values are incorrect", new long[] {123456789012L, 2L},
+          reader.readLongs(0, reader.getColumnIndex("CampaignId")));
+      assertArrayEquals("int values are incorrect", new int[] {10, 0}, reader.readInts(0, 1));
+      assertArrayEquals("double values are incorrect", new double[] {1.5, 0},
+          reader.readDoubles(0, 2), 0);
+      assertArrayEquals("double values are incorrect", new double[] {0.25},
+          reader.readDoubles(1, 2), 0);
+      assertArrayEquals("string values are incorrect", new String[] {"ENABLED"},
+          reader.readStrings(1, 3));
+
+      BitSet nulls = reader.readNulls(0, 1);
+      assertFalse("non-null value is null", nulls.get(0));
+      assertTrue("-- value is not null", nulls.get(1));
+      assertTrue("values are null", reader.readNulls(1, 1).isEmpty());
+    }
+  }
+
+  /**
+   * Tests that values reported as below or above a bound are written as the bound.
+   */
+  @Test
+  public void testDoubles_bounds() throws IOException {
+    File file = temporaryFolder.newFile();
+    try (ColumnarReportWriter writer = new ColumnarReportWriter(new FileOutputStream(file),
+        Arrays.asList("SearchImpressionShare"), Arrays.asList(ReportColumnType.DOUBLE), 10)) {
+      writer.writeRow(Arrays.asList("< 10%"));
+      writer.writeRow(Arrays.asList("> 90%"));
+      writer.writeRow(Arrays.asList("45.5%"));
+    }
+
+    try (ColumnarReportReader reader = ColumnarReportReader.open(file)) {
+      assertArrayEquals("double values are incorrect", new double[] {10, 90, 45.5},
+          reader.readDoubles(0, 0), 0);
+    }
+  }
+
+  /**
+   * Tests that equal strings share a dictionary entry and nulls are preserved.
+   */
+  @Test
+  public void testStrings_dictionaryAndNulls() throws IOException {
+    File file = temporaryFolder.newFile();
+    try (ColumnarReportWriter writer = new ColumnarReportWriter(new FileOutputStream(file),
+        Arrays.asList("Status"), Arrays.asList(ReportColumnType.STRING), 100)) {
+      writer.writeRow(Arrays.asList("ENABLED"));
+      writer.writeRow(Arrays.asList((String) null));
+      writer.writeRow(Arrays.asList("--"));
+      writer.writeRow(Arrays.asList("ENABLED"));
+    }
+
+    try (ColumnarReportReader reader = ColumnarReportReader.open(file)) {
+      String[] values = reader.readStrings(0, 0);
+      assertArrayEquals("string values are incorrect",
+          new String[] {"ENABLED", null, "--", "ENABLED"}, values);
+      assertSame("equal values should share a dictionary entry", values[0], values[3]);
+      assertTrue("null value is not null", reader.readNulls(0, 0).get(1));
+    }
+  }
+
+  /**
+   * Tests that a value that does not match its column type is rejected without corrupting the
+   * rows already added.
+   */
+  @Test
+  public void testWriteRow_invalidValue() throws IOException {
+    File file = temporaryFolder.newFile();
+    try (ColumnarReportWriter writer =
+        new ColumnarReportWriter(new FileOutputStream(file), COLUMN_NAMES, COLUMN_TYPES, 10)) {
+      try {
+        writer.writeRow(Arrays.asList("--", "ten", "1", "ENABLED"));
+        fail("Invalid value should be rejected");
+      } catch (IllegalArgumentException e) {
+        assertTrue("message should name the column", e.getMessage().contains("Clicks"));
+      }
+      writer.writeRow(Arrays.asList("1", "2", "3", "ENABLED"));
+    }
+
+    try (ColumnarReportReader reader = ColumnarReportReader.open(file)) {
+      assertEquals("rejected row should not be written", 1, reader.getRowCount(0));
+      assertTrue("rejected row's nulls should be cleared", reader.readNulls(0, 0).isEmpty());
+    }
+  }
+
+  @Test
+  public void testReadColumn_wrongType() throws IOException {
+    File file = temporaryFolder.newFile();
+    new ColumnarReportWriter(new FileOutputStream(file), COLUMN_NAMES, COLUMN_TYPES, 10).close();
+
+    try (ColumnarReportReader reader = ColumnarReportReader.open(file)) {
+      assertEquals("empty report should have no row groups", 0, reader.getRowGroupCount());
+      thrown.expect(IllegalArgumentException.class);
+      reader.readInts(0, 0);
+    }
+  }
+
+  @Test
+  public void testOpen_notColumnar() throws IOException {
+    File file = temporaryFolder.newFile();
+    com.google.common.io.Files.write("a,b\n1,2\n3,4\n", file, UTF_8);
+    thrown.expect(IOException.class);
+    ColumnarReportReader.open(file);
+  }
+
+  @Test
+  public void testForFieldType() {
+    assertEquals(ReportColumnType.LONG, ReportColumnType.forFieldType("Money"));
+    assertEquals(ReportColumnType.LONG, ReportColumnType.forFieldType("Long"));
+    assertEquals(ReportColumnType.INT, ReportColumnType.forFieldType("Integer"));
+    assertEquals(ReportColumnType.DOUBLE, ReportColumnType.forFieldType("Double"));
+    assertEquals(ReportColumnType.STRING, ReportColumnType.forFieldType("CampaignStatus"));
+    assertEquals(ReportColumnType.STRING, ReportColumnType.forFieldType(null));
+  }
+
+  /**
+   * Tests converting a downloaded report, which skips the report header and summary.
+   */
+  @Test
+  public void testSaveAsColumnar() throws IOException {
+    String contents = "\"REPORT (Jan 1, 2017)\"\nCampaign ID,Clicks\n1,2\n3,4\nTotal,6\n";
+    RawReportDownloadResponse rawResponse = new RawReportDownloadResponse(HttpURLConnection.HTTP_OK,
+        new ByteArrayInputStream(contents.getBytes(UTF_8)), UTF_8, "CSV");
+    File file = temporaryFolder.newFile();
+
+    long rowCount = new ReportDownloadResponse(rawResponse).saveAsColumnar(
+        new FileOutputStream(file), Arrays.asList(ReportColumnType.LONG, ReportColumnType.INT));
+
+    assertEquals("row count is incorrect", 2, rowCount);
+    try (ColumnarReportReader reader = ColumnarReportReader.open(file)) {
+      assertEquals("column names are incorrect", Arrays.asList("Campaign ID", "Clicks"),
+          reader.getColumnNames());
+      assertArrayEquals("int values are incorrect", new int[] {2, 4}, reader.readInts(0, 1));
+    }
+  }
+
+  /**
+   * Tests that a conversion that fails part way through does not leave a readable report.
+   */
+  @Test
+  public void testSaveAsColumnar_failureWritesNoFooter() throws IOException {
+    String contents = "\"REPORT (Jan 1, 2017)\"\nCampaign ID,Clicks\n1,2\n3,four\nTotal,6\n";
+    RawReportDownloadResponse rawResponse = new RawReportDownloadResponse(HttpURLConnection.HTTP_OK,
+        new ByteArrayInputStream(contents.getBytes(UTF_8)), UTF_8, "CSV");
+    File file = temporaryFolder.newFile();
+
+    try {
+      new ReportDownloadResponse(rawResponse).saveAsColumnar(
+          new FileOutputStream(file), Arrays.asList(ReportColumnType.LONG, ReportColumnType.INT));
+      fail("Invalid value should be rejected");
+    } catch (IllegalArgumentException e) {
+      assertTrue("message should name the column", e.getMessage().contains("Clicks"));
+    }
+
+    thrown.expect(IOException.class);
+    ColumnarReportReader.open(file);
+  }
+}
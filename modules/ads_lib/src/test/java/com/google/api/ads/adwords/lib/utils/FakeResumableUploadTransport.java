@@ -0,0 +1,126 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fake of the Google Cloud Storage resumable upload protocol for a single upload, which keeps the
+ * uploaded content in memory. Requests that do not follow the protocol get a 400 response.
+ */
+final class FakeResumableUploadTransport extends MockHttpTransport {
+  static final URI UPLOAD_URL = URI.create("https://storage.example.com/batchjob");
+  static final URI SESSION_URL = URI.create(UPLOAD_URL + "?upload_id=1");
+
+  private static final Pattern CONTENT_RANGE_PATTERN =
+      Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+
+  private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+  private boolean isComplete;
+  private int contentRequestCount;
+  private int lostResponseIndex = -1;
+
+  /**
+   * Makes the content request at {@code index} fail with an {@link IOException} after its
+   * content is committed, as if the response was lost.
+   */
+  synchronized void loseResponse(int index) {
+    lostResponseIndex = index;
+  }
+
+  synchronized byte[] getContent() {
+    return content.toByteArray();
+  }
+
+  synchronized boolean isComplete() {
+    return isComplete;
+  }
+
+  /**
+   * Returns the number of requests that uploaded content.
+   */
+  synchronized int getContentRequestCount() {
+    return contentRequestCount;
+  }
+
+  @Override
+  public LowLevelHttpRequest buildRequest(final String method, final String url) {
+    return new MockLowLevelHttpRequest(url) {
+      @Override
+      public LowLevelHttpResponse execute() throws IOException {
+        return handleRequest(method, url, this);
+      }
+    };
+  }
+
+  private synchronized LowLevelHttpResponse handleRequest(
+      String method, String url, MockLowLevelHttpRequest request) throws IOException {
+    if ("POST".equals(method) && UPLOAD_URL.toString().equals(url)
+        && "start".equals(request.getFirstHeaderValue("x-goog-resumable"))) {
+      return new MockLowLevelHttpResponse()
+          .setStatusCode(201)
+          .addHeader("Location", SESSION_URL.toString());
+    }
+    if (!"PUT".equals(method) || !SESSION_URL.toString().equals(url)) {
+      return new MockLowLevelHttpResponse().setStatusCode(404);
+    }
+    String contentRange = request.getFirstHeaderValue("Content-Range");
+    if ("bytes */*".equals(contentRange)) {
+      return createStatusResponse();
+    }
+
+    Matcher matcher = CONTENT_RANGE_PATTERN.matcher(String.valueOf(contentRange));
+    ByteArrayOutputStream requestContent = new ByteArrayOutputStream();
+    request.getStreamingContent().writeTo(requestContent);
+    if (isComplete || !matcher.matches()
+        || Long.parseLong(matcher.group(1)) != content.size()
+        || Long.parseLong(matcher.group(2)) != content.size() + requestContent.size() - 1) {
+      return new MockLowLevelHttpResponse().setStatusCode(400);
+    }
+    boolean isLastRequest = !"*".equals(matcher.group(3));
+    if (isLastRequest
+        ? Long.parseLong(matcher.group(3)) != content.size() + requestContent.size()
+        : requestContent.size() % BatchJobUploader.REQUIRED_CONTENT_LENGTH_INCREMENT != 0) {
+      return new MockLowLevelHttpResponse().setStatusCode(400);
+    }
+    requestContent.writeTo(content);
+    isComplete = isLastRequest;
+    if (contentRequestCount++ == lostResponseIndex) {
+      throw new IOException("Connection reset");
+    }
+    return createStatusResponse();
+  }
+
+  private LowLevelHttpResponse createStatusResponse() {
+    if (isComplete) {
+      return new MockLowLevelHttpResponse().setStatusCode(200).setContent("uploaded");
+    }
+    MockLowLevelHttpResponse response = new MockLowLevelHttpResponse().setStatusCode(308);
+    if (content.size() > 0) {
+      response.addHeader("Range", "bytes=0-" + (content.size() - 1));
+    }
+    return response;
+  }
+}
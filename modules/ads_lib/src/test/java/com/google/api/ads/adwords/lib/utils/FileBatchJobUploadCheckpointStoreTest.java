@@ -0,0 +1,100 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.adwords.lib.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link FileBatchJobUploadCheckpointStore}.
+ */
+@RunWith(JUnit4.class)
+public class FileBatchJobUploadCheckpointStoreTest {
+
+  private static final BatchJobUploadCheckpoint CHECKPOINT = new BatchJobUploadCheckpoint(
+      URI.create("https://storage.example.com/batchjob?key=a%20b"),
+      URI.create("https://storage.example.com/batchjob?upload_id=1"), 524288, 5, 500008);
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File file;
+  private FileBatchJobUploadCheckpointStore store;
+
+  @Before
+  public void setUp() {
+    file = new File(temporaryFolder.getRoot(), "checkpoint.properties");
+    store = new FileBatchJobUploadCheckpointStore(file);
+  }
+
+  @Test
+  public void testSaveAndLoad() throws IOException {
+    assertNull("store should not have a checkpoint yet", store.load());
+
+    store.save(CHECKPOINT);
+    assertEquals("loaded checkpoint is incorrect", CHECKPOINT, store.load());
+    assertEquals("loaded checkpoint is incorrect", CHECKPOINT,
+        new FileBatchJobUploadCheckpointStore(file).load());
+
+    BatchJobUploadCheckpoint nextCheckpoint = new BatchJobUploadCheckpoint(
+        CHECKPOINT.getBatchJobUploadUrl(), CHECKPOINT.getResumableUploadUri(), 786432, 7, 700008);
+    store.save(nextCheckpoint);
+    assertEquals("saved checkpoint should replace the previous one", nextCheckpoint,
+        store.load());
+    assertEquals("temporary files should be removed", 1,
+        temporaryFolder.getRoot().listFiles().length);
+  }
+
+  @Test
+  public void testDelete() throws IOException {
+    store.delete();
+    store.save(CHECKPOINT);
+    store.delete();
+    assertNull("checkpoint should be deleted", store.load());
+  }
+
+  @Test
+  public void testLoad_incompleteCheckpoint() throws IOException {
+    Files.write("resumableUploadUri=https\\://storage.example.com/batchjob\n", file, UTF_8);
+    thrown.expect(IOException.class);
+    thrown.expectMessage("batchJobUploadUrl");
+    store.load();
+  }
+
+  @Test
+  public void testLoad_invalidCheckpoint() throws IOException {
+    store.save(CHECKPOINT);
+    Files.write(Files.toString(file, UTF_8).replace("524288", "-1"), file, UTF_8);
+    thrown.expect(IOException.class);
+    store.load();
+  }
+}
@@ -0,0 +1,370 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+import com.google.api.ads.adwords.lib.client.AdWordsSession;
+import com.google.api.ads.adwords.lib.conf.AdWordsLibConfiguration;
+import com.google.api.ads.adwords.lib.utils.ReportRequest.RequestType;
+import com.google.api.ads.adwords.lib.utils.testing.GenericAdWordsServices;
+import com.google.api.ads.common.lib.auth.AuthorizationHeaderProvider;
+import com.google.api.ads.common.lib.useragent.UserAgentCombiner;
+import com.google.api.ads.common.lib.utils.AdsUtilityRegistry;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.client.util.Sleeper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Tests for {@link ParallelReportDownloadHelper}.
+ */
+@RunWith(JUnit4.class)
+public class ParallelReportDownloadHelperTest {
+
+  private static final String INVALID_FIELD_ERROR_XML =
+      "<reportDownloadError>"
+          + "<ApiError><type>ReportDefinitionError.INVALID_FIELD_NAME_FOR_REPORT</type>"
+          + "<trigger>AdFormatt</trigger><fieldPath>foobar</fieldPath></ApiError>"
+          + "</reportDownloadError>";
+
+  private static final String RATE_EXCEEDED_ERROR_XML =
+      "<reportDownloadError>"
+          + "<ApiError><type>RateExceededError.RATE_EXCEEDED</type>"
+          + "<trigger></trigger><fieldPath></fieldPath></ApiError>"
+          + "</reportDownloadError>";
+
+  /** Enum of download format that's not version-specific */
+  enum TestDownloadFormat {
+    CSV
+  }
+
+  /** Mock responses of the report endpoint, keyed by the clientCustomerId header. */
+  private final Map<String, Deque<MockLowLevelHttpResponse>> responses =
+      new ConcurrentHashMap<String, Deque<MockLowLevelHttpResponse>>();
+  private final List<Long> sleeps = Collections.synchronizedList(new ArrayList<Long>());
+  private final AtomicInteger inFlightRequests = new AtomicInteger();
+  private final AtomicInteger maxInFlightRequests = new AtomicInteger();
+  private final Map<String, String> writtenReports = new ConcurrentHashMap<String, String>();
+  /** Exceptions thrown by the transport, keyed by the clientCustomerId header. */
+  private final Map<String, RuntimeException> requestExceptions =
+      new ConcurrentHashMap<String, RuntimeException>();
+
+  private ParallelReportDownloadHelper helper;
+
+  @Mock
+  private ReportRequest reportRequest;
+  @Mock
+  private Credential credential;
+  @Mock
+  private AuthorizationHeaderProvider authorizationHeaderProvider;
+  @Mock
+  private UserAgentCombiner userAgentCombiner;
+  @Mock
+  private AdWordsLibConfiguration adWordsLibConfiguration;
+  @Mock
+  private ReportResponseInterceptor reportResponseInterceptor;
+
+  @Before
+  public void setUp() throws Exception {
+    MockitoAnnotations.initMocks(this);
+
+    Enum<?> downloadFormat = TestDownloadFormat.CSV;
+    Mockito.<Enum<?>>when(reportRequest.getDownloadFormat()).thenReturn(downloadFormat);
+    when(reportRequest.getApiVersion()).thenReturn("v201705");
+    when(reportRequest.getRequestType()).thenReturn(RequestType.AWQL);
+    when(reportRequest.getReportRequestString())
+        .thenReturn("SELECT CampaignId FROM CAMPAIGN_PERFORMANCE_REPORT");
+    when(authorizationHeaderProvider.getAuthorizationHeader(
+        any(AdWordsSession.class), anyString())).thenReturn("Bearer TEST_ACCESS_TOKEN");
+    when(userAgentCombiner.getUserAgent(anyString())).thenReturn("TEST_APP");
+    when(adWordsLibConfiguration.getReportDownloadTimeout()).thenReturn(1000);
+
+    AdWordsSession session = new AdWordsSession.Builder()
+        .withUserAgent("TEST_APP")
+        .withOAuth2Credential(credential)
+        .withDeveloperToken("TEST_DEVELOPER_TOKEN")
+        .withClientCustomerId("TEST_CLIENT_CUSTOMER_ID")
+        .build();
+    ReportRequestFactoryHelper reportRequestFactoryHelper = new ReportRequestFactoryHelper(
+        session, authorizationHeaderProvider, userAgentCombiner, createTransport(),
+        adWordsLibConfiguration, reportResponseInterceptor);
+    AdHocReportDownloadHelperImpl helperImpl = new AdHocReportDownloadHelperImpl(session,
+        reportRequestFactoryHelper, new ReportBodyProviderFactory(),
+        AdWordsInternals.getInstance().getXmlFieldExtractor());
+    helper = new ParallelReportDownloadHelper(helperImpl, reportRequestFactoryHelper,
+        AdsUtilityRegistry.getInstance(), new Sleeper() {
+          @Override
+          public void sleep(long millis) {
+            sleeps.add(millis);
+          }
+        });
+  }
+
+  /** Verifies an instance can be obtained from AdWordsServices. */
+  @Test
+  public void testGetFromAdWordsServices() {
+    AdWordsSession session = Mockito.mock(AdWordsSession.class);
+    assertNotNull(new GenericAdWordsServices()
+        .getBootstrapper()
+        .getInstanceOf(session, ParallelReportDownloadHelper.class));
+  }
+
+  /**
+   * Tests that each client customer ID gets its own report, that transient failures are retried
+   * and that other failures are not.
+   */
+  @Test
+  public void testDownloadReports() throws Exception {
+    addResponse("111", 200, "report 111");
+    addResponse("222", 500, "backend error");
+    addResponse("222", 200, "report 222");
+    addResponse("333", 400, INVALID_FIELD_ERROR_XML);
+    for (int i = 0; i < 3; i++) {
+      addResponse("444", 400, RATE_EXCEEDED_ERROR_XML);
+    }
+
+    ParallelReportDownloadHelper.Result result = helper.downloadReports(reportRequest,
+        Arrays.asList("111", "222", "333", "444", "111"), createSink(),
+        new TestExceptionBuilder());
+
+    assertEquals(2, result.getSuccessCount());
+    assertEquals("report 111", writtenReports.get("111"));
+    assertEquals("report 222", writtenReports.get("222"));
+    assertEquals(2, result.getFailureCount());
+    assertEquals(ImmutableSet.of("333", "444"), result.getFailures().keySet());
+    DetailedReportDownloadResponseException invalidFieldException =
+        (DetailedReportDownloadResponseException) result.getFailures().get("333");
+    assertEquals(400, invalidFieldException.getHttpStatus());
+    assertEquals("ReportDefinitionError.INVALID_FIELD_NAME_FOR_REPORT",
+        invalidFieldException.getType());
+    assertEquals("RateExceededError.RATE_EXCEEDED",
+        ((DetailedReportDownloadResponseException) result.getFailures().get("444")).getType());
+    assertEquals(3, result.getRetryCount());
+    assertEquals(3, sleeps.size());
+    long expectedBytes = "report 111".length() + "backend error".length()
+        + "report 222".length() + INVALID_FIELD_ERROR_XML.length()
+        + 3 * RATE_EXCEEDED_ERROR_XML.length();
+    assertEquals(expectedBytes, result.getTotalBytes());
+    assertTrue("All responses should be consumed", allResponsesConsumed());
+  }
+
+  /**
+   * Tests that no more downloads than the concurrency run at the same time.
+   */
+  @Test
+  public void testDownloadReports_concurrency() throws Exception {
+    List<String> clientCustomerIds = new ArrayList<String>();
+    for (int i = 0; i < 20; i++) {
+      String clientCustomerId = String.valueOf(i);
+      clientCustomerIds.add(clientCustomerId);
+      addResponse(clientCustomerId, 200, "report " + i);
+    }
+    helper.setConcurrency(3);
+
+    ParallelReportDownloadHelper.Result result = helper.downloadReports(
+        reportRequest, clientCustomerIds, createSink(), new TestExceptionBuilder());
+
+    assertEquals(20, result.getSuccessCount());
+    assertEquals(0, result.getFailureCount());
+    assertTrue("Too many concurrent downloads: " + maxInFlightRequests.get(),
+        maxInFlightRequests.get() <= 3);
+  }
+
+  /**
+   * Tests that a report the sink fails to write is not downloaded again.
+   */
+  @Test
+  public void testDownloadReports_sinkFailure() throws Exception {
+    addResponse("111", 200, "report 111");
+    final IOException sinkException = new IOException("Disk full");
+
+    ParallelReportDownloadHelper.Result result = helper.downloadReports(reportRequest,
+        ImmutableList.of("111"), new ReportSink() {
+          @Override
+          public void write(String clientCustomerId, ReportDownloadResponse response)
+              throws IOException {
+            throw sinkException;
+          }
+        },
+        new TestExceptionBuilder());
+
+    assertEquals(0, result.getSuccessCount());
+    assertEquals(sinkException, result.getFailures().get("111"));
+    assertEquals(0, result.getRetryCount());
+  }
+
+  /**
+   * Tests that an unexpected exception for one client customer ID is recorded as its failure and
+   * does not stop the other downloads.
+   */
+  @Test
+  public void testDownloadReports_runtimeException() throws Exception {
+    addResponse("111", 200, "report 111");
+    IllegalStateException requestException = new IllegalStateException("Unexpected");
+    requestExceptions.put("222", requestException);
+
+    ParallelReportDownloadHelper.Result result = helper.downloadReports(reportRequest,
+        ImmutableList.of("111", "222"), createSink(), new TestExceptionBuilder());
+
+    assertEquals(1, result.getSuccessCount());
+    assertEquals("report 111", writtenReports.get("111"));
+    assertEquals(requestException, result.getFailures().get("222"));
+    assertEquals(0, result.getRetryCount());
+  }
+
+  @Test
+  public void testDownloadReports_noClientCustomerIds() throws Exception {
+    ParallelReportDownloadHelper.Result result = helper.downloadReports(reportRequest,
+        ImmutableList.<String>of(), createSink(), new TestExceptionBuilder());
+
+    assertEquals(0, result.getSuccessCount());
+    assertEquals(0, result.getFailureCount());
+  }
+
+  @Test
+  public void testIsRetryable() {
+    assertTrue(ParallelReportDownloadHelper.isRetryable(
+        new ReportException("timeout", new SocketTimeoutException())));
+    assertFalse(ParallelReportDownloadHelper.isRetryable(
+        new ReportException("bad URL", new MalformedURLException())));
+    assertFalse(ParallelReportDownloadHelper.isRetryable(new ReportException("no cause")));
+    assertTrue(ParallelReportDownloadHelper.isRetryable(
+        new ReportDownloadResponseException(503)));
+    assertFalse(ParallelReportDownloadHelper.isRetryable(
+        new ReportDownloadResponseException(400)));
+    DetailedReportDownloadResponseException exception =
+        new DetailedReportDownloadResponseException(400, "");
+    exception.setType("InternalApiError.UNEXPECTED_INTERNAL_API_ERROR");
+    assertTrue(ParallelReportDownloadHelper.isRetryable(exception));
+    exception.setType("AuthorizationError.USER_PERMISSION_DENIED");
+    assertFalse(ParallelReportDownloadHelper.isRetryable(exception));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetConcurrency_invalid() {
+    helper.setConcurrency(0);
+  }
+
+  private void addResponse(String clientCustomerId, int httpStatus, String body) {
+    Deque<MockLowLevelHttpResponse> customerResponses = responses.get(clientCustomerId);
+    if (customerResponses == null) {
+      customerResponses = new LinkedList<MockLowLevelHttpResponse>();
+      responses.put(clientCustomerId, customerResponses);
+    }
+    customerResponses.add(new MockLowLevelHttpResponse()
+        .setStatusCode(httpStatus)
+        .setContentType("text/plain; charset=UTF-8")
+        .setContent(body));
+  }
+
+  private boolean allResponsesConsumed() {
+    for (Deque<MockLowLevelHttpResponse> customerResponses : responses.values()) {
+      if (!customerResponses.isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private ReportSink createSink() {
+    return new ReportSink() {
+      @Override
+      public void write(String clientCustomerId, ReportDownloadResponse response)
+          throws IOException {
+        writtenReports.put(clientCustomerId, response.getAsString());
+      }
+    };
+  }
+
+  /**
+   * Creates a transport that answers each request with the next response for its
+   * clientCustomerId header.
+   */
+  private MockHttpTransport createTransport() {
+    return new MockHttpTransport() {
+      @Override
+      public LowLevelHttpRequest buildRequest(String method, String url) {
+        return new MockLowLevelHttpRequest(url) {
+          @Override
+          public LowLevelHttpResponse execute() throws IOException {
+            int inFlight = inFlightRequests.incrementAndGet();
+            try {
+              synchronized (maxInFlightRequests) {
+                maxInFlightRequests.set(Math.max(maxInFlightRequests.get(), inFlight));
+              }
+              assertEquals("TEST_DEVELOPER_TOKEN", getFirstHeaderValue("developerToken"));
+              RuntimeException requestException =
+                  requestExceptions.get(getFirstHeaderValue("clientCustomerId"));
+              if (requestException != null) {
+                throw requestException;
+              }
+              getStreamingContent().writeTo(new ByteArrayOutputStream());
+              Thread.sleep(5);
+              Deque<MockLowLevelHttpResponse> customerResponses =
+                  responses.get(getFirstHeaderValue("clientCustomerId"));
+              synchronized (customerResponses) {
+                return customerResponses.pop();
+              }
+            } catch (InterruptedException e) {
+              throw new IOException(e);
+            } finally {
+              inFlightRequests.decrementAndGet();
+            }
+          }
+        };
+      }
+    };
+  }
+
+  private static class TestExceptionBuilder
+      implements DetailedReportDownloadResponseException.Builder {
+    @Override
+    public DetailedReportDownloadResponseException build(int httpStatus, String errorText) {
+      return new DetailedReportDownloadResponseException(httpStatus, errorText);
+    }
+  }
+}
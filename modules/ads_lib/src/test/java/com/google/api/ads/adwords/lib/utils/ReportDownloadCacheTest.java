@@ -0,0 +1,296 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.when;
+
+import com.google.api.ads.adwords.lib.client.AdWordsSession;
+import com.google.api.ads.adwords.lib.client.reporting.ReportingConfiguration;
+import com.google.api.ads.adwords.lib.utils.ReportRequest.RequestType;
+import com.google.api.ads.common.lib.utils.Streams;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.common.base.Ticker;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Tests for {@link ReportDownloadCache}.
+ */
+@RunWith(JUnit4.class)
+public class ReportDownloadCacheTest {
+
+  private static final long TIME_TO_LIVE_NANOS = TimeUnit.MINUTES.toNanos(10);
+  private static final String ENDPOINT = "https://adwords.google.com/";
+  private static final String DEVELOPER_TOKEN = "TEST_DEVELOPER_TOKEN";
+
+  /** Enum of download format that's not version-specific. */
+  enum TestDownloadFormat {
+    CSV, TSV
+  }
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Mock
+  private ReportRequest reportRequest;
+
+  @Mock
+  private AdWordsSession session;
+
+  private File directory;
+  private FakeTicker ticker;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(reportRequest.getRequestType()).thenReturn(RequestType.AWQL);
+    when(reportRequest.getReportRequestString())
+        .thenReturn("SELECT CampaignId FROM CAMPAIGN_PERFORMANCE_REPORT");
+    Mockito.<Enum<?>>when(reportRequest.getDownloadFormat()).thenReturn(TestDownloadFormat.CSV);
+    when(reportRequest.getApiVersion()).thenReturn("v201705");
+    when(session.getEndpoint()).thenReturn(ENDPOINT);
+    when(session.getDeveloperToken()).thenReturn(DEVELOPER_TOKEN);
+    when(session.getOAuth2Credential()).thenReturn(credential("clientId", "refreshToken"));
+    when(session.getClientCustomerId()).thenReturn("123");
+    directory = new File(temporaryFolder.getRoot(), "cache");
+    ticker = new FakeTicker(TimeUnit.DAYS.toNanos(17000));
+  }
+
+  @Test
+  public void testPutAndGet() throws IOException {
+    ReportDownloadCache cache = newCache(1024 * 1024);
+    assertNull("report should not be cached yet", cache.get("key"));
+
+    RawReportDownloadResponse response = cache.put("key", response("a,b\n1,2\n", UTF_16, "CSV"));
+    assertEquals("response from put is incorrect", "a,b\n1,2\n", read(response));
+
+    RawReportDownloadResponse cachedResponse = cache.get("key");
+    assertNotNull("report should be cached", cachedResponse);
+    assertEquals("status is incorrect", HttpURLConnection.HTTP_OK,
+        cachedResponse.getHttpStatus());
+    assertEquals("charset is incorrect", UTF_16, cachedResponse.getCharset());
+    assertEquals("download format is incorrect", "CSV", cachedResponse.getDownloadFormat());
+    assertEquals("contents are incorrect", "a,b\n1,2\n", read(cachedResponse));
+    assertEquals("hit count is incorrect", 1, cache.getHitCount());
+    assertEquals("miss count is incorrect", 1, cache.getMissCount());
+    assertEquals("hit rate is incorrect", 0.5, cache.getHitRate(), 0);
+  }
+
+  /**
+   * Tests that gzipped reports are stored without being compressed again.
+   */
+  @Test
+  public void testPutAndGet_gzipped() throws IOException {
+    ReportDownloadCache cache = newCache(1024 * 1024);
+    byte[] contents = {31, -117, 8, 0, 1, 2, 3};
+    cache.put("key", new RawReportDownloadResponse(HttpURLConnection.HTTP_OK,
+        new ByteArrayInputStream(contents), UTF_8, "GZIPPED_CSV"));
+
+    RawReportDownloadResponse cachedResponse = cache.get("key");
+    assertEquals("contents are incorrect", new String(contents, UTF_8),
+        new String(ByteStreams.toByteArray(cachedResponse.getInputStream()), UTF_8));
+    cachedResponse.getInputStream().close();
+  }
+
+  @Test
+  public void testGet_expired() throws IOException {
+    ReportDownloadCache cache = newCache(1024 * 1024);
+    read(cache.put("key", response("a,b\n", UTF_8, "CSV")));
+
+    ticker.advance(TIME_TO_LIVE_NANOS - 1);
+    read(cache.get("key"));
+    ticker.advance(1);
+    assertNull("expired report should not be returned", cache.get("key"));
+    assertEquals("expiration count is incorrect", 1, cache.getExpirationCount());
+    assertEquals("expired report should be removed", 0, cache.getEntryCount());
+    assertEquals("expired report's size should be removed", 0, cache.getSizeBytes());
+  }
+
+  /**
+   * Tests that the least recently used report is evicted once the cache is too large.
+   */
+  @Test
+  public void testPut_evictsLeastRecentlyUsed() throws IOException {
+    ReportDownloadCache probe = new ReportDownloadCache(temporaryFolder.newFolder(), 1L << 30,
+        TIME_TO_LIVE_NANOS, ticker);
+    read(probe.put("key", response("report", UTF_8, "CSV")));
+    long entrySize = probe.getSizeBytes();
+
+    ReportDownloadCache cache = newCache(2 * entrySize);
+    read(cache.put("key1", response("report", UTF_8, "CSV")));
+    read(cache.put("key2", response("report", UTF_8, "CSV")));
+    read(cache.get("key1"));
+    read(cache.put("key3", response("report", UTF_8, "CSV")));
+
+    assertEquals("eviction count is incorrect", 1, cache.getEvictionCount());
+    assertNull("least recently used report should be evicted", cache.get("key2"));
+    assertNotNull("recently used report should be kept", cache.get("key1"));
+    assertNotNull("added report should be kept", cache.get("key3"));
+    assertEquals("size is incorrect", 2 * entrySize, cache.getSizeBytes());
+    assertFalse("evicted report's file should be deleted",
+        new File(directory, "key2.report").exists());
+  }
+
+  /**
+   * Tests that a new cache on the same directory reuses the reports of an earlier cache.
+   */
+  @Test
+  public void testConstructor_reusesEntries() throws IOException {
+    ReportDownloadCache cache = newCache(1024 * 1024);
+    String key = ReportDownloadCache.getKey(session, reportRequest);
+    read(cache.put(key, response("a,b\n", UTF_8, "CSV")));
+
+    ReportDownloadCache reopenedCache = newCache(1024 * 1024);
+    assertEquals("entry count is incorrect", 1, reopenedCache.getEntryCount());
+    assertEquals("contents are incorrect", "a,b\n", read(reopenedCache.get(key)));
+
+    reopenedCache.clear();
+    assertEquals("entries should be removed", 0, newCache(1024 * 1024).getEntryCount());
+  }
+
+  @Test
+  public void testGetKey() {
+    String key = ReportDownloadCache.getKey(session, reportRequest);
+    assertEquals("key should be a SHA-256 hash", 64, key.length());
+
+    when(reportRequest.getReportRequestString())
+        .thenReturn("  SELECT CampaignId\n\tFROM  CAMPAIGN_PERFORMANCE_REPORT ");
+    assertEquals("whitespace should not change the key", key,
+        ReportDownloadCache.getKey(session, reportRequest));
+
+    when(session.getClientCustomerId()).thenReturn("456");
+    assertNotEquals("client customer ID should change the key", key,
+        ReportDownloadCache.getKey(session, reportRequest));
+    when(session.getClientCustomerId()).thenReturn("123");
+
+    when(session.getReportingConfiguration())
+        .thenReturn(new ReportingConfiguration.Builder().skipReportHeader(true).build());
+    assertNotEquals("reporting configuration should change the key", key,
+        ReportDownloadCache.getKey(session, reportRequest));
+    when(session.getReportingConfiguration()).thenReturn(null);
+
+    Mockito.<Enum<?>>when(reportRequest.getDownloadFormat()).thenReturn(TestDownloadFormat.TSV);
+    assertNotEquals("download format should change the key", key,
+        ReportDownloadCache.getKey(session, reportRequest));
+    Mockito.<Enum<?>>when(reportRequest.getDownloadFormat()).thenReturn(TestDownloadFormat.CSV);
+    assertEquals("key should be restored", key, ReportDownloadCache.getKey(session, reportRequest));
+  }
+
+  /**
+   * Tests that reports of different callers are never cached under the same key.
+   */
+  @Test
+  public void testGetKey_callerIdentity() {
+    String key = ReportDownloadCache.getKey(session, reportRequest);
+
+    when(session.getDeveloperToken()).thenReturn("OTHER_DEVELOPER_TOKEN");
+    assertNotEquals("developer token should change the key", key,
+        ReportDownloadCache.getKey(session, reportRequest));
+    when(session.getDeveloperToken()).thenReturn(DEVELOPER_TOKEN);
+
+    when(session.getOAuth2Credential()).thenReturn(credential("clientId", "otherRefreshToken"));
+    assertNotEquals("refresh token should change the key", key,
+        ReportDownloadCache.getKey(session, reportRequest));
+    when(session.getOAuth2Credential()).thenReturn(credential("otherClientId", "refreshToken"));
+    assertNotEquals("OAuth2 client should change the key", key,
+        ReportDownloadCache.getKey(session, reportRequest));
+
+    Credential accessTokenCredential = credential("clientId", null);
+    accessTokenCredential.setAccessToken("accessToken");
+    when(session.getOAuth2Credential()).thenReturn(accessTokenCredential);
+    String accessTokenKey = ReportDownloadCache.getKey(session, reportRequest);
+    assertNotEquals("access token credential should change the key", key, accessTokenKey);
+    accessTokenCredential.setAccessToken("otherAccessToken");
+    assertNotEquals("access token should change the key", accessTokenKey,
+        ReportDownloadCache.getKey(session, reportRequest));
+
+    when(session.getOAuth2Credential()).thenReturn(credential("clientId", "refreshToken"));
+    assertEquals("an equal credential should not change the key", key,
+        ReportDownloadCache.getKey(session, reportRequest));
+  }
+
+  @Test
+  public void testNormalizeQuery() {
+    assertEquals("SELECT Name FROM R WHERE Name = 'a  b' AND X IN [\"c \t d\"]",
+        ReportDownloadCache.normalizeQuery(
+            "\n SELECT  Name\nFROM R WHERE Name = 'a  b'  AND X IN [\"c \t d\"]  "));
+  }
+
+  private static Credential credential(String clientId, @Nullable String refreshToken) {
+    return new GoogleCredential.Builder()
+        .setTransport(new NetHttpTransport())
+        .setJsonFactory(new JacksonFactory())
+        .setClientSecrets(clientId, "clientSecret")
+        .build()
+        .setRefreshToken(refreshToken);
+  }
+
+  private ReportDownloadCache newCache(long maxSizeBytes) throws IOException {
+    return new ReportDownloadCache(directory, maxSizeBytes, TIME_TO_LIVE_NANOS, ticker);
+  }
+
+  private static RawReportDownloadResponse response(String contents, Charset charset,
+      String downloadFormat) {
+    return new RawReportDownloadResponse(HttpURLConnection.HTTP_OK,
+        new ByteArrayInputStream(contents.getBytes(charset)), charset, downloadFormat);
+  }
+
+  private static String read(RawReportDownloadResponse response) throws IOException {
+    return Streams.readAll(response.getInputStream(), response.getCharset());
+  }
+
+  /** Ticker that only advances when told to. */
+  private static final class FakeTicker extends Ticker {
+    private long nanos;
+
+    FakeTicker(long nanos) {
+      this.nanos = nanos;
+    }
+
+    void advance(long nanos) {
+      this.nanos += nanos;
+    }
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+  }
+}
@@ -15,20 +15,36 @@
 package com.google.api.ads.adwords.lib.utils;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 import com.google.api.ads.common.lib.utils.Streams;
+import com.google.common.io.Files;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.net.HttpURLConnection;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 import java.util.zip.GZIPOutputStream;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
@@ -41,6 +57,9 @@ public class ReportDownloadResponseTest {
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   /**
    * Test method for
    * {@link com.google.api.ads.adwords.lib.utils.ReportDownloadResponse#getInputStream()}.
@@ -109,6 +128,122 @@ public class ReportDownloadResponseTest {
         Streams.readAll(new FileInputStream(outputFile), UTF_8));
   }
 
+  /**
+   * Test method for
+   * {@link ReportDownloadResponse#saveToFile(File, boolean, ReportSaveProgressListener)} with a
+   * gzipped report larger than a chunk.
+   */
+  @Test
+  public void testSaveToFile_inflateWithProgress() throws IOException {
+    File outputFile = temporaryFolder.newFile("report.csv");
+    Files.write("old contents".getBytes(UTF_8), outputFile);
+    byte[] expectedContents = new byte[ReportFileSaver.CHUNK_SIZE * 2 + 10];
+    Arrays.fill(expectedContents, (byte) 'x');
+    ByteArrayOutputStream zippedBytesOut = new ByteArrayOutputStream();
+    Streams.copy(new ByteArrayInputStream(expectedContents), new GZIPOutputStream(zippedBytesOut));
+    RawReportDownloadResponse rawResponse = new RawReportDownloadResponse(HttpURLConnection.HTTP_OK,
+        new ByteArrayInputStream(zippedBytesOut.toByteArray()), UTF_8, "GZIPPED_CSV");
+    final List<Long> progress = new ArrayList<Long>();
+
+    long bytesWritten = new ReportDownloadResponse(rawResponse).saveToFile(outputFile, true,
+        new ReportSaveProgressListener() {
+          @Override
+          public void onProgress(long bytesWritten, double bytesPerSecond) {
+            assertTrue("rate should be positive", bytesPerSecond > 0);
+            progress.add(bytesWritten);
+          }
+        });
+
+    assertEquals(expectedContents.length, bytesWritten);
+    assertArrayEquals("contents saved to file are incorrect", expectedContents,
+        Files.toByteArray(outputFile));
+    assertEquals("progress should be reported after each chunk",
+        Arrays.asList((long) ReportFileSaver.CHUNK_SIZE, 2L * ReportFileSaver.CHUNK_SIZE,
+            (long) expectedContents.length),
+        progress);
+    assertArrayEquals("temporary file should be renamed", new String[] {"report.csv"},
+        temporaryFolder.getRoot().list());
+  }
+
+  /**
+   * Tests that a saved file gets the default permissions of new files, and that replacing a file
+   * keeps its permissions.
+   */
+  @Test
+  public void testSaveToFile_permissions() throws IOException {
+    Path root = temporaryFolder.getRoot().toPath();
+    assumeTrue(java.nio.file.Files.getFileStore(root)
+        .supportsFileAttributeView(PosixFileAttributeView.class));
+    File newFile = temporaryFolder.newFile("new.csv");
+    Set<PosixFilePermission> defaultPermissions =
+        java.nio.file.Files.getPosixFilePermissions(newFile.toPath());
+    assertTrue(newFile.delete());
+
+    new ReportDownloadResponse(createCsvResponse("a,b\n")).saveToFile(newFile, false, null);
+
+    assertEquals(defaultPermissions, java.nio.file.Files.getPosixFilePermissions(newFile.toPath()));
+
+    File existingFile = temporaryFolder.newFile("existing.csv");
+    Set<PosixFilePermission> existingPermissions = PosixFilePermissions.fromString("rw-r-----");
+    java.nio.file.Files.setPosixFilePermissions(existingFile.toPath(), existingPermissions);
+
+    new ReportDownloadResponse(createCsvResponse("c,d\n")).saveToFile(existingFile, false, null);
+
+    assertEquals("c,d\n", Files.toString(existingFile, UTF_8));
+    assertEquals(existingPermissions,
+        java.nio.file.Files.getPosixFilePermissions(existingFile.toPath()));
+  }
+
+  private static RawReportDownloadResponse createCsvResponse(String contents) {
+    return new RawReportDownloadResponse(HttpURLConnection.HTTP_OK,
+        new ByteArrayInputStream(contents.getBytes(UTF_8)), UTF_8, "CSV");
+  }
+
+  /**
+   * Tests that a failed save leaves the existing output file unchanged and no temporary file.
+   */
+  @Test
+  public void testSaveToFile_failureKeepsExistingFile() throws IOException {
+    File outputFile = temporaryFolder.newFile("report.csv");
+    Files.write("old contents".getBytes(UTF_8), outputFile);
+    InputStream failingStream = new SequenceInputStream(
+        new ByteArrayInputStream("new contents".getBytes(UTF_8)),
+        new InputStream() {
+          @Override
+          public int read() throws IOException {
+            throw new IOException("Connection reset");
+          }
+        });
+    RawReportDownloadResponse rawResponse = new RawReportDownloadResponse(HttpURLConnection.HTTP_OK,
+        failingStream, UTF_8, "CSV");
+
+    try {
+      new ReportDownloadResponse(rawResponse).saveToFile(outputFile, false, null);
+      fail("Expected an IOException");
+    } catch (IOException e) {
+      assertEquals("Connection reset", e.getMessage());
+    }
+    assertEquals("old contents", Files.toString(outputFile, UTF_8));
+    assertArrayEquals("temporary file should be deleted", new String[] {"report.csv"},
+        temporaryFolder.getRoot().list());
+  }
+
+  /**
+   * Test method for
+   * {@link com.google.api.ads.adwords.lib.utils.ReportDownloadResponse#rows()}.
+   */
+  @Test
+  public void testRows() throws IOException {
+    String contents = "\"REPORT (Jan 1, 2017)\"\na,b\n1,2\nTotal,2\n";
+    RawReportDownloadResponse rawResponse = new RawReportDownloadResponse(HttpURLConnection.HTTP_OK,
+        new ByteArrayInputStream(contents.getBytes(UTF_8)), UTF_8, "CSV");
+    ReportDownloadResponse response = new ReportDownloadResponse(rawResponse);
+    try (ReportRowReader reader = response.rows()) {
+      assertEquals("row value is incorrect", "2", reader.nextRow().get("b"));
+      assertNull("summary should not be returned as a row", reader.nextRow());
+    }
+  }
+
   @Test
   public void testFailedResponse_fails() {
     RawReportDownloadResponse rawResponse = new RawReportDownloadResponse(
@@ -17,8 +17,12 @@ package com.google.api.ads.adwords.lib.utils;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.api.ads.adwords.lib.client.AdWordsSession;
@@ -218,6 +222,58 @@ public class ReportRequestFactoryHelperTest {
     }
   }
 
+  /**
+   * Tests the request factory is reused for the same session state, and rebuilt when the
+   * authorization header or client customer ID changes.
+   */
+  @Test
+  public void testGetHttpRequestFactory_cached()
+      throws ValidationException, AuthenticationException, IOException {
+    AdWordsSession session = new AdWordsSession.Builder()
+        .withDeveloperToken("foodevtoken")
+        .withClientCustomerId("fooclientcustomerid")
+        .withOAuth2Credential(credential)
+        .withUserAgent("userAgent")
+        .withReportingConfiguration(reportingConfiguration)
+        .build();
+    when(authorizationHeaderProvider.getAuthorizationHeader(session, ENDPOINT_URL.build()))
+        .thenReturn("fooauthheader", "fooauthheader", "refreshedauthheader");
+    when(userAgentCombiner.getUserAgent(anyString())).thenReturn("foouseragent");
+    ReportRequestFactoryHelper helper =
+        new ReportRequestFactoryHelper(
+            session,
+            authorizationHeaderProvider,
+            userAgentCombiner,
+            transport,
+            adWordsLibConfiguration,
+            reportResponseInterceptor);
+
+    HttpRequestFactory requestFactory = helper.getHttpRequestFactory(ENDPOINT_URL.build(), version);
+    assertSame("Request factory should be reused for the same session state", requestFactory,
+        helper.getHttpRequestFactory(ENDPOINT_URL.build(), version));
+    verify(userAgentCombiner, times(1)).getUserAgent(anyString());
+
+    HttpRequestFactory refreshedRequestFactory =
+        helper.getHttpRequestFactory(ENDPOINT_URL.build(), version);
+    assertNotSame("Request factory should be rebuilt for a refreshed token", requestFactory,
+        refreshedRequestFactory);
+    HttpRequest request = refreshedRequestFactory.buildPostRequest(
+        ENDPOINT_URL, new AwqlReportBodyProvider("select 1", "csv").getHttpContent());
+    assertEquals("refreshedauthheader", request.getHeaders().getAuthorization());
+
+    session.setClientCustomerId("otherclientcustomerid");
+    request = helper.getHttpRequestFactory(ENDPOINT_URL.build(), version).buildPostRequest(
+        ENDPOINT_URL, new AwqlReportBodyProvider("select 1", "csv").getHttpContent());
+    assertEquals("otherclientcustomerid", request.getHeaders().get("clientCustomerId"));
+
+    HttpHeaders headers = helper.createHeaders(ENDPOINT_URL.build(), version, "1234567890");
+    assertEquals("1234567890", headers.get("clientCustomerId"));
+    request = helper.getHttpRequestFactory(ENDPOINT_URL.build(), version).buildPostRequest(
+        ENDPOINT_URL, new AwqlReportBodyProvider("select 1", "csv").getHttpContent());
+    assertEquals("Headers for another client customer ID should not change cached headers",
+        "otherclientcustomerid", request.getHeaders().get("clientCustomerId"));
+  }
+
   private HttpTransport createTransport(final LowLevelHttpRequest request) {
     return new HttpTransport() {
       @Override
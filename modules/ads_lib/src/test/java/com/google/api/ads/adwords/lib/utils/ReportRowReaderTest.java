@@ -0,0 +1,214 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.ads.adwords.lib.client.reporting.ReportingConfiguration;
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link ReportRowReader}.
+ */
+@RunWith(JUnit4.class)
+public class ReportRowReaderTest {
+
+  private static final String CSV_REPORT =
+      "\"CAMPAIGN_PERFORMANCE_REPORT (Jan 1, 2017-Jan 31, 2017)\"\n"
+          + "Campaign ID,Campaign,Clicks\n"
+          + "123,\"Shoes, boots and \"\"sandals\"\"\",10\n"
+          + "456,\"Multi\nline\",20\n"
+          + "Total, --,30\n";
+
+  private static final String XML_REPORT =
+      "<?xml version='1.0' encoding='UTF-8' standalone='yes'?>\n"
+          + "<report>\n"
+          + "<report-name name='CAMPAIGN_PERFORMANCE_REPORT'/>\n"
+          + "<date-range date='Jan 1, 2017-Jan 31, 2017'/>\n"
+          + "<table>\n"
+          + "<columns>\n"
+          + "<column name='campaignID' display='Campaign ID'/>\n"
+          + "<column name='campaign' display='Campaign'/>\n"
+          + "<column name='clicks' display='Clicks'/>\n"
+          + "</columns>\n"
+          + "<row campaign='Shoes &amp; boots' clicks='10' campaignID='123'/>\n"
+          + "<row campaignID='456' campaign='Hats' clicks='20'/>\n"
+          + "</table>\n"
+          + "</report>\n";
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void testCsv() throws IOException {
+    ReportRowReader reader = open(CSV_REPORT, "CSV", null);
+
+    assertEquals(ImmutableList.of("Campaign ID", "Campaign", "Clicks"), reader.getColumnNames());
+    ReportRow row = reader.nextRow();
+    assertEquals("123", row.get("Campaign ID"));
+    assertEquals("Shoes, boots and \"sandals\"", row.get(1));
+    assertEquals("10", row.get("Clicks"));
+    assertNull("Summary should not be available before the last row", reader.getSummaryRow());
+    assertEquals(ImmutableList.of("456", "Multi\nline", "20"), reader.nextRow().getValues());
+    assertNull(reader.nextRow());
+    assertEquals("30", reader.getSummaryRow().get("Clicks"));
+    assertNull(reader.nextRow());
+    reader.close();
+  }
+
+  @Test
+  public void testCsv_skipHeadersAndSummary() throws IOException {
+    ReportingConfiguration reportingConfiguration = new ReportingConfiguration.Builder()
+        .skipReportHeader(true)
+        .skipColumnHeader(true)
+        .skipReportSummary(true)
+        .build();
+    ReportRowReader reader = open("123,Shoes,10\r\n456,Hats,20\r\n", "CSV",
+        reportingConfiguration);
+
+    assertTrue(reader.getColumnNames().isEmpty());
+    assertEquals(ImmutableList.of("123", "Shoes", "10"), reader.nextRow().getValues());
+    assertEquals(ImmutableList.of("456", "Hats", "20"), reader.nextRow().getValues());
+    assertNull(reader.nextRow());
+    assertNull(reader.getSummaryRow());
+  }
+
+  @Test
+  public void testCsv_gzipped() throws IOException {
+    ByteArrayOutputStream zippedBytes = new ByteArrayOutputStream();
+    GZIPOutputStream gzipStream = new GZIPOutputStream(zippedBytes);
+    gzipStream.write(CSV_REPORT.getBytes(UTF_8));
+    gzipStream.close();
+
+    ReportRowReader reader = ReportRowReader.open(
+        new ByteArrayInputStream(zippedBytes.toByteArray()), "GZIPPED_CSV", UTF_8, null);
+
+    assertEquals(2, readAll(reader).size());
+    assertEquals("Total", reader.getSummaryRow().get(0));
+  }
+
+  /**
+   * Tests that a TSV report is split on tabs only and quotes are kept.
+   */
+  @Test
+  public void testTsv() throws IOException {
+    String report = "\"REPORT (Jan 1, 2017)\"\n"
+        + "Campaign ID\tCampaign\tClicks\n"
+        + "123\t\"Shoes\", boots\t10\n"
+        + "Total\t --\t10\n";
+    ReportRowReader reader = open(report, "TSV", null);
+
+    assertEquals(ImmutableList.of("Campaign ID", "Campaign", "Clicks"), reader.getColumnNames());
+    assertEquals(ImmutableList.of("123", "\"Shoes\", boots", "10"), reader.nextRow().getValues());
+    assertNull(reader.nextRow());
+  }
+
+  @Test
+  public void testCsvForExcel() throws IOException {
+    String report = "\uFEFF" + CSV_REPORT.replace(',', '\t');
+
+    ReportRowReader reader = ReportRowReader.open(
+        new ByteArrayInputStream(report.getBytes(Charset.forName("UTF-16LE"))), "CSVFOREXCEL",
+        UTF_8, null);
+
+    assertEquals(ImmutableList.of("Campaign ID", "Campaign", "Clicks"), reader.getColumnNames());
+    assertEquals("Shoes\t boots and \"sandals\"", reader.nextRow().get("Campaign"));
+  }
+
+  @Test
+  public void testXml() throws IOException {
+    ReportRowReader reader = open(XML_REPORT, "XML", null);
+
+    assertEquals(ImmutableList.of("Campaign ID", "Campaign", "Clicks"), reader.getColumnNames());
+    assertEquals(ImmutableList.of("123", "Shoes & boots", "10"), reader.nextRow().getValues());
+    assertEquals("Hats", reader.nextRow().get("Campaign"));
+    assertNull(reader.nextRow());
+    assertNull(reader.getSummaryRow());
+  }
+
+  @Test
+  public void testXml_noColumnHeader() throws IOException {
+    String report = "<report><table>"
+        + "<row campaignID='123' clicks='10'/><row campaignID='456' clicks='20'/>"
+        + "</table></report>";
+    ReportRowReader reader = open(report, "XML", null);
+
+    assertEquals(ImmutableList.of("campaignID", "clicks"), reader.getColumnNames());
+    assertEquals(ImmutableList.of("123", "10"), reader.nextRow().getValues());
+    assertEquals("20", reader.nextRow().get("clicks"));
+    assertNull(reader.nextRow());
+  }
+
+  @Test
+  public void testForEachRow_stopsWhenHandlerReturnsFalse() throws IOException {
+    final List<String> campaignIds = new ArrayList<String>();
+    ReportRowReader reader = open(CSV_REPORT, "CSV", null);
+
+    long rowCount = reader.forEachRow(new ReportRowHandler() {
+      @Override
+      public boolean handleRow(ReportRow row) {
+        campaignIds.add(row.get("Campaign ID"));
+        return false;
+      }
+    });
+
+    assertEquals(1, rowCount);
+    assertEquals(ImmutableList.of("123"), campaignIds);
+    assertEquals("456", reader.nextRow().get(0));
+  }
+
+  @Test
+  public void testUnknownColumn_fails() throws IOException {
+    ReportRow row = open(CSV_REPORT, "CSV", null).nextRow();
+    thrown.expect(IllegalArgumentException.class);
+    row.get("Impressions");
+  }
+
+  @Test
+  public void testUnsupportedFormat_fails() throws IOException {
+    thrown.expect(IllegalArgumentException.class);
+    open(CSV_REPORT, "PDF", null);
+  }
+
+  private static ReportRowReader open(String report, String downloadFormat,
+      ReportingConfiguration reportingConfiguration) throws IOException {
+    InputStream inputStream = new ByteArrayInputStream(report.getBytes(UTF_8));
+    return ReportRowReader.open(inputStream, downloadFormat, UTF_8, reportingConfiguration);
+  }
+
+  private static List<ReportRow> readAll(ReportRowReader reader) throws IOException {
+    List<ReportRow> rows = new ArrayList<ReportRow>();
+    for (ReportRow row = reader.nextRow(); row != null; row = reader.nextRow()) {
+      rows.add(row);
+    }
+    return rows;
+  }
+}
@@ -17,38 +17,51 @@ package com.google.api.ads.adwords.lib.utils.testing;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.verify;
 
 import com.google.api.ads.adwords.lib.client.AdWordsSession;
 import com.google.api.ads.adwords.lib.utils.BatchJobException;
 import com.google.api.ads.adwords.lib.utils.BatchJobHelperInterface;
 import com.google.api.ads.adwords.lib.utils.BatchJobMutateRequestInterface;
+import com.google.api.ads.adwords.lib.utils.BatchJobMutateResultHandler;
 import com.google.api.ads.adwords.lib.utils.BatchJobMutateResponseInterface;
 import com.google.api.ads.adwords.lib.utils.BatchJobMutateResultInterface;
+import com.google.api.ads.adwords.lib.utils.BatchJobUploadCheckpointStore;
 import com.google.api.ads.adwords.lib.utils.BatchJobUploadStatus;
 import com.google.api.ads.adwords.lib.utils.BatchJobUploader;
+import com.google.api.ads.adwords.lib.utils.FileBatchJobUploadCheckpointStore;
+import com.google.api.ads.adwords.lib.utils.StreamingBatchJobHelperInterface;
 import com.google.api.ads.adwords.lib.utils.logging.BatchJobLogger;
 import com.google.api.ads.common.lib.utils.AdsUtilityRegistry;
 import com.google.api.ads.common.lib.utils.Streams;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import java.util.Collections;
+import java.util.Iterator;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 /**
- * Base class for tests of {@link BatchJobHelperInterface} implementations.
+ * Base class for tests of {@link BatchJobHelperInterface} implementations, which must also
+ * implement {@link StreamingBatchJobHelperInterface}.
  *
  * <p>
  * Abstract methods allow subclasses to provide version and SOAP toolkit-specific objects for
@@ -67,16 +80,19 @@ public abstract class BatchJobHelperTest<
   @Mock private BatchJobUploader uploader;
 
   private BatchJobHelperInterface<OperationT, OperandT, ErrorT, ResultT, ResponseT> batchJobHelper;
+  private StreamingBatchJobHelperInterface<OperationT, ResultT> streamingHelper;
   private ImmutableList<OperationT> operations;
 
   private static final String UPLOAD_URL = "https://www.example.com/upload";
   private static final Long TEST_CAMPAIGN_ID = 12345L;
 
+  @SuppressWarnings("unchecked")
   @Before
   public void setUp() throws Exception {
     MockitoAnnotations.initMocks(this);
     adsUtilityRegistry = AdsUtilityRegistry.getInstance();
     batchJobHelper = createBatchJobHelper(uploader);
+    streamingHelper = (StreamingBatchJobHelperInterface<OperationT, ResultT>) batchJobHelper;
     operations = ImmutableList.<OperationT>of(getPauseCampaignOperation(TEST_CAMPAIGN_ID));
   }
 
@@ -119,6 +135,76 @@ public abstract class BatchJobHelperTest<
     }
   }
 
+  @Test
+  public void testDownloadBatchJobMutateResults() throws BatchJobException, IOException {
+    File tempFile = tempFolder.newFile();
+    OutputStream responseOutputStream = new FileOutputStream(tempFile);
+    Streams.write(getResponseString(3), responseOutputStream, StandardCharsets.UTF_8);
+    CollectingResultHandler handler = new CollectingResultHandler(Integer.MAX_VALUE);
+    long resultCount =
+        streamingHelper.downloadBatchJobMutateResults(tempFile.toURI().toURL().toString(), handler);
+    assertEquals("Result count is incorrect", 3, resultCount);
+    assertEquals("Handled result count is incorrect", 3, handler.results.size());
+    for (ResultT result : handler.results) {
+      assertNotNull("Operand of streamed result is null", result.getOperand());
+    }
+    verify(batchJobLogger).logDownload(tempFile.toURI().toURL().toString(), 3L, null);
+  }
+
+  /**
+   * Verifies that the download stops once the handler returns {@code false}.
+   */
+  @Test
+  public void testDownloadBatchJobMutateResults_handlerStops()
+      throws BatchJobException, IOException {
+    File tempFile = tempFolder.newFile();
+    OutputStream responseOutputStream = new FileOutputStream(tempFile);
+    Streams.write(getResponseString(3), responseOutputStream, StandardCharsets.UTF_8);
+    CollectingResultHandler handler = new CollectingResultHandler(1);
+    long resultCount =
+        streamingHelper.downloadBatchJobMutateResults(tempFile.toURI().toURL().toString(), handler);
+    assertEquals("Result count is incorrect", 1, resultCount);
+    assertEquals("Handled result count is incorrect", 1, handler.results.size());
+  }
+
+  @Test
+  public void testDownloadBatchJobMutateResults_emptyResponse()
+      throws BatchJobException, IOException {
+    File tempFile = tempFolder.newFile();
+    OutputStream responseOutputStream = new FileOutputStream(tempFile);
+    Streams.write(getResponseString(0), responseOutputStream, StandardCharsets.UTF_8);
+    CollectingResultHandler handler = new CollectingResultHandler(Integer.MAX_VALUE);
+    assertEquals(
+        "Result count of an empty download response != 0",
+        0,
+        streamingHelper.downloadBatchJobMutateResults(
+            tempFile.toURI().toURL().toString(), handler));
+  }
+
+  /**
+   * Verifies that an exception thrown by the handler fails the download.
+   */
+  @Test
+  public void testDownloadBatchJobMutateResults_handlerFails() throws IOException {
+    File tempFile = tempFolder.newFile();
+    OutputStream responseOutputStream = new FileOutputStream(tempFile);
+    Streams.write(getResponseString(1), responseOutputStream, StandardCharsets.UTF_8);
+    final IOException handlerException = new IOException("Handler failed");
+    try {
+      streamingHelper.downloadBatchJobMutateResults(
+          tempFile.toURI().toURL().toString(),
+          new BatchJobMutateResultHandler<ResultT>() {
+            @Override
+            public boolean handleResult(ResultT result) throws IOException {
+              throw handlerException;
+            }
+          });
+      fail("Expected a BatchJobException");
+    } catch (BatchJobException e) {
+      assertSame("Cause is incorrect", handlerException, e.getCause());
+    }
+  }
+
   @Test
   public void testUploadBatchJobOperations() throws BatchJobException {
     BatchJobUploadStatus status = new BatchJobUploadStatus(0L, URI.create(UPLOAD_URL));
@@ -130,6 +216,43 @@ public abstract class BatchJobHelperTest<
             Matchers.eq(status));
   }
 
+  /**
+   * Verifies that streamed operations are passed to the uploader in small requests, starting a
+   * new upload.
+   */
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testStreamBatchJobOperations() throws BatchJobException {
+    BatchJobUploadStatus status = new BatchJobUploadStatus(0L, URI.create(UPLOAD_URL));
+    List<OperationT> streamedOperations =
+        Collections.nCopies(250, getPauseCampaignOperation(TEST_CAMPAIGN_ID));
+    streamingHelper.streamBatchJobOperations(streamedOperations.iterator(), UPLOAD_URL);
+    ArgumentCaptor<Iterator> requests = ArgumentCaptor.forClass(Iterator.class);
+    verify(uploader).streamBatchJobOperations(requests.capture(), Matchers.eq(status));
+    assertEquals("Number of streamed requests is incorrect", 3,
+        Iterators.size(requests.getValue()));
+  }
+
+  /**
+   * Verifies that checkpointed streamed operations are passed to the uploader with the checkpoint
+   * store, in the same small requests as an upload without checkpoints.
+   */
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testStreamBatchJobOperations_checkpointed() throws BatchJobException {
+    BatchJobUploadCheckpointStore checkpointStore =
+        new FileBatchJobUploadCheckpointStore(new File(tempFolder.getRoot(), "checkpoint"));
+    List<OperationT> streamedOperations =
+        Collections.nCopies(250, getPauseCampaignOperation(TEST_CAMPAIGN_ID));
+    streamingHelper.streamBatchJobOperations(
+        streamedOperations.iterator(), UPLOAD_URL, checkpointStore);
+    ArgumentCaptor<Iterator> requests = ArgumentCaptor.forClass(Iterator.class);
+    verify(uploader).streamBatchJobOperations(
+        requests.capture(), Matchers.eq(URI.create(UPLOAD_URL)), Matchers.same(checkpointStore));
+    assertEquals("Number of streamed requests is incorrect", 3,
+        Iterators.size(requests.getValue()));
+  }
+
   @Test
   public void testUploadIncrementalBatchJobOperations() throws BatchJobException {
     BatchJobUploadStatus status = new BatchJobUploadStatus(0L, URI.create(UPLOAD_URL));
@@ -184,19 +307,49 @@ public abstract class BatchJobHelperTest<
    * ID.
    */
   private String getResponseString() {
-    return String.format(
-        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
-            + "<mutateResponse xmlns=\"https://adwords.google.com/api/adwords/cm/%s\">"
-            + "  <rval>"
-            + "    <result>"
-            + "      <Campaign>"
-            + "        <id>%d</id>"
-            + "        <status>PAUSED</status>"
-            + "      </Campaign>"
-            + "    </result>"
-            + "  </rval>"
-            + "</mutateResponse>",
-        getVersion(),
-        TEST_CAMPAIGN_ID);
+    return getResponseString(1);
+  }
+
+  /**
+   * Returns a test download response string with {@code resultCount} results.
+   */
+  private String getResponseString(int resultCount) {
+    StringBuilder response = new StringBuilder();
+    response.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    response.append(String.format(
+        "<mutateResponse xmlns=\"https://adwords.google.com/api/adwords/cm/%s\">", getVersion()));
+    for (int i = 0; i < resultCount; i++) {
+      response.append(String.format(
+          "  <rval>"
+              + "    <result>"
+              + "      <Campaign>"
+              + "        <id>%d</id>"
+              + "        <status>PAUSED</status>"
+              + "      </Campaign>"
+              + "    </result>"
+              + "    <index>%d</index>"
+              + "  </rval>",
+          TEST_CAMPAIGN_ID,
+          i));
+    }
+    return response.append("</mutateResponse>").toString();
+  }
+
+  /**
+   * Handler that collects results until it reaches a maximum number of results.
+   */
+  private class CollectingResultHandler implements BatchJobMutateResultHandler<ResultT> {
+    private final int maxResults;
+    private final List<ResultT> results = new ArrayList<>();
+
+    CollectingResultHandler(int maxResults) {
+      this.maxResults = maxResults;
+    }
+
+    @Override
+    public boolean handleResult(ResultT result) {
+      results.add(result);
+      return results.size() < maxResults;
+    }
   }
 }
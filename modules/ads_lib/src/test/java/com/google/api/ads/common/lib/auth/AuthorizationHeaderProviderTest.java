@@ -42,7 +42,7 @@ public class AuthorizationHeaderProviderTest {
 
   @Mock private OAuth2AuthorizationHeaderProvider oAuth2AuthorizationHeaderProvider;
   @Mock private AdsLibConfiguration adsLibConfiguration;
-  @Mock private OAuth2Helper oAuth2Helper;
+  @Mock private OAuth2TokenManager oAuth2TokenManager;
 
   private static final GenericUrl ENDPOINT_URL = new GenericUrl("https://google.com/api/service");
 
@@ -51,7 +51,7 @@ public class AuthorizationHeaderProviderTest {
     MockitoAnnotations.initMocks(this);
 
     authorizationHeaderProvider = new AuthorizationHeaderProvider(
-        oAuth2AuthorizationHeaderProvider, adsLibConfiguration, oAuth2Helper);
+        oAuth2AuthorizationHeaderProvider, adsLibConfiguration, oAuth2TokenManager);
   }
 
   @Test
@@ -71,7 +71,7 @@ public class AuthorizationHeaderProviderTest {
     assertEquals("OAuth2 Header",
         authorizationHeaderProvider.getAuthorizationHeader(adsSession, ENDPOINT_URL.toString()));
 
-    verify(oAuth2Helper).refreshCredential(credential);
+    verify(oAuth2TokenManager).refreshCredential(credential);
   }
 
   @Test
@@ -91,7 +91,7 @@ public class AuthorizationHeaderProviderTest {
     assertEquals("OAuth2 Header",
         authorizationHeaderProvider.getAuthorizationHeader(adsSession, ENDPOINT_URL.toString()));
 
-    verify(oAuth2Helper, times(0)).refreshCredential(credential);
+    verify(oAuth2TokenManager, times(0)).refreshCredential(credential);
   }
 
   private abstract class BaseAdsSession implements AdsSession {
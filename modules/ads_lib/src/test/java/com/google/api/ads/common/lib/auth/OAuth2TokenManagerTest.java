@@ -0,0 +1,300 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.api.ads.common.lib.auth.OAuth2TokenManager.RefreshStats;
+import com.google.api.ads.common.lib.auth.testing.AuthResponseProvider;
+import com.google.api.ads.common.lib.testing.MockHttpServer;
+import com.google.api.ads.common.lib.testing.MockResponse;
+import com.google.api.client.auth.oauth2.BearerToken;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.security.KeyPairGenerator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link OAuth2TokenManager}.
+ */
+@RunWith(JUnit4.class)
+public class OAuth2TokenManagerTest {
+
+  private static final String ACCESS_TOKEN = "abc";
+  private static final String NEW_ACCESS_TOKEN = "def";
+  private static final String REFRESH_TOKEN = "refreshToken";
+  private static final Long REFRESH_WINDOW_SECS = 60L;
+
+  private OAuth2TokenManager tokenManager;
+  private OAuth2Helper oAuth2Helper;
+  private MockHttpServer tokenServer;
+  private Credential credential;
+
+  @Mock private Logger libLogger;
+  @Mock private ScheduledExecutorService scheduler;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    tokenServer = new MockHttpServer();
+    credential =
+        new Credential.Builder(BearerToken.authorizationHeaderAccessMethod())
+            .setTransport(tokenServer.getHttpTransport())
+            .setJsonFactory(new JacksonFactory())
+            .setClientAuthentication(Mockito.mock(HttpExecuteInterceptor.class))
+            .setTokenServerEncodedUrl(tokenServer.getServerUrl())
+            .build();
+    credential.setRefreshToken(REFRESH_TOKEN);
+    oAuth2Helper = spy(new OAuth2Helper(libLogger, REFRESH_WINDOW_SECS));
+    tokenManager = new OAuth2TokenManager(
+        oAuth2Helper, libLogger, REFRESH_WINDOW_SECS, scheduler, Ticker.systemTicker());
+  }
+
+  /**
+   * Tests that a credential outside the refresh window is not refreshed on the calling thread,
+   * and that a background refresh is scheduled once for it.
+   */
+  @Test
+  public void testRefreshCredential_notInWindow() throws Exception {
+    credential.setAccessToken(ACCESS_TOKEN);
+    credential.setExpiresInSeconds(3600L);
+
+    assertSame(credential, tokenManager.refreshCredential(credential));
+    tokenManager.refreshCredential(credential);
+
+    verify(oAuth2Helper, never()).callRefreshToken(credential);
+    ArgumentCaptor<Long> delayCaptor = ArgumentCaptor.forClass(Long.class);
+    verify(scheduler).schedule(any(Runnable.class), delayCaptor.capture(), eq(TimeUnit.SECONDS));
+    long delay = delayCaptor.getValue();
+    assertTrue("Unexpected delay " + delay,
+        delay <= 3600L - 2 * REFRESH_WINDOW_SECS && delay > 3600L - 3 * REFRESH_WINDOW_SECS);
+    assertEquals(0, tokenManager.getRefreshStats().getStallCount());
+  }
+
+  /**
+   * Tests that a credential without an expiry or refresh token gets no background refresh.
+   */
+  @Test
+  public void testRefreshCredential_noExpiry() throws Exception {
+    credential.setAccessToken(ACCESS_TOKEN);
+    credential.setExpiresInSeconds(null);
+
+    tokenManager.refreshCredential(credential);
+
+    verify(oAuth2Helper, never()).callRefreshToken(credential);
+    Mockito.verifyZeroInteractions(scheduler);
+  }
+
+  /**
+   * Tests that a service account credential, which has no refresh token, gets a background
+   * refresh.
+   */
+  @Test
+  public void testRefreshCredential_serviceAccount() throws Exception {
+    GoogleCredential serviceAccountCredential = new GoogleCredential.Builder()
+        .setTransport(tokenServer.getHttpTransport())
+        .setJsonFactory(new JacksonFactory())
+        .setServiceAccountId("service-account@example.com")
+        .setServiceAccountScopes(ImmutableList.of("https://www.googleapis.com/auth/adwords"))
+        .setServiceAccountPrivateKey(
+            KeyPairGenerator.getInstance("RSA").generateKeyPair().getPrivate())
+        .build();
+    serviceAccountCredential.setAccessToken(ACCESS_TOKEN);
+    serviceAccountCredential.setExpiresInSeconds(3600L);
+
+    tokenManager.refreshCredential(serviceAccountCredential);
+
+    verify(oAuth2Helper, never()).callRefreshToken(serviceAccountCredential);
+    verify(scheduler).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.SECONDS));
+  }
+
+  /**
+   * Tests that a credential with an expiry but no way to refresh it gets no background refresh.
+   */
+  @Test
+  public void testRefreshCredential_notRefreshable() throws Exception {
+    credential.setRefreshToken(null);
+    credential.setAccessToken(ACCESS_TOKEN);
+    credential.setExpiresInSeconds(3600L);
+
+    tokenManager.refreshCredential(credential);
+
+    Mockito.verifyZeroInteractions(scheduler);
+  }
+
+  /**
+   * Tests that a credential inside the refresh window is refreshed against the token endpoint.
+   */
+  @Test
+  public void testRefreshCredential_tokenEndpoint() throws Exception {
+    credential.setAccessToken(ACCESS_TOKEN);
+    credential.setExpiresInSeconds(REFRESH_WINDOW_SECS - 10L);
+    MockResponse tokenResponse = new MockResponse(
+        AuthResponseProvider.getTestOAuthResponse(NEW_ACCESS_TOKEN, 3600L, REFRESH_TOKEN));
+    tokenResponse.setContentType("application/json; charset=UTF-8");
+    tokenServer.setMockResponse(tokenResponse);
+
+    tokenManager.refreshCredential(credential);
+
+    assertEquals(NEW_ACCESS_TOKEN, credential.getAccessToken());
+    assertEquals(1, tokenServer.getAllResponses().size());
+    assertTrue(tokenServer.getLastResponse().getRequestBody().contains("grant_type=refresh_token"));
+    RefreshStats refreshStats = tokenManager.getRefreshStats();
+    assertEquals(1, refreshStats.getRefreshCount());
+    assertEquals(0, refreshStats.getRefreshFailureCount());
+    assertEquals(1, refreshStats.getStallCount());
+    verify(scheduler).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testRefreshCredential_failure() throws Exception {
+    credential.setAccessToken(null);
+    IOException exception = new IOException("Failed");
+    doThrow(exception).when(oAuth2Helper).callRefreshToken(credential);
+
+    try {
+      tokenManager.refreshCredential(credential);
+      fail("Expected an IOException");
+    } catch (IOException e) {
+      assertSame(exception, e);
+    }
+    RefreshStats refreshStats = tokenManager.getRefreshStats();
+    assertEquals(1, refreshStats.getRefreshCount());
+    assertEquals(1, refreshStats.getRefreshFailureCount());
+    Mockito.verifyZeroInteractions(scheduler);
+  }
+
+  /**
+   * Tests that a refresh requested while another is in flight joins it instead of calling the
+   * token endpoint again.
+   */
+  @Test
+  public void testRefresh_singleFlight() throws Exception {
+    final CountDownLatch refreshStarted = new CountDownLatch(1);
+    final CountDownLatch refreshReleased = new CountDownLatch(1);
+    doAnswer(new Answer<Boolean>() {
+      @Override
+      public Boolean answer(InvocationOnMock invocation) throws Throwable {
+        refreshStarted.countDown();
+        refreshReleased.await();
+        return true;
+      }
+    }).when(oAuth2Helper).callRefreshToken(credential);
+
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> first = executorService.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          tokenManager.refresh(credential, REFRESH_WINDOW_SECS).get();
+          return null;
+        }
+      });
+      assertTrue(refreshStarted.await(10, TimeUnit.SECONDS));
+
+      ListenableFuture<Void> joined = tokenManager.refresh(credential, REFRESH_WINDOW_SECS);
+      assertFalse(joined.isDone());
+
+      refreshReleased.countDown();
+      joined.get(10, TimeUnit.SECONDS);
+      first.get(10, TimeUnit.SECONDS);
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    verify(oAuth2Helper, times(1)).callRefreshToken(credential);
+    assertEquals(1, tokenManager.getRefreshStats().getRefreshCount());
+  }
+
+  /**
+   * Tests that a refresh started after another refresh has completed does not call the token
+   * endpoint again.
+   */
+  @Test
+  public void testRefresh_alreadyRefreshed() throws Exception {
+    credential.setAccessToken(NEW_ACCESS_TOKEN);
+    credential.setExpiresInSeconds(3600L);
+
+    tokenManager.refresh(credential, REFRESH_WINDOW_SECS).get();
+
+    verify(oAuth2Helper, never()).callRefreshToken(credential);
+    assertEquals(0, tokenManager.getRefreshStats().getRefreshCount());
+  }
+
+  /**
+   * Tests that the scheduled background refresh refreshes the credential, and that the next use
+   * of the credential schedules another one.
+   */
+  @Test
+  public void testBackgroundRefresh() throws Exception {
+    credential.setAccessToken(ACCESS_TOKEN);
+    credential.setExpiresInSeconds(3600L);
+    doReturn(true).when(oAuth2Helper).callRefreshToken(credential);
+
+    tokenManager.refreshCredential(credential);
+    ArgumentCaptor<Runnable> refreshCaptor = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler).schedule(refreshCaptor.capture(), anyLong(), eq(TimeUnit.SECONDS));
+
+    // The background refresh runs once the credential is within twice the refresh window.
+    credential.setExpiresInSeconds(2 * REFRESH_WINDOW_SECS - 10L);
+    refreshCaptor.getValue().run();
+    verify(oAuth2Helper).callRefreshToken(credential);
+    RefreshStats refreshStats = tokenManager.getRefreshStats();
+    assertEquals(1, refreshStats.getBackgroundRefreshCount());
+    assertEquals(0, refreshStats.getStallCount());
+
+    tokenManager.refreshCredential(credential);
+    verify(scheduler, times(2)).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.SECONDS));
+  }
+}
@@ -14,7 +14,9 @@
 
 package com.google.api.ads.common.lib.client;
 
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import com.google.api.ads.common.lib.soap.SoapCallReturn;
 import com.google.api.ads.common.lib.soap.SoapClientHandlerInterface;
@@ -66,9 +68,17 @@ public class AdsServiceClientTest {
 
   @Test
   public void testSetHeaders() throws Exception {
-    adsServiceClient.setHeaders();
+    adsServiceClient.setHeaders(soapClient);
 
     verify(soapClientHandler).clearHeaders(soapClient);
     verify(headerHandler).setHeaders(soapClient, adsSession, adsServiceDescriptor);
   }
+
+  @Test
+  public void testCreateSoapClient() {
+    Object newSoapClient = new Object();
+    when(soapClientHandler.createSoapClient(adsServiceDescriptor)).thenReturn(newSoapClient);
+
+    assertSame(newSoapClient, adsServiceClient.createSoapClient());
+  }
 }
@@ -0,0 +1,70 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.common.lib.factory;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.when;
+
+import com.google.api.ads.common.lib.client.AdsSession;
+import com.google.api.ads.common.lib.soap.testing.MockSoapClientInterface;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Tests for {@link AsyncAdsServices}.
+ */
+@RunWith(JUnit4.class)
+public class AsyncAdsServicesTest {
+
+  @Mock
+  private AdsServicesInterface<AdsSession> services;
+
+  @Mock
+  private AdsSession session;
+
+  @Mock
+  private MockSoapClientInterface service;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(services.get(session, MockSoapClientInterface.class)).thenReturn(service);
+  }
+
+  @Test
+  public void testGet() {
+    ListeningExecutorService executorService = MoreExecutors.newDirectExecutorService();
+    AsyncAdsServices<AdsSession> asyncServices =
+        new AsyncAdsServices<AdsSession>(services, executorService);
+    AsyncService<MockSoapClientInterface> asyncService =
+        asyncServices.get(session, MockSoapClientInterface.class);
+    assertSame(service, asyncService.getService());
+    assertSame(executorService, asyncServices.getExecutorService());
+  }
+
+  @Test
+  public void testGet_defaultExecutorService() {
+    assertSame(AsyncService.getDefaultExecutorService(),
+        new AsyncAdsServices<AdsSession>(services).getExecutorService());
+  }
+}
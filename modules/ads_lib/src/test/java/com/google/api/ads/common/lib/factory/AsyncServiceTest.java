@@ -0,0 +1,223 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.ads.common.lib.soap.testing.MockSoapClientInterface;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.rmi.RemoteException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Tests for {@link AsyncService}.
+ */
+@RunWith(JUnit4.class)
+public class AsyncServiceTest {
+
+  private AsyncService<MockSoapClientInterface> asyncService;
+
+  @Mock
+  private MockSoapClientInterface service;
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Before
+  public void setUp() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    asyncService = new AsyncService<MockSoapClientInterface>(
+        service, MoreExecutors.newDirectExecutorService());
+  }
+
+  @Test
+  public void testCall() throws Exception {
+    when(service.identityCallSingle("foo")).thenReturn("foo");
+    ListenableFuture<Object> result = asyncService.call(
+        new AsyncService.ServiceCall<MockSoapClientInterface, Object>() {
+          @Override
+          public Object call(MockSoapClientInterface service) {
+            return service.identityCallSingle("foo");
+          }
+        });
+    assertEquals("foo", result.get());
+  }
+
+  @Test
+  public void testCall_exception() throws Exception {
+    final RemoteException exception = new RemoteException("bar");
+    ListenableFuture<String> result = asyncService.call(
+        new AsyncService.ServiceCall<MockSoapClientInterface, String>() {
+          @Override
+          public String call(MockSoapClientInterface service) throws RemoteException {
+            throw exception;
+          }
+        });
+    assertTrue(result.isDone());
+    try {
+      result.get();
+      fail("Expected an ExecutionException");
+    } catch (ExecutionException e) {
+      assertSame(exception, e.getCause());
+    }
+  }
+
+  @Test
+  public void testCall_null() {
+    thrown.expect(NullPointerException.class);
+    asyncService.call(null);
+  }
+
+  @Test
+  public void testNewProxy() throws Exception {
+    when(service.identityCallSingle("foo")).thenReturn("foo");
+    AsyncMockSoapClient asyncClient = asyncService.newProxy(AsyncMockSoapClient.class);
+    assertEquals("foo", asyncClient.identityCallSingle("foo").get());
+    assertNull(asyncClient.emptyCall().get());
+    verify(service).emptyCall();
+  }
+
+  @Test
+  public void testNewProxy_exception() throws Exception {
+    RuntimeException exception = new IllegalStateException("bar");
+    when(service.identityCallSingle("foo")).thenThrow(exception);
+    ListenableFuture<Object> result =
+        asyncService.newProxy(AsyncMockSoapClient.class).identityCallSingle("foo");
+    try {
+      result.get();
+      fail("Expected an ExecutionException");
+    } catch (ExecutionException e) {
+      assertSame(exception, e.getCause());
+    }
+  }
+
+  /**
+   * Tests that a cause that is neither an Exception nor an Error fails the future instead of the
+   * proxy.
+   */
+  @Test
+  public void testNewProxy_throwable() throws Exception {
+    final Throwable throwable = new Throwable("bar");
+    when(service.identityCallSingle("foo")).thenAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        throw throwable;
+      }
+    });
+    ListenableFuture<Object> result =
+        asyncService.newProxy(AsyncMockSoapClient.class).identityCallSingle("foo");
+    try {
+      result.get();
+      fail("Expected an ExecutionException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof UndeclaredThrowableException);
+      assertSame(throwable, e.getCause().getCause());
+    }
+  }
+
+  @Test
+  public void testNewProxy_notFuture() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("does not return a ListenableFuture");
+    asyncService.newProxy(MockSoapClientInterface.class);
+  }
+
+  @Test
+  public void testNewProxy_noMatchingMethod() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("no method matching");
+    asyncService.newProxy(AsyncUnknownClient.class);
+  }
+
+  /**
+   * Tests that calls beyond the threads and queue of a bounded executor are rejected.
+   */
+  @Test
+  public void testNewExecutorService_bounded() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    ListeningExecutorService executorService = AsyncService.newExecutorService(1, 1);
+    try {
+      AsyncService<MockSoapClientInterface> boundedService =
+          new AsyncService<MockSoapClientInterface>(service, executorService);
+      AsyncService.ServiceCall<MockSoapClientInterface, Object> blockingCall =
+          new AsyncService.ServiceCall<MockSoapClientInterface, Object>() {
+            @Override
+            public Object call(MockSoapClientInterface service) throws InterruptedException {
+              latch.await();
+              return null;
+            }
+          };
+      ListenableFuture<Object> running = boundedService.call(blockingCall);
+      ListenableFuture<Object> queued = boundedService.call(blockingCall);
+      try {
+        boundedService.call(blockingCall);
+        fail("Expected a RejectedExecutionException");
+      } catch (RejectedExecutionException e) {
+        // Expected.
+      }
+      latch.countDown();
+      running.get();
+      queued.get();
+    } finally {
+      latch.countDown();
+      executorService.shutdown();
+    }
+  }
+
+  @Test
+  public void testGetService() {
+    assertSame(service, asyncService.getService());
+  }
+
+  @Test
+  public void testGetDefaultExecutorService() {
+    assertSame(AsyncService.getDefaultExecutorService(), AsyncService.getDefaultExecutorService());
+  }
+
+  /** Asynchronous view of some methods of {@link MockSoapClientInterface}. */
+  interface AsyncMockSoapClient {
+    ListenableFuture<Object> identityCallSingle(Object arg);
+
+    ListenableFuture<Void> emptyCall();
+  }
+
+  /** Asynchronous interface with a method the service does not have. */
+  interface AsyncUnknownClient {
+    ListenableFuture<Object> unknownCall(Object arg);
+  }
+}
@@ -0,0 +1,130 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.soap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.ads.common.lib.soap.HistogramSoapCallListener.CallStats;
+import com.google.api.ads.common.lib.soap.HistogramSoapCallListener.LatencyHistogram;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link HistogramSoapCallListener}.
+ */
+@RunWith(JUnit4.class)
+public class HistogramSoapCallListenerTest {
+
+  @Test
+  public void testOnSoapCallComplete() {
+    HistogramSoapCallListener listener = new HistogramSoapCallListener();
+
+    listener.onSoapCallComplete(createMetrics("123", 2, 100, 300, null));
+    listener.onSoapCallComplete(
+        createMetrics("123", 3, 50, 500, new IllegalStateException()));
+    listener.onSoapCallComplete(createMetrics("456", 1, 10, 20, null));
+
+    assertEquals(2, listener.getStats().size());
+    CallStats callStats = listener.getStats("CampaignService", "mutate", "123");
+    assertEquals(2, callStats.getCallCount());
+    assertEquals(5, callStats.getOperationCount());
+    assertEquals(150, callStats.getRequestBytes());
+    assertEquals(800, callStats.getResponseBytes());
+    assertEquals(ImmutableMap.of(IllegalStateException.class.getName(), 1L),
+        callStats.getErrorCounts());
+    assertEquals(2, callStats.getTotalLatency().getCount());
+    assertEquals(1, listener.getStats("CampaignService", "mutate", "456").getCallCount());
+
+    listener.reset();
+    assertTrue(listener.getStats().isEmpty());
+    assertNull(listener.getStats("CampaignService", "mutate", "123"));
+  }
+
+  /**
+   * Tests that every value maps to a bucket whose range contains it and is at most 1/16 of the
+   * value wide.
+   */
+  @Test
+  public void testBucketIndex() {
+    for (long value : new long[] {0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789L,
+        (1L << 36) - 1}) {
+      int index = LatencyHistogram.bucketIndex(value);
+      long highest = LatencyHistogram.highestValueInBucket(index);
+      long lowest = index == 0 ? 0 : LatencyHistogram.highestValueInBucket(index - 1) + 1;
+      assertTrue("Value " + value + " not in its bucket", lowest <= value && value <= highest);
+      assertTrue("Bucket of " + value + " too wide", (highest - lowest) * 16 <= Math.max(value, 1));
+    }
+  }
+
+  @Test
+  public void testLatencyHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i * 1000L);
+    }
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(100000, histogram.getMaxMicros());
+    assertEquals(50500, histogram.getMeanMicros(), 0.001);
+    assertWithinBucket(50000, histogram.getValueAtPercentile(50));
+    assertWithinBucket(99000, histogram.getValueAtPercentile(99));
+    assertEquals(100000, histogram.getValueAtPercentile(100));
+    assertWithinBucket(1000, histogram.getValueAtPercentile(0));
+  }
+
+  @Test
+  public void testLatencyHistogram_empty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    assertEquals(0, histogram.getValueAtPercentile(99));
+    assertEquals(0, histogram.getMeanMicros(), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLatencyHistogram_invalidPercentile() {
+    new LatencyHistogram().getValueAtPercentile(101);
+  }
+
+  private static void assertWithinBucket(long expected, long actual) {
+    assertTrue("Expected about " + expected + " but was " + actual,
+        actual >= expected && actual - expected <= expected / 16);
+  }
+
+  private static SoapCallMetrics createMetrics(String customerId, int operationCount,
+      long requestBytes, long responseBytes, Throwable exception) {
+    SoapCallMetrics metrics = new SoapCallMetrics(customerId, operationCount);
+    metrics.recordHeaderSetup(TimeUnit.MICROSECONDS.toNanos(10));
+    metrics.recordSerialization(TimeUnit.MICROSECONDS.toNanos(20), requestBytes);
+    metrics.recordTransport(TimeUnit.MICROSECONDS.toNanos(120));
+    metrics.addResponseBytes(responseBytes);
+    metrics.recordSoapClientCall(TimeUnit.MICROSECONDS.toNanos(150));
+    SoapCallReturn soapCallReturn = new SoapCallReturn.Builder()
+        .withRequestInfo(new RequestInfo.Builder()
+            .withServiceName("CampaignService")
+            .withMethodName("mutate")
+            .build())
+        .withException(exception)
+        .build();
+    metrics.recordCompletion(TimeUnit.MICROSECONDS.toNanos(170), soapCallReturn, null);
+    return metrics;
+  }
+}
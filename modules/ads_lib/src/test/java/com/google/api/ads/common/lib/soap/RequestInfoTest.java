@@ -0,0 +1,89 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.soap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.common.base.Supplier;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link RequestInfo} and {@link ResponseInfo}.
+ */
+@RunWith(JUnit4.class)
+public class RequestInfoTest {
+
+  @Test
+  public void testSoapXml_default() {
+    assertNull(new RequestInfo.Builder().build().getSoapRequestXml());
+    assertNull(new ResponseInfo.Builder().build().getSoapResponseXml());
+  }
+
+  @Test
+  public void testSoapXml_string() {
+    assertEquals("<request/>",
+        new RequestInfo.Builder().withSoapRequestXml("<request/>").build().getSoapRequestXml());
+    assertEquals("<response/>",
+        new ResponseInfo.Builder().withSoapResponseXml("<response/>").build()
+            .getSoapResponseXml());
+  }
+
+  /**
+   * Tests that a SOAP XML supplier is not called until the XML is requested, and is called only
+   * once after that.
+   */
+  @Test
+  public void testSoapXml_supplier() {
+    CountingSupplier requestXmlSupplier = new CountingSupplier("<request/>");
+    CountingSupplier responseXmlSupplier = new CountingSupplier("<response/>");
+    RequestInfo requestInfo =
+        new RequestInfo.Builder().withSoapRequestXmlSupplier(requestXmlSupplier).build();
+    ResponseInfo responseInfo =
+        new ResponseInfo.Builder().withSoapResponseXmlSupplier(responseXmlSupplier).build();
+    assertEquals(0, requestXmlSupplier.calls.get());
+    assertEquals(0, responseXmlSupplier.calls.get());
+
+    assertEquals("<request/>", requestInfo.getSoapRequestXml());
+    assertEquals("<request/>", requestInfo.getSoapRequestXml());
+    assertEquals("<response/>", responseInfo.getSoapResponseXml());
+    assertEquals("<response/>", responseInfo.getSoapResponseXml());
+    assertEquals(1, requestXmlSupplier.calls.get());
+    assertEquals(1, responseXmlSupplier.calls.get());
+  }
+
+  /**
+   * Supplier that counts how many times it was called.
+   */
+  private static class CountingSupplier implements Supplier<String> {
+    private final String value;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private CountingSupplier(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public String get() {
+      calls.incrementAndGet();
+      return value;
+    }
+  }
+}
@@ -107,6 +107,15 @@ public class SoapClientHandlerTest {
     assertNull(processedArgs);
   }
 
+  @Test
+  public void testProcessArgs_exactNumber() throws Exception {
+    Object[] args = new Object[] {new Object[] {"1"}};
+    Object[] processedArgs = soapClientHandler.processSoapArguments(
+        MockSoapClient.class.getMethod("identityCall", Object[].class), args);
+    assertEquals(1, processedArgs.length);
+    assertEquals(args[0], processedArgs[0]);
+  }
+
   @Test
   public void testProcessArgs_tooMany() throws Exception {
     Object[] args =
@@ -127,6 +136,16 @@ public class SoapClientHandlerTest {
     assertEquals(MockSoapClient.class.getMethod("identityCall", Object[].class), method);
   }
 
+  @Test
+  public void testGetSoapClientMethod_cached() throws Exception {
+    Method similarMethod = SimilarMockSoapClient.class.getMethod(
+        "identityCall", Object[].class, Object.class, Object.class);
+
+    Method method = soapClientHandler.getSoapClientMethod(soapClient, similarMethod);
+
+    assertSame(method, soapClientHandler.getSoapClientMethod(new MockSoapClient(), similarMethod));
+  }
+
   @Test
   public void testGetSoapClientMethod_noMethod() throws Exception {
     thrown.expect(NoSuchMethodException.class);
@@ -15,7 +15,13 @@
 package com.google.api.ads.common.lib.soap;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -29,11 +35,23 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests for {@link SoapServiceClient}.
@@ -45,6 +63,8 @@ public class SoapServiceClientTest {
 
   @Mock private SoapClientHandler<Object> soapClientHandler;
   @Mock private MockSoapClient soapClient;
+  @Mock private MockSoapClient additionalSoapClient;
+  @Mock private SoapCallListener soapCallListener;
 
   @Rule public ExpectedException thrown = ExpectedException.none();
 
@@ -54,7 +74,8 @@ public class SoapServiceClientTest {
   public void setUp() {
     MockitoAnnotations.initMocks(this);
 
-    soapServiceClient = new TestSoapServiceClient(soapClientHandler, soapClient);
+    soapServiceClient =
+        new TestSoapServiceClient(soapClientHandler, soapClient, additionalSoapClient);
   }
 
   @Test
@@ -102,6 +123,14 @@ public class SoapServiceClientTest {
         TestSoapServiceClient.class.getMethod("doSomething", Object.class), new Object[] {""});
   }
 
+  @Test
+  public void testInvoke_serviceClientMethodRepeated() throws Throwable {
+    Method doSomething = TestSoapServiceClient.class.getMethod("doSomething", Object.class);
+
+    assertEquals("first", soapServiceClient.invoke(null, doSomething, new Object[] {"first"}));
+    assertEquals("second", soapServiceClient.invoke(null, doSomething, new Object[] {"second"}));
+  }
+
   @Test
   public void testInvoke_soapClientMethod() throws Throwable {
     Object returnValue = new Object();
@@ -146,7 +175,235 @@ public class SoapServiceClientTest {
     soapServiceClient.invoke(null, indentityCallMethod, args);
   }
 
+  /**
+   * Tests that an enabled listener gets the metrics of the call, and that the metrics are passed
+   * to the SOAP client handler.
+   */
   @Test
+  @SuppressWarnings("unchecked")
+  public void testInvoke_soapCallListener() throws Throwable {
+    Method identityCallMethod = MockSoapClient.class.getMethod("identityCall", Object[].class);
+    Object[] args = new Object[] {new String[] {"arg1", "arg2"}};
+    SoapCallReturn callReturn = new SoapCallReturn.Builder()
+        .withRequestInfo(new RequestInfo.Builder()
+            .withServiceName("TestService")
+            .withMethodName("identityCall")
+            .build())
+        .withReturnValue("result")
+        .build();
+    when(soapCallListener.isEnabled()).thenReturn(true);
+    when(soapClientHandler.getSoapClientMethod(soapClient, identityCallMethod))
+        .thenReturn(identityCallMethod);
+    when(soapClientHandler.invokeSoapCall(any(SoapCall.class))).thenReturn(callReturn);
+    soapServiceClient = new TestSoapServiceClient(soapClientHandler, soapClient,
+        additionalSoapClient, soapCallListener);
+
+    assertEquals("result", soapServiceClient.invoke(null, identityCallMethod, args));
+
+    ArgumentCaptor<SoapCall> soapCallCaptor = ArgumentCaptor.forClass(SoapCall.class);
+    verify(soapClientHandler).invokeSoapCall(soapCallCaptor.capture());
+    ArgumentCaptor<SoapCallMetrics> metricsCaptor = ArgumentCaptor.forClass(SoapCallMetrics.class);
+    verify(soapCallListener).onSoapCallComplete(metricsCaptor.capture());
+    SoapCallMetrics metrics = metricsCaptor.getValue();
+    assertSame(metrics, soapCallCaptor.getValue().getMetrics());
+    assertEquals("TestService", metrics.getServiceName());
+    assertEquals("identityCall", metrics.getMethodName());
+    assertEquals(TestSoapServiceClient.CUSTOMER_ID, metrics.getCustomerId());
+    assertEquals(2, metrics.getOperationCount());
+    assertNull(metrics.getException());
+    assertTrue(metrics.getTotalNanos() >= metrics.getSoapClientNanos());
+  }
+
+  /**
+   * Tests that calls that fail before reaching the SOAP client handler are reported, and that a
+   * failing listener does not fail the call.
+   */
+  @Test
+  public void testInvoke_soapCallListenerAuthenticationException() throws Throwable {
+    Method identityCallMethod = MockSoapClient.class.getMethod("identityCall", Object[].class);
+    when(soapCallListener.isEnabled()).thenReturn(true);
+    Mockito.doThrow(new IllegalStateException()).when(soapCallListener)
+        .onSoapCallComplete(any(SoapCallMetrics.class));
+    soapServiceClient = new TestSoapServiceClient(soapClientHandler, soapClient,
+        additionalSoapClient, soapCallListener);
+    soapServiceClient.throwAuthException = true;
+
+    try {
+      soapServiceClient.invoke(null, identityCallMethod, new Object[] {new String[0]});
+      fail("Expected the authentication exception");
+    } catch (AuthenticationException e) {
+      assertSame(TestSoapServiceClient.AUTH_EXCEPTION, e);
+    }
+
+    ArgumentCaptor<SoapCallMetrics> metricsCaptor = ArgumentCaptor.forClass(SoapCallMetrics.class);
+    verify(soapCallListener).onSoapCallComplete(metricsCaptor.capture());
+    assertSame(TestSoapServiceClient.AUTH_EXCEPTION, metricsCaptor.getValue().getException());
+    assertNull(metricsCaptor.getValue().getServiceName());
+  }
+
+  /**
+   * Tests that no metrics are recorded for a disabled listener.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testInvoke_soapCallListenerDisabled() throws Throwable {
+    Method identityCallMethod = MockSoapClient.class.getMethod("identityCall", Object[].class);
+    when(soapClientHandler.getSoapClientMethod(soapClient, identityCallMethod))
+        .thenReturn(identityCallMethod);
+    when(soapClientHandler.invokeSoapCall(any(SoapCall.class))).thenReturn(new SoapCallReturn());
+    soapServiceClient = new TestSoapServiceClient(soapClientHandler, soapClient,
+        additionalSoapClient, soapCallListener);
+
+    soapServiceClient.invoke(null, identityCallMethod, new Object[] {new String[0]});
+
+    ArgumentCaptor<SoapCall> soapCallCaptor = ArgumentCaptor.forClass(SoapCall.class);
+    verify(soapClientHandler).invokeSoapCall(soapCallCaptor.capture());
+    assertNull(soapCallCaptor.getValue().getMetrics());
+    verify(soapCallListener, never()).onSoapCallComplete(any(SoapCallMetrics.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testInvoke_concurrentCallsWithPool() throws Throwable {
+    final Method identityCallMethod =
+        MockSoapClient.class.getMethod("identityCall", Object[].class);
+    final Object[] args = new Object[] {new String[] {"arg1"}};
+    final CountDownLatch bothCallsInFlight = new CountDownLatch(2);
+    final Set<Object> calledSoapClients =
+        Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+
+    when(soapClientHandler.getEndpointAddress(soapClient)).thenReturn("http://test.com");
+    when(soapClientHandler.getSoapClientMethod(any(), eq(identityCallMethod)))
+        .thenReturn(identityCallMethod);
+    when(soapClientHandler.invokeSoapCall(any(SoapCall.class))).thenAnswer(
+        new Answer<SoapCallReturn>() {
+          @Override
+          public SoapCallReturn answer(InvocationOnMock invocation) throws Throwable {
+            SoapCall<Object> soapCall = (SoapCall<Object>) invocation.getArguments()[0];
+            calledSoapClients.add(soapCall.getSoapClient());
+            // Fails unless both calls are in flight at the same time.
+            bothCallsInFlight.countDown();
+            assertTrue("Calls were not concurrent",
+                bothCallsInFlight.await(10, TimeUnit.SECONDS));
+            return new SoapCallReturn.Builder().withReturnValue("result").build();
+          }
+        });
+
+    soapServiceClient.setSoapClientPoolSize(2);
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    try {
+      Callable<Object> call = new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          try {
+            return soapServiceClient.invoke(null, identityCallMethod, args);
+          } catch (Throwable t) {
+            throw new Exception(t);
+          }
+        }
+      };
+      Future<Object> first = executorService.submit(call);
+      Future<Object> second = executorService.submit(call);
+      assertEquals("result", first.get(30, TimeUnit.SECONDS));
+      assertEquals("result", second.get(30, TimeUnit.SECONDS));
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    assertEquals(2, calledSoapClients.size());
+    assertTrue(calledSoapClients.contains(soapClient));
+    assertTrue(calledSoapClients.contains(additionalSoapClient));
+    verify(soapClientHandler).setEndpointAddress(additionalSoapClient, "http://test.com");
+    assertEquals(1, soapServiceClient.createdSoapClients);
+  }
+
+  /**
+   * Tests that a pool size above 1 serializes calls instead of failing when the
+   * service client cannot create additional SOAP clients.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testInvoke_poolWithoutCreateSoapClient() throws Throwable {
+    final Method identityCallMethod =
+        MockSoapClient.class.getMethod("identityCall", Object[].class);
+    final Object[] args = new Object[] {new String[] {"arg1"}};
+    final CountDownLatch firstCallStarted = new CountDownLatch(1);
+    final CountDownLatch releaseFirstCall = new CountDownLatch(1);
+    final Set<Object> calledSoapClients =
+        Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+    soapServiceClient = new TestSoapServiceClient(soapClientHandler, soapClient, null);
+
+    when(soapClientHandler.getSoapClientMethod(any(), eq(identityCallMethod)))
+        .thenReturn(identityCallMethod);
+    when(soapClientHandler.invokeSoapCall(any(SoapCall.class))).thenAnswer(
+        new Answer<SoapCallReturn>() {
+          @Override
+          public SoapCallReturn answer(InvocationOnMock invocation) throws Throwable {
+            SoapCall<Object> soapCall = (SoapCall<Object>) invocation.getArguments()[0];
+            calledSoapClients.add(soapCall.getSoapClient());
+            firstCallStarted.countDown();
+            assertTrue("First call was not released",
+                releaseFirstCall.await(10, TimeUnit.SECONDS));
+            return new SoapCallReturn.Builder().withReturnValue("result").build();
+          }
+        });
+
+    soapServiceClient.setSoapClientPoolSize(2);
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    try {
+      Callable<Object> call = new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          try {
+            return soapServiceClient.invoke(null, identityCallMethod, args);
+          } catch (Throwable t) {
+            throw new Exception(t);
+          }
+        }
+      };
+      Future<Object> first = executorService.submit(call);
+      assertTrue(firstCallStarted.await(10, TimeUnit.SECONDS));
+      Future<Object> second = executorService.submit(call);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (soapServiceClient.createdSoapClients == 0 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      releaseFirstCall.countDown();
+      assertEquals("result", first.get(30, TimeUnit.SECONDS));
+      assertEquals("result", second.get(30, TimeUnit.SECONDS));
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    assertEquals(Collections.<Object>singleton(soapClient), calledSoapClients);
+    assertEquals(1, soapServiceClient.createdSoapClients);
+  }
+
+  @Test
+  public void testSetEndpointAddress_pooledSoapClients() throws Throwable {
+    Method identityCallMethod = MockSoapClient.class.getMethod("identityCall", Object[].class);
+    when(soapClientHandler.getSoapClientMethod(soapClient, identityCallMethod))
+        .thenReturn(identityCallMethod);
+    when(soapClientHandler.invokeSoapCall(Mockito.<SoapCall<Object>>any()))
+        .thenReturn(new SoapCallReturn());
+
+    soapServiceClient.setSoapClientPoolSize(2);
+    soapServiceClient.invoke(null, identityCallMethod, new Object[] {new String[0]});
+    soapServiceClient.setEndpointAddress("http://other.com");
+
+    // Sequential calls reuse the idle SOAP client, so no other SOAP client was created.
+    assertEquals(0, soapServiceClient.createdSoapClients);
+    verify(soapClientHandler).setEndpointAddress(soapClient, "http://other.com");
+  }
+
+  @Test
+  public void testSetSoapClientPoolSize_notPositive() {
+    thrown.expect(IllegalArgumentException.class);
+    soapServiceClient.setSoapClientPoolSize(0);
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
   public void testCreateSoapCall() throws SecurityException, NoSuchMethodException {
     Method indentityCallMethod = MockSoapClient.class.getMethod("identityCall", Object[].class);
     Object[] args = new String[] {"arg1", "arg2"};
@@ -158,6 +415,32 @@ public class SoapServiceClientTest {
     assertEquals(expectedSoapCall, soapCall);
   }
 
+  /**
+   * Tests that calls on the SOAP client passed to the constructor are still
+   * created by an override of the deprecated {@code createSoapCall} overload.
+   */
+  @Test
+  public void testInvoke_deprecatedCreateSoapCallOverride() throws Throwable {
+    Method identityCallMethod = MockSoapClient.class.getMethod("identityCall", Object[].class);
+    Object[] args = new Object[] {new String[] {"arg1"}};
+    final SoapCall<Object> overriddenSoapCall =
+        new SoapCall<Object>(identityCallMethod, soapClient, new Object[] {new String[0]});
+    soapServiceClient =
+        new TestSoapServiceClient(soapClientHandler, soapClient, additionalSoapClient) {
+          @Override
+          @SuppressWarnings("deprecation")
+          protected SoapCall<Object> createSoapCall(Method soapClientMethod, Object[] args) {
+            return overriddenSoapCall;
+          }
+        };
+    when(soapClientHandler.getSoapClientMethod(soapClient, identityCallMethod))
+        .thenReturn(identityCallMethod);
+    when(soapClientHandler.invokeSoapCall(overriddenSoapCall))
+        .thenReturn(new SoapCallReturn.Builder().withReturnValue("overridden").build());
+
+    assertEquals("overridden", soapServiceClient.invoke(null, identityCallMethod, args));
+  }
+
   @Test
   public void testSetEndpointAddress() {
     String expectedEndpointAddress = "endpoint";
@@ -209,16 +492,38 @@ public class SoapServiceClientTest {
 
     static final AuthenticationException AUTH_EXCEPTION =
         new AuthenticationException("auth", new RuntimeException()) {};
+    static final String CUSTOMER_ID = "123-456-7890";
+
+    private final Object additionalSoapClient;
+    volatile int createdSoapClients = 0;
 
     /**
      * Protected constructor.
      *
      * @param soapClientHandler the SOAP client handler
      * @param soapClient the SOAP client
+     * @param additionalSoapClient the SOAP client returned by {@link #createSoapClient()}
      */
     protected TestSoapServiceClient(SoapClientHandler<Object> soapClientHandler,
-                                   Object soapClient) {
-      super(soapClientHandler, soapClient);
+                                   Object soapClient, Object additionalSoapClient) {
+      this(soapClientHandler, soapClient, additionalSoapClient, SoapCallListener.NO_OP);
+    }
+
+    protected TestSoapServiceClient(SoapClientHandler<Object> soapClientHandler,
+        Object soapClient, Object additionalSoapClient, SoapCallListener soapCallListener) {
+      super(soapClientHandler, soapClient, soapCallListener);
+      this.additionalSoapClient = additionalSoapClient;
+    }
+
+    @Override
+    protected String getCustomerId() {
+      return CUSTOMER_ID;
+    }
+
+    @Override
+    protected Object createSoapClient() {
+      createdSoapClients++;
+      return additionalSoapClient;
     }
 
     /**
@@ -233,7 +538,7 @@ public class SoapServiceClientTest {
     protected void logSoapCall(SoapCallReturn soapCallReturn) {}
 
     @Override
-    protected void setHeaders() throws AuthenticationException  {
+    protected void setHeaders(Object soapClient) throws AuthenticationException  {
       if (throwAuthException) {
         throw AUTH_EXCEPTION;
       }
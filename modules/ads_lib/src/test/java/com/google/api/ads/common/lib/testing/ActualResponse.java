@@ -46,6 +46,7 @@ public class ActualResponse {
   }
 
   public boolean wasRequestBodyCompressed() {
-    return requestHeaders.get("Content-Encoding").contains("gzip");
+    return requestHeaders.get("Content-Encoding").contains("gzip")
+        || requestHeaders.get("content-encoding").contains("gzip");
   }
 }
@@ -79,11 +79,9 @@ public class MockHttpServer {
     final byte[] rawRequestBytes = byteOutStream.toByteArray();
   
     // Inflate the raw bytes if they are in gzip format.
-    boolean isGzipFormat = false;
-    List<String> contentEncodingValues = request.getHeaders().get("Content-Encoding");
-    if (contentEncodingValues != null && !contentEncodingValues.isEmpty()) {
-      isGzipFormat = "gzip".equals(contentEncodingValues.get(0));
-    }
+    // Header names are stored in lower case by MockLowLevelHttpRequest, so look up the header
+    // using getFirstHeaderValue, which is case-insensitive.
+    boolean isGzipFormat = "gzip".equals(request.getFirstHeaderValue("Content-Encoding"));
 
     byte[] requestBytes;
     if (isGzipFormat) {
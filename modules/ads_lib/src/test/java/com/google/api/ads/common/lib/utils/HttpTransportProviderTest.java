@@ -0,0 +1,129 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.ads.common.lib.conf.AdsLibConfiguration;
+import com.google.api.ads.common.lib.conf.AdsLibConfiguration.HttpTransportType;
+import com.google.api.ads.common.lib.utils.logging.SoapXmlLogDispatcher;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.ApacheHttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Tests for {@link HttpTransportProvider}.
+ */
+@RunWith(JUnit4.class)
+public class HttpTransportProviderTest {
+
+  private HttpTransportProvider httpTransportProvider;
+
+  @Mock
+  private AdsLibConfiguration adsLibConfiguration;
+
+  @Mock
+  private SoapXmlLogDispatcher soapXmlLogDispatcher;
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(adsLibConfiguration.getHttpMaxConnections()).thenReturn(50);
+    when(adsLibConfiguration.getHttpMaxConnectionsPerRoute()).thenReturn(5);
+    when(adsLibConfiguration.getHttpIdleConnectionTimeout()).thenReturn(30000L);
+    httpTransportProvider = new HttpTransportProvider(adsLibConfiguration, soapXmlLogDispatcher);
+  }
+
+  @Test
+  public void testGet_net() {
+    when(adsLibConfiguration.getHttpTransportType()).thenReturn(HttpTransportType.NET);
+    HttpTransport httpTransport = httpTransportProvider.get();
+    assertTrue(httpTransport instanceof NetHttpTransport);
+    assertSame("Transport should be shared", httpTransport, httpTransportProvider.get());
+    assertEquals(0, httpTransportProvider.getPooledConnectionCount());
+  }
+
+  @Test
+  public void testGet_pooled() {
+    when(adsLibConfiguration.getHttpTransportType()).thenReturn(HttpTransportType.POOLED);
+    HttpTransport httpTransport = httpTransportProvider.get();
+    assertTrue(httpTransport instanceof ApacheHttpTransport);
+    assertSame("Transport should be shared", httpTransport, httpTransportProvider.get());
+    assertEquals(0, httpTransportProvider.getPooledConnectionCount());
+  }
+
+  /**
+   * Tests that shutting down the pooled transport stops its eviction thread.
+   */
+  @Test
+  public void testShutdown_pooled() throws Exception {
+    when(adsLibConfiguration.getHttpTransportType()).thenReturn(HttpTransportType.POOLED);
+    HttpTransport httpTransport = httpTransportProvider.get();
+    assertTrue(httpTransportProvider.isIdleConnectionEvictionRunning());
+    httpTransportProvider.shutdown();
+    assertFalse(httpTransportProvider.isIdleConnectionEvictionRunning());
+    verify(soapXmlLogDispatcher).shutdown();
+    assertNotSame("A new transport should be created after shutdown", httpTransport,
+        httpTransportProvider.get());
+    httpTransportProvider.shutdown();
+  }
+
+  @Test
+  public void testShutdown_net() throws Exception {
+    when(adsLibConfiguration.getHttpTransportType()).thenReturn(HttpTransportType.NET);
+    httpTransportProvider.get();
+    assertFalse(httpTransportProvider.isIdleConnectionEvictionRunning());
+    httpTransportProvider.shutdown();
+    verify(soapXmlLogDispatcher).shutdown();
+  }
+
+  @Test
+  public void testCreatePooledHttpClient() {
+    DefaultHttpClient httpClient = httpTransportProvider.createPooledHttpClient();
+    assertEquals(50, ConnManagerParams.getMaxTotalConnections(httpClient.getParams()));
+    assertEquals(5, ConnManagerParams.getMaxConnectionsPerRoute(httpClient.getParams())
+        .getMaxForRoute(new HttpRoute(new HttpHost("adwords.google.com", 443, "https"))));
+  }
+
+  @Test
+  public void testHttpTransportType_fromString() {
+    assertEquals(HttpTransportType.POOLED, HttpTransportType.fromString(" Pooled "));
+    assertEquals(HttpTransportType.NET, HttpTransportType.fromString("net"));
+    thrown.expect(IllegalArgumentException.class);
+    HttpTransportType.fromString("foo");
+  }
+}
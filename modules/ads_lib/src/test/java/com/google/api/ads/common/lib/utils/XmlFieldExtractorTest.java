@@ -16,6 +16,8 @@ package com.google.api.ads.common.lib.utils;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
@@ -25,6 +27,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.slf4j.Logger;
 
@@ -92,4 +95,24 @@ public class XmlFieldExtractorTest {
         new ByteArrayInputStream(REPORT_DOWNLOAD_ERROR.getBytes()), new String[] {"foo"});
     assertEquals(0, ret.size());
   }
+
+  /**
+   * Tests that the expression for a field is compiled once and reused for later documents.
+   */
+  @Test
+  public void testExtract_reusesCompiledExpression() throws Exception {
+    XPath xpath = Mockito.spy(XPathFactory.newInstance().newXPath());
+    xmlFieldExtractor =
+        new XmlFieldExtractor(logger, documentBuilderSupplier, Suppliers.ofInstance(xpath));
+
+    for (int i = 0; i < 3; i++) {
+      Map<String, String> ret = xmlFieldExtractor.extract(
+          new ByteArrayInputStream(REPORT_DOWNLOAD_ERROR.getBytes()),
+          new String[] {"type", "trigger"});
+      assertEquals("AdFormatt", ret.get("trigger"));
+    }
+
+    verify(xpath, times(1)).compile("//type");
+    verify(xpath, times(1)).compile("//trigger");
+  }
 }
@@ -23,12 +23,15 @@ import static org.mockito.Mockito.when;
 import com.google.api.ads.common.lib.soap.RequestInfo;
 import com.google.api.ads.common.lib.soap.ResponseInfo;
 import com.google.api.ads.common.lib.soap.SoapCallReturn;
+import com.google.common.base.Supplier;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.slf4j.Logger;
 
@@ -137,4 +140,43 @@ public class AdsServiceLoggersTest {
     verify(soapXmlLogger, times(0)).info(any(String.class));
     verify(soapXmlLogger, times(0)).warn(any(String.class));
   }
+
+  /**
+   * Tests that the XML is only serialized once the dispatcher asks for the task, and that it is
+   * formatted and logged by the task, not on the calling thread.
+   */
+  @Test
+  public void testLogSoapXml_dispatched() {
+    SoapXmlLogDispatcher dispatcher = Mockito.mock(SoapXmlLogDispatcher.class);
+    adsServiceLoggers =
+        new AdsServiceLoggers(prettyPrinter, soapXmlLogger, requestInfoLogger, dispatcher);
+    String requestXml = "<request>xml</request>";
+    String responseXml = "<response>xml</response>";
+
+    when(soapCallReturn.getRequestInfo()).thenReturn(requestInfo);
+    when(soapCallReturn.getResponseInfo()).thenReturn(responseInfo);
+    when(soapXmlLogger.isInfoEnabled()).thenReturn(true);
+    when(requestInfo.getSoapRequestXml()).thenReturn(requestXml);
+    when(prettyPrinter.prettyPrint(requestXml)).thenReturn(requestXml);
+    when(responseInfo.getSoapResponseXml()).thenReturn(responseXml);
+    when(prettyPrinter.prettyPrint(responseXml)).thenReturn(responseXml);
+
+    adsServiceLoggers.logSoapXml(soapCallReturn);
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ArgumentCaptor<Supplier<Runnable>> logTaskSupplierCaptor =
+        ArgumentCaptor.forClass((Class) Supplier.class);
+    verify(dispatcher).dispatch(logTaskSupplierCaptor.capture(), eq(false));
+    Mockito.verifyZeroInteractions(requestInfo, responseInfo);
+
+    Runnable logTask = logTaskSupplierCaptor.getValue().get();
+    verify(requestInfo).getSoapRequestXml();
+    verify(responseInfo).getSoapResponseXml();
+    Mockito.verifyZeroInteractions(prettyPrinter);
+    verify(soapXmlLogger, times(0)).info(any(String.class));
+
+    logTask.run();
+    verify(soapXmlLogger).info("SOAP Request:\n" + requestXml);
+    verify(soapXmlLogger).info("SOAP Response:\n" + responseXml);
+  }
 }
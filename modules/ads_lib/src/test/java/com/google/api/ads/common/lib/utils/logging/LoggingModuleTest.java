@@ -0,0 +1,119 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.utils.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.google.api.ads.common.lib.conf.AdsApiConfiguration;
+import com.google.api.ads.common.lib.conf.AdsLibConfiguration;
+import com.google.common.base.Supplier;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.xpath.XPath;
+
+/**
+ * Tests for the XML suppliers bound by {@link LoggingModule}.
+ */
+@RunWith(JUnit4.class)
+public class LoggingModuleTest {
+
+  private Injector injector;
+
+  @Before
+  public void setUp() {
+    injector = Guice.createInjector(new LoggingModule("test"), new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(AdsApiConfiguration.class).toInstance(Mockito.mock(AdsApiConfiguration.class));
+        bind(AdsLibConfiguration.class).toInstance(Mockito.mock(AdsLibConfiguration.class));
+      }
+    });
+  }
+
+  @Test
+  public void testXPathSupplier() throws Exception {
+    assertReusedWithinThread(new TypeLiteral<Supplier<XPath>>() {});
+  }
+
+  @Test
+  public void testDocumentBuilderSupplier() throws Exception {
+    assertReusedWithinThread(new TypeLiteral<Supplier<DocumentBuilder>>() {});
+  }
+
+  @Test
+  public void testTransformerSupplier() throws Exception {
+    assertReusedWithinThread(new TypeLiteral<Supplier<Transformer>>() {});
+  }
+
+  /**
+   * Tests that a reused transformer has its output properties set again after it is reset.
+   */
+  @Test
+  public void testTransformerSupplier_configuredAfterReset() {
+    Supplier<Transformer> transformerSupplier =
+        injector.getInstance(Key.get(new TypeLiteral<Supplier<Transformer>>() {}));
+    Transformer transformer = transformerSupplier.get();
+    transformer.setOutputProperty(OutputKeys.INDENT, "no");
+
+    transformer = transformerSupplier.get();
+    assertEquals("yes", transformer.getOutputProperty(OutputKeys.INDENT));
+    assertEquals("4", transformer.getOutputProperty("{http://xml.apache.org/xslt}indent-amount"));
+  }
+
+  /**
+   * Asserts that the supplier is shared across injections, returns the same object to the same
+   * thread, and returns a different object to another thread.
+   */
+  private <T> void assertReusedWithinThread(TypeLiteral<Supplier<T>> supplierType)
+      throws Exception {
+    final Supplier<T> supplier = injector.getInstance(Key.get(supplierType));
+    assertSame(supplier, injector.getInstance(Key.get(supplierType)));
+
+    T value = supplier.get();
+    assertSame(value, supplier.get());
+
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      T otherThreadValue = executorService.submit(new Callable<T>() {
+        @Override
+        public T call() {
+          return supplier.get();
+        }
+      }).get();
+      assertNotSame(value, otherThreadValue);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+}
@@ -22,6 +22,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.api.ads.common.lib.conf.AdsApiConfiguration;
+import com.google.common.base.Charsets;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.Lists;
@@ -29,7 +30,9 @@ import com.google.common.collect.Lists;
 import org.custommonkey.xmlunit.XMLAssert;
 import org.custommonkey.xmlunit.XMLUnit;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.Mock;
@@ -40,6 +43,8 @@ import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.EmptyStackException;
@@ -49,6 +54,7 @@ import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
@@ -72,6 +78,8 @@ public class PrettyPrinterTest {
   @Mock private AdsApiConfiguration adsApiConfiguration;
   @Mock private Logger logger;
 
+  @Rule public ExpectedException thrown = ExpectedException.none();
+
   private static final String TEST_XML =
       "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Envelope>"
           + "<foo><bar><requestId>123456</requestId></bar></foo>"
@@ -79,6 +87,8 @@ public class PrettyPrinterTest {
           + "</Envelope>";
   private static final String TEST_REQUEST_ID_XPATH = "/Envelope/foo/bar/requestId";
   private static final String TEST_SENSITIVE_XPATH = "/Envelope/larry";
+  /** A sensitive XPath that can only be evaluated against a DOM. */
+  private static final String TEST_DOM_SENSITIVE_XPATH = "/Envelope/larry[1]";
 
   public PrettyPrinterTest() {}
 
@@ -117,6 +127,8 @@ public class PrettyPrinterTest {
    */
   @Test
   public void testTransformerExceptions() throws TransformerException {
+    when(adsApiConfiguration.getSensitiveXPaths())
+        .thenReturn(new String[] {TEST_DOM_SENSITIVE_XPATH});
     String html =
         "<!DOCTYPE html PUBLIC \"-//W3C//DTD HTML 4.01 Transitional//EN\">\n<html><a></a></html>";
     List<Exception> exceptions = Lists.newArrayList(
@@ -153,7 +165,8 @@ public class PrettyPrinterTest {
             new IOException(),
             new XPathExpressionException("sanitize exception"));
 
-    when(adsApiConfiguration.getSensitiveXPaths()).thenReturn(new String[] {TEST_SENSITIVE_XPATH});
+    when(adsApiConfiguration.getSensitiveXPaths())
+        .thenReturn(new String[] {TEST_DOM_SENSITIVE_XPATH});
 
     for (Exception exception : exceptions) {
       // Depending on the type of exception, one of the following suppliers
@@ -205,15 +218,123 @@ public class PrettyPrinterTest {
   }
   
   /**
-   * Tests that pretty printing works properly under normal circumstances.
+   * Tests that pretty printing works properly under normal circumstances, without using the DOM.
    */
   @Test
   public void testPrettyPrint() throws SAXException, IOException, ParserConfigurationException {
     when(adsApiConfiguration.getSensitiveXPaths()).thenReturn(new String[] {TEST_SENSITIVE_XPATH});
 
     String prettyPrintedXml = createPrettyPrinter().prettyPrint(TEST_XML);
-    String expectedXml = TEST_XML.replace("moe", "REDACTED");
-    
+    assertXmlEqualsIgnoringWhitespace(TEST_XML.replace("moe", "REDACTED"), prettyPrintedXml);
+    Mockito.verifyZeroInteractions(xpathSupplier, transformerSupplier, documentBuilderSupplier);
+  }
+
+  /**
+   * Tests that pretty printing with sensitive XPaths that need a DOM works properly under normal
+   * circumstances.
+   */
+  @Test
+  public void testPrettyPrint_dom() throws SAXException, IOException, ParserConfigurationException {
+    when(adsApiConfiguration.getSensitiveXPaths())
+        .thenReturn(new String[] {TEST_SENSITIVE_XPATH, TEST_DOM_SENSITIVE_XPATH});
+
+    String prettyPrintedXml = createPrettyPrinter().prettyPrint(TEST_XML);
+    assertXmlEqualsIgnoringWhitespace(TEST_XML.replace("moe", "REDACTED"), prettyPrintedXml);
+    verify(transformerSupplier).get();
+  }
+
+  /**
+   * Tests the exact output of the streaming pretty printer, including namespaces, attributes,
+   * escaping, and redaction of every matching element.
+   */
+  @Test
+  public void testPrettyPrint_streamingOutput() {
+    when(adsApiConfiguration.getSensitiveXPaths())
+        .thenReturn(new String[] {"/Envelope/Header/RequestHeader/developerToken",
+            "/Envelope/Body/mutate/operations/*/secret"});
+    String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+        + "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+        + "<soapenv:Header><ns1:RequestHeader xmlns:ns1=\"urn:test\">"
+        + "<ns1:developerToken>token</ns1:developerToken>"
+        + "<ns1:userAgent>a &amp; b &lt;c&gt;</ns1:userAgent>"
+        + "</ns1:RequestHeader></soapenv:Header>"
+        + "<soapenv:Body><mutate xmlns=\"urn:test\">"
+        + "<operations><operand type=\"x &quot;y&quot;\"><secret><a>1</a></secret></operand>"
+        + "</operations>"
+        + "<operations><operand><secret/><empty/></operand></operations>"
+        + "</mutate></soapenv:Body></soapenv:Envelope>";
+
+    String expectedXml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">\n"
+        + "    <soapenv:Header>\n"
+        + "        <ns1:RequestHeader xmlns:ns1=\"urn:test\">\n"
+        + "            <ns1:developerToken>REDACTED</ns1:developerToken>\n"
+        + "            <ns1:userAgent>a &amp; b &lt;c&gt;</ns1:userAgent>\n"
+        + "        </ns1:RequestHeader>\n"
+        + "    </soapenv:Header>\n"
+        + "    <soapenv:Body>\n"
+        + "        <mutate xmlns=\"urn:test\">\n"
+        + "            <operations>\n"
+        + "                <operand type=\"x &quot;y&quot;\">\n"
+        + "                    <secret>REDACTED</secret>\n"
+        + "                </operand>\n"
+        + "            </operations>\n"
+        + "            <operations>\n"
+        + "                <operand>\n"
+        + "                    <secret>REDACTED</secret>\n"
+        + "                    <empty/>\n"
+        + "                </operand>\n"
+        + "            </operations>\n"
+        + "        </mutate>\n"
+        + "    </soapenv:Body>\n"
+        + "</soapenv:Envelope>";
+    assertEquals(expectedXml, createPrettyPrinter().prettyPrint(xml));
+  }
+
+  /**
+   * Tests that XML that is not well formed is returned unchanged by the streaming pretty printer.
+   */
+  @Test
+  public void testPrettyPrint_streamingMalformed() {
+    when(adsApiConfiguration.getSensitiveXPaths()).thenReturn(new String[] {TEST_SENSITIVE_XPATH});
+    String xml = "<Envelope><larry>moe</Envelope>";
+
+    assertSame(xml, createPrettyPrinter().prettyPrint(xml));
+    verify(logger).warn(Mockito.eq("Unable to pretty print XML: {}"), Mockito.any(XMLStreamException.class));
+  }
+
+  /**
+   * Tests pretty printing from an input stream to an output stream.
+   */
+  @Test
+  public void testPrettyPrint_streams() throws Exception {
+    when(adsApiConfiguration.getSensitiveXPaths()).thenReturn(new String[] {TEST_SENSITIVE_XPATH});
+    String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>"
+        + "<Envelope><name>caf\u00e9</name><larry>moe</larry></Envelope>";
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    createPrettyPrinter().prettyPrint(
+        new ByteArrayInputStream(xml.getBytes(Charsets.ISO_8859_1)), output);
+
+    assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<Envelope>\n"
+        + "    <name>caf\u00e9</name>\n"
+        + "    <larry>REDACTED</larry>\n"
+        + "</Envelope>", new String(output.toByteArray(), Charsets.UTF_8));
+  }
+
+  /**
+   * Tests that pretty printing from an input stream fails if the XML is not well formed.
+   */
+  @Test
+  public void testPrettyPrint_streamsMalformed() throws Exception {
+    thrown.expect(IOException.class);
+    createPrettyPrinter().prettyPrint(
+        new ByteArrayInputStream("<Envelope>".getBytes(Charsets.UTF_8)), new StringBuilder());
+  }
+
+  private static void assertXmlEqualsIgnoringWhitespace(String expectedXml, String actualXml)
+      throws SAXException, IOException, ParserConfigurationException {
     Document expectedDocument =
         XMLUnit.getControlDocumentBuilderFactory()
             .newDocumentBuilder()
@@ -221,7 +342,7 @@ public class PrettyPrinterTest {
     Document actualDocument =
         XMLUnit.getTestDocumentBuilderFactory()
             .newDocumentBuilder()
-            .parse(new InputSource(new StringReader(prettyPrintedXml)));
+            .parse(new InputSource(new StringReader(actualXml)));
     XMLAssert.assertXMLEqual(
         XMLUnit.getWhitespaceStrippedDocument(expectedDocument),
         XMLUnit.getWhitespaceStrippedDocument(actualDocument));
@@ -233,6 +354,8 @@ public class PrettyPrinterTest {
    */
   @Test
   public void testTransformerSupplierReturnsNull() {
+    when(adsApiConfiguration.getSensitiveXPaths())
+        .thenReturn(new String[] {TEST_DOM_SENSITIVE_XPATH});
     when(transformerSupplier.get()).thenReturn(null);
     String prettyPrintedXml = createPrettyPrinter().prettyPrint(TEST_XML);
     assertSame(
@@ -247,6 +370,8 @@ public class PrettyPrinterTest {
    */
   @Test
   public void testDocumentBuilderSupplierReturnsNull() {
+    when(adsApiConfiguration.getSensitiveXPaths())
+        .thenReturn(new String[] {TEST_DOM_SENSITIVE_XPATH});
     when(documentBuilderSupplier.get()).thenReturn(null);
     String prettyPrintedXml = createPrettyPrinter().prettyPrint(TEST_XML);
     assertNotNull(prettyPrintedXml);
@@ -262,6 +387,8 @@ public class PrettyPrinterTest {
    */
   @Test
   public void testXPathSupplierReturnsNull() {
+    when(adsApiConfiguration.getSensitiveXPaths())
+        .thenReturn(new String[] {TEST_DOM_SENSITIVE_XPATH});
     when(xpathSupplier.get()).thenReturn(null);
     String prettyPrintedXml = createPrettyPrinter().prettyPrint(TEST_XML);
     assertNotNull(prettyPrintedXml);
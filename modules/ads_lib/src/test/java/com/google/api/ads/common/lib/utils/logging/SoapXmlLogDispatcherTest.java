@@ -0,0 +1,251 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.utils.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.ads.common.lib.conf.AdsLibConfiguration;
+import com.google.api.ads.common.lib.utils.logging.SoapXmlLogDispatcher.Stats;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link SoapXmlLogDispatcher}.
+ */
+@RunWith(JUnit4.class)
+public class SoapXmlLogDispatcherTest {
+
+  /** A thread factory whose threads never run the queue's worker, so queued tasks stay queued. */
+  private static final ThreadFactory IDLE_THREAD_FACTORY = new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      return new Thread();
+    }
+  };
+
+  @Mock private Runnable logTask;
+  @Mock private Supplier<Runnable> logTaskSupplier;
+  @Mock private AdsLibConfiguration adsLibConfiguration;
+
+  private Supplier<Runnable> logTaskInstance;
+  private final List<Thread> workerThreads = Collections.synchronizedList(new ArrayList<Thread>());
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    logTaskInstance = Suppliers.ofInstance(logTask);
+    when(logTaskSupplier.get()).thenReturn(logTask);
+  }
+
+  @Test
+  public void testDispatch_synchronous() {
+    SoapXmlLogDispatcher dispatcher = SoapXmlLogDispatcher.synchronous();
+
+    dispatcher.dispatch(logTaskInstance, false);
+    dispatcher.dispatch(logTaskInstance, true);
+
+    verify(logTask, times(2)).run();
+    assertEquals(0, dispatcher.getStats().getSampledOutCount());
+  }
+
+  /**
+   * Tests that one in every N successful calls is logged, that every failed call is logged, and
+   * that no task is created for calls that are sampled out.
+   */
+  @Test
+  public void testDispatch_sampling() {
+    SoapXmlLogDispatcher dispatcher = new SoapXmlLogDispatcher(false, 1, 3, null);
+
+    for (int i = 0; i < 7; i++) {
+      dispatcher.dispatch(logTaskSupplier, false);
+    }
+    verify(logTaskSupplier, times(3)).get();
+    verify(logTask, times(3)).run();
+
+    dispatcher.dispatch(logTaskSupplier, true);
+    dispatcher.dispatch(logTaskSupplier, true);
+    verify(logTaskSupplier, times(5)).get();
+    verify(logTask, times(5)).run();
+    assertEquals(4, dispatcher.getStats().getSampledOutCount());
+  }
+
+  /**
+   * Tests that calls are dropped instead of blocking the calling thread when the queue is full.
+   */
+  @Test
+  public void testDispatch_asyncQueueFull() {
+    SoapXmlLogDispatcher dispatcher = new SoapXmlLogDispatcher(true, 2, 1, IDLE_THREAD_FACTORY);
+
+    for (int i = 0; i < 5; i++) {
+      dispatcher.dispatch(logTaskInstance, i == 4);
+    }
+
+    verify(logTask, never()).run();
+    Stats stats = dispatcher.getStats();
+    assertEquals(2, stats.getQueueDepth());
+    assertEquals(3, stats.getDroppedCount());
+  }
+
+  /**
+   * Tests that queued calls are logged on the worker thread, and that a failing task does not
+   * stop the worker.
+   */
+  @Test
+  public void testDispatch_async() throws Exception {
+    SoapXmlLogDispatcher dispatcher = new SoapXmlLogDispatcher(true, 10, 1, newThreadFactory());
+    final Thread callingThread = Thread.currentThread();
+
+    dispatcher.dispatch(Suppliers.ofInstance(new Runnable() {
+      @Override
+      public void run() {
+        throw new IllegalStateException("Failed to log");
+      }
+    }), true);
+    final CountDownLatch logged = new CountDownLatch(1);
+    dispatcher.dispatch(Suppliers.ofInstance(new Runnable() {
+      @Override
+      public void run() {
+        if (Thread.currentThread() != callingThread) {
+          logged.countDown();
+        }
+      }
+    }), false);
+
+    assertTrue("Call was not logged on the worker thread", logged.await(10, TimeUnit.SECONDS));
+    Stats stats = dispatcher.getStats();
+    assertEquals(1, stats.getFailedTaskCount());
+    assertEquals(0, stats.getDroppedCount());
+    assertEquals(1, workerThreads.size());
+  }
+
+  /**
+   * Tests that calls are still logged after an error kills the worker thread.
+   */
+  @Test
+  public void testDispatch_asyncWorkerDied() throws Exception {
+    SoapXmlLogDispatcher dispatcher = new SoapXmlLogDispatcher(true, 10, 1, newThreadFactory());
+
+    dispatcher.dispatch(Suppliers.ofInstance(new Runnable() {
+      @Override
+      public void run() {
+        throw new AssertionError("Worker died");
+      }
+    }), true);
+    CountDownLatch logged = dispatchLatch(dispatcher);
+
+    assertTrue("Call was not logged after the worker died", logged.await(10, TimeUnit.SECONDS));
+    assertEquals(2, workerThreads.size());
+  }
+
+  /**
+   * Tests that shutdown stops the worker thread after the queued calls are logged, and that a
+   * later call starts a new one.
+   */
+  @Test
+  public void testShutdown() throws Exception {
+    SoapXmlLogDispatcher dispatcher = new SoapXmlLogDispatcher(true, 10, 1, newThreadFactory());
+    CountDownLatch logged = dispatchLatch(dispatcher);
+
+    dispatcher.shutdown();
+
+    assertTrue("Queued call was not logged", logged.await(10, TimeUnit.SECONDS));
+    Thread firstWorker = workerThreads.get(0);
+    firstWorker.join(TimeUnit.SECONDS.toMillis(10));
+    assertFalse("Worker thread still running after shutdown", firstWorker.isAlive());
+
+    logged = dispatchLatch(dispatcher);
+    assertTrue("Call after shutdown was not logged", logged.await(10, TimeUnit.SECONDS));
+    assertEquals(2, workerThreads.size());
+    dispatcher.shutdown();
+  }
+
+  @Test
+  public void testConfiguration() {
+    when(adsLibConfiguration.isAsyncSoapXmlLoggingEnabled()).thenReturn(false);
+    when(adsLibConfiguration.getSoapXmlLogQueueSize()).thenReturn(10);
+    when(adsLibConfiguration.getSoapXmlLogSuccessSampleRate()).thenReturn(2);
+    SoapXmlLogDispatcher dispatcher = new SoapXmlLogDispatcher(adsLibConfiguration);
+
+    dispatcher.dispatch(logTaskInstance, false);
+    dispatcher.dispatch(logTaskInstance, false);
+
+    verify(logTask).run();
+    assertEquals(1, dispatcher.getStats().getSampledOutCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSampleRate() {
+    new SoapXmlLogDispatcher(false, 1, 0, null);
+  }
+
+  /**
+   * Dispatches a successful call whose task counts down the returned latch.
+   */
+  private static CountDownLatch dispatchLatch(SoapXmlLogDispatcher dispatcher) {
+    final CountDownLatch logged = new CountDownLatch(1);
+    dispatcher.dispatch(Suppliers.ofInstance(new Runnable() {
+      @Override
+      public void run() {
+        logged.countDown();
+      }
+    }), false);
+    return logged;
+  }
+
+  /**
+   * Creates a factory of daemon threads that records each thread it creates, and ignores errors
+   * that kill them.
+   */
+  private ThreadFactory newThreadFactory() {
+    final ThreadFactory delegate = new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("soap-xml-log-test-%d")
+        .setUncaughtExceptionHandler(new UncaughtExceptionHandler() {
+          @Override
+          public void uncaughtException(Thread thread, Throwable e) {}
+        })
+        .build();
+    return new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = delegate.newThread(runnable);
+        workerThreads.add(thread);
+        return thread;
+      }
+    };
+  }
+}
@@ -0,0 +1,81 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.utils.logging;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.StringReader;
+
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Tests for {@link XmlStreamFormatter}.
+ */
+@RunWith(JUnit4.class)
+public class XmlStreamFormatterTest {
+
+  @Test
+  public void testCompilePath() {
+    assertArrayEquals(new String[] {"Envelope", "Header", "RequestHeader", "developerToken"},
+        XmlStreamFormatter.compilePath(" /Envelope/Header/RequestHeader/developerToken "));
+    assertArrayEquals(new String[] {"Envelope", "*", "foo-bar.baz"},
+        XmlStreamFormatter.compilePath("/Envelope/*/foo-bar.baz"));
+  }
+
+  @Test
+  public void testCompilePath_unsupported() {
+    assertNull(XmlStreamFormatter.compilePath("Envelope/Header"));
+    assertNull(XmlStreamFormatter.compilePath("//developerToken"));
+    assertNull(XmlStreamFormatter.compilePath("/Envelope/Header[1]"));
+    assertNull(XmlStreamFormatter.compilePath("/soapenv:Envelope"));
+    assertNull(XmlStreamFormatter.compilePath("/Envelope/@id"));
+    assertNull(XmlStreamFormatter.compilePath("/Envelope/text()"));
+    assertNull(XmlStreamFormatter.compilePath("/"));
+  }
+
+  /**
+   * Tests that text content and comments are kept, and that elements matching a path only at a
+   * different depth are not redacted.
+   */
+  @Test
+  public void testFormat() throws Exception {
+    XmlStreamFormatter formatter = new XmlStreamFormatter(
+        ImmutableList.of(XmlStreamFormatter.compilePath("/a/secret")));
+    String xml = "<a><!-- note --><b><secret>kept</secret></b><secret>x<c>y</c></secret>"
+        + "<d><![CDATA[1 < 2]]></d></a>";
+    XMLStreamReader reader =
+        XmlStreamFormatter.createInputFactory().createXMLStreamReader(new StringReader(xml));
+    StringBuilder output = new StringBuilder();
+
+    formatter.format(reader, output, null);
+
+    assertEquals("<a>\n"
+        + "    <!-- note -->\n"
+        + "    <b>\n"
+        + "        <secret>kept</secret>\n"
+        + "    </b>\n"
+        + "    <secret>REDACTED</secret>\n"
+        + "    <d>1 &lt; 2</d>\n"
+        + "</a>", output.toString());
+  }
+}
@@ -0,0 +1,69 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.dfp.lib;
+
+import static org.junit.Assert.assertSame;
+
+import com.google.api.ads.common.lib.soap.SoapCallListener;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.multibindings.OptionalBinder;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/** Tests for {@link DfpPluginModule}. */
+@RunWith(JUnit4.class)
+public class DfpPluginModuleTest {
+
+  @Mock private SoapCallListener soapCallListener;
+
+  @Rule public ExpectedException thrown = ExpectedException.none();
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+  }
+
+  @Test
+  public void testConstructor_nullListener_fails() {
+    thrown.expect(NullPointerException.class);
+    new DfpPluginModule(null);
+  }
+
+  /**
+   * Verifies that the plugin's listener replaces the default listener.
+   */
+  @Test
+  public void testSoapCallListenerBinding() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        OptionalBinder.newOptionalBinder(binder(), SoapCallListener.class)
+            .setDefault().toInstance(SoapCallListener.NO_OP);
+      }
+    }, new DfpPluginModule(soapCallListener));
+
+    assertSame(soapCallListener, injector.getInstance(SoapCallListener.class));
+  }
+}
@@ -19,33 +19,45 @@ import com.google.api.ads.common.lib.exception.ServiceException;
 import com.google.api.ads.common.lib.soap.RequestInfo;
 import com.google.api.ads.common.lib.soap.ResponseInfo;
 import com.google.api.ads.common.lib.soap.SoapCall;
+import com.google.api.ads.common.lib.soap.SoapCallMetrics;
 import com.google.api.ads.common.lib.soap.SoapCallReturn;
 import com.google.api.ads.common.lib.soap.SoapClientHandler;
 import com.google.api.ads.common.lib.soap.SoapClientHandlerInterface;
 import com.google.api.ads.common.lib.soap.SoapServiceDescriptor;
 import com.google.api.ads.common.lib.soap.compatability.AxisCompatible;
-import com.google.api.ads.common.lib.utils.NodeExtractor;
+import com.google.api.client.http.HttpTransport;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableList;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import javax.inject.Inject;
 import javax.xml.namespace.QName;
+import javax.xml.soap.SOAPElement;
 import javax.xml.soap.SOAPException;
 import org.apache.axis.AxisFault;
 import org.apache.axis.EngineConfiguration;
 import org.apache.axis.EngineConfigurationFactory;
 import org.apache.axis.Message;
 import org.apache.axis.MessageContext;
+import org.apache.axis.client.AxisClient;
 import org.apache.axis.client.Service;
 import org.apache.axis.client.Stub;
+import org.apache.axis.configuration.SimpleProvider;
 import org.apache.axis.message.SOAPHeaderElement;
 import org.apache.axis.transport.http.HTTPConstants;
 import org.apache.commons.beanutils.BeanUtils;
-import org.w3c.dom.Node;
 
 /**
  * SOAP Client Handler implementation for use with Axis 1.x.
@@ -53,15 +65,16 @@ import org.w3c.dom.Node;
 public class AxisHandler extends SoapClientHandler<Stub> {
 
   private final EngineConfigurationFactory engineConfigurationFactory;
-  private final NodeExtractor nodeExtractor;
+  private final HttpTransport httpTransport;
   private final ImmutableList<String> requestIdXPathComponents;
-  
+  private final Cache<Class<?>, AxisClient> engines;
+
   @Inject
   public AxisHandler(EngineConfigurationFactory engineConfigurationFactory,
-      NodeExtractor nodeExtractor,
+      HttpTransport httpTransport,
       AdsApiConfiguration adsApiConfiguration) {
     this.engineConfigurationFactory = engineConfigurationFactory;
-    this.nodeExtractor = nodeExtractor;
+    this.httpTransport = httpTransport;
     String requestIdXPath = adsApiConfiguration.getRequestIdXPath();
     if (!Strings.isNullOrEmpty(requestIdXPath)) {
       requestIdXPathComponents = ImmutableList.<String>copyOf(
@@ -69,6 +82,7 @@ public class AxisHandler extends SoapClientHandler<Stub> {
     } else {
       requestIdXPathComponents = ImmutableList.<String>of();
     }
+    this.engines = CacheBuilder.newBuilder().weakKeys().recordStats().build();
   }
   
   /**
@@ -191,7 +205,10 @@ public class AxisHandler extends SoapClientHandler<Stub> {
   }
 
   /**
-   * Creates a SOAP client using a SOAP service descriptor.
+   * Creates a SOAP client using a SOAP service descriptor. Clients for the same service share a
+   * single Axis engine, so the engine configuration is only loaded the first time a client is
+   * created for that service. Each client gets its own locator, since a locator's calls are not
+   * thread safe.
    *
    * @param soapServiceDescriptor the descriptor to use for creating a client
    * @return the SOAP client for this descriptor
@@ -203,16 +220,28 @@ public class AxisHandler extends SoapClientHandler<Stub> {
     try {
       if (soapServiceDescriptor instanceof AxisCompatible) {
         AxisCompatible axisCompatibleService = (AxisCompatible) soapServiceDescriptor;
-        EngineConfiguration engineConfiguration =
-            engineConfigurationFactory.getClientEngineConfig();
-        Service locator = (Service) axisCompatibleService.getLocatorClass()
-            .getConstructor(new Class[] {EngineConfiguration.class})
-            .newInstance(new Object[] {engineConfiguration});
-        return (Stub) locator.getClass().getMethod("getPort", Class.class)
-            .invoke(locator, soapServiceDescriptor.getInterfaceClass());
+        Class<?> locatorClass = axisCompatibleService.getLocatorClass();
+        AxisClient engine = getEngine(locatorClass);
+        // Creating a stub and its first call register type mappings in the shared engine, so
+        // they are serialized. Later calls only read the type mappings.
+        synchronized (engine) {
+          // The placeholder configuration keeps the locator from loading its own engine.
+          Service locator = (Service) locatorClass
+              .getConstructor(new Class[] {EngineConfiguration.class})
+              .newInstance(new Object[] {new SimpleProvider()});
+          locator.setEngine(engine);
+          locator.setEngineConfiguration(engine.getConfig());
+          Stub stub = (Stub) locator.getClass().getMethod("getPort", Class.class)
+              .invoke(locator, soapServiceDescriptor.getInterfaceClass());
+          stub._setProperty(HttpHandler.HTTP_TRANSPORT_PROPERTY, httpTransport);
+          registerTypeMappings(stub);
+          return stub;
+        }
       }
       throw new ServiceException(
           "Service [" + soapServiceDescriptor + "] not compatible with Axis", null);
+    } catch (ExecutionException e) {
+      throw new ServiceException("Unexpected Exception.", e.getCause());
     } catch (SecurityException e) {
       throw new ServiceException("Unexpected Exception.", e);
     } catch (NoSuchMethodException e) {
@@ -231,7 +260,47 @@ public class AxisHandler extends SoapClientHandler<Stub> {
   }
 
   /**
-   * Invoke a SOAP call.
+   * Gets the Axis engine shared by the SOAP clients of a locator class, building it from the
+   * client engine configuration the first time.
+   */
+  private AxisClient getEngine(Class<?> locatorClass) throws ExecutionException {
+    return engines.get(locatorClass, new Callable<AxisClient>() {
+      @Override
+      public AxisClient call() {
+        return new AxisClient(engineConfigurationFactory.getClientEngineConfig());
+      }
+    });
+  }
+
+  /**
+   * Makes the first call of a WSDL2Java-generated stub, which registers the stub's type mappings
+   * in its engine. Stubs without such a method are left as they are.
+   */
+  private static void registerTypeMappings(Stub stub)
+      throws IllegalAccessException, InvocationTargetException {
+    Method createCall;
+    try {
+      createCall = stub.getClass().getDeclaredMethod("createCall");
+    } catch (NoSuchMethodException e) {
+      return;
+    }
+    createCall.setAccessible(true);
+    createCall.invoke(stub);
+  }
+
+  /**
+   * Gets the hit and miss counts for the Axis engines shared by the SOAP clients created by this
+   * handler. A miss means the engine configuration was loaded and a new engine was built.
+   *
+   * @return a snapshot of the engine cache statistics
+   */
+  public CacheStats getEngineCacheStats() {
+    return engines.stats();
+  }
+
+  /**
+   * Invoke a SOAP call. If the call has {@link SoapCallMetrics}, they are passed to the
+   * {@link HttpHandler} so it can report the transport checkpoints of the call.
    *
    * @param soapCall the call to make to a SOAP web service
    * @return information about the SOAP response
@@ -239,8 +308,12 @@ public class AxisHandler extends SoapClientHandler<Stub> {
   @Override
   public SoapCallReturn invokeSoapCall(SoapCall<Stub> soapCall) {
     Stub stub = soapCall.getSoapClient();
+    SoapCallMetrics metrics = soapCall.getMetrics();
     SoapCallReturn.Builder builder = new SoapCallReturn.Builder();
     synchronized (stub) {
+      if (metrics != null) {
+        stub._setProperty(HttpHandler.SOAP_CALL_METRICS_PROPERTY, metrics);
+      }
       Object result = null;
       try {
         result = invoke(soapCall);
@@ -249,47 +322,100 @@ public class AxisHandler extends SoapClientHandler<Stub> {
       } catch (Exception e) {
         builder.withException(e);
       } finally {
-        MessageContext messageContext = stub._getCall().getMessageContext();
-        try {
-          builder.withRequestInfo(new RequestInfo.Builder().withSoapRequestXml(
-              messageContext.getRequestMessage().getSOAPPartAsString())
-                  .withMethodName(stub._getCall().getOperationName().getLocalPart())
-                  .withServiceName(stub.getPortName().getLocalPart())
-                  .withUrl(stub._getCall().getTargetEndpointAddress())
-                  .build());
-        } catch (AxisFault e) {
-          builder.withException(e);
+        if (metrics != null) {
+          stub.removeProperty(HttpHandler.SOAP_CALL_METRICS_PROPERTY);
         }
-        String requestId = null;
+        MessageContext messageContext = stub._getCall().getMessageContext();
+        builder.withRequestInfo(new RequestInfo.Builder()
+            .withSoapRequestXmlSupplier(
+                new SoapXmlSupplier(messageContext.getRequestMessage()))
+            .withMethodName(stub._getCall().getOperationName().getLocalPart())
+            .withServiceName(stub.getPortName().getLocalPart())
+            .withUrl(stub._getCall().getTargetEndpointAddress())
+            .build());
         Message responseMessage = messageContext.getResponseMessage();
-        try {
-          if (!requestIdXPathComponents.isEmpty() && responseMessage != null) {
-            Node requestIdNode =
-                nodeExtractor.extractNode(
-                    responseMessage.getSOAPHeader(), requestIdXPathComponents);
-            if (requestIdNode != null) {
-              requestId = requestIdNode.getFirstChild().getNodeValue();
-            }
-          }
-        } catch (SOAPException e) {
-          // Ignore, since capturing the requestId is not critical.
-        }
-        try {
-          builder.withResponseInfo(
-              new ResponseInfo.Builder()
-                  .withSoapResponseXml(
-                      responseMessage == null ? null : responseMessage.getSOAPPartAsString())
-                  .withRequestId(requestId)
-                  .build());
-        } catch (AxisFault e) {
-          builder.withException(e);
-        }
+        builder.withResponseInfo(new ResponseInfo.Builder()
+            .withSoapResponseXmlSupplier(new SoapXmlSupplier(responseMessage))
+            .withRequestId(extractRequestId(responseMessage))
+            .build());
       }
 
       return builder.withReturnValue(result).build();
     }
   }
 
+  /**
+   * Extracts the request ID from the header of a SOAP response. Only the header elements along
+   * the configured request ID path are visited, and the response body is never touched.
+   *
+   * <p>As with {@link com.google.api.ads.common.lib.utils.NodeExtractor}, path components that
+   * do not match a child element (such as the leading {@code Envelope/Header} components) are
+   * skipped, and the request ID is only returned if the last component matched.
+   *
+   * @param responseMessage the SOAP response, or {@code null} if there was none
+   * @return the request ID, or {@code null} if it could not be found
+   */
+  @VisibleForTesting
+  String extractRequestId(Message responseMessage) {
+    if (requestIdXPathComponents.isEmpty() || responseMessage == null) {
+      return null;
+    }
+    try {
+      SOAPElement element = responseMessage.getSOAPHeader();
+      SOAPElement child = null;
+      for (int i = 0; i < requestIdXPathComponents.size() && element != null; i++) {
+        child = findChildElement(element, requestIdXPathComponents.get(i));
+        if (child != null) {
+          element = child;
+        }
+      }
+      return child == null ? null : child.getValue();
+    } catch (SOAPException e) {
+      // Ignore, since capturing the requestId is not critical.
+      return null;
+    }
+  }
+
+  /**
+   * Returns the first child element of the parent with the given local name, or {@code null} if
+   * there is no such child.
+   */
+  private static SOAPElement findChildElement(SOAPElement parent, String localName) {
+    Iterator<?> children = parent.getChildElements();
+    while (children.hasNext()) {
+      Object child = children.next();
+      if (child instanceof SOAPElement
+          && localName.equals(((SOAPElement) child).getElementName().getLocalName())) {
+        return (SOAPElement) child;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Serializes a SOAP message on demand, so its XML is only built if a logger asks for it.
+   */
+  private static class SoapXmlSupplier implements Supplier<String> {
+
+    private final Message message;
+
+    SoapXmlSupplier(Message message) {
+      this.message = message;
+    }
+
+    @Override
+    public String get() {
+      if (message == null) {
+        return null;
+      }
+      try {
+        return message.getSOAPPartAsString();
+      } catch (AxisFault e) {
+        return "Exception logging SOAP message: " + e;
+      }
+    }
+  }
+
   /**
    * @see SoapClientHandlerInterface#getEndpointAddress(Object)
    */
@@ -0,0 +1,91 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.common.lib.soap.axis;
+
+import com.google.common.base.Preconditions;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Creates Axis SOAP header beans of one class and sets a fixed list of their properties. The
+ * constructor and setters are looked up once, so creating a populated header needs no further
+ * introspection.
+ *
+ * <p>Instances are immutable and can be shared and cached. Each call to
+ * {@link #newHeader(Object...)} returns a new bean, so headers attached to different stubs are
+ * never shared.
+ */
+public final class AxisSoapHeaderTemplate {
+
+  private final Constructor<?> constructor;
+  private final Method[] setters;
+
+  private AxisSoapHeaderTemplate(Constructor<?> constructor, Method[] setters) {
+    this.constructor = constructor;
+    this.setters = setters;
+  }
+
+  /**
+   * Creates a template for the header class.
+   *
+   * @param headerClass the SOAP header bean class, which must have a public no-arg constructor
+   * @param propertyNames the names of the properties set by {@link #newHeader(Object...)}, in the
+   *     order their values are passed
+   * @throws NoSuchMethodException if the class has no no-arg constructor
+   * @throws IntrospectionException if the class could not be introspected
+   * @throws IllegalArgumentException if the class has no setter for a property
+   */
+  public static AxisSoapHeaderTemplate create(Class<?> headerClass, String... propertyNames)
+      throws NoSuchMethodException, IntrospectionException {
+    Constructor<?> constructor = headerClass.getConstructor();
+    PropertyDescriptor[] descriptors =
+        Introspector.getBeanInfo(headerClass).getPropertyDescriptors();
+    Method[] setters = new Method[propertyNames.length];
+    for (int i = 0; i < propertyNames.length; i++) {
+      for (PropertyDescriptor descriptor : descriptors) {
+        if (descriptor.getName().equals(propertyNames[i])) {
+          setters[i] = descriptor.getWriteMethod();
+        }
+      }
+      Preconditions.checkArgument(setters[i] != null, "%s has no setter for property %s",
+          headerClass.getName(), propertyNames[i]);
+    }
+    return new AxisSoapHeaderTemplate(constructor, setters);
+  }
+
+  /**
+   * Creates a new header bean with its properties set to {@code values}.
+   *
+   * @param values the values of the template's properties, in the same order
+   * @throws InstantiationException if the bean could not be created
+   * @throws IllegalAccessException if the constructor or a setter is not accessible
+   * @throws InvocationTargetException if the constructor or a setter threw an exception
+   */
+  public Object newHeader(Object... values)
+      throws InstantiationException, IllegalAccessException, InvocationTargetException {
+    Preconditions.checkArgument(values.length == setters.length,
+        "Expected %s values but got %s", setters.length, values.length);
+    Object header = constructor.newInstance();
+    for (int i = 0; i < setters.length; i++) {
+      setters[i].invoke(header, values[i]);
+    }
+    return header;
+  }
+}
@@ -16,7 +16,8 @@ package com.google.api.ads.common.lib.soap.axis;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-import com.google.api.client.http.ByteArrayContent;
+import com.google.api.ads.common.lib.soap.SoapCallMetrics;
+import com.google.api.client.http.AbstractHttpContent;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestFactory;
@@ -27,10 +28,12 @@ import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.zip.GZIPOutputStream;
@@ -50,6 +53,30 @@ public class HttpHandler extends BasicHandler implements HttpRequestInitializer
 
   private static final Logger logger = LoggerFactory.getLogger(HttpHandler.class);
 
+  /**
+   * Message context property holding the {@link HttpTransport} to send the request with. If the
+   * property is not set, the handler's own transport is used.
+   */
+  public static final String HTTP_TRANSPORT_PROPERTY =
+      "com.google.api.ads.common.lib.soap.axis.httpTransport";
+
+  /**
+   * Message context property holding the {@link SoapCallMetrics} to report the request's
+   * serialization and network time and payload sizes to. If the property is not set, nothing is
+   * recorded.
+   */
+  public static final String SOAP_CALL_METRICS_PROPERTY =
+      "com.google.api.ads.common.lib.soap.axis.soapCallMetrics";
+
+  /**
+   * Message context property that, when {@code true}, streams the request message straight into
+   * the request body using chunked transfer encoding instead of sending it with a
+   * {@code Content-Length}. Streaming never holds the serialized message in memory, but some
+   * proxies and servers do not accept chunked requests, so it is off by default.
+   */
+  public static final String STREAM_REQUEST_PROPERTY =
+      "com.google.api.ads.common.lib.soap.axis.streamRequest";
+
   private final HttpRequestFactory requestFactory;
 
   private final InputStreamEventListener inputStreamEventListener;
@@ -76,13 +103,20 @@ public class HttpHandler extends BasicHandler implements HttpRequestInitializer
 
     // Catch any exception thrown and wrap it in an AxisFault, per the contract of Handler.invoke.
     try {
+      Object metricsProperty = msgContext.getProperty(SOAP_CALL_METRICS_PROPERTY);
+      SoapCallMetrics metrics =
+          metricsProperty instanceof SoapCallMetrics ? (SoapCallMetrics) metricsProperty : null;
+      long startNanos = metrics == null ? 0L : System.nanoTime();
       HttpResponse response = null;
       // Create the request.
-      HttpRequest postRequest = createHttpRequest(msgContext);
+      HttpRequest postRequest = createHttpRequest(msgContext, metrics);
       // Execute the request.
       response = postRequest.execute();
+      if (metrics != null) {
+        metrics.recordTransport(System.nanoTime() - startNanos);
+      }
       // Translate the HTTP response to an Axis message on the message context.
-      msgContext.setResponseMessage(createResponseMessage(response));
+      msgContext.setResponseMessage(createResponseMessage(response, metrics));
     } catch (Exception e) {
       throw AxisFault.makeFault(e);
     }
@@ -107,38 +141,29 @@ public class HttpHandler extends BasicHandler implements HttpRequestInitializer
    * Creates an HTTP request based on the message context.
    *
    * @param msgContext the Axis message context
+   * @param metrics the metrics to report the request's serialization to, or {@code null}
    * @return a new {@link HttpRequest} with content and headers populated
    */
-  private HttpRequest createHttpRequest(MessageContext msgContext)
+  private HttpRequest createHttpRequest(MessageContext msgContext, SoapCallMetrics metrics)
       throws SOAPException, IOException {
+    HttpRequestFactory httpRequestFactory = requestFactory;
+    Object httpTransport = msgContext.getProperty(HTTP_TRANSPORT_PROPERTY);
+    if (httpTransport instanceof HttpTransport) {
+      httpRequestFactory = ((HttpTransport) httpTransport).createRequestFactory(this);
+    }
     Message requestMessage =
         Preconditions.checkNotNull(
             msgContext.getRequestMessage(), "Null request message on message context");
-    
-    // Construct the output stream.
-    String contentType = requestMessage.getContentType(msgContext.getSOAPConstants());
-    ByteArrayOutputStream bos;
-    int contentLength = Long.valueOf(requestMessage.getContentLength()).intValue();
-    if (contentLength > 0) {
-      bos = new ByteArrayOutputStream(contentLength);
-    } else {
-      bos = new ByteArrayOutputStream();
-    }
 
-    if (msgContext.isPropertyTrue(HTTPConstants.MC_GZIP_REQUEST)) {
-      logger.debug("Compressing request");
-      try (GZIPOutputStream gzipOs = new GZIPOutputStream(bos)) {
-        requestMessage.writeTo(gzipOs);
-      }
-    } else {
-      logger.debug("Not compressing request");
-      requestMessage.writeTo(bos);
-    }
+    String contentType = requestMessage.getContentType(msgContext.getSOAPConstants());
+    boolean compress = msgContext.isPropertyTrue(HTTPConstants.MC_GZIP_REQUEST);
+    logger.debug(compress ? "Compressing request" : "Not compressing request");
+    boolean stream = msgContext.isPropertyTrue(STREAM_REQUEST_PROPERTY);
 
     HttpRequest httpRequest =
-        requestFactory.buildPostRequest(
+        httpRequestFactory.buildPostRequest(
             new GenericUrl(msgContext.getStrProp(MessageContext.TRANS_URL)),
-            new ByteArrayContent(contentType, bos.toByteArray()));
+            new AxisMessageContent(contentType, requestMessage, compress, stream, metrics));
 
     int timeoutMillis = msgContext.getTimeout();
     if (timeoutMillis >= 0) {
@@ -186,12 +211,14 @@ public class HttpHandler extends BasicHandler implements HttpRequestInitializer
    * Returns a new Axis Message based on the contents of the HTTP response.
    *
    * @param httpResponse the HTTP response
+   * @param metrics the metrics to report the response size to, or {@code null}
    * @return an Axis Message for the HTTP response
    * @throws IOException if unable to retrieve the HTTP response's contents
    * @throws AxisFault if the HTTP response's status or contents indicate an unexpected error, such
    *     as a 405.
    */
-  private Message createResponseMessage(HttpResponse httpResponse) throws IOException, AxisFault {
+  private Message createResponseMessage(HttpResponse httpResponse, SoapCallMetrics metrics)
+      throws IOException, AxisFault {
     int statusCode = httpResponse.getStatusCode();
     String contentType = httpResponse.getContentType();
     // The conditions below duplicate the logic in CommonsHTTPSender and HTTPSender.
@@ -204,7 +231,7 @@ public class HttpHandler extends BasicHandler implements HttpRequestInitializer
     // Wrap the content input stream in a notifying stream so the stream event listener will be
     // notified when it is closed.
     InputStream responseInputStream =
-        new NotifyingInputStream(httpResponse.getContent(), inputStreamEventListener);
+        new NotifyingInputStream(httpResponse.getContent(), inputStreamEventListener, metrics);
     if (!shouldParseResponse) {
       // The contents are not an XML response, so throw an AxisFault with
       // the HTTP status code and message details.
@@ -232,6 +259,95 @@ public class HttpHandler extends BasicHandler implements HttpRequestInitializer
     return responseMessage;
   }
 
+  /**
+   * {@link com.google.api.client.http.HttpContent HttpContent} that writes an Axis message to the
+   * request output stream, compressing it if requested.
+   *
+   * <p>Unless streaming is requested, the length of the body is known up front so the transport
+   * sends a {@code Content-Length}. An uncompressed message reports the length from
+   * {@link Message#getContentLength()}, which serializes the message once and keeps the bytes
+   * that {@link #writeTo} then writes. A compressed message is compressed into a buffer on the
+   * first call to {@link #getLength()}. A streamed message reports an unknown length and is
+   * written directly to the transport using chunked transfer encoding.
+   */
+  @VisibleForTesting
+  static class AxisMessageContent extends AbstractHttpContent {
+    private final Message message;
+    private final boolean compress;
+    private final boolean stream;
+    private final SoapCallMetrics metrics;
+
+    /** The compressed message, if it has been buffered to compute the length. */
+    private byte[] compressedMessage;
+
+    AxisMessageContent(String contentType, Message message, boolean compress, boolean stream,
+        SoapCallMetrics metrics) {
+      super(contentType);
+      this.message = message;
+      this.compress = compress;
+      this.stream = stream;
+      this.metrics = metrics;
+    }
+
+    @Override
+    public long getLength() throws IOException {
+      if (stream) {
+        return -1;
+      }
+      if (compress) {
+        return getCompressedMessage().length;
+      }
+      return message.getContentLength();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+      if (!stream && compress) {
+        out.write(getCompressedMessage());
+      } else {
+        serialize(out);
+      }
+      out.flush();
+    }
+
+    private byte[] getCompressedMessage() throws IOException {
+      if (compressedMessage == null) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        serialize(buffer);
+        compressedMessage = buffer.toByteArray();
+      }
+      return compressedMessage;
+    }
+
+    /**
+     * Writes the message to the stream, compressing it if requested, and reports the time taken
+     * and the number of bytes before compression to the metrics, if any.
+     */
+    private void serialize(OutputStream out) throws IOException {
+      long startNanos = metrics == null ? 0L : System.nanoTime();
+      try {
+        GZIPOutputStream gzipOs = compress ? new GZIPOutputStream(out) : null;
+        OutputStream messageOs = gzipOs != null ? gzipOs : out;
+        // Count the bytes before compression.
+        CountingOutputStream countingOs = null;
+        if (metrics != null) {
+          countingOs = new CountingOutputStream(messageOs);
+          messageOs = countingOs;
+        }
+        message.writeTo(messageOs);
+        if (gzipOs != null) {
+          // Finish instead of close, since the caller owns the underlying stream.
+          gzipOs.finish();
+        }
+        if (metrics != null) {
+          metrics.recordSerialization(System.nanoTime() - startNanos, countingOs.getCount());
+        }
+      } catch (SOAPException e) {
+        throw new IOException("Unable to write SOAP request message", e);
+      }
+    }
+  }
+
   /**
    * Lifecycle listener for an input stream. Used in tests to verify that input streams created by
    * this handler are properly closed.
@@ -243,19 +359,51 @@ public class HttpHandler extends BasicHandler implements HttpRequestInitializer
     void afterClose();
   }
 
-  /** Wrapper for an input stream that triggers lifecycle events. */
+  /**
+   * Wrapper for an input stream that triggers lifecycle events, and reports the number of bytes
+   * read to the call's metrics, if any.
+   */
   private static class NotifyingInputStream extends FilterInputStream {
     private final InputStreamEventListener inputStreamEventListener;
+    private final SoapCallMetrics metrics;
 
-    public NotifyingInputStream(
-        InputStream inputStream, InputStreamEventListener inputStreamEventListener) {
+    public NotifyingInputStream(InputStream inputStream,
+        InputStreamEventListener inputStreamEventListener, SoapCallMetrics metrics) {
       super(inputStream);
       this.inputStreamEventListener = inputStreamEventListener;
+      this.metrics = metrics;
       if (this.inputStreamEventListener != null) {
         this.inputStreamEventListener.afterCreate();
       }
     }
 
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1 && metrics != null) {
+        metrics.addResponseBytes(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int count = super.read(b, off, len);
+      if (count > 0 && metrics != null) {
+        metrics.addResponseBytes(count);
+      }
+      return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      if (skipped > 0 && metrics != null) {
+        metrics.addResponseBytes(skipped);
+      }
+      return skipped;
+    }
+
     @Override
     public void close() throws IOException {
       if (inputStreamEventListener != null) {
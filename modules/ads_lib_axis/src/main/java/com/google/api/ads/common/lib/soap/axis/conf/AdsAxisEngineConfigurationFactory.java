@@ -15,40 +15,60 @@
 package com.google.api.ads.common.lib.soap.axis.conf;
 
 import com.google.api.ads.common.lib.conf.AdsLibConfiguration;
+import com.google.api.ads.common.lib.conf.AdsLibConfiguration.HttpTransportType;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.io.ByteStreams;
+
 
 import org.apache.axis.EngineConfiguration;
 import org.apache.axis.EngineConfigurationFactory;
 import org.apache.axis.configuration.EngineConfigurationFactoryDefault;
 import org.apache.axis.configuration.FileProvider;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 import javax.inject.Inject;
 
 /**
  * EngineConfigurationFactory implementation that configures Axis clients using a custom
- * configuration file if compression is enabled and no client customization has been specified
- * in the environment.
+ * configuration file if compression or the pooled HTTP transport is enabled and no client
+ * customization has been specified in the environment.
+ *
+ * <p>The custom configuration file is read from the classpath once and shared by all clients
+ * created through this factory. Each client still receives its own {@link EngineConfiguration},
+ * since Axis binds a parsed deployment to the engine that configured it.
  */
 public class AdsAxisEngineConfigurationFactory implements EngineConfigurationFactory {
 
   private final AdsLibConfiguration adsLibConfiguration;
   private final EngineConfigurationFactory wrappedFactory;
-  
+  private final Supplier<byte[]> compressionClientConfig;
+
   @Inject
   public AdsAxisEngineConfigurationFactory(AdsLibConfiguration adsLibConfiguration) {
     this.adsLibConfiguration = adsLibConfiguration;
     // Wraps the default factory instead of extending it per the class comments on
     // EngineConfigurationFactoryDefault.
     this.wrappedFactory = EngineConfigurationFactoryDefault.newFactory(null);
+    this.compressionClientConfig = Suppliers.memoize(new Supplier<byte[]>() {
+      @Override
+      public byte[] get() {
+        return readClientConfig("wsdd/ads-axis-client-config.wsdd");
+      }
+    });
   }
 
   @Override
   public EngineConfiguration getClientEngineConfig() {
-    // Only return the custom configuration for compression if the client config has not
-    // been overridden.
+    // Only return the custom configuration for compression or the pooled transport if the client
+    // config has not been overridden.
     if (System.getProperty(EngineConfigurationFactoryDefault.OPTION_CLIENT_CONFIG_FILE) == null
-        && adsLibConfiguration.isCompressionEnabled()) {
-      return new FileProvider(
-          this.getClass().getResourceAsStream("wsdd/ads-axis-client-config.wsdd"));
+        && (adsLibConfiguration.isCompressionEnabled()
+            || adsLibConfiguration.getHttpTransportType() == HttpTransportType.POOLED)) {
+      return new FileProvider(new ByteArrayInputStream(compressionClientConfig.get()));
     }
     return wrappedFactory.getClientEngineConfig();
   }
@@ -58,4 +78,22 @@ public class AdsAxisEngineConfigurationFactory implements EngineConfigurationFac
     return wrappedFactory.getServerEngineConfig();
   }
 
+  /**
+   * Reads the contents of the client configuration resource.
+   *
+   * @param resourceName the name of the resource relative to this class
+   * @return the contents of the resource
+   * @throws IllegalStateException if the resource is missing or could not be read
+   */
+  private byte[] readClientConfig(String resourceName) {
+    try (InputStream inputStream = this.getClass().getResourceAsStream(resourceName)) {
+      if (inputStream == null) {
+        throw new IllegalStateException("Missing client configuration: " + resourceName);
+      }
+      return ByteStreams.toByteArray(inputStream);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read client configuration: " + resourceName, e);
+    }
+  }
+
 }
\ No newline at end of file
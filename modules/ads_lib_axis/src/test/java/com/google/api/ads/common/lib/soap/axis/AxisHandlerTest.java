@@ -17,7 +17,9 @@ package com.google.api.ads.common.lib.soap.axis;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import com.google.api.ads.common.lib.conf.AdsApiConfiguration;
@@ -25,12 +27,18 @@ import com.google.api.ads.common.lib.exception.ServiceException;
 import com.google.api.ads.common.lib.soap.SoapServiceDescriptor;
 import com.google.api.ads.common.lib.soap.axis.testing.mocks.v201611.MockAxisCompatibleServiceDescriptor;
 import com.google.api.ads.common.lib.soap.axis.testing.mocks.v201611.MockAxisServiceInterface;
-import com.google.api.ads.common.lib.utils.NodeExtractor;
+import com.google.api.ads.common.lib.soap.axis.testing.mocks.v201611.MockAxisServiceSoapBindingStub;
+import com.google.api.client.http.HttpTransport;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import org.apache.axis.EngineConfigurationFactory;
+import org.apache.axis.Message;
+import org.apache.axis.client.Call;
+import org.apache.axis.client.Service;
 import org.apache.axis.client.Stub;
+import org.apache.axis.configuration.SimpleProvider;
 import org.apache.axis.message.SOAPHeaderElement;
 import org.apache.axis.transport.http.HTTPConstants;
 import org.junit.Before;
@@ -43,7 +51,18 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests for {@link AxisHandler}.
@@ -57,9 +76,9 @@ public class AxisHandlerTest {
   @Mock
   private EngineConfigurationFactory engineConfigurationFactory;
   @Mock
-  private NodeExtractor nodeExtractor;
-  @Mock
   private AdsApiConfiguration adsApiConfiguration;
+  @Mock
+  private HttpTransport httpTransport;
   
   @Rule
   public ExpectedException thrown = ExpectedException.none();
@@ -67,7 +86,9 @@ public class AxisHandlerTest {
   @Before
   public void setUp() throws Exception {
     MockitoAnnotations.initMocks(this);
-    axisHandler = new AxisHandler(engineConfigurationFactory, nodeExtractor, adsApiConfiguration);
+    Mockito.when(engineConfigurationFactory.getClientEngineConfig())
+        .thenReturn(new SimpleProvider());
+    axisHandler = new AxisHandler(engineConfigurationFactory, httpTransport, adsApiConfiguration);
     stub = axisHandler.createSoapClient(new MockAxisCompatibleServiceDescriptor());
   }
 
@@ -82,6 +103,8 @@ public class AxisHandlerTest {
     assertNotNull("createSoapClient returned a null Stub", stub);
     assertTrue("createSoapClient did not return an implementation of the service interface",
         stub instanceof MockAxisServiceInterface);
+    assertSame("createSoapClient did not set the HTTP transport on the Stub",
+        httpTransport, stub._getProperty(HttpHandler.HTTP_TRANSPORT_PROPERTY));
     MockAxisServiceInterface mockAxisServiceInterface = (MockAxisServiceInterface) stub;
     assertEquals("getTestMessage did not return the correct message",
         MockAxisServiceInterface.TEST_MESSAGE, mockAxisServiceInterface.getTestMessage());
@@ -90,6 +113,94 @@ public class AxisHandlerTest {
         expectedPrefixedMessage, mockAxisServiceInterface.getTestMessageWithPrefix("myPrefix."));
   }
   
+  @Test
+  public void testCreateSoapClient_reusesEngine() {
+    Stub otherStub = axisHandler.createSoapClient(new MockAxisCompatibleServiceDescriptor());
+    assertNotSame("createSoapClient should return a new Stub for each call", stub, otherStub);
+    assertNotSame("each Stub should have its own locator",
+        stub._getService(), otherStub._getService());
+    assertSame("Stubs should share the Axis engine",
+        ((Service) stub._getService()).getEngine(),
+        ((Service) otherStub._getService()).getEngine());
+    assertEquals("first call should register the type mappings", 1,
+        ((MockAxisServiceSoapBindingStub) otherStub).typeMappingRegistrations);
+    Mockito.verify(engineConfigurationFactory, Mockito.times(1)).getClientEngineConfig();
+    CacheStats engineCacheStats = axisHandler.getEngineCacheStats();
+    assertEquals("Unexpected engine cache miss count", 1, engineCacheStats.missCount());
+    assertEquals("Unexpected engine cache hit count", 1, engineCacheStats.hitCount());
+  }
+
+  /**
+   * Tests that Stubs created and called concurrently never share a call, as they would if they
+   * shared a locator.
+   */
+  @Test
+  public void testCreateSoapClient_concurrentCalls() throws Exception {
+    final int threadCount = 8;
+    final int callsPerThread = 500;
+    final CyclicBarrier barrier = new CyclicBarrier(threadCount);
+    final Set<Object> locators =
+        Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+    ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<List<Call>>> futures = new ArrayList<Future<List<Call>>>();
+      for (int i = 0; i < threadCount; i++) {
+        futures.add(executorService.submit(new Callable<List<Call>>() {
+          @Override
+          public List<Call> call() throws Exception {
+            barrier.await(10, TimeUnit.SECONDS);
+            Stub threadStub =
+                axisHandler.createSoapClient(new MockAxisCompatibleServiceDescriptor());
+            locators.add(threadStub._getService());
+            List<Call> calls = new ArrayList<Call>();
+            for (int j = 0; j < callsPerThread; j++) {
+              Call call = threadStub._createCall();
+              assertSame("call should belong to the Stub's locator",
+                  threadStub._getService(), call.getService());
+              calls.add(call);
+            }
+            return calls;
+          }
+        }));
+      }
+      Set<Call> calls = Sets.newIdentityHashSet();
+      for (Future<List<Call>> future : futures) {
+        calls.addAll(future.get(30, TimeUnit.SECONDS));
+      }
+      assertEquals("calls should not be shared", threadCount * callsPerThread, calls.size());
+      assertEquals("locators should not be shared", threadCount, locators.size());
+    } finally {
+      executorService.shutdownNow();
+    }
+    Mockito.verify(engineConfigurationFactory, Mockito.times(1)).getClientEngineConfig();
+  }
+
+  @Test
+  public void testExtractRequestId() {
+    Mockito.when(adsApiConfiguration.getRequestIdXPath())
+        .thenReturn("/Envelope/Header/ResponseHeader/requestId");
+    axisHandler = new AxisHandler(engineConfigurationFactory, httpTransport, adsApiConfiguration);
+    Message responseMessage = new Message(
+        "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+        + "<soap:Header><ResponseHeader xmlns=\"https://adwords.google.com/api/adwords/cm\">"
+        + "<requestId>abc123</requestId></ResponseHeader></soap:Header>"
+        + "<soap:Body/></soap:Envelope>");
+    assertEquals("abc123", axisHandler.extractRequestId(responseMessage));
+  }
+
+  @Test
+  public void testExtractRequestId_missing() {
+    Mockito.when(adsApiConfiguration.getRequestIdXPath())
+        .thenReturn("/Envelope/Header/ResponseHeader/requestId");
+    axisHandler = new AxisHandler(engineConfigurationFactory, httpTransport, adsApiConfiguration);
+    Message responseMessage = new Message(
+        "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+        + "<soap:Header><ResponseHeader><operations>1</operations></ResponseHeader></soap:Header>"
+        + "<soap:Body/></soap:Envelope>");
+    assertNull(axisHandler.extractRequestId(responseMessage));
+    assertNull(axisHandler.extractRequestId(null));
+  }
+
   @Test
   public void testSetAndGetHeader_valid() {
     axisHandler.setHeader(stub, "namespace", "header", "foo");
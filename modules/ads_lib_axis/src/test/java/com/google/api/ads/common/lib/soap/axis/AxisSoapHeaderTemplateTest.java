@@ -0,0 +1,85 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.common.lib.soap.axis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link AxisSoapHeaderTemplate}.
+ */
+@RunWith(JUnit4.class)
+public class AxisSoapHeaderTemplateTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void testNewHeader() throws Exception {
+    AxisSoapHeaderTemplate template =
+        AxisSoapHeaderTemplate.create(TestSoapHeader.class, "name", "validateOnly");
+    TestSoapHeader header = (TestSoapHeader) template.newHeader("foo", Boolean.TRUE);
+    assertEquals("foo", header.getName());
+    assertEquals(Boolean.TRUE, header.getValidateOnly());
+
+    TestSoapHeader otherHeader = (TestSoapHeader) template.newHeader(null, Boolean.FALSE);
+    assertNotSame("Each header should be a new instance", header, otherHeader);
+    assertNull(otherHeader.getName());
+    assertEquals("Earlier header should be unchanged", "foo", header.getName());
+  }
+
+  @Test
+  public void testCreate_noSetter() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("no setter for property unknown");
+    AxisSoapHeaderTemplate.create(TestSoapHeader.class, "name", "unknown");
+  }
+
+  @Test
+  public void testNewHeader_wrongValueCount() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    AxisSoapHeaderTemplate.create(TestSoapHeader.class, "name").newHeader("foo", "bar");
+  }
+
+  /** SOAP header bean. */
+  public static class TestSoapHeader {
+    private String name;
+    private Boolean validateOnly;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public Boolean getValidateOnly() {
+      return validateOnly;
+    }
+
+    public void setValidateOnly(Boolean validateOnly) {
+      this.validateOnly = validateOnly;
+    }
+  }
+}
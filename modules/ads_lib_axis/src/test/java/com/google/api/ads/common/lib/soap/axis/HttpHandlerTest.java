@@ -15,6 +15,7 @@
 package com.google.api.ads.common.lib.soap.axis;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
@@ -22,13 +23,17 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import com.google.api.ads.adwords.lib.soap.testing.SoapResponseXmlProvider;
+import com.google.api.ads.common.lib.soap.SoapCallMetrics;
 import com.google.api.ads.common.lib.soap.axis.HttpHandler.InputStreamEventListener;
+import com.google.api.ads.common.lib.testing.ActualResponse;
 import com.google.api.ads.common.lib.testing.MockHttpServer;
 import com.google.api.ads.common.lib.testing.MockResponse;
 import com.google.api.client.testing.http.MockHttpTransport;
 import com.google.api.client.testing.http.MockLowLevelHttpRequest;
 import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.common.base.Charsets;
 import com.google.common.base.MoreObjects;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import org.apache.axis.AxisEngine;
 import org.apache.axis.AxisFault;
@@ -96,6 +101,110 @@ public class HttpHandlerTest {
         "SOAP envelope of response is null", messageContext.getResponseMessage().getSOAPEnvelope());
   }
 
+  /**
+   * Tests that the request message is written to the request body, with and without gzip and
+   * streaming.
+   */
+  @Test
+  public void testInvokeWritesRequestMessage() throws IOException {
+    String requestXml =
+        "<soap:Envelope xmlns:soap='http://schemas.xmlsoap.org/soap/envelope/'>"
+            + "<soap:Body><get/></soap:Body></soap:Envelope>";
+    for (int i = 0; i < 4; i++) {
+      boolean compress = (i & 1) != 0;
+      MessageContext messageContext = new MessageContext(new AxisClient());
+      messageContext.setRequestMessage(new Message(requestXml));
+      messageContext.setProperty(MessageContext.TRANS_URL, mockHttpServer.getServerUrl());
+      messageContext.setProperty(HTTPConstants.MC_GZIP_REQUEST, compress);
+      messageContext.setProperty(HttpHandler.STREAM_REQUEST_PROPERTY, (i & 2) != 0);
+      mockHttpServer.setMockResponse(
+          new MockResponse(SoapResponseXmlProvider.getTestSoapResponse(API_VERSION)));
+
+      httpHandler.invoke(messageContext);
+      messageContext.getResponseMessage().getSOAPEnvelope();
+
+      ActualResponse actualResponse = mockHttpServer.getLastResponse();
+      assertThat("Request body does not match the request message",
+          actualResponse.getRequestBody(), Matchers.endsWith(requestXml));
+      assertEquals("Unexpected request compression",
+          compress, actualResponse.wasRequestBodyCompressed());
+    }
+  }
+
+  /**
+   * Tests that the request body reports its exact length unless streaming is requested, with and
+   * without gzip, and that the same bytes are written either way.
+   */
+  @Test
+  public void testAxisMessageContentLength() throws Exception {
+    String requestXml =
+        "<soap:Envelope xmlns:soap='http://schemas.xmlsoap.org/soap/envelope/'>"
+            + "<soap:Body><get/></soap:Body></soap:Envelope>";
+    for (boolean compress : new boolean[] {false, true}) {
+      HttpHandler.AxisMessageContent bufferedContent =
+          new HttpHandler.AxisMessageContent(
+              "text/xml", new Message(requestXml), compress, false, null);
+      long length = bufferedContent.getLength();
+      ByteArrayOutputStream bufferedBody = new ByteArrayOutputStream();
+      bufferedContent.writeTo(bufferedBody);
+      assertEquals("Length does not match the body", bufferedBody.size(), length);
+
+      HttpHandler.AxisMessageContent streamedContent =
+          new HttpHandler.AxisMessageContent(
+              "text/xml", new Message(requestXml), compress, true, null);
+      assertEquals("Streamed body should have an unknown length", -1, streamedContent.getLength());
+      ByteArrayOutputStream streamedBody = new ByteArrayOutputStream();
+      streamedContent.writeTo(streamedBody);
+      assertArrayEquals(bufferedBody.toByteArray(), streamedBody.toByteArray());
+    }
+  }
+
+  /** Tests that the transport set on the message context is used instead of the default. */
+  @Test
+  public void testInvokeUsesMessageContextTransport() throws IOException {
+    MockHttpServer otherMockHttpServer = new MockHttpServer();
+    MessageContext messageContext = new MessageContext(new AxisClient());
+    messageContext.setRequestMessage(requestMessage);
+    messageContext.setProperty(MessageContext.TRANS_URL, otherMockHttpServer.getServerUrl());
+    messageContext.setProperty(
+        HttpHandler.HTTP_TRANSPORT_PROPERTY, otherMockHttpServer.getHttpTransport());
+    otherMockHttpServer.setMockResponse(
+        new MockResponse(SoapResponseXmlProvider.getTestSoapResponse(API_VERSION)));
+
+    httpHandler.invoke(messageContext);
+    messageContext.getResponseMessage().getSOAPEnvelope();
+
+    assertEquals(1, otherMockHttpServer.getAllResponses().size());
+    assertTrue(mockHttpServer.getAllResponses().isEmpty());
+  }
+
+  /**
+   * Tests that the payload sizes and transport time are reported to the metrics set on the
+   * message context, and that the request size is counted before compression.
+   */
+  @Test
+  public void testInvokeRecordsSoapCallMetrics() throws IOException {
+    String responseXml = SoapResponseXmlProvider.getTestSoapResponse(API_VERSION);
+    SoapCallMetrics metrics = new SoapCallMetrics("123", 1);
+    MessageContext messageContext = new MessageContext(new AxisClient());
+    messageContext.setRequestMessage(new Message("<soap:Envelope "
+        + "xmlns:soap='http://schemas.xmlsoap.org/soap/envelope/'><soap:Body><get/></soap:Body>"
+        + "</soap:Envelope>"));
+    messageContext.setProperty(MessageContext.TRANS_URL, mockHttpServer.getServerUrl());
+    messageContext.setProperty(HTTPConstants.MC_GZIP_REQUEST, true);
+    messageContext.setProperty(HttpHandler.SOAP_CALL_METRICS_PROPERTY, metrics);
+    mockHttpServer.setMockResponse(new MockResponse(responseXml));
+
+    httpHandler.invoke(messageContext);
+    messageContext.getResponseMessage().getSOAPEnvelope();
+
+    assertEquals(mockHttpServer.getLastResponse().getRequestBody().getBytes(Charsets.UTF_8).length,
+        metrics.getRequestBytes());
+    assertEquals(responseXml.getBytes(Charsets.UTF_8).length, metrics.getResponseBytes());
+    assertTrue("Serialization time not recorded", metrics.getSerializationNanos() > 0);
+    assertTrue("Network time not recorded", metrics.getNetworkNanos() > 0);
+  }
+
   /** Tests that a poorly formed XML response will result in an AxisFault. */
   @Test
   public void testInvokeReturnsInvalidXml() throws AxisFault {
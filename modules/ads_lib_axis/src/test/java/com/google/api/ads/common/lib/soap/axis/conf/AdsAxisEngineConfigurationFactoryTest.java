@@ -16,6 +16,7 @@ package com.google.api.ads.common.lib.soap.axis.conf;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
@@ -126,6 +127,27 @@ public class AdsAxisEngineConfigurationFactoryTest {
         defaultAxisServer);
   }
 
+  /**
+   * Tests that each call returns a new client engine config built from the shared custom
+   * configuration when compression is enabled.
+   */
+  @Test
+  public void testGetClientEngineConfig_compressionEnabledRepeated() throws Exception {
+    when(adsLibConfiguration.isCompressionEnabled()).thenReturn(true);
+
+    EngineConfiguration firstClientEngineConfig = adsAxisConfigFactory.getClientEngineConfig();
+    EngineConfiguration secondClientEngineConfig = adsAxisConfigFactory.getClientEngineConfig();
+    assertNotSame("Client engine configs should not be shared between engines",
+        firstClientEngineConfig, secondClientEngineConfig);
+
+    for (EngineConfiguration clientEngineConfig :
+        Lists.newArrayList(firstClientEngineConfig, secondClientEngineConfig)) {
+      AxisClient axisClient = new AxisClient(clientEngineConfig);
+      assertEquals(HttpHandler.class,
+          getTransport(axisClient, "http").getPivotHandler().getClass());
+    }
+  }
+
   @Test
   public void testGetClientEngineConfig_factoryOverrideSet() throws Exception {
     List<Boolean> compressionEnabledSettings = Lists.newArrayList(Boolean.TRUE, Boolean.FALSE);
@@ -14,6 +14,10 @@
 
 package com.google.api.ads.common.lib.soap.axis.testing.mocks.v201611;
 
+import java.rmi.RemoteException;
+import javax.xml.rpc.ServiceException;
+import org.apache.axis.AxisFault;
+import org.apache.axis.client.Call;
 import org.apache.axis.client.Stub;
 
 /**
@@ -23,9 +27,33 @@ import org.apache.axis.client.Stub;
 public class MockAxisServiceSoapBindingStub extends Stub implements MockAxisServiceInterface {
 
   /**
-   * @param service ignored - here only for consistency with WSDL2Java-generated stubs
+   * Number of times the first call of this stub registered its type mappings.
+   */
+  public int typeMappingRegistrations;
+
+  /**
+   * @param service the locator that created this stub
    */
   public MockAxisServiceSoapBindingStub(javax.xml.rpc.Service service) {
+    super.service = service;
+  }
+
+  /**
+   * Creates a call like WSDL2Java-generated stubs do, registering type mappings on the first call.
+   */
+  protected Call createCall() throws RemoteException {
+    try {
+      Call call = super._createCall();
+      synchronized (this) {
+        if (firstCall()) {
+          call.setEncodingStyle(null);
+          typeMappingRegistrations++;
+        }
+      }
+      return call;
+    } catch (ServiceException e) {
+      throw new AxisFault("Failure trying to get the Call object", e);
+    }
   }
 
   @Override
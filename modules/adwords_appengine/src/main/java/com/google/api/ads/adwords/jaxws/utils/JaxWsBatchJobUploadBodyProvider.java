@@ -20,6 +20,7 @@ import com.google.api.ads.adwords.lib.utils.BatchJobUploadBodyProvider;
 import com.google.api.ads.common.lib.soap.jaxb.JaxBSerializer;
 import com.google.api.client.http.ByteArrayContent;
 import com.google.common.base.Preconditions;
+import java.nio.charset.StandardCharsets;
 
 import javax.xml.namespace.QName;
 
@@ -31,26 +32,25 @@ public class JaxWsBatchJobUploadBodyProvider<RequestT extends BatchJobMutateRequ
   private static final String REQUEST_NAMESPACE_TEMPLATE =
       "https://adwords.google.com/api/adwords/cm/%s";
 
-  private final QName requestQName;
-  private final Class<RequestT> requestClass;
+  private final JaxBSerializer<RequestT> serializer;
 
   public JaxWsBatchJobUploadBodyProvider(String apiVersion, Class<RequestT> requestClass) {
-    this.requestQName = new QName(
+    QName requestQName = new QName(
         String.format(
             REQUEST_NAMESPACE_TEMPLATE, Preconditions.checkNotNull(apiVersion, "Null API version")),
         "mutate");
-    this.requestClass = requestClass;
+    // The serializer is thread safe and expensive to create, so all requests serialized by this
+    // provider share it.
+    this.serializer = new JaxBSerializer<RequestT>(requestClass, requestQName);
   }
 
   @SuppressWarnings("unchecked")
   @Override
   public ByteArrayContent getHttpContent(BatchJobMutateRequestInterface request,
       boolean isFirstRequest, boolean isLastRequest) throws BatchJobException {
-    JaxBSerializer<RequestT> serializer =
-        new JaxBSerializer<RequestT>(requestClass, requestQName);
-
     String serializedRequest = serializer.serialize((RequestT) request, false);
 
-    return new ByteArrayContent("application/xml", serializedRequest.getBytes());
+    return new ByteArrayContent(
+        "application/xml", serializedRequest.getBytes(StandardCharsets.UTF_8));
   }
 }
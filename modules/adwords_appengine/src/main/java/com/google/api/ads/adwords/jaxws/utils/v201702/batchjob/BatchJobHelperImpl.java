@@ -20,21 +20,36 @@ import com.google.api.ads.adwords.jaxws.v201702.cm.Operand;
 import com.google.api.ads.adwords.jaxws.v201702.cm.Operation;
 import com.google.api.ads.adwords.lib.utils.BatchJobException;
 import com.google.api.ads.adwords.lib.utils.BatchJobHelperInterface;
+import com.google.api.ads.adwords.lib.utils.BatchJobMutateResultHandler;
+import com.google.api.ads.adwords.lib.utils.BatchJobMutateResultReader;
+import com.google.api.ads.adwords.lib.utils.BatchJobUploadCheckpointStore;
 import com.google.api.ads.adwords.lib.utils.BatchJobUploadResponse;
 import com.google.api.ads.adwords.lib.utils.BatchJobUploadStatus;
 import com.google.api.ads.adwords.lib.utils.BatchJobUploader;
+import com.google.api.ads.adwords.lib.utils.StreamingBatchJobHelperInterface;
 import com.google.api.ads.adwords.lib.utils.logging.BatchJobLogger;
 import com.google.api.ads.common.lib.soap.jaxb.JaxBDeserializer;
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
 import com.google.inject.Inject;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
+import java.util.Iterator;
+import java.util.List;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
 import javax.xml.transform.stream.StreamSource;
 
 /** Utility for uploading operations and downloading results for a {@link BatchJob}. */
 class BatchJobHelperImpl
     implements BatchJobHelperInterface<
-        Operation, Operand, ApiError, MutateResult, BatchJobMutateResponse> {
+        Operation, Operand, ApiError, MutateResult, BatchJobMutateResponse>,
+        StreamingBatchJobHelperInterface<Operation, MutateResult> {
+  /** Number of operations serialized together by {@link #streamBatchJobOperations}. */
+  private static final int OPERATIONS_PER_STREAMED_REQUEST = 100;
+
   private final BatchJobUploader uploader;
   private final BatchJobLogger batchJobLogger;
 
@@ -76,6 +91,67 @@ class BatchJobHelperImpl
     return response;
   }
 
+  @Override
+  public long downloadBatchJobMutateResults(
+      String downloadUrl, BatchJobMutateResultHandler<? super MutateResult> handler)
+      throws BatchJobException {
+    long resultCount = 0;
+    try {
+      // Unmarshal each rval element as it is read instead of the entire mutateResponse.
+      Unmarshaller unmarshaller = JAXBContext.newInstance(MutateResult.class).createUnmarshaller();
+      try (BatchJobMutateResultReader reader =
+          BatchJobMutateResultReader.open(new URL(downloadUrl).openStream())) {
+        while (reader.nextResult()) {
+          MutateResult mutateResult = reader.unmarshalResult(unmarshaller, MutateResult.class);
+          resultCount++;
+          if (!handler.handleResult(mutateResult)) {
+            break;
+          }
+        }
+      }
+    } catch (IOException | JAXBException e) {
+      batchJobLogger.logDownload(downloadUrl, resultCount, e);
+      throw new BatchJobException(
+          "Failed to download batch job mutate results from URL: " + downloadUrl, e);
+    }
+
+    batchJobLogger.logDownload(downloadUrl, resultCount, null);
+    return resultCount;
+  }
+
+  @Override
+  public BatchJobUploadResponse streamBatchJobOperations(
+      Iterator<? extends Operation> operations, String uploadUrl) throws BatchJobException {
+    return uploader.streamBatchJobOperations(
+        createStreamedRequests(operations), new BatchJobUploadStatus(0, URI.create(uploadUrl)));
+  }
+
+  @Override
+  public BatchJobUploadResponse streamBatchJobOperations(Iterator<? extends Operation> operations,
+      String uploadUrl, BatchJobUploadCheckpointStore checkpointStore) throws BatchJobException {
+    return uploader.streamBatchJobOperations(
+        createStreamedRequests(operations), URI.create(uploadUrl), checkpointStore);
+  }
+
+  /**
+   * Returns requests of {@link #OPERATIONS_PER_STREAMED_REQUEST} operations each, so that a
+   * resumed upload partitions the same operations into the same requests.
+   */
+  private static Iterator<BatchJobMutateRequest> createStreamedRequests(
+      Iterator<? extends Operation> operations) {
+    // Serialize the operations in small requests that the uploader copies into its chunk buffer.
+    return Iterators.transform(
+        Iterators.partition(operations, OPERATIONS_PER_STREAMED_REQUEST),
+        new Function<List<? extends Operation>, BatchJobMutateRequest>() {
+          @Override
+          public BatchJobMutateRequest apply(List<? extends Operation> operations) {
+            BatchJobMutateRequest request = new BatchJobMutateRequest();
+            request.addOperations(operations);
+            return request;
+          }
+        });
+  }
+
   @Override
   public BatchJobUploadResponse uploadIncrementalBatchJobOperations(
       Iterable<? extends Operation> operations,
@@ -21,25 +21,35 @@ import com.google.api.ads.adwords.jaxws.v201705.cm.Operation;
 import com.google.api.ads.adwords.lib.client.AdWordsSession;
 import com.google.api.ads.adwords.lib.utils.BatchJobException;
 import com.google.api.ads.adwords.lib.utils.BatchJobHelperInterface;
+import com.google.api.ads.adwords.lib.utils.BatchJobMutateResultHandler;
+import com.google.api.ads.adwords.lib.utils.BatchJobUploadCheckpointStore;
 import com.google.api.ads.adwords.lib.utils.BatchJobUploadResponse;
 import com.google.api.ads.adwords.lib.utils.BatchJobUploadStatus;
 import com.google.api.ads.adwords.lib.utils.SessionUtility;
+import com.google.api.ads.adwords.lib.utils.StreamingBatchJobHelperInterface;
 import com.google.api.ads.common.lib.utils.AdsUtilityInvocationHandler;
 import com.google.api.ads.common.lib.utils.AdsUtilityRegistry;
 import com.google.common.reflect.Reflection;
 import com.google.inject.Inject;
 import java.lang.reflect.InvocationHandler;
+import java.util.Iterator;
 
-/** Implementation of {@link BatchJobHelperInterface} for JAX-WS v201705. */
+/**
+ * Implementation of {@link BatchJobHelperInterface} and {@link StreamingBatchJobHelperInterface}
+ * for JAX-WS v201705.
+ */
 @SessionUtility
 public class BatchJobHelper
     implements BatchJobHelperInterface<
-        Operation, Operand, ApiError, MutateResult, BatchJobMutateResponse> {
+        Operation, Operand, ApiError, MutateResult, BatchJobMutateResponse>,
+        StreamingBatchJobHelperInterface<Operation, MutateResult> {
 
   private BatchJobHelperInterface<
           Operation, Operand, ApiError, MutateResult, BatchJobMutateResponse>
       impl;
 
+  private StreamingBatchJobHelperInterface<Operation, MutateResult> streamingImpl;
+
   public BatchJobHelper(AdWordsSession session) {
     this(
         AdWordsServices.getBootstrapper().getInstanceOf(session, BatchJobHelperImpl.class),
@@ -53,6 +63,8 @@ public class BatchJobHelper
     InvocationHandler invocationHandler =
         new AdsUtilityInvocationHandler(helperImpl, adsUtilityRegistry);
     this.impl = Reflection.newProxy(BatchJobHelperInterface.class, invocationHandler);
+    this.streamingImpl =
+        Reflection.newProxy(StreamingBatchJobHelperInterface.class, invocationHandler);
   }
 
   @Override
@@ -71,9 +83,28 @@ public class BatchJobHelper
         operations, isLastRequest, batchJobUploadStatus);
   }
 
+  @Override
+  public BatchJobUploadResponse streamBatchJobOperations(
+      Iterator<? extends Operation> operations, String uploadUrl) throws BatchJobException {
+    return streamingImpl.streamBatchJobOperations(operations, uploadUrl);
+  }
+
+  @Override
+  public BatchJobUploadResponse streamBatchJobOperations(Iterator<? extends Operation> operations,
+      String uploadUrl, BatchJobUploadCheckpointStore checkpointStore) throws BatchJobException {
+    return streamingImpl.streamBatchJobOperations(operations, uploadUrl, checkpointStore);
+  }
+
   @Override
   public BatchJobMutateResponse downloadBatchJobMutateResponse(String downloadUrl)
       throws BatchJobException {
     return impl.downloadBatchJobMutateResponse(downloadUrl);
   }
+
+  @Override
+  public long downloadBatchJobMutateResults(
+      String downloadUrl, BatchJobMutateResultHandler<? super MutateResult> handler)
+      throws BatchJobException {
+    return streamingImpl.downloadBatchJobMutateResults(downloadUrl, handler);
+  }
 }
@@ -0,0 +1,98 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.adwords.jaxws.utils.v201705.batchjob;
+
+import com.google.api.ads.adwords.jaxws.utils.v201705.SelectorBuilder;
+import com.google.api.ads.adwords.jaxws.v201705.cm.BatchJob;
+import com.google.api.ads.adwords.jaxws.v201705.cm.BatchJobPage;
+import com.google.api.ads.adwords.jaxws.v201705.cm.BatchJobServiceInterface;
+import com.google.api.ads.adwords.jaxws.v201705.cm.BatchJobStatus;
+import com.google.api.ads.adwords.jaxws.v201705.cm.ProgressStats;
+import com.google.api.ads.adwords.jaxws.v201705.cm.Selector;
+import com.google.api.ads.adwords.lib.selectorfields.v201705.cm.BatchJobField;
+import com.google.api.ads.adwords.lib.utils.AbstractBatchJobTracker;
+import com.google.common.base.Preconditions;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of {@link AbstractBatchJobTracker} for JAX-WS v201705. Each poll gets all due jobs
+ * with a single {@code BatchJobService.get} request, so use one tracker for all batch jobs of a
+ * session.
+ */
+public class BatchJobTracker extends AbstractBatchJobTracker<BatchJob> {
+
+  private final BatchJobServiceInterface batchJobService;
+
+  /**
+   * Constructs a tracker with the default delays between polls.
+   *
+   * @param batchJobService the service of the session that owns the batch jobs
+   */
+  public BatchJobTracker(BatchJobServiceInterface batchJobService) {
+    this(batchJobService, DEFAULT_MIN_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Constructs a tracker.
+   *
+   * @param batchJobService the service of the session that owns the batch jobs
+   * @param minDelay the delay before the first poll of a job
+   * @param maxDelay the maximum delay between polls of a job
+   * @param unit the unit of {@code minDelay} and {@code maxDelay}
+   */
+  public BatchJobTracker(BatchJobServiceInterface batchJobService, long minDelay, long maxDelay,
+      TimeUnit unit) {
+    super(minDelay, maxDelay, unit);
+    this.batchJobService = Preconditions.checkNotNull(batchJobService, "Null batch job service");
+  }
+
+  @Override
+  protected List<BatchJob> getBatchJobs(List<Long> batchJobIds) throws Exception {
+    String[] ids = new String[batchJobIds.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = batchJobIds.get(i).toString();
+    }
+    Selector selector =
+        new SelectorBuilder()
+            .fields(BatchJobField.Id, BatchJobField.Status, BatchJobField.ProgressStats,
+                BatchJobField.DownloadUrl)
+            .in(BatchJobField.Id, ids)
+            .offset(0)
+            .limit(ids.length)
+            .build();
+    BatchJobPage page = batchJobService.get(selector);
+    return page.getEntries();
+  }
+
+  @Override
+  protected long getId(BatchJob batchJob) {
+    return batchJob.getId();
+  }
+
+  @Override
+  protected boolean isFinished(BatchJob batchJob) {
+    return batchJob.getStatus() == BatchJobStatus.DONE
+        || batchJob.getStatus() == BatchJobStatus.CANCELED;
+  }
+
+  @Override
+  protected Integer getEstimatedPercentExecuted(BatchJob batchJob) {
+    ProgressStats progressStats = batchJob.getProgressStats();
+    return progressStats == null ? null : progressStats.getEstimatedPercentExecuted();
+  }
+}
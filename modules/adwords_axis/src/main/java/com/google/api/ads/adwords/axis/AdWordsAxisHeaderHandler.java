@@ -24,14 +24,24 @@ import com.google.api.ads.common.lib.exception.ServiceException;
 import com.google.api.ads.common.lib.soap.AuthorizationHeaderHandler;
 import com.google.api.ads.common.lib.soap.axis.AxisHandler;
 import com.google.api.ads.common.lib.soap.axis.AxisSoapHeaderFactory;
+import com.google.api.ads.common.lib.soap.axis.AxisSoapHeaderTemplate;
 import com.google.api.ads.common.lib.useragent.UserAgentCombiner;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import javax.inject.Inject;
 import org.apache.axis.client.Stub;
 
 /**
  * AdWords implementation of {@link HeaderHandler} for Axis.
+ *
+ * <p>The constructor and setters of each service's {@code RequestHeader} class are looked up once
+ * and cached, so each call creates and populates a new header without introspection. Headers are
+ * never shared between stubs, so changing the header of one stub does not affect other calls.
  */
 public class AdWordsAxisHeaderHandler implements
     HeaderHandler<AdWordsSession, AdWordsServiceDescriptor> {
@@ -44,6 +54,14 @@ public class AdWordsAxisHeaderHandler implements
   private final AxisSoapHeaderFactory<AdWordsServiceDescriptor> soapHeaderFactory;
   
   static final String REQUEST_HEADER_LOCAL_PART = "RequestHeader";
+
+  /** Properties of the SOAP header set from the session, in the order of their values. */
+  private static final String[] SOAP_HEADER_PROPERTIES = {
+    "developerToken", "clientCustomerId", "userAgent", "validateOnly", "partialFailure"};
+
+  /** Templates of the SOAP header of each service, keyed on the service interface class. */
+  private final Cache<Class<?>, AxisSoapHeaderTemplate> soapHeaderTemplates =
+      CacheBuilder.newBuilder().weakKeys().build();
   
   /**
    * Constructor.
@@ -83,38 +101,51 @@ public class AdWordsAxisHeaderHandler implements
       Preconditions.checkArgument(soapClient instanceof Stub,
           "soapClient must be Stub but was: %s", soapClient);
       Stub stub = (Stub) soapClient;
-      Object soapHeader = soapHeaderFactory.createSoapHeader(adWordsServiceDescriptor);
-
       String namespace =
           adWordsApiConfiguration.getNamespacePrefix() + "/"
               + adWordsServiceDescriptor.getPackageGroup() + "/"
               + adWordsServiceDescriptor.getVersion();
+      Object soapHeader = getSoapHeaderTemplate(adWordsServiceDescriptor).newHeader(
+          adWordsSession.getDeveloperToken(),
+          adWordsSession.getClientCustomerId(),
+          userAgentCombiner.getUserAgent(adWordsSession.getUserAgent()),
+          // Unset flags are sent as false, as they were when set through BeanUtils.
+          Boolean.TRUE.equals(adWordsSession.isValidateOnly()),
+          Boolean.TRUE.equals(adWordsSession.isPartialFailure()));
 
       soapClientHandler.setHeader(stub, namespace, REQUEST_HEADER_LOCAL_PART, soapHeader);
 
-      soapClientHandler.setHeaderChild(stub, REQUEST_HEADER_LOCAL_PART, "developerToken",
-          adWordsSession.getDeveloperToken());
-      soapClientHandler.setHeaderChild(stub, REQUEST_HEADER_LOCAL_PART, "clientCustomerId",
-          adWordsSession.getClientCustomerId());
-      soapClientHandler.setHeaderChild(stub, REQUEST_HEADER_LOCAL_PART, "userAgent",
-          userAgentCombiner.getUserAgent(adWordsSession.getUserAgent()));
-      soapClientHandler.setHeaderChild(stub, REQUEST_HEADER_LOCAL_PART, "validateOnly",
-          adWordsSession.isValidateOnly());
-      soapClientHandler.setHeaderChild(stub, REQUEST_HEADER_LOCAL_PART, "partialFailure",
-          adWordsSession.isPartialFailure());
-
       soapClientHandler.setCompression(stub, adsLibConfiguration.isCompressionEnabled());
       soapClientHandler.setRequestTimeout(stub, adsLibConfiguration.getSoapRequestTimeout());
 
       authorizationHeaderHandler.setAuthorization(soapClient, adWordsSession);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new ServiceException(
+          "Unexpected exception setting headers for: " + adWordsServiceDescriptor, e.getCause());
     } catch (InstantiationException
         | IllegalAccessException
         | ServiceException
-        | ClassNotFoundException
-        | InvocationTargetException
-        | NoSuchMethodException e) {
+        | InvocationTargetException e) {
       throw new ServiceException(
           "Unexpected exception setting headers for: " + adWordsServiceDescriptor, e);
     }
   }
+
+  /**
+   * Gets the template of the service's SOAP header, creating it if it is not already cached.
+   *
+   * @throws ExecutionException if the SOAP header class could not be found or introspected
+   */
+  private AxisSoapHeaderTemplate getSoapHeaderTemplate(
+      final AdWordsServiceDescriptor adWordsServiceDescriptor) throws ExecutionException {
+    return soapHeaderTemplates.get(adWordsServiceDescriptor.getInterfaceClass(),
+        new Callable<AxisSoapHeaderTemplate>() {
+          @Override
+          public AxisSoapHeaderTemplate call() throws Exception {
+            Class<?> soapHeaderClass =
+                soapHeaderFactory.createSoapHeader(adWordsServiceDescriptor).getClass();
+            return AxisSoapHeaderTemplate.create(soapHeaderClass, SOAP_HEADER_PROPERTIES);
+          }
+        });
+  }
 }
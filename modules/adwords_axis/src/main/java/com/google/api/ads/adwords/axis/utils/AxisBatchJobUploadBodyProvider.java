@@ -24,8 +24,11 @@ import com.google.common.collect.ImmutableSortedSet;
 import org.apache.axis.encoding.SerializationContext;
 import org.xml.sax.Attributes;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.SortedSet;
 
 import javax.xml.namespace.QName;
@@ -36,9 +39,24 @@ import javax.xml.namespace.QName;
 public class AxisBatchJobUploadBodyProvider implements BatchJobUploadBodyProvider {
   
   private final SortedSet<String> namespaceUris;
+  private final boolean isPretty;
   
+  /**
+   * Constructor for a provider of indented XML.
+   */
   public AxisBatchJobUploadBodyProvider(Iterable<String> namespaceUris) {
+    this(namespaceUris, true);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param namespaceUris the namespaces of the types in requests
+   * @param isPretty if the XML should be indented, which makes it larger and slower to serialize
+   */
+  public AxisBatchJobUploadBodyProvider(Iterable<String> namespaceUris, boolean isPretty) {
     this.namespaceUris = ImmutableSortedSet.copyOf(namespaceUris);
+    this.isPretty = isPretty;
   }
   
   @Override
@@ -46,7 +64,9 @@ public class AxisBatchJobUploadBodyProvider implements BatchJobUploadBodyProvide
       boolean isFirstRequest, boolean isLastRequest) throws BatchJobException {
     Preconditions.checkNotNull(request, "Null request");
 
-    StringWriter writer = new StringWriter();
+    // Encode straight to bytes instead of building a String first.
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
     SerializationContext context = new SerializationContext(writer) {
       /**
        * Override the serialize method called by the Axis serializer and force it to
@@ -60,7 +80,7 @@ public class AxisBatchJobUploadBodyProvider implements BatchJobUploadBodyProvide
       }
     };
     context.setSendDecl(false);
-    context.setPretty(true);
+    context.setPretty(isPretty);
     
     // Pre-register namespaces using the *sorted* list of namespaces. This ensures that
     // when performing an incremental upload, the same namespace prefix will be used
@@ -73,8 +93,13 @@ public class AxisBatchJobUploadBodyProvider implements BatchJobUploadBodyProvide
     
     AxisSerializer serializer = new AxisSerializer();
     serializer.serialize(request, context);
+    try {
+      writer.flush();
+    } catch (IOException e) {
+      throw new BatchJobException("Failed to serialize the request", e);
+    }
 
-    return new ByteArrayContent("application/xml", writer.toString().getBytes());
+    return new ByteArrayContent("application/xml", outputStream.toByteArray());
   }
 
 }
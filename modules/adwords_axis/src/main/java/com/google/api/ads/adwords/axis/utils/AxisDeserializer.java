@@ -14,6 +14,8 @@
 
 package com.google.api.ads.adwords.axis.utils;
 
+import com.google.api.ads.adwords.lib.utils.BatchJobMutateResultHandler;
+import com.google.api.ads.adwords.lib.utils.BatchJobMutateResultReader;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.io.ByteSource;
@@ -29,10 +31,12 @@ import org.apache.axis.message.MessageElement;
 import org.apache.axis.message.SOAPEnvelope;
 import org.xml.sax.InputSource;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.List;
 
@@ -103,6 +107,57 @@ public class AxisDeserializer {
     return results;
   }
   
+  /**
+   * Deserializes the mutate results of a batch job download one at a time and passes each one to
+   * {@code handler}. Unlike {@link #deserializeBatchJobMutateResults(URL, List, Class, QName)},
+   * the download is read with a streaming parser and only a single result is held in memory, since
+   * each result is copied into its own SOAP envelope before Axis parses it.
+   *
+   * @return the number of results passed to {@code handler}
+   */
+  public <ResultT> long deserializeBatchJobMutateResults(URL url,
+      List<TypeMapping> serviceTypeMappings, Class<ResultT> resultClass, QName resultQName,
+      BatchJobMutateResultHandler<? super ResultT> handler) throws Exception {
+    Preconditions.checkNotNull(handler, "Null handler");
+
+    // Share the MessageContext and its TypeMappingRegistry across the results so the type
+    // mappings are only registered once per download.
+    MessageContext messageContext = new MessageContext(new AxisClient());
+    TypeMappingRegistryImpl typeMappingRegistry = new TypeMappingRegistryImpl(true);
+    messageContext.setTypeMappingRegistry(typeMappingRegistry);
+    registerTypeMappings(
+        typeMappingRegistry.getOrMakeTypeMapping(messageContext.getEncodingStyle()),
+        serviceTypeMappings);
+
+    byte[] startBody = SOAP_START_BODY.getBytes(StandardCharsets.UTF_8);
+    byte[] endBody = SOAP_END_BODY.getBytes(StandardCharsets.UTF_8);
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    long resultCount = 0;
+    try (BatchJobMutateResultReader reader = BatchJobMutateResultReader.open(url.openStream())) {
+      while (reader.nextResult()) {
+        buffer.reset();
+        buffer.write(startBody);
+        reader.copyResult(buffer);
+        buffer.write(endBody);
+
+        DeserializationContext deserializationContext =
+            new DeserializationContext(
+                new InputSource(new ByteArrayInputStream(buffer.toByteArray())),
+                messageContext,
+                Message.RESPONSE);
+        deserializationContext.parse();
+        MessageElement resultElm = deserializationContext.getEnvelope().getFirstBody();
+        @SuppressWarnings("unchecked")
+        ResultT mutateResult = (ResultT) resultElm.getValueAsType(resultQName, resultClass);
+        resultCount++;
+        if (!handler.handleResult(mutateResult)) {
+          break;
+        }
+      }
+    }
+    return resultCount;
+  }
+
   /**
    * Returns a new input stream that wraps the download input stream in a SOAP body so
    * it can be parsed by Axis.
@@ -22,16 +22,23 @@ import com.google.api.ads.adwords.axis.v201607.cm.Operand;
 import com.google.api.ads.adwords.axis.v201607.cm.Operation;
 import com.google.api.ads.adwords.lib.utils.BatchJobException;
 import com.google.api.ads.adwords.lib.utils.BatchJobHelperInterface;
+import com.google.api.ads.adwords.lib.utils.BatchJobMutateResultHandler;
+import com.google.api.ads.adwords.lib.utils.BatchJobUploadCheckpointStore;
 import com.google.api.ads.adwords.lib.utils.BatchJobUploadResponse;
 import com.google.api.ads.adwords.lib.utils.BatchJobUploadStatus;
 import com.google.api.ads.adwords.lib.utils.BatchJobUploader;
+import com.google.api.ads.adwords.lib.utils.StreamingBatchJobHelperInterface;
 import com.google.api.ads.adwords.lib.utils.logging.BatchJobLogger;
+import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
 import java.rmi.RemoteException;
+import java.util.Iterator;
 import java.util.List;
 import javax.xml.namespace.QName;
 import javax.xml.rpc.ServiceException;
@@ -41,7 +48,11 @@ import org.apache.axis.encoding.TypeMapping;
 /** Utility for uploading operations and downloading results for a {@link BatchJob}. */
 class BatchJobHelperImpl
     implements BatchJobHelperInterface<
-        Operation, Operand, ApiError, MutateResult, BatchJobMutateResponse> {
+        Operation, Operand, ApiError, MutateResult, BatchJobMutateResponse>,
+        StreamingBatchJobHelperInterface<Operation, MutateResult> {
+  /** Number of operations serialized together by {@link #streamBatchJobOperations}. */
+  private static final int OPERATIONS_PER_STREAMED_REQUEST = 100;
+
   private final BatchJobUploader uploader;
   private final BatchJobLogger batchJobLogger;
   private final QName resultQName;
@@ -61,6 +72,40 @@ class BatchJobHelperImpl
         operations, true, new BatchJobUploadStatus(0, URI.create(uploadUrl)));
   }
   
+  @Override
+  public BatchJobUploadResponse streamBatchJobOperations(
+      Iterator<? extends Operation> operations, String uploadUrl) throws BatchJobException {
+    return uploader.streamBatchJobOperations(
+        createStreamedRequests(operations), new BatchJobUploadStatus(0, URI.create(uploadUrl)));
+  }
+
+  @Override
+  public BatchJobUploadResponse streamBatchJobOperations(Iterator<? extends Operation> operations,
+      String uploadUrl, BatchJobUploadCheckpointStore checkpointStore) throws BatchJobException {
+    return uploader.streamBatchJobOperations(
+        createStreamedRequests(operations), URI.create(uploadUrl), checkpointStore);
+  }
+
+  /**
+   * Returns requests of {@link #OPERATIONS_PER_STREAMED_REQUEST} operations each, so that a
+   * resumed upload partitions the same operations into the same requests.
+   */
+  private static Iterator<BatchJobMutateRequest> createStreamedRequests(
+      Iterator<? extends Operation> operations) {
+    // Serialize the operations in small requests of compact XML that the uploader copies into its
+    // chunk buffer.
+    return Iterators.transform(
+        Iterators.partition(operations, OPERATIONS_PER_STREAMED_REQUEST),
+        new Function<List<? extends Operation>, BatchJobMutateRequest>() {
+          @Override
+          public BatchJobMutateRequest apply(List<? extends Operation> operations) {
+            BatchJobMutateRequest request = new BatchJobMutateRequest(false);
+            request.addOperations(operations);
+            return request;
+          }
+        });
+  }
+
   @Override
   public BatchJobUploadResponse uploadIncrementalBatchJobOperations(
       Iterable<? extends Operation> operations, boolean isLastRequest,
@@ -104,16 +149,7 @@ class BatchJobHelperImpl
     BatchJobMutateResponse response = new BatchJobMutateResponse();
     List<MutateResult> mutateResults = Lists.newArrayList();
     for (com.google.api.ads.adwords.axis.v201607.cm.MutateResult cmMutateResult : cmMutateResults) {
-      MutateResult mutateResult = new MutateResult();
-      mutateResult.setIndex(cmMutateResult.getIndex());
-      mutateResult.setOperand(cmMutateResult.getResult());
-      if (cmMutateResult.getErrorList() != null) {
-        mutateResult.setErrorList(new ErrorList());
-        if (cmMutateResult.getErrorList().getErrors() != null) {
-          mutateResult.getErrorList().setErrors(cmMutateResult.getErrorList().getErrors());
-        }
-      }
-      mutateResults.add(mutateResult);
+      mutateResults.add(translateMutateResult(cmMutateResult));
     }
     response.setMutateResults(mutateResults.toArray(new MutateResult[mutateResults.size()]));
 
@@ -121,6 +157,69 @@ class BatchJobHelperImpl
     return response;
   }
 
+  @Override
+  public long downloadBatchJobMutateResults(
+      String downloadUrl, BatchJobMutateResultHandler<? super MutateResult> handler)
+      throws BatchJobException {
+    AxisDeserializer deserializer = new AxisDeserializer();
+    // Deserialize using the generated cm.MutateResult class for the same reason as in
+    // downloadBatchJobMutateResponse, translating each result before passing it to the handler.
+    TranslatingResultHandler translatingHandler = new TranslatingResultHandler(handler);
+    try {
+      deserializer.deserializeBatchJobMutateResults(
+          new URL(downloadUrl),
+          getServiceTypeMappings(),
+          com.google.api.ads.adwords.axis.v201607.cm.MutateResult.class,
+          resultQName,
+          translatingHandler);
+    } catch (Exception e) {
+      batchJobLogger.logDownload(downloadUrl, translatingHandler.resultCount, e);
+      throw new BatchJobException(
+          "Failed to download batch job mutate results from URL: " + downloadUrl, e);
+    }
+    batchJobLogger.logDownload(downloadUrl, translatingHandler.resultCount, null);
+    return translatingHandler.resultCount;
+  }
+
+  /**
+   * Translates a cm.MutateResult into a batchjob.MutateResult.
+   */
+  private static MutateResult translateMutateResult(
+      com.google.api.ads.adwords.axis.v201607.cm.MutateResult cmMutateResult) {
+    MutateResult mutateResult = new MutateResult();
+    mutateResult.setIndex(cmMutateResult.getIndex());
+    mutateResult.setOperand(cmMutateResult.getResult());
+    if (cmMutateResult.getErrorList() != null) {
+      mutateResult.setErrorList(new ErrorList());
+      if (cmMutateResult.getErrorList().getErrors() != null) {
+        mutateResult.getErrorList().setErrors(cmMutateResult.getErrorList().getErrors());
+      }
+    }
+    return mutateResult;
+  }
+
+  /**
+   * Passes each deserialized cm.MutateResult to a handler of batchjob.MutateResults and counts
+   * the results handled.
+   */
+  private static class TranslatingResultHandler
+      implements BatchJobMutateResultHandler<
+          com.google.api.ads.adwords.axis.v201607.cm.MutateResult> {
+    private final BatchJobMutateResultHandler<? super MutateResult> handler;
+    private long resultCount;
+
+    TranslatingResultHandler(BatchJobMutateResultHandler<? super MutateResult> handler) {
+      this.handler = handler;
+    }
+
+    @Override
+    public boolean handleResult(
+        com.google.api.ads.adwords.axis.v201607.cm.MutateResult cmMutateResult) throws IOException {
+      resultCount++;
+      return handler.handleResult(translateMutateResult(cmMutateResult));
+    }
+  }
+
   /**
    * Returns all of the service type mappings required to serialize/deserialize Axis objects.
    */
@@ -36,6 +36,21 @@ import org.apache.axis.encoding.TypeMapping;
 @VisibleForTesting
 public class BatchJobMutateRequest implements BatchJobMutateRequestInterface {
   private List<Operation> operations = Lists.newArrayList();
+  private final boolean isPretty;
+
+  public BatchJobMutateRequest() {
+    this(true);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param isPretty if the uploaded XML of this request should be indented. Compact XML is
+   * smaller and faster to serialize.
+   */
+  BatchJobMutateRequest(boolean isPretty) {
+    this.isPretty = isPretty;
+  }
 
   private static final org.apache.axis.description.TypeDesc TYPE_DESC =
       new org.apache.axis.description.TypeDesc(BatchJobMutateRequest.class, true);
@@ -68,7 +83,7 @@ public class BatchJobMutateRequest implements BatchJobMutateRequestInterface {
         }
       }
     }
-    return new AxisBatchJobUploadBodyProvider(namespaceUris);
+    return new AxisBatchJobUploadBodyProvider(namespaceUris, isPretty);
   }
 
   public Operation[] getOperations() {
@@ -15,11 +15,10 @@
 package com.google.api.ads.adwords.axis;
 
 import static org.junit.Assert.assertEquals;
-import static org.mockito.Matchers.any;
+import static org.junit.Assert.assertNotSame;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
-import static org.mockito.Mockito.atLeast;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -32,9 +31,7 @@ import com.google.api.ads.common.lib.soap.axis.AxisHandler;
 import com.google.api.ads.common.lib.soap.axis.AxisSoapHeaderFactory;
 import com.google.api.ads.common.lib.useragent.UserAgentCombiner;
 import com.google.api.client.auth.oauth2.Credential;
-import com.google.common.collect.Maps;
 import java.util.List;
-import java.util.Map;
 import org.apache.axis.client.Stub;
 import org.junit.Before;
 import org.junit.Test;
@@ -42,6 +39,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 /**
@@ -77,6 +75,8 @@ public class AdWordsAxisHeaderHandlerTest {
   @Before
   public void setUp() throws Exception {
     MockitoAnnotations.initMocks(this);
+    Mockito.<Class<?>>when(adWordsServiceDescriptor.getInterfaceClass())
+        .thenReturn(TestServiceInterface.class);
 
     headerHandler = new AdWordsAxisHeaderHandler(soapClientHandler,
         adWordsApiConfiguration,
@@ -102,48 +102,105 @@ public class AdWordsAxisHeaderHandlerTest {
    */
   @Test
   public void testSetHeaders() throws Exception {
+    when(soapHeaderFactory.createSoapHeader(adWordsServiceDescriptor)).thenReturn(
+        new TestSoapHeader());
+    when(userAgentCombiner.getUserAgent(anyString())).thenReturn("libSig");
 
-    // Set up the expected headers in a map.
-    Map<String, Object> expectedHeaders = Maps.newHashMap();
-    expectedHeaders.put("clientCustomerId", adWordsSession.getClientCustomerId());
-    expectedHeaders.put("developerToken", adWordsSession.getDeveloperToken());
-    expectedHeaders.put("validateOnly", adWordsSession.isValidateOnly());
-    expectedHeaders.put("userAgent", "libSig");
+    // Call the actual method being tested.
+    headerHandler.setHeaders(soapClient, adWordsSession, adWordsServiceDescriptor);
 
-    // Configure mocks to avoid relying on the underlying details of soapClientHandler.
-    doNothing().when(soapClientHandler)
-        .setHeader(eq(soapClient), anyString(), anyString(), any());
+    // Verify that the header set on the stub contains each expected value.
+    ArgumentCaptor<Object> headerCaptor = ArgumentCaptor.forClass(Object.class);
+    verify(soapClientHandler).setHeader(eq(soapClient), anyString(),
+        eq(AdWordsAxisHeaderHandler.REQUEST_HEADER_LOCAL_PART), headerCaptor.capture());
 
-    when(soapClientHandler.getHeader(eq(soapClient), anyString())).thenReturn(Maps.newHashMap());
+    TestSoapHeader header = (TestSoapHeader) headerCaptor.getValue();
+    assertEquals(adWordsSession.getClientCustomerId(), header.getClientCustomerId());
+    assertEquals(adWordsSession.getDeveloperToken(), header.getDeveloperToken());
+    assertEquals(adWordsSession.isValidateOnly(), header.getValidateOnly());
+    assertEquals("libSig", header.getUserAgent());
+  }
 
+  /**
+   * Tests that each call gets its own header, so modifying one stub's header does not affect
+   * other calls, while the header class is only looked up once.
+   */
+  @Test
+  public void testSetHeaders_newHeaderPerCall() throws Exception {
     when(soapHeaderFactory.createSoapHeader(adWordsServiceDescriptor)).thenReturn(
-        Maps.newHashMap());
+        new TestSoapHeader());
+    when(userAgentCombiner.getUserAgent(anyString())).thenReturn("libSig");
 
-    when(userAgentCombiner.getUserAgent(anyString())).thenReturn(
-        expectedHeaders.get("userAgent").toString());
+    headerHandler.setHeaders(soapClient, adWordsSession, adWordsServiceDescriptor);
+    ArgumentCaptor<Object> headerCaptor = ArgumentCaptor.forClass(Object.class);
+    verify(soapClientHandler).setHeader(eq(soapClient), anyString(),
+        eq(AdWordsAxisHeaderHandler.REQUEST_HEADER_LOCAL_PART), headerCaptor.capture());
+    ((TestSoapHeader) headerCaptor.getValue()).setClientCustomerId("999-999-9999");
 
-    // Call the actual method being tested.
+    adWordsSession.setValidateOnly(false);
     headerHandler.setHeaders(soapClient, adWordsSession, adWordsServiceDescriptor);
 
-    // Verify that setHeaderChild was invoked on each expected name/value pair.
-    ArgumentCaptor<String> nameCaptor = ArgumentCaptor.forClass(String.class);
-    ArgumentCaptor<Object> valueCaptor = ArgumentCaptor.forClass(Object.class);
+    verify(soapClientHandler, times(2)).setHeader(eq(soapClient), anyString(),
+        eq(AdWordsAxisHeaderHandler.REQUEST_HEADER_LOCAL_PART), headerCaptor.capture());
+    verify(soapHeaderFactory, times(1)).createSoapHeader(adWordsServiceDescriptor);
+    verify(authorizationHeaderHandler, times(2)).setAuthorization(soapClient, adWordsSession);
+
+    List<Object> headers = headerCaptor.getAllValues();
+    TestSoapHeader header = (TestSoapHeader) headers.get(headers.size() - 1);
+    assertNotSame(headers.get(0), header);
+    assertEquals("123-456-7890", header.getClientCustomerId());
+    assertEquals(Boolean.FALSE, header.getValidateOnly());
+  }
 
-    verify(soapClientHandler, atLeast(expectedHeaders.size())).setHeaderChild(eq(soapClient),
-        anyString(), nameCaptor.capture(), valueCaptor.capture());
+  /** Service interface of the descriptor. */
+  private interface TestServiceInterface {}
 
-    List<String> capturedNames = nameCaptor.getAllValues();
-    List<Object> capturedValues = valueCaptor.getAllValues();
+  /** SOAP header bean with the properties set by the header handler. */
+  public static class TestSoapHeader {
+    private String developerToken;
+    private String clientCustomerId;
+    private String userAgent;
+    private Boolean validateOnly;
+    private Boolean partialFailure;
 
-    // Note that capturedNames.size() will be greater than expectedHeaders.size(),
-    // but that's fine. This test just verifies that the key values in
-    // expectedHeaders are all present.
-    for (int i = 0; i < expectedHeaders.size(); i++) {
-      String name = capturedNames.get(i);
-      Object value = capturedValues.get(i);
-      Object expectedValue = expectedHeaders.get(name);
-      assertEquals("Captured value for " + name + " is incorrect", expectedValue, value);
+    public String getDeveloperToken() {
+      return developerToken;
+    }
+
+    public void setDeveloperToken(String developerToken) {
+      this.developerToken = developerToken;
+    }
+
+    public String getClientCustomerId() {
+      return clientCustomerId;
+    }
+
+    public void setClientCustomerId(String clientCustomerId) {
+      this.clientCustomerId = clientCustomerId;
+    }
+
+    public String getUserAgent() {
+      return userAgent;
+    }
+
+    public void setUserAgent(String userAgent) {
+      this.userAgent = userAgent;
     }
-  }
 
+    public Boolean getValidateOnly() {
+      return validateOnly;
+    }
+
+    public void setValidateOnly(Boolean validateOnly) {
+      this.validateOnly = validateOnly;
+    }
+
+    public Boolean getPartialFailure() {
+      return partialFailure;
+    }
+
+    public void setPartialFailure(Boolean partialFailure) {
+      this.partialFailure = partialFailure;
+    }
+  }
 }
@@ -24,6 +24,7 @@ import com.google.api.ads.adwords.axis.v201609.cm.BiddableAdGroupCriterion;
 import com.google.api.ads.adwords.axis.v201609.cm.CampaignServiceSoapBindingStub;
 import com.google.api.ads.adwords.axis.v201609.cm.CriterionError;
 import com.google.api.ads.adwords.axis.v201609.cm.MutateResult;
+import com.google.api.ads.adwords.lib.utils.BatchJobMutateResultHandler;
 import com.google.common.collect.Lists;
 
 import org.apache.axis.client.Call;
@@ -50,6 +51,9 @@ import javax.xml.transform.TransformerException;
  */
 @RunWith(JUnit4.class)
 public class AxisDeserializerTest {
+  private static final QName MUTATE_RESULT_QNAME =
+      new QName("https://adwords.google.com/api/adwords/cm/v201609", "MutateResult");
+
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
@@ -108,6 +112,35 @@ public class AxisDeserializerTest {
         Matchers.instanceOf(BiddableAdGroupCriterion.class));
   }
 
+  /**
+   * Tests that streamed results are deserialized the same as a full response, including the
+   * {@code xsi:type} of nested elements.
+   */
+  @Test
+  public void testDeserializeBatchJobResponseWithErrors_streaming() throws Exception {
+    final List<MutateResult> mutateResults = Lists.newArrayList();
+    long resultCount = new AxisDeserializer().deserializeBatchJobMutateResults(
+        AxisDeserializerTest.class.getResource("resources/BatchJobMutate.responseWithErrors.xml"),
+        getTypeMappings(), MutateResult.class, MUTATE_RESULT_QNAME,
+        new BatchJobMutateResultHandler<MutateResult>() {
+          @Override
+          public boolean handleResult(MutateResult result) {
+            mutateResults.add(result);
+            return true;
+          }
+        });
+    assertEquals(7, resultCount);
+    assertEquals(7, mutateResults.size());
+    assertNotNull(mutateResults.get(0).getResult().getCampaign());
+    assertNotNull(mutateResults.get(1).getResult().getAdGroup());
+    assertThat(
+        mutateResults.get(2).getResult().getAdGroupCriterion(),
+        Matchers.instanceOf(BiddableAdGroupCriterion.class));
+    assertThat(
+        mutateResults.get(6).getErrorList().getErrors()[0],
+        Matchers.instanceOf(CriterionError.class));
+  }
+
   /**
    * Tests that an empty file will fail to parse.
    */
@@ -121,9 +154,13 @@ public class AxisDeserializerTest {
 
   private List<MutateResult> testDeserializeBatchJobResponse(URL responseXmlUrl)
       throws Exception {
-    QName mutateResultQName =
-        new QName("https://adwords.google.com/api/adwords/cm/v201609", "MutateResult");
+    List<MutateResult> mutateResults =
+        new AxisDeserializer().deserializeBatchJobMutateResults(responseXmlUrl, getTypeMappings(),
+            MutateResult.class, MUTATE_RESULT_QNAME);
+    return mutateResults;
+  }
 
+  private static List<TypeMapping> getTypeMappings() throws Exception {
     TypeMapping agcMapping = new AdGroupCriterionServiceSoapBindingStub() {
       @Override
       public Call _createCall() throws ServiceException {
@@ -157,12 +194,6 @@ public class AxisDeserializerTest {
       }
     }._createCall().getTypeMapping();
 
-    List<TypeMapping> typeMappings = 
-        Lists.newArrayList(campaignMapping, agcMapping, adGroupMapping);
-
-    List<MutateResult> mutateResults =
-        new AxisDeserializer().deserializeBatchJobMutateResults(responseXmlUrl, typeMappings,
-            MutateResult.class, mutateResultQName);
-    return mutateResults;
+    return Lists.newArrayList(campaignMapping, agcMapping, adGroupMapping);
   }
 }
@@ -14,6 +14,9 @@
 
 package com.google.api.ads.adwords.axis.utils.v201607.batchjob;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 import com.google.api.ads.adwords.axis.utils.AxisBatchJobUploadBodyProvider;
 import com.google.api.ads.adwords.axis.v201607.cm.AdvertisingChannelType;
 import com.google.api.ads.adwords.axis.v201607.cm.BiddingStrategyConfiguration;
@@ -31,11 +34,17 @@ import com.google.api.ads.adwords.axis.v201607.cm.ManualCpcBiddingScheme;
 import com.google.api.ads.adwords.axis.v201607.cm.Money;
 import com.google.api.ads.adwords.axis.v201607.cm.NegativeCampaignCriterion;
 import com.google.api.ads.adwords.axis.v201607.cm.Operator;
+import com.google.api.ads.adwords.lib.utils.BatchJobException;
 import com.google.api.ads.adwords.lib.utils.testing.BatchJobUploadBodyProviderTest;
 
+import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Tests for {@link AxisBatchJobUploadBodyProvider}.
  */
@@ -53,6 +62,27 @@ public class AxisBatchJobUploadBodyProviderTest
     return new BatchJobMutateRequest();
   }
 
+  /**
+   * Verifies that the XML of a request is indented unless the request is created for a streamed
+   * upload.
+   */
+  @Test
+  public void testIndentation() throws BatchJobException, IOException {
+    assertTrue("Request XML is not indented",
+        serializeBudgetRequest(new BatchJobMutateRequest()).contains("\n"));
+    assertFalse("Streamed request XML is indented",
+        serializeBudgetRequest(new BatchJobMutateRequest(false)).contains("\n"));
+  }
+
+  private String serializeBudgetRequest(BatchJobMutateRequest request)
+      throws BatchJobException, IOException {
+    addBudgetOperation(request, -1L, "Test budget", 50000000L, "STANDARD");
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    request.createBatchJobUploadBodyProvider().getHttpContent(request, true, true)
+        .writeTo(outputStream);
+    return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+  }
+
   @Override
   protected void addBudgetOperation(
       BatchJobMutateRequest request,
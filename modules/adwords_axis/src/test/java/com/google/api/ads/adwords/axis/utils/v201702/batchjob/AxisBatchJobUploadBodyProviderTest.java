@@ -14,6 +14,9 @@
 
 package com.google.api.ads.adwords.axis.utils.v201702.batchjob;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 import com.google.api.ads.adwords.axis.utils.AxisBatchJobUploadBodyProvider;
 import com.google.api.ads.adwords.axis.v201702.cm.AdvertisingChannelType;
 import com.google.api.ads.adwords.axis.v201702.cm.BiddingStrategyConfiguration;
@@ -31,7 +34,12 @@ import com.google.api.ads.adwords.axis.v201702.cm.ManualCpcBiddingScheme;
 import com.google.api.ads.adwords.axis.v201702.cm.Money;
 import com.google.api.ads.adwords.axis.v201702.cm.NegativeCampaignCriterion;
 import com.google.api.ads.adwords.axis.v201702.cm.Operator;
+import com.google.api.ads.adwords.lib.utils.BatchJobException;
 import com.google.api.ads.adwords.lib.utils.testing.BatchJobUploadBodyProviderTest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
@@ -52,6 +60,27 @@ public class AxisBatchJobUploadBodyProviderTest
     return new BatchJobMutateRequest();
   }
 
+  /**
+   * Verifies that the XML of a request is indented unless the request is created for a streamed
+   * upload.
+   */
+  @Test
+  public void testIndentation() throws BatchJobException, IOException {
+    assertTrue("Request XML is not indented",
+        serializeBudgetRequest(new BatchJobMutateRequest()).contains("\n"));
+    assertFalse("Streamed request XML is indented",
+        serializeBudgetRequest(new BatchJobMutateRequest(false)).contains("\n"));
+  }
+
+  private String serializeBudgetRequest(BatchJobMutateRequest request)
+      throws BatchJobException, IOException {
+    addBudgetOperation(request, -1L, "Test budget", 50000000L, "STANDARD");
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    request.createBatchJobUploadBodyProvider().getHttpContent(request, true, true)
+        .writeTo(outputStream);
+    return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+  }
+
   @Override
   protected void addBudgetOperation(
       BatchJobMutateRequest request,
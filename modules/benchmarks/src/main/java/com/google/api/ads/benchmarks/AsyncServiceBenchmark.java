@@ -0,0 +1,123 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.benchmarks;
+
+import com.google.api.ads.adwords.axis.factory.AdWordsServices;
+import com.google.api.ads.adwords.axis.v201609.cm.Budget;
+import com.google.api.ads.adwords.axis.v201609.cm.BudgetBudgetDeliveryMethod;
+import com.google.api.ads.adwords.axis.v201609.cm.BudgetOperation;
+import com.google.api.ads.adwords.axis.v201609.cm.BudgetReturnValue;
+import com.google.api.ads.adwords.axis.v201609.cm.BudgetServiceInterface;
+import com.google.api.ads.adwords.axis.v201609.cm.Money;
+import com.google.api.ads.adwords.axis.v201609.cm.Operator;
+import com.google.api.ads.adwords.lib.client.AdWordsSession;
+import com.google.api.ads.adwords.lib.soap.testing.SoapResponseXmlProvider;
+import com.google.api.ads.common.lib.factory.AsyncAdsServices;
+import com.google.api.ads.common.lib.factory.AsyncService;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of asynchronous calls: each invocation submits a batch of mutate calls through an
+ * {@link AsyncService} to an in-process server and waits for all of them. The service client's
+ * SOAP client pool and the executor are both sized to the batch, so the result shows how the
+ * time per batch grows with the number of calls in flight.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AsyncServiceBenchmark {
+
+  private static final String API_VERSION = "v201609";
+  private static final String SOAP_CLIENT_POOL_SIZE_PROPERTY = "api.adwords.soapClientPoolSize";
+
+  @Param({"1", "16", "64"})
+  private int callsInFlight;
+
+  private SoapStubServer server;
+  private ListeningExecutorService executorService;
+  private AsyncBudgetService budgetService;
+  private BudgetOperation[] operations;
+
+  /** Asynchronous view of the budget service. */
+  public interface AsyncBudgetService {
+    ListenableFuture<BudgetReturnValue> mutate(BudgetOperation[] operations);
+  }
+
+  @Setup
+  public void setUp() throws Exception {
+    server = new SoapStubServer(SoapResponseXmlProvider.getTestSoapResponse(API_VERSION));
+    server.start();
+
+    // The pool size is read from the configuration, which includes system properties.
+    System.setProperty(SOAP_CLIENT_POOL_SIZE_PROPERTY, Integer.toString(callsInFlight));
+    executorService = AsyncService.newExecutorService(callsInFlight, callsInFlight);
+    AdWordsSession session = BenchmarkSessions.createAdWordsSession(server.getServerUrl());
+    budgetService =
+        new AsyncAdsServices<AdWordsSession>(AdWordsServices.newInstance(), executorService)
+            .get(session, BudgetServiceInterface.class)
+            .newProxy(AsyncBudgetService.class);
+
+    Money amount = new Money();
+    amount.setMicroAmount(50000000L);
+    Budget budget = new Budget();
+    budget.setName("Benchmark budget");
+    budget.setAmount(amount);
+    budget.setDeliveryMethod(BudgetBudgetDeliveryMethod.STANDARD);
+    BudgetOperation operation = new BudgetOperation();
+    operation.setOperand(budget);
+    operation.setOperator(Operator.ADD);
+    operations = new BudgetOperation[] {operation};
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    executorService.shutdown();
+    System.clearProperty(SOAP_CLIENT_POOL_SIZE_PROPERTY);
+    server.stop();
+  }
+
+  @Benchmark
+  public List<BudgetReturnValue> mutateBatch() throws Exception {
+    List<ListenableFuture<BudgetReturnValue>> results =
+        new ArrayList<ListenableFuture<BudgetReturnValue>>(callsInFlight);
+    for (int i = 0; i < callsInFlight; i++) {
+      results.add(budgetService.mutate(operations));
+    }
+    return Futures.allAsList(results).get();
+  }
+}
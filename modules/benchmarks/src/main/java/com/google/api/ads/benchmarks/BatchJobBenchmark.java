@@ -0,0 +1,142 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.benchmarks;
+
+import com.google.api.ads.adwords.axis.utils.AxisDeserializer;
+import com.google.api.ads.adwords.axis.utils.v201705.batchjob.BatchJobMutateRequest;
+import com.google.api.ads.adwords.axis.v201705.cm.AdvertisingChannelType;
+import com.google.api.ads.adwords.axis.v201705.cm.BatchJobOpsServiceSoapBindingStub;
+import com.google.api.ads.adwords.axis.v201705.cm.Budget;
+import com.google.api.ads.adwords.axis.v201705.cm.Campaign;
+import com.google.api.ads.adwords.axis.v201705.cm.CampaignOperation;
+import com.google.api.ads.adwords.axis.v201705.cm.CampaignStatus;
+import com.google.api.ads.adwords.axis.v201705.cm.MutateResult;
+import com.google.api.ads.adwords.axis.v201705.cm.Operator;
+import com.google.api.ads.adwords.lib.utils.BatchJobException;
+import com.google.api.client.http.ByteArrayContent;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+
+import org.apache.axis.client.Call;
+import org.apache.axis.encoding.TypeMapping;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+import javax.xml.rpc.ServiceException;
+
+/**
+ * Measures serializing batch job uploads with the {@code AxisBatchJobUploadBodyProvider} and
+ * deserializing batch job results with {@link AxisDeserializer}. The payload size is the number
+ * of operations uploaded or results downloaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BatchJobBenchmark {
+
+  private static final String NAMESPACE = "https://adwords.google.com/api/adwords/cm/v201705";
+
+  @Param({"10", "100", "1000"})
+  private int operationCount;
+
+  private BatchJobMutateRequest request;
+  private File resultsFile;
+  private URL resultsUrl;
+  private List<TypeMapping> typeMappings;
+  private QName resultQName;
+
+  @Setup
+  public void setUp() throws Exception {
+    request = new BatchJobMutateRequest();
+    for (int i = 0; i < operationCount; i++) {
+      Budget budget = new Budget();
+      budget.setBudgetId(-1L);
+      Campaign campaign = new Campaign();
+      campaign.setId(-2L - i);
+      campaign.setName("Benchmark campaign #" + i);
+      campaign.setStatus(CampaignStatus.PAUSED);
+      campaign.setAdvertisingChannelType(AdvertisingChannelType.SEARCH);
+      campaign.setBudget(budget);
+      CampaignOperation operation = new CampaignOperation();
+      operation.setOperand(campaign);
+      operation.setOperator(Operator.ADD);
+      request.addOperation(operation);
+    }
+
+    StringBuilder results = new StringBuilder()
+        .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+        .append("<mutateResponse xmlns=\"").append(NAMESPACE).append("\">");
+    for (int i = 0; i < operationCount; i++) {
+      results.append("<rval><result><Campaign><id>").append(320548754L + i)
+          .append("</id><name>Benchmark campaign #").append(i)
+          .append("</name><status>PAUSED</status>")
+          .append("<advertisingChannelType>SEARCH</advertisingChannelType>")
+          .append("</Campaign></result><index>").append(i).append("</index></rval>");
+    }
+    results.append("</mutateResponse>");
+    resultsFile = File.createTempFile("BatchJobBenchmark", ".xml");
+    Files.write(results.toString(), resultsFile, StandardCharsets.UTF_8);
+    resultsUrl = resultsFile.toURI().toURL();
+
+    typeMappings = ImmutableList.of(new BatchJobOpsServiceSoapBindingStub() {
+      @Override
+      public Call _createCall() throws ServiceException {
+        try {
+          return super.createCall();
+        } catch (RemoteException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    }._createCall().getTypeMapping());
+    resultQName = new QName(NAMESPACE, "MutateResult");
+  }
+
+  @TearDown
+  public void tearDown() {
+    resultsFile.delete();
+  }
+
+  @Benchmark
+  public ByteArrayContent serializeUpload() throws BatchJobException {
+    return request.createBatchJobUploadBodyProvider().getHttpContent(request, true, true);
+  }
+
+  @Benchmark
+  public List<MutateResult> deserializeResults() throws Exception {
+    return new AxisDeserializer().deserializeBatchJobMutateResults(
+        resultsUrl, typeMappings, MutateResult.class, resultQName);
+  }
+}
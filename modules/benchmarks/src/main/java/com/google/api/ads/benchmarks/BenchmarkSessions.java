@@ -0,0 +1,48 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.benchmarks;
+
+import com.google.api.ads.adwords.lib.client.AdWordsSession;
+import com.google.api.ads.common.lib.exception.ValidationException;
+import com.google.api.client.auth.oauth2.BearerToken;
+import com.google.api.client.auth.oauth2.Credential;
+
+/**
+ * Sessions used by the benchmarks. They carry a fixed access token, so no OAuth2 refresh is
+ * attempted.
+ */
+final class BenchmarkSessions {
+
+  private BenchmarkSessions() {}
+
+  /**
+   * Creates an AdWords session for the endpoint.
+   */
+  static AdWordsSession createAdWordsSession(String endpoint) {
+    Credential credential = new Credential(BearerToken.authorizationHeaderAccessMethod());
+    credential.setAccessToken("BENCHMARK_ACCESS_TOKEN");
+    try {
+      return new AdWordsSession.Builder()
+          .withUserAgent("BENCHMARK")
+          .withOAuth2Credential(credential)
+          .withEndpoint(endpoint)
+          .withDeveloperToken("BENCHMARK_DEVELOPER_TOKEN")
+          .withClientCustomerId("123-456-7890")
+          .build();
+    } catch (ValidationException e) {
+      throw new IllegalStateException("Failed to create the benchmark session", e);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.benchmarks;
+
+import com.google.api.ads.adwords.axis.factory.AdWordsServices;
+import com.google.api.ads.adwords.axis.v201609.cm.Budget;
+import com.google.api.ads.adwords.axis.v201609.cm.BudgetBudgetDeliveryMethod;
+import com.google.api.ads.adwords.axis.v201609.cm.BudgetOperation;
+import com.google.api.ads.adwords.axis.v201609.cm.BudgetReturnValue;
+import com.google.api.ads.adwords.axis.v201609.cm.BudgetServiceInterface;
+import com.google.api.ads.adwords.axis.v201609.cm.Money;
+import com.google.api.ads.adwords.axis.v201609.cm.Operator;
+import com.google.api.ads.adwords.lib.soap.testing.SoapResponseXmlProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of several threads making SOAP calls through one shared service client
+ * to an in-process server. With a SOAP client pool size of 1 the calls are serialized; a larger
+ * pool lets that many calls be in flight at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Threads(8)
+@Fork(1)
+public class ConcurrentSoapCallBenchmark {
+
+  private static final String API_VERSION = "v201609";
+  private static final String SOAP_CLIENT_POOL_SIZE_PROPERTY = "api.adwords.soapClientPoolSize";
+
+  @Param({"1", "8"})
+  private int soapClientPoolSize;
+
+  private SoapStubServer server;
+  private BudgetServiceInterface budgetService;
+  private BudgetOperation[] operations;
+
+  @Setup
+  public void setUp() throws Exception {
+    server = new SoapStubServer(SoapResponseXmlProvider.getTestSoapResponse(API_VERSION));
+    server.start();
+
+    // The pool size is read from the configuration, which includes system properties.
+    System.setProperty(SOAP_CLIENT_POOL_SIZE_PROPERTY, Integer.toString(soapClientPoolSize));
+    budgetService = AdWordsServices.newInstance().get(
+        BenchmarkSessions.createAdWordsSession(server.getServerUrl()),
+        BudgetServiceInterface.class);
+
+    Money amount = new Money();
+    amount.setMicroAmount(50000000L);
+    Budget budget = new Budget();
+    budget.setName("Benchmark budget");
+    budget.setAmount(amount);
+    budget.setDeliveryMethod(BudgetBudgetDeliveryMethod.STANDARD);
+    BudgetOperation operation = new BudgetOperation();
+    operation.setOperand(budget);
+    operation.setOperator(Operator.ADD);
+    operations = new BudgetOperation[] {operation};
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    System.clearProperty(SOAP_CLIENT_POOL_SIZE_PROPERTY);
+    server.stop();
+  }
+
+  @Benchmark
+  public BudgetReturnValue mutate() throws RemoteException {
+    return budgetService.mutate(operations);
+  }
+}
@@ -0,0 +1,78 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.benchmarks;
+
+import com.google.api.ads.dfp.axis.utils.v201705.Pql;
+import com.google.api.ads.dfp.axis.v201705.BooleanValue;
+import com.google.api.ads.dfp.axis.v201705.ColumnType;
+import com.google.api.ads.dfp.axis.v201705.NumberValue;
+import com.google.api.ads.dfp.axis.v201705.ResultSet;
+import com.google.api.ads.dfp.axis.v201705.Row;
+import com.google.api.ads.dfp.axis.v201705.TextValue;
+import com.google.api.ads.dfp.axis.v201705.Value;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures converting a PQL result set to string rows with
+ * {@link Pql#resultSetToStringArrayList}. The payload size is the number of rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PqlBenchmark {
+
+  @Param({"10", "1000", "10000"})
+  private int rowCount;
+
+  private ResultSet resultSet;
+
+  @Setup
+  public void setUp() {
+    ColumnType[] columnTypes = new ColumnType[] {
+      new ColumnType("Id"), new ColumnType("Name"), new ColumnType("Archived")
+    };
+    Row[] rows = new Row[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      rows[i] = new Row(new Value[] {
+        new NumberValue(String.valueOf(i)),
+        new TextValue("Line item #" + i),
+        new BooleanValue(i % 2 == 0)
+      });
+    }
+    resultSet = new ResultSet(columnTypes, rows);
+  }
+
+  @Benchmark
+  public List<String[]> resultSetToStringArrayList() {
+    return Pql.resultSetToStringArrayList(resultSet);
+  }
+}
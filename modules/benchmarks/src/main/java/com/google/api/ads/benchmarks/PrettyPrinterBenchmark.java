@@ -0,0 +1,143 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.benchmarks;
+
+import com.google.api.ads.adwords.axis.AdWordsAxisModule;
+import com.google.api.ads.common.lib.conf.AdsApiConfiguration;
+import com.google.api.ads.common.lib.utils.logging.PrettyPrinter;
+import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
+import com.google.common.io.ByteStreams;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.transform.Transformer;
+import javax.xml.xpath.XPath;
+
+/**
+ * Measures pretty printing a SOAP message, including the removal of sensitive headers, for
+ * envelopes of 10 KB to 10 MB.
+ *
+ * <p>{@link #prettyPrint()} and {@link #prettyPrintToStream()} use the streaming formatter that
+ * handles the default sensitive XPaths. {@link #prettyPrintDom()} uses the same XPaths with a
+ * {@code [1]} predicate, which forces the DOM and {@link Transformer} implementation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PrettyPrinterBenchmark {
+
+  private static final String NAMESPACE = "https://adwords.google.com/api/adwords/cm/v201705";
+
+  @Param({"10", "100", "1000", "10000"})
+  private int envelopeSizeKb;
+
+  private PrettyPrinter prettyPrinter;
+  private PrettyPrinter domPrettyPrinter;
+  private String xml;
+  private byte[] xmlBytes;
+
+  @Setup
+  public void setUp() {
+    Injector injector = Guice.createInjector(new AdWordsAxisModule());
+    final AdsApiConfiguration apiConfiguration = injector.getInstance(AdsApiConfiguration.class);
+    prettyPrinter = createPrettyPrinter(injector, apiConfiguration);
+    domPrettyPrinter = createPrettyPrinter(injector,
+        new AdsApiConfiguration(new BaseConfiguration()) {
+          @Override
+          public String getNamespacePrefix() {
+            return apiConfiguration.getNamespacePrefix();
+          }
+
+          @Override
+          public String[] getSensitiveXPaths() {
+            String[] sensitiveXPaths = apiConfiguration.getSensitiveXPaths().clone();
+            for (int i = 0; i < sensitiveXPaths.length; i++) {
+              sensitiveXPaths[i] += "[1]";
+            }
+            return sensitiveXPaths;
+          }
+        });
+
+    StringBuilder builder = new StringBuilder()
+        .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+        .append("<soapenv:Envelope ")
+        .append("xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">")
+        .append("<soapenv:Header><ns1:RequestHeader xmlns:ns1=\"").append(NAMESPACE).append("\">")
+        .append("<ns1:clientCustomerId>123-456-7890</ns1:clientCustomerId>")
+        .append("<ns1:developerToken>BENCHMARK_DEVELOPER_TOKEN</ns1:developerToken>")
+        .append("<ns1:userAgent>BENCHMARK</ns1:userAgent>")
+        .append("</ns1:RequestHeader></soapenv:Header>")
+        .append("<soapenv:Body><mutate xmlns=\"").append(NAMESPACE).append("\">");
+    for (int i = 0; builder.length() < envelopeSizeKb * 1024; i++) {
+      builder.append("<operations><operator>ADD</operator><operand><name>Benchmark budget #")
+          .append(i)
+          .append("</name><amount><microAmount>50000000</microAmount></amount>")
+          .append("<deliveryMethod>STANDARD</deliveryMethod></operand></operations>");
+    }
+    xml = builder.append("</mutate></soapenv:Body></soapenv:Envelope>").toString();
+    xmlBytes = xml.getBytes(Charsets.UTF_8);
+  }
+
+  private static PrettyPrinter createPrettyPrinter(
+      Injector injector, AdsApiConfiguration apiConfiguration) {
+    return new PrettyPrinter(
+        apiConfiguration,
+        injector.getInstance(Key.get(Logger.class, Names.named("libLogger"))),
+        injector.getInstance(Key.get(new TypeLiteral<Supplier<XPath>>() {})),
+        injector.getInstance(Key.get(new TypeLiteral<Supplier<Transformer>>() {})),
+        injector.getInstance(Key.get(new TypeLiteral<Supplier<DocumentBuilder>>() {})));
+  }
+
+  @Benchmark
+  public String prettyPrint() {
+    return prettyPrinter.prettyPrint(xml);
+  }
+
+  @Benchmark
+  public String prettyPrintDom() {
+    return domPrettyPrinter.prettyPrint(xml);
+  }
+
+  @Benchmark
+  public void prettyPrintToStream() throws IOException {
+    prettyPrinter.prettyPrint(new ByteArrayInputStream(xmlBytes), ByteStreams.nullOutputStream());
+  }
+}
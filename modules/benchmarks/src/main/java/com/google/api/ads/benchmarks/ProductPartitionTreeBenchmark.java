@@ -0,0 +1,124 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.benchmarks;
+
+import com.google.api.ads.adwords.axis.utils.v201705.shopping.ProductDimensions;
+import com.google.api.ads.adwords.axis.utils.v201705.shopping.ProductPartitionNode;
+import com.google.api.ads.adwords.axis.utils.v201705.shopping.ProductPartitionTree;
+import com.google.api.ads.adwords.axis.v201705.cm.AdGroupCriterion;
+import com.google.api.ads.adwords.axis.v201705.cm.AdGroupCriterionOperation;
+import com.google.api.ads.adwords.axis.v201705.cm.BidSource;
+import com.google.api.ads.adwords.axis.v201705.cm.BiddableAdGroupCriterion;
+import com.google.api.ads.adwords.axis.v201705.cm.BiddingStrategyConfiguration;
+import com.google.api.ads.adwords.axis.v201705.cm.Bids;
+import com.google.api.ads.adwords.axis.v201705.cm.CpcBid;
+import com.google.api.ads.adwords.axis.v201705.cm.Money;
+import com.google.api.ads.adwords.axis.v201705.cm.ProductDimension;
+import com.google.api.ads.adwords.axis.v201705.cm.ProductPartition;
+import com.google.api.ads.adwords.axis.v201705.cm.ProductPartitionType;
+import com.google.api.ads.adwords.axis.v201705.cm.UserStatus;
+import com.google.common.collect.Lists;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading an existing product partition tree, changing the bids of half of its units and
+ * diffing it into mutate operations. The payload size is the number of offer ID units under the
+ * root.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProductPartitionTreeBenchmark {
+
+  private static final long AD_GROUP_ID = -1L;
+  private static final long ROOT_ID = 1L;
+
+  @Param({"10", "100", "1000"})
+  private int unitCount;
+
+  private List<AdGroupCriterion> adGroupCriteria;
+
+  @Setup
+  public void setUp() {
+    adGroupCriteria = Lists.newArrayList();
+    adGroupCriteria.add(createCriterion(ROOT_ID, null, null, null));
+    for (int i = 0; i < unitCount; i++) {
+      adGroupCriteria.add(createCriterion(ROOT_ID + 1 + i, ROOT_ID,
+          ProductDimensions.createOfferId("offer" + i), 1000000L));
+    }
+    adGroupCriteria.add(createCriterion(ROOT_ID + 1 + unitCount, ROOT_ID,
+        ProductDimensions.createOfferId(null), 500000L));
+  }
+
+  @Benchmark
+  public List<AdGroupCriterionOperation> diff() {
+    ProductPartitionTree tree = ProductPartitionTree.createAdGroupTree(
+        AD_GROUP_ID, new BiddingStrategyConfiguration(), adGroupCriteria);
+    int i = 0;
+    for (ProductPartitionNode node : tree.getRoot().getChildren()) {
+      if (i++ % 2 == 0) {
+        node.setBid(node.getBid() * 2);
+      }
+    }
+    return tree.getMutateOperations();
+  }
+
+  /**
+   * Creates a biddable criterion for a partition. The partition is a subdivision if
+   * {@code bid} is null, and a unit otherwise.
+   */
+  private static AdGroupCriterion createCriterion(
+      Long partitionId, Long parentPartitionId, ProductDimension dimension, Long bid) {
+    ProductPartition partition = new ProductPartition();
+    partition.setId(partitionId);
+    partition.setParentCriterionId(parentPartitionId);
+    partition.setCaseValue(dimension);
+    partition.setPartitionType(
+        bid == null ? ProductPartitionType.SUBDIVISION : ProductPartitionType.UNIT);
+
+    BiddingStrategyConfiguration biddingConfig = new BiddingStrategyConfiguration();
+    if (bid != null) {
+      Money bidMoney = new Money();
+      bidMoney.setMicroAmount(bid);
+      CpcBid cpcBid = new CpcBid();
+      cpcBid.setBid(bidMoney);
+      cpcBid.setCpcBidSource(BidSource.CRITERION);
+      biddingConfig.setBids(new Bids[] {cpcBid});
+    }
+
+    BiddableAdGroupCriterion criterion = new BiddableAdGroupCriterion();
+    criterion.setUserStatus(UserStatus.ENABLED);
+    criterion.setBiddingStrategyConfiguration(biddingConfig);
+    criterion.setCriterion(partition);
+    return criterion;
+  }
+}
@@ -0,0 +1,122 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.benchmarks;
+
+import com.google.api.ads.common.lib.soap.axis.HttpHandler;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+
+import org.apache.axis.AxisFault;
+import org.apache.axis.Message;
+import org.apache.axis.MessageContext;
+import org.apache.axis.client.AxisClient;
+import org.apache.axis.transport.http.HTTPConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures sending a SOAP request of a given size through the Axis {@link HttpHandler}, with and
+ * without compression, both with a {@code Content-Length} and streamed. The transport discards
+ * the request body and answers in memory, so the reported allocation per operation is that of
+ * building and writing the body. Each invocation sends a new {@link Message}, since Axis caches
+ * the serialized form of a message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RequestBodyBenchmark {
+
+  private static final String RESPONSE_XML =
+      "<soap:Envelope xmlns:soap='http://schemas.xmlsoap.org/soap/envelope/'>"
+          + "<soap:Body><getResponse/></soap:Body></soap:Envelope>";
+
+  /** Approximate size of the request message in bytes. */
+  @Param({"1024", "65536", "1048576"})
+  public int requestSize;
+
+  @Param({"false", "true"})
+  public boolean compress;
+
+  @Param({"false", "true"})
+  public boolean stream;
+
+  private AxisClient axisClient;
+  private HttpHandler httpHandler;
+  private HttpTransport transport;
+  private String requestXml;
+
+  @Setup
+  public void setUp() {
+    axisClient = new AxisClient();
+    httpHandler = new HttpHandler();
+    transport = new DiscardingHttpTransport();
+    String prefix = "<soap:Envelope xmlns:soap='http://schemas.xmlsoap.org/soap/envelope/'>"
+        + "<soap:Body><mutate><operand>";
+    String suffix = "</operand></mutate></soap:Body></soap:Envelope>";
+    requestXml = prefix
+        + Strings.repeat("x", Math.max(0, requestSize - prefix.length() - suffix.length()))
+        + suffix;
+  }
+
+  @Benchmark
+  public Message send() throws AxisFault {
+    MessageContext messageContext = new MessageContext(axisClient);
+    messageContext.setRequestMessage(new Message(requestXml));
+    messageContext.setProperty(MessageContext.TRANS_URL, "http://localhost/benchmark");
+    messageContext.setProperty(HttpHandler.HTTP_TRANSPORT_PROPERTY, transport);
+    messageContext.setProperty(HTTPConstants.MC_GZIP_REQUEST, compress);
+    messageContext.setProperty(HttpHandler.STREAM_REQUEST_PROPERTY, stream);
+    httpHandler.invoke(messageContext);
+    return messageContext.getResponseMessage();
+  }
+
+  /** Transport that writes each request body to nowhere and returns a fixed response. */
+  private static class DiscardingHttpTransport extends HttpTransport {
+
+    @Override
+    protected LowLevelHttpRequest buildRequest(String method, String url) {
+      return new MockLowLevelHttpRequest(url) {
+        @Override
+        public LowLevelHttpResponse execute() throws IOException {
+          getStreamingContent().writeTo(ByteStreams.nullOutputStream());
+          return new MockLowLevelHttpResponse()
+              .setContentType("text/xml")
+              .setContent(RESPONSE_XML);
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,154 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.benchmarks;
+
+import com.google.api.ads.common.lib.soap.SoapCall;
+import com.google.api.ads.common.lib.soap.SoapCallReturn;
+import com.google.api.ads.common.lib.soap.SoapClientHandler;
+import com.google.api.ads.common.lib.soap.SoapServiceClient;
+import com.google.api.ads.common.lib.soap.SoapServiceDescriptor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+import javax.xml.soap.SOAPHeaderElement;
+
+/**
+ * Measures the dispatch overhead of a call through a service client proxy: the lookup of the
+ * service client method, the lookup of the SOAP client method, borrowing a SOAP client and the
+ * reflective call. The SOAP client answers in memory, so no serialization or I/O is included.
+ * {@link #directCall()} is the baseline without the proxy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SoapDispatchBenchmark {
+
+  private EchoStub stub;
+  private EchoService proxy;
+
+  /** Service interface implemented by both the stub and the proxy. */
+  public interface EchoService {
+    String echo(String value);
+  }
+
+  /** SOAP client stand-in that answers in memory. */
+  public static class EchoStub implements EchoService {
+    @Override
+    public String echo(String value) {
+      return value;
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    stub = new EchoStub();
+    proxy = (EchoService) Proxy.newProxyInstance(EchoService.class.getClassLoader(),
+        new Class<?>[] {EchoService.class},
+        new EchoServiceClient(new EchoSoapClientHandler(), stub));
+  }
+
+  @Benchmark
+  public String proxyCall() {
+    return proxy.echo("benchmark");
+  }
+
+  @Benchmark
+  public String directCall() {
+    return stub.echo("benchmark");
+  }
+
+  private static class EchoServiceClient extends SoapServiceClient<EchoStub> {
+
+    EchoServiceClient(EchoSoapClientHandler soapClientHandler, EchoStub soapClient) {
+      super(soapClientHandler, soapClient);
+    }
+
+    @Override
+    protected void logSoapCall(SoapCallReturn soapCallReturn) {}
+
+    @Override
+    protected void setHeaders(EchoStub soapClient) {}
+  }
+
+  private static class EchoSoapClientHandler extends SoapClientHandler<EchoStub> {
+
+    @Override
+    public SoapCallReturn invokeSoapCall(SoapCall<EchoStub> soapCall) {
+      SoapCallReturn.Builder builder = new SoapCallReturn.Builder();
+      try {
+        return builder.withReturnValue(invoke(soapCall)).build();
+      } catch (Exception e) {
+        return builder.withException(e).build();
+      }
+    }
+
+    @Override
+    public EchoStub createSoapClient(SoapServiceDescriptor soapServiceDescriptor) {
+      return new EchoStub();
+    }
+
+    @Override
+    public void setEndpointAddress(EchoStub soapClient, String endpointAddress) {}
+
+    @Override
+    public String getEndpointAddress(EchoStub soapClient) {
+      return null;
+    }
+
+    @Override
+    public void clearHeaders(EchoStub soapClient) {}
+
+    @Override
+    public SOAPHeaderElement createSoapHeaderElement(QName qName) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setHeader(EchoStub soapClient, String namespace, String headerName,
+        Object headerValue) {}
+
+    @Override
+    public void putAllHttpHeaders(EchoStub soapClient, Map<String, String> headersMap) {}
+
+    @Override
+    public Object getHeader(EchoStub soapClient, String headerName) {
+      return null;
+    }
+
+    @Override
+    public void setCompression(EchoStub soapClient, boolean compress) {}
+
+    @Override
+    public void setRequestTimeout(EchoStub soapClient, int timeout) {}
+  }
+}
@@ -0,0 +1,96 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.benchmarks;
+
+import com.google.api.ads.adwords.axis.factory.AdWordsServices;
+import com.google.api.ads.adwords.axis.v201609.cm.Budget;
+import com.google.api.ads.adwords.axis.v201609.cm.BudgetBudgetDeliveryMethod;
+import com.google.api.ads.adwords.axis.v201609.cm.BudgetOperation;
+import com.google.api.ads.adwords.axis.v201609.cm.BudgetReturnValue;
+import com.google.api.ads.adwords.axis.v201609.cm.BudgetServiceInterface;
+import com.google.api.ads.adwords.axis.v201609.cm.Money;
+import com.google.api.ads.adwords.axis.v201609.cm.Operator;
+import com.google.api.ads.adwords.lib.soap.testing.SoapResponseXmlProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full SOAP call through a service client: header setup, serialization, the HTTP round
+ * trip to an in-process server, deserialization and logging. The payload size is the number of
+ * operations in the request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SoapServiceClientBenchmark {
+
+  private static final String API_VERSION = "v201609";
+
+  @Param({"1", "10", "100"})
+  private int operationCount;
+
+  private SoapStubServer server;
+  private BudgetServiceInterface budgetService;
+  private BudgetOperation[] operations;
+
+  @Setup
+  public void setUp() throws Exception {
+    server = new SoapStubServer(SoapResponseXmlProvider.getTestSoapResponse(API_VERSION));
+    server.start();
+    budgetService = AdWordsServices.getInstance().get(
+        BenchmarkSessions.createAdWordsSession(server.getServerUrl()),
+        BudgetServiceInterface.class);
+
+    operations = new BudgetOperation[operationCount];
+    for (int i = 0; i < operationCount; i++) {
+      Money amount = new Money();
+      amount.setMicroAmount(50000000L);
+      Budget budget = new Budget();
+      budget.setName("Benchmark budget #" + i);
+      budget.setAmount(amount);
+      budget.setDeliveryMethod(BudgetBudgetDeliveryMethod.STANDARD);
+      operations[i] = new BudgetOperation();
+      operations[i].setOperand(budget);
+      operations[i].setOperator(Operator.ADD);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    server.stop();
+  }
+
+  @Benchmark
+  public BudgetReturnValue mutate() throws RemoteException {
+    return budgetService.mutate(operations);
+  }
+}
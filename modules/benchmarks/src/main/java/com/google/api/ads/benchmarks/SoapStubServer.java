@@ -0,0 +1,98 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.benchmarks;
+
+import com.google.common.io.ByteStreams;
+
+import org.mortbay.http.HttpContext;
+import org.mortbay.http.HttpException;
+import org.mortbay.http.HttpMessage;
+import org.mortbay.http.HttpRequest;
+import org.mortbay.http.HttpResponse;
+import org.mortbay.jetty.Server;
+import org.mortbay.util.InetAddrPort;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * In-process Jetty server that answers every request with the same SOAP response. Unlike
+ * {@code TestHttpServer}, it does not record requests, so memory use stays flat however many
+ * calls a benchmark makes.
+ */
+class SoapStubServer {
+
+  private final byte[] responseBody;
+  private InternalServer server;
+
+  /**
+   * Constructor.
+   *
+   * @param responseBody the SOAP response to return for every request
+   */
+  SoapStubServer(String responseBody) {
+    this.responseBody = responseBody.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Starts the server on an unused port.
+   */
+  void start() throws Exception {
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    server = new InternalServer(port);
+    server.start();
+  }
+
+  /**
+   * Stops the server.
+   */
+  void stop() throws InterruptedException {
+    server.stop();
+  }
+
+  /**
+   * Gets the server URL with port.
+   */
+  String getServerUrl() {
+    return String.format("http://localhost:%s", server.port);
+  }
+
+  /**
+   * Jetty5 server that drains the request and writes the canned response.
+   */
+  private class InternalServer extends Server {
+
+    private final int port;
+
+    private InternalServer(int port) throws IOException {
+      this.port = port;
+      addListener(new InetAddrPort(port));
+    }
+
+    @Override
+    public HttpContext service(HttpRequest request, HttpResponse response)
+        throws IOException, HttpException {
+      request.setState(HttpMessage.__MSG_EDITABLE);
+      ByteStreams.exhaust(request.getInputStream());
+      response.setContentType("text/xml; charset=UTF-8");
+      response.getOutputStream().write(responseBody);
+      return getContext(getServerUrl());
+    }
+  }
+}
@@ -0,0 +1,145 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.benchmarks;
+
+import com.google.api.ads.adwords.axis.AdWordsAxisModule;
+import com.google.api.ads.common.lib.utils.XmlFieldExtractor;
+import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * Measures getting the XML parsers, XPaths and transformers used for logging and report error
+ * handling, and extracting the fields of a report download error.
+ *
+ * <p>Each benchmark on the library's suppliers and {@link XmlFieldExtractor} has a
+ * {@code ...NewFactory} counterpart that looks up a new factory and compiles XPaths on every
+ * call, as the library did before the suppliers reused objects per thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XmlFactoryBenchmark {
+
+  private static final String[] REPORT_ERROR_FIELDS = {"type", "trigger", "fieldPath"};
+  private static final byte[] REPORT_DOWNLOAD_ERROR = ("<?xml version=\"1.0\" encoding=\"UTF-8\" "
+      + "standalone=\"yes\"?><reportDownloadError><ApiError><type>"
+      + "ReportDefinitionError.INVALID_FIELD_NAME_FOR_REPORT</type>"
+      + "<trigger>AdFormatt</trigger><fieldPath>foobar</fieldPath></ApiError>"
+      + "</reportDownloadError>").getBytes(Charsets.UTF_8);
+
+  private Supplier<DocumentBuilder> documentBuilderSupplier;
+  private Supplier<XPath> xpathSupplier;
+  private Supplier<Transformer> transformerSupplier;
+  private XmlFieldExtractor xmlFieldExtractor;
+
+  @Setup
+  public void setUp() {
+    Injector injector = Guice.createInjector(new AdWordsAxisModule());
+    documentBuilderSupplier =
+        injector.getInstance(Key.get(new TypeLiteral<Supplier<DocumentBuilder>>() {}));
+    xpathSupplier = injector.getInstance(Key.get(new TypeLiteral<Supplier<XPath>>() {}));
+    transformerSupplier =
+        injector.getInstance(Key.get(new TypeLiteral<Supplier<Transformer>>() {}));
+    xmlFieldExtractor = injector.getInstance(XmlFieldExtractor.class);
+  }
+
+  @Benchmark
+  public DocumentBuilder documentBuilder() {
+    return documentBuilderSupplier.get();
+  }
+
+  @Benchmark
+  public DocumentBuilder documentBuilderNewFactory() throws Exception {
+    return DocumentBuilderFactory.newInstance().newDocumentBuilder();
+  }
+
+  @Benchmark
+  public XPath xpath() {
+    return xpathSupplier.get();
+  }
+
+  @Benchmark
+  public XPath xpathNewFactory() {
+    return XPathFactory.newInstance().newXPath();
+  }
+
+  @Benchmark
+  public Transformer transformer() {
+    return transformerSupplier.get();
+  }
+
+  @Benchmark
+  public Transformer transformerNewFactory() throws Exception {
+    Transformer transformer = TransformerFactory.newInstance().newTransformer();
+    transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+    transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
+    return transformer;
+  }
+
+  @Benchmark
+  public Map<String, String> extractFields() {
+    return xmlFieldExtractor.extract(
+        new ByteArrayInputStream(REPORT_DOWNLOAD_ERROR), REPORT_ERROR_FIELDS);
+  }
+
+  @Benchmark
+  public Map<String, String> extractFieldsNewFactory() throws Exception {
+    Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .parse(new ByteArrayInputStream(REPORT_DOWNLOAD_ERROR));
+    Map<String, String> fields = new HashMap<String, String>();
+    for (String field : REPORT_ERROR_FIELDS) {
+      NodeList nodes = (NodeList) XPathFactory.newInstance().newXPath()
+          .compile("//" + field).evaluate(doc, XPathConstants.NODESET);
+      if (nodes.getLength() > 0) {
+        fields.put(field, nodes.item(0).getTextContent());
+      }
+    }
+    return fields;
+  }
+}
@@ -15,6 +15,7 @@
 package com.google.api.ads.dfp.jaxws.factory;
 
 import com.google.api.ads.dfp.jaxws.DfpJaxWsModule;
+import com.google.api.ads.dfp.lib.DfpPluginModule;
 import com.google.api.ads.dfp.lib.factory.BaseDfpServices;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -43,7 +44,21 @@ public final class DfpServices extends BaseDfpServices {
 
   private static final Injector INJECTOR = Guice.createInjector(new DfpJaxWsModule());
 
+  private DfpServices(Injector injector) {
+    super(injector);
+  }
+
   public DfpServices() {
-    super(INJECTOR);
+    this(INJECTOR);
+  }
+
+  /**
+   * Returns a new instance whose service clients also use the bindings of the plugin module,
+   * e.g. its {@link com.google.api.ads.common.lib.soap.SoapCallListener SoapCallListener}.
+   *
+   * @param pluginModule the module with the bindings to add
+   */
+  public DfpServices withPluginModule(DfpPluginModule pluginModule) {
+    return new DfpServices(Guice.createInjector(new DfpJaxWsModule(), pluginModule));
   }
 }
@@ -20,22 +20,31 @@ import com.google.api.ads.common.lib.exception.AuthenticationException;
 import com.google.api.ads.common.lib.exception.ServiceException;
 import com.google.api.ads.common.lib.soap.AuthorizationHeaderHandler;
 import com.google.api.ads.common.lib.soap.axis.AxisHandler;
+import com.google.api.ads.common.lib.soap.axis.AxisSoapHeaderTemplate;
 import com.google.api.ads.common.lib.useragent.UserAgentCombiner;
 import com.google.api.ads.dfp.lib.client.DfpServiceDescriptor;
 import com.google.api.ads.dfp.lib.client.DfpSession;
 import com.google.api.ads.dfp.lib.conf.DfpApiConfiguration;
 import com.google.api.ads.dfp.lib.soap.DfpHttpHeaderHandler;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import org.apache.axis.client.Stub;
-import org.apache.commons.beanutils.BeanUtils;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import javax.inject.Inject;
 
 /**
  * DFP implementation of {@link HeaderHandler}.
+ *
+ * <p>The constructor and setters of each service's {@code SoapRequestHeader} class are looked up
+ * once and cached, so each call creates and populates a new header without introspection.
+ * Headers are never shared between stubs.
  */
 public class DfpAxisHeaderHandler implements HeaderHandler<DfpSession, DfpServiceDescriptor> {
 
@@ -46,6 +55,10 @@ public class DfpAxisHeaderHandler implements HeaderHandler<DfpSession, DfpServic
   private final UserAgentCombiner userAgentCombiner;
   private final AdsLibConfiguration adsLibConfiguration;
 
+  /** Templates of the SOAP header of each service, keyed on the service interface class. */
+  private final Cache<Class<?>, AxisSoapHeaderTemplate> soapHeaderTemplates =
+      CacheBuilder.newBuilder().weakKeys().build();
+
   /**
    * Constructor.
    *
@@ -87,13 +100,9 @@ public class DfpAxisHeaderHandler implements HeaderHandler<DfpSession, DfpServic
       
       dfpHttpHeaderHandler.setHttpHeaders(soapClient, dfpSession);
 
-      Object soapHeader = createSoapHeader(dfpServiceDescriptor);
-
-      BeanUtils.setProperty(soapHeader, "applicationName",
-          userAgentCombiner.getUserAgent(dfpSession.getApplicationName()));
-      if (dfpSession.getNetworkCode() != null) {
-        BeanUtils.setProperty(soapHeader, "networkCode", dfpSession.getNetworkCode());
-      }
+      Object soapHeader = getSoapHeaderTemplate(dfpServiceDescriptor).newHeader(
+          userAgentCombiner.getUserAgent(dfpSession.getApplicationName()),
+          dfpSession.getNetworkCode());
 
       setAuthenticationHeaders(soapClient, dfpSession);
 
@@ -103,12 +112,14 @@ public class DfpAxisHeaderHandler implements HeaderHandler<DfpSession, DfpServic
       soapClientHandler.setHeader(stub, namespace, "RequestHeader", soapHeader);
       soapClientHandler.setCompression(stub, adsLibConfiguration.isCompressionEnabled());
       soapClientHandler.setRequestTimeout(stub, adsLibConfiguration.getSoapRequestTimeout());
+    } catch (ExecutionException e) {
+      throw new ServiceException("Unexpected exception.", e.getCause());
+    } catch (UncheckedExecutionException e) {
+      throw new ServiceException("Unexpected exception.", e.getCause());
     } catch (InstantiationException e) {
       throw new ServiceException("Unexpected exception.", e);
     } catch (IllegalAccessException e) {
       throw new ServiceException("Unexpected exception.", e);
-    } catch (ClassNotFoundException e) {
-      throw new ServiceException("Unexpected exception.", e);
     } catch (InvocationTargetException e) {
       throw new ServiceException("Unexpected exception.", e);
     } catch (IllegalArgumentException e) {
@@ -118,6 +129,25 @@ public class DfpAxisHeaderHandler implements HeaderHandler<DfpSession, DfpServic
     }
   }
 
+  /**
+   * Gets the template of the service's SOAP header, creating it if it is not already cached.
+   *
+   * @param dfpServiceDescriptor the DFP service descriptor
+   * @return the template setting the application name and network code
+   * @throws ExecutionException if the SOAP header class could not be found or introspected
+   */
+  private AxisSoapHeaderTemplate getSoapHeaderTemplate(
+      final DfpServiceDescriptor dfpServiceDescriptor) throws ExecutionException {
+    return soapHeaderTemplates.get(dfpServiceDescriptor.getInterfaceClass(),
+        new Callable<AxisSoapHeaderTemplate>() {
+          @Override
+          public AxisSoapHeaderTemplate call() throws Exception {
+            return AxisSoapHeaderTemplate.create(
+                getSoapHeaderClass(dfpServiceDescriptor), "applicationName", "networkCode");
+          }
+        });
+  }
+
   /**
    * Sets the authentication headers.
    *
@@ -135,19 +165,15 @@ public class DfpAxisHeaderHandler implements HeaderHandler<DfpSession, DfpServic
   }
 
   /**
-   * Creates a SOAP header.
+   * Gets the SOAP header class of a service.
    *
    * @param adsServiceDescriptor the ads service descriptor
-   * @return the instantiated SOAP header
+   * @return the SOAP header class
    * @throws ClassNotFoundException if the SOAP header class could not be found
-   * @throws IllegalAccessException if the SOAP header class could not be
-   *         created
-   * @throws InstantiationException if the SOAP header class could not be
-   *         created
    */
-  private Object createSoapHeader(DfpServiceDescriptor adsServiceDescriptor)
-      throws InstantiationException, IllegalAccessException, ClassNotFoundException {
+  private Class<?> getSoapHeaderClass(DfpServiceDescriptor adsServiceDescriptor)
+      throws ClassNotFoundException {
     return Class.forName(adsServiceDescriptor.getInterfaceClass().getPackage().getName()
-        + ".SoapRequestHeader").newInstance();
+        + ".SoapRequestHeader");
   }
 }
@@ -0,0 +1,138 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.api.ads.dfp.axis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.ads.common.lib.conf.AdsLibConfiguration;
+import com.google.api.ads.common.lib.soap.AuthorizationHeaderHandler;
+import com.google.api.ads.common.lib.soap.axis.AxisHandler;
+import com.google.api.ads.common.lib.useragent.UserAgentCombiner;
+import com.google.api.ads.dfp.axis.v201705.NetworkServiceInterface;
+import com.google.api.ads.dfp.axis.v201705.SoapRequestHeader;
+import com.google.api.ads.dfp.lib.client.DfpServiceDescriptor;
+import com.google.api.ads.dfp.lib.client.DfpSession;
+import com.google.api.ads.dfp.lib.conf.DfpApiConfiguration;
+import com.google.api.ads.dfp.lib.soap.DfpHttpHeaderHandler;
+import com.google.api.client.auth.oauth2.Credential;
+
+import org.apache.axis.client.Stub;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+/**
+ * Tests for {@link DfpAxisHeaderHandler}.
+ */
+@RunWith(JUnit4.class)
+public class DfpAxisHeaderHandlerTest {
+
+  private DfpAxisHeaderHandler headerHandler;
+  private DfpSession dfpSession;
+
+  @Mock
+  private AxisHandler soapClientHandler;
+  @Mock
+  private Stub soapClient;
+  @Mock
+  private DfpApiConfiguration dfpApiConfiguration;
+  @Mock
+  private AdsLibConfiguration adsLibConfiguration;
+  @Mock
+  private AuthorizationHeaderHandler authorizationHeaderHandler;
+  @Mock
+  private DfpHttpHeaderHandler dfpHttpHeaderHandler;
+  @Mock
+  private UserAgentCombiner userAgentCombiner;
+  @Mock
+  private Credential oAuth2Credential;
+  @Mock
+  private DfpServiceDescriptor dfpServiceDescriptor;
+
+  @Before
+  public void setUp() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    Mockito.<Class<?>>when(dfpServiceDescriptor.getInterfaceClass())
+        .thenReturn(NetworkServiceInterface.class);
+    when(dfpServiceDescriptor.getVersion()).thenReturn("v201705");
+    when(dfpApiConfiguration.getNamespacePrefix())
+        .thenReturn("https://www.google.com/apis/ads/publisher");
+    when(userAgentCombiner.getUserAgent(anyString())).thenReturn("libSig");
+
+    headerHandler = new DfpAxisHeaderHandler(soapClientHandler, dfpApiConfiguration,
+        adsLibConfiguration, authorizationHeaderHandler, dfpHttpHeaderHandler, userAgentCombiner);
+
+    dfpSession = new DfpSession.Builder()
+        .withApplicationName("TEST_APP")
+        .withNetworkCode("1234")
+        .withEndpoint("http://www.example.com")
+        .withOAuth2Credential(oAuth2Credential)
+        .build();
+  }
+
+  @Test
+  public void testSetHeaders() throws Exception {
+    headerHandler.setHeaders(soapClient, dfpSession, dfpServiceDescriptor);
+
+    ArgumentCaptor<Object> headerCaptor = ArgumentCaptor.forClass(Object.class);
+    verify(soapClientHandler).setHeader(eq(soapClient),
+        eq("https://www.google.com/apis/ads/publisher/v201705"), eq("RequestHeader"),
+        headerCaptor.capture());
+    SoapRequestHeader header = (SoapRequestHeader) headerCaptor.getValue();
+    assertEquals("libSig", header.getApplicationName());
+    assertEquals("1234", header.getNetworkCode());
+    verify(dfpHttpHeaderHandler).setHttpHeaders(soapClient, dfpSession);
+    verify(authorizationHeaderHandler).setAuthorization(soapClient, dfpSession);
+  }
+
+  /**
+   * Tests that each call gets its own header, so modifying one stub's header does not affect
+   * other calls.
+   */
+  @Test
+  public void testSetHeaders_newHeaderPerCall() throws Exception {
+    headerHandler.setHeaders(soapClient, dfpSession, dfpServiceDescriptor);
+    ArgumentCaptor<Object> headerCaptor = ArgumentCaptor.forClass(Object.class);
+    verify(soapClientHandler).setHeader(
+        eq(soapClient), anyString(), eq("RequestHeader"), headerCaptor.capture());
+    ((SoapRequestHeader) headerCaptor.getValue()).setApplicationName("CHANGED");
+
+    dfpSession.setNetworkCode(null);
+    headerHandler.setHeaders(soapClient, dfpSession, dfpServiceDescriptor);
+
+    verify(soapClientHandler, times(2)).setHeader(
+        eq(soapClient), anyString(), eq("RequestHeader"), headerCaptor.capture());
+    List<Object> headers = headerCaptor.getAllValues();
+    SoapRequestHeader header = (SoapRequestHeader) headers.get(headers.size() - 1);
+    assertNotSame(headers.get(0), header);
+    assertEquals("libSig", header.getApplicationName());
+    assertNull(header.getNetworkCode());
+  }
+}
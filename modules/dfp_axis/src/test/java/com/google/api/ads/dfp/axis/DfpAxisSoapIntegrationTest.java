@@ -17,14 +17,19 @@ package com.google.api.ads.dfp.axis;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import com.google.api.ads.common.lib.auth.OfflineCredentials;
 import com.google.api.ads.common.lib.auth.testing.AuthResponseProvider;
+import com.google.api.ads.common.lib.soap.SoapCallListener;
+import com.google.api.ads.common.lib.soap.SoapCallMetrics;
 import com.google.api.ads.common.lib.testing.MockHttpIntegrationTest;
 import com.google.api.ads.dfp.axis.factory.DfpServices;
 import com.google.api.ads.dfp.axis.testing.SoapRequestXmlProvider;
 import com.google.api.ads.dfp.axis.v201702.Company;
 import com.google.api.ads.dfp.axis.v201702.CompanyServiceInterface;
+import com.google.api.ads.dfp.lib.DfpPluginModule;
 import com.google.api.ads.dfp.lib.client.DfpSession;
 import com.google.api.ads.dfp.lib.soap.testing.SoapResponseXmlProvider;
 import com.google.api.client.auth.oauth2.Credential;
@@ -38,6 +43,8 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 
 /**
  * Tests that a DFP Axis SOAP call can be made end-to-end.
@@ -81,6 +88,36 @@ public class DfpAxisSoapIntegrationTest extends MockHttpIntegrationTest {
     assertEquals("Bearer TEST_ACCESS_TOKEN", testHttpServer.getLastAuthorizationHttpHeader());
   }
 
+  /**
+   * Tests that the SOAP call listener of a plugin module receives the metrics of a call.
+   */
+  @Test
+  public void testGoldenSoap_pluginModuleSoapCallListener() throws Exception {
+    testHttpServer.setMockResponseBody(SoapResponseXmlProvider.getTestSoapResponse(API_VERSION));
+    SoapCallListener soapCallListener = Mockito.mock(SoapCallListener.class);
+    when(soapCallListener.isEnabled()).thenReturn(true);
+
+    GoogleCredential credential = new GoogleCredential.Builder().setTransport(
+        new NetHttpTransport()).setJsonFactory(new JacksonFactory()).build();
+    credential.setAccessToken("TEST_ACCESS_TOKEN");
+
+    DfpSession session = new DfpSession.Builder().withApplicationName("TEST_APP")
+        .withOAuth2Credential(credential)
+        .withEndpoint(testHttpServer.getServerUrl())
+        .withNetworkCode("TEST_NETWORK_CODE")
+        .build();
+
+    CompanyServiceInterface companyService = new DfpServices()
+        .withPluginModule(new DfpPluginModule(soapCallListener))
+        .get(session, CompanyServiceInterface.class);
+    companyService.createCompanies(new Company[] {new Company()});
+
+    ArgumentCaptor<SoapCallMetrics> metricsCaptor = ArgumentCaptor.forClass(SoapCallMetrics.class);
+    verify(soapCallListener).onSoapCallComplete(metricsCaptor.capture());
+    assertEquals("createCompanies", metricsCaptor.getValue().getMethodName());
+    assertEquals(1, metricsCaptor.getValue().getOperationCount());
+  }
+
   /**
    * Tests making a Axis DFP API call with OfflineCredentials.
    */